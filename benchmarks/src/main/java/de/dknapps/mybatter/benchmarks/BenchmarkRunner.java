@@ -0,0 +1,112 @@
+/*
+ * MyBatter - Formats your MyBatis mapper XML files
+ *
+ *     Copyright (C) 2018 Uwe Damken
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package de.dknapps.mybatter.benchmarks;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Collection;
+import java.util.Map;
+
+import org.openjdk.jmh.infra.BenchmarkParams;
+import org.openjdk.jmh.profile.GCProfiler;
+import org.openjdk.jmh.results.Result;
+import org.openjdk.jmh.results.RunResult;
+import org.openjdk.jmh.results.format.ResultFormatType;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.ChainedOptionsBuilder;
+import org.openjdk.jmh.runner.options.CommandLineOptionException;
+import org.openjdk.jmh.runner.options.CommandLineOptions;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+/**
+ * Runs the benchmarks with the GC profiler and prints throughput and allocations per input byte for every
+ * benchmark and input. The results are written to a JSON file to compare them between versions. All JMH
+ * command line options can be used, e.g. to select benchmarks or to change parameters.
+ * 
+ * <pre>
+ *     java -jar mybatter-benchmarks-&lt;version&gt;-jar-with-dependencies.jar [regex] [JMH options]
+ * </pre>
+ */
+public class BenchmarkRunner {
+
+	/** Default name of the JSON file to write the results to */
+	private static final String DEFAULT_RESULT_FILE = "jmh-result.json";
+
+	/** Name of the secondary result of the GC profiler with the number of bytes allocated per operation */
+	private static final String ALLOCATION_RESULT = "gc.alloc.rate.norm";
+
+	/**
+	 * Prevents instantiation.
+	 */
+	private BenchmarkRunner() {
+	}
+
+	public static void main(String[] args) throws RunnerException, CommandLineOptionException {
+		CommandLineOptions commandLineOptions = new CommandLineOptions(args);
+		ChainedOptionsBuilder options = new OptionsBuilder().parent(commandLineOptions).addProfiler(GCProfiler.class);
+		if (commandLineOptions.getIncludes().isEmpty()) {
+			options.include(BenchmarkRunner.class.getPackage().getName() + ".*");
+		}
+		if (!commandLineOptions.getResult().hasValue()) {
+			options.resultFormat(ResultFormatType.JSON).result(DEFAULT_RESULT_FILE);
+		}
+		Collection<RunResult> runResults = new Runner(options.build()).run();
+		printSummary(runResults);
+	}
+
+	/**
+	 * Prints throughput and allocations in relation to the size of the input.
+	 * 
+	 * @param runResults
+	 *            The results of all benchmarks.
+	 */
+	private static void printSummary(Collection<RunResult> runResults) {
+		System.out.println();
+		System.out.println(String.format("%-40s %-22s %12s %14s %10s %14s", "Benchmark", "Input", "Bytes", "ops/s",
+				"MB/s", "alloc B/byte"));
+		for (RunResult runResult : runResults) {
+			BenchmarkParams params = runResult.getParams();
+			String mapperInput = params.getParam("mapperInput");
+			String statementInput = params.getParam("statementInput");
+			String input;
+			if (mapperInput != null) {
+				input = MapperInput.valueOf(mapperInput).getInput();
+			} else if (statementInput != null) {
+				input = StatementInput.valueOf(statementInput).getSql();
+			} else {
+				input = ScalingBenchmark.createInput(params);
+			}
+			int inputLength = input.getBytes(StandardCharsets.UTF_8).length;
+			double opsPerSecond = runResult.getPrimaryResult().getScore();
+			double allocationPerByte = Double.NaN;
+			for (Map.Entry<String, Result> entry : runResult.getSecondaryResults().entrySet()) {
+				if (entry.getKey().endsWith(ALLOCATION_RESULT)) {
+					allocationPerByte = entry.getValue().getScore() / inputLength;
+				}
+			}
+			String benchmark = params.getBenchmark();
+			System.out.println(String.format("%-40s %-22s %12d %14.1f %10.2f %14.1f",
+					benchmark.substring(benchmark.lastIndexOf('.', benchmark.lastIndexOf('.') - 1) + 1),
+					(mapperInput != null) ? mapperInput
+							: (statementInput != null) ? statementInput
+									: "statementCount=" + params.getParam("statementCount"),
+					inputLength, opsPerSecond, opsPerSecond * inputLength / (1024 * 1024), allocationPerByte));
+		}
+	}
+
+}
@@ -0,0 +1,185 @@
+/*
+ * MyBatter - Formats your MyBatis mapper XML files
+ *
+ *     Copyright (C) 2018 Uwe Damken
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package de.dknapps.mybatter.benchmarks;
+
+import java.util.Locale;
+import java.util.Random;
+
+import org.apache.commons.cli.CommandLine;
+import org.apache.commons.cli.DefaultParser;
+import org.apache.commons.cli.HelpFormatter;
+import org.apache.commons.cli.Option;
+import org.apache.commons.cli.Options;
+import org.apache.commons.cli.ParseException;
+
+import de.dknapps.mybatter.formatter.Formatter;
+
+/**
+ * Checks that formatting takes linear time for random, mostly broken inputs. Every case mixes fragments of
+ * mapper files (unterminated strings, references, comments and character data among them) with random
+ * weights. Each case is formatted at doubling sizes and the slope of the running time over the size is fitted
+ * on a log-log scale: 1 is linear, 2 is quadratic. The exit code is 1 if a slope exceeds the limit.
+ */
+public class ComplexityFuzzer {
+
+	/** Fragments the inputs are put together from */
+	private static final String[] FRAGMENTS = { "select ", "a ", "b.c ", "= ", "1 ", "and ", "or ", "between ",
+			"from ", "where ", "delete ", "in ", "(", ")", ", ", "#{x} ", "${", "}", "'", "\"", "<!--", "-->",
+			"<![CDATA[", "]]>", "<select id=\"s\">", "</select>", "<if test=\"a != null\">", "</if>", "<", ">",
+			"/>", "-- ", "\n", "<?", "?>", "<!DOCTYPE " };
+
+	/** Number of measurements per size, the fastest one counts */
+	private static final int REPETITIONS = 3;
+
+	public static void main(String[] args) {
+		Options options = createOptions();
+		try {
+			CommandLine commandLine = new DefaultParser().parse(options, args);
+			if (commandLine.hasOption("h")) {
+				printHelp(options);
+				return;
+			}
+			long seed = Long.parseLong(commandLine.getOptionValue("r", "1"));
+			int caseCount = Integer.parseInt(commandLine.getOptionValue("c", "20"));
+			int startSize = Integer.parseInt(commandLine.getOptionValue("s", "32768"));
+			int doublingCount = Integer.parseInt(commandLine.getOptionValue("d", "5"));
+			double maxSlope = Double.parseDouble(commandLine.getOptionValue("l", "1.3"));
+			int failedCount = 0;
+			for (int i = 0; i < caseCount; i++) {
+				double slope = measureSlope(seed + i, startSize, doublingCount);
+				boolean failed = slope > maxSlope;
+				System.out.println(String.format(Locale.ROOT, "case %3d (seed %d): slope %.2f%s", i, seed + i,
+						slope, failed ? " FAILED" : ""));
+				failedCount += failed ? 1 : 0;
+			}
+			System.out.println(failedCount + " of " + caseCount + " case(s) exceed slope " + maxSlope);
+			System.exit(failedCount > 0 ? 1 : 0);
+		} catch (ParseException | NumberFormatException e) {
+			System.err.println(e.getLocalizedMessage());
+			printHelp(options);
+		}
+	}
+
+	/**
+	 * Creates all options usable on the command line.
+	 */
+	private static Options createOptions() {
+		Options options = new Options();
+		options.addOption(Option.builder("h").longOpt("help").desc("print this message").build());
+		options.addOption(Option.builder("r").longOpt("seed").hasArg().argName("seed")
+				.desc("seed of the first case, the following ones count up (default is 1)").build());
+		options.addOption(Option.builder("c").longOpt("cases").hasArg().argName("count")
+				.desc("number of cases (default is 20)").build());
+		options.addOption(Option.builder("s").longOpt("size").hasArg().argName("chars")
+				.desc("size of the smallest input (default is 32768)").build());
+		options.addOption(Option.builder("d").longOpt("doublings").hasArg().argName("count")
+				.desc("number of times the size is doubled (default is 5)").build());
+		options.addOption(Option.builder("l").longOpt("limit").hasArg().argName("slope")
+				.desc("maximum slope on a log-log scale (default is 1.3)").build());
+		return options;
+	}
+
+	/**
+	 * Prints the command line help.
+	 */
+	private static void printHelp(Options options) {
+		new HelpFormatter().printHelp("java -cp mybatter-benchmarks-<version>-jar-with-dependencies.jar "
+				+ ComplexityFuzzer.class.getName() + " [options]", options, true);
+	}
+
+	/**
+	 * Formats inputs of a case at doubling sizes and fits the slope of the running time over the size on a
+	 * log-log scale by least squares.
+	 * 
+	 * @param seed
+	 *            Seed of the case.
+	 * @param startSize
+	 *            Size of the smallest input.
+	 * @param doublingCount
+	 *            Number of times the size is doubled.
+	 * @return The slope, 1 for linear running time.
+	 */
+	static double measureSlope(long seed, int startSize, int doublingCount) {
+		String largestInput = createInput(seed, startSize << doublingCount);
+		for (int i = 0; i < REPETITIONS; i++) {
+			measureNanos(largestInput.substring(0, startSize)); // warm-up
+		}
+		double sumX = 0, sumY = 0, sumXX = 0, sumXY = 0;
+		int n = doublingCount + 1;
+		for (int i = 0; i < n; i++) {
+			String input = largestInput.substring(0, startSize << i);
+			long nanos = Long.MAX_VALUE;
+			for (int j = 0; j < REPETITIONS; j++) {
+				nanos = Math.min(nanos, measureNanos(input));
+			}
+			double x = Math.log(input.length());
+			double y = Math.log(Math.max(nanos, 1));
+			sumX += x;
+			sumY += y;
+			sumXX += x * x;
+			sumXY += x * y;
+		}
+		return (n * sumXY - sumX * sumY) / (n * sumXX - sumX * sumX);
+	}
+
+	/**
+	 * Creates an input of the case by putting randomly chosen fragments together. Fragments are weighted
+	 * randomly per case, hence cases differ in shape. Inputs of the same case share their beginning.
+	 * 
+	 * @param seed
+	 *            Seed of the case.
+	 * @param size
+	 *            Number of characters of the input.
+	 * @return The input.
+	 */
+	static String createInput(long seed, int size) {
+		Random random = new Random(seed);
+		double[] cumulativeWeights = new double[FRAGMENTS.length];
+		double totalWeight = 0;
+		for (int i = 0; i < FRAGMENTS.length; i++) {
+			double weight = random.nextDouble();
+			totalWeight += weight * weight * weight; // let some fragments dominate
+			cumulativeWeights[i] = totalWeight;
+		}
+		StringBuilder sb = new StringBuilder(size + 32);
+		while (sb.length() < size) {
+			double r = random.nextDouble() * totalWeight;
+			int i = 0;
+			while (i < FRAGMENTS.length - 1 && cumulativeWeights[i] < r) {
+				i++;
+			}
+			sb.append(FRAGMENTS[i]);
+		}
+		sb.setLength(size);
+		return sb.toString();
+	}
+
+	/**
+	 * Formats the input.
+	 * 
+	 * @param input
+	 *            The input.
+	 * @return The running time in nanoseconds.
+	 */
+	private static long measureNanos(String input) {
+		long start = System.nanoTime();
+		new Formatter().format(input);
+		return System.nanoTime() - start;
+	}
+
+}
@@ -0,0 +1,363 @@
+/*
+ * MyBatter - Formats your MyBatis mapper XML files
+ *
+ *     Copyright (C) 2018 Uwe Damken
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package de.dknapps.mybatter.benchmarks;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.util.Random;
+
+import lombok.Getter;
+import lombok.Setter;
+
+/**
+ * Generates synthetic MyBatis mappers of a controlled shape. The same seed and settings always lead to the same
+ * mapper, hence benchmarks can be repeated with exactly the same input. The mappers contain the constructs
+ * known by the tokenizer: primary xml tags, sql statements and sub statements, ANDs and ORs, BETWEENs,
+ * IN-lists, strings, MyBatis references, sub selects, dynamic sql tags, CDATA sections, xml and sql comments.
+ */
+public class MapperGenerator {
+
+	/** Names of tables and columns are taken from here */
+	private static final String[] NAMES = { "customer", "orders", "item", "address", "invoice", "status",
+			"amount", "created_at", "name", "email", "city", "quantity", "price", "version" };
+
+	/** Primary xml tags of the statements, the more often a tag is listed the more often it is chosen */
+	private static final String[] TAGS = { "select", "select", "select", "select", "select", "update", "update",
+			"insert", "delete", "sql" };
+
+	/** Comparison operators used in conditions, those with &lt; or &gt; are escaped outside of CDATA sections */
+	private static final String[] OPERATORS = { "=", "!=", "<", ">", "<=", ">=", "like" };
+
+	/** Seed of the random numbers that decide about the shape of every statement */
+	@Getter
+	private final long seed;
+
+	/** Number of statements (select, insert, update, delete, sql) in the mapper */
+	@Getter
+	@Setter
+	private int statementCount = 100;
+
+	/** Average number of conditions joined by AND (or sometimes OR) in a where clause */
+	@Getter
+	@Setter
+	private int andCount = 3;
+
+	/** Share of conditions that use BETWEEN ... AND ... (0.0 to 1.0) */
+	@Getter
+	@Setter
+	private double betweenShare = 0.2;
+
+	/** Average number of values in an IN-list, 0 for no IN-lists at all */
+	@Getter
+	@Setter
+	private int inListLength = 5;
+
+	/** Share of statements whose sql is wrapped into a CDATA section (0.0 to 1.0) */
+	@Getter
+	@Setter
+	private double characterDataShare = 0.1;
+
+	/** Share of statements with an xml comment before them and an sql comment within them (0.0 to 1.0) */
+	@Getter
+	@Setter
+	private double commentShare = 0.2;
+
+	/** Maximum depth of nested sub selects, parentheses and dynamic sql tags */
+	@Getter
+	@Setter
+	private int nestingDepth = 2;
+
+	/** Random numbers of the mapper currently generated */
+	private Random random;
+
+	/** True while generating the contents of a CDATA section */
+	private boolean inCharacterData;
+
+	/**
+	 * Constructs a generator with default settings.
+	 * 
+	 * @param seed
+	 *            Seed of the random numbers that decide about the shape of every statement.
+	 */
+	public MapperGenerator(long seed) {
+		this.seed = seed;
+	}
+
+	/**
+	 * Generates a mapper.
+	 * 
+	 * @return The mapper XML contents.
+	 */
+	public String generate() {
+		StringBuilder sb = new StringBuilder();
+		try {
+			generate(sb);
+		} catch (IOException e) {
+			throw new UncheckedIOException(e); // cannot happen with a StringBuilder
+		}
+		return sb.toString();
+	}
+
+	/**
+	 * Generates a mapper statement by statement, e.g. to write huge mappers to a file.
+	 * 
+	 * @param out
+	 *            Receives the mapper XML contents.
+	 * @throws IOException
+	 */
+	public synchronized void generate(Appendable out) throws IOException {
+		random = new Random(seed);
+		out.append("<?xml version=\"1.0\" encoding=\"UTF-8\" ?>\n");
+		out.append("<!DOCTYPE mapper PUBLIC \"-//mybatis.org//DTD Mapper 3.0//EN\" "
+				+ "\"http://mybatis.org/dtd/mybatis-3-mapper.dtd\">\n");
+		out.append("<mapper namespace=\"de.dknapps.mybatter.benchmarks.Generated").append(Long.toString(seed))
+				.append("Mapper\">\n");
+		out.append("<cache eviction=\"LRU\" size=\"512\"/>\n");
+		out.append("<resultMap id=\"result\" type=\"Data\">\n<id property=\"id\" column=\"ID\"/>\n");
+		out.append("<result property=\"name\" column=\"NAME\"/>\n</resultMap>\n");
+		StringBuilder statement = new StringBuilder();
+		for (int i = 0; i < statementCount; i++) {
+			statement.setLength(0);
+			appendStatement(statement, i);
+			out.append(statement);
+		}
+		out.append("</mapper>\n");
+	}
+
+	/**
+	 * Estimates the number of statements needed to generate a mapper of the given length with the current
+	 * settings by generating some statements.
+	 * 
+	 * @param length
+	 *            The length of the mapper in characters.
+	 * @return The number of statements, at least 1.
+	 */
+	public synchronized int estimateStatementCount(long length) {
+		int sampleCount = 100;
+		random = new Random(seed);
+		StringBuilder sb = new StringBuilder();
+		for (int i = 0; i < sampleCount; i++) {
+			appendStatement(sb, i);
+		}
+		return (int) Math.max(1, Math.min(Integer.MAX_VALUE, length * sampleCount / sb.length()));
+	}
+
+	/**
+	 * Appends a statement of a randomly chosen kind.
+	 */
+	private void appendStatement(StringBuilder sb, int index) {
+		boolean comment = random.nextDouble() < commentShare;
+		if (comment) {
+			sb.append("<!-- statement ").append(index).append(" generated for benchmarks -->\n");
+		}
+		String tag = TAGS[random.nextInt(TAGS.length)];
+		sb.append('<').append(tag).append(" id=\"").append(tag).append(index).append('"');
+		if (tag.equals("select")) {
+			sb.append(" resultMap=\"result\"");
+		}
+		sb.append(">\n");
+		inCharacterData = random.nextDouble() < characterDataShare;
+		if (inCharacterData) {
+			sb.append("<![CDATA[\n");
+		}
+		switch (tag) {
+		case "select":
+			appendSelect(sb, nestingDepth, comment);
+			break;
+		case "update":
+			appendUpdate(sb, comment);
+			break;
+		case "insert":
+			appendInsert(sb);
+			break;
+		case "delete":
+			sb.append("delete from ${schema}.").append(name());
+			appendWhere(sb, nestingDepth, comment);
+			break;
+		default:
+			appendColumns(sb);
+			break;
+		}
+		if (inCharacterData) {
+			sb.append("\n]]>");
+		}
+		sb.append("\n</").append(tag).append(">\n");
+	}
+
+	/**
+	 * Appends a select statement, maybe with joins, sub selects, group by, order by and union.
+	 */
+	private void appendSelect(StringBuilder sb, int depth, boolean comment) {
+		sb.append((random.nextInt(4) == 0) ? "select distinct " : "select ");
+		appendColumns(sb);
+		sb.append(" from ${schema}.").append(name()).append(" t").append(depth);
+		if (random.nextInt(3) == 0) {
+			sb.append(" left outer join ").append(name()).append(" j").append(depth).append(" on j").append(depth)
+					.append('.').append(name()).append(" = t").append(depth).append('.').append(name());
+		}
+		appendWhere(sb, depth, comment);
+		if (random.nextInt(5) == 0) {
+			sb.append(" group by ").append(name()).append(" having count(*) ").append(escape(">")).append(' ')
+					.append(random.nextInt(10));
+		}
+		if (random.nextInt(3) == 0) {
+			sb.append(" order by ").append(name()).append(", ").append(name()).append(" desc");
+		}
+		if (depth == nestingDepth && random.nextInt(10) == 0) {
+			sb.append("\nunion all\nselect ");
+			appendColumns(sb);
+			sb.append(" from ").append(name());
+		}
+	}
+
+	/**
+	 * Appends an update statement with a set and a where clause.
+	 */
+	private void appendUpdate(StringBuilder sb, boolean comment) {
+		sb.append("update ${schema}.").append(name()).append(" set ");
+		int count = 1 + random.nextInt(4);
+		for (int i = 0; i < count; i++) {
+			sb.append((i == 0) ? "" : ", ").append(name()).append(" = #{").append(name()).append('}');
+		}
+		appendWhere(sb, nestingDepth, comment);
+	}
+
+	/**
+	 * Appends an insert statement with columns and values.
+	 */
+	private void appendInsert(StringBuilder sb) {
+		int count = 1 + random.nextInt(6);
+		sb.append("insert into ${schema}.").append(name()).append(" (");
+		for (int i = 0; i < count; i++) {
+			sb.append((i == 0) ? "" : ", ").append(name());
+		}
+		sb.append(") values (");
+		for (int i = 0; i < count; i++) {
+			sb.append((i == 0) ? "" : ", ");
+			appendValue(sb);
+		}
+		sb.append(')');
+	}
+
+	/**
+	 * Appends a list of columns, some of them qualified by a table.
+	 */
+	private void appendColumns(StringBuilder sb) {
+		int count = 1 + random.nextInt(6);
+		for (int i = 0; i < count; i++) {
+			sb.append((i == 0) ? "" : ", ");
+			if (random.nextBoolean()) {
+				sb.append('t').append(random.nextInt(nestingDepth + 1)).append('.');
+			}
+			sb.append(name());
+		}
+	}
+
+	/**
+	 * Appends a where clause with conditions, some of them within dynamic sql tags if not in a CDATA section.
+	 */
+	private void appendWhere(StringBuilder sb, int depth, boolean comment) {
+		int count = (andCount <= 0) ? 0 : 1 + random.nextInt(2 * andCount);
+		if (count == 0) {
+			return;
+		}
+		sb.append("\nwhere ");
+		if (comment) {
+			sb.append("-- conditions\n");
+		}
+		for (int i = 0; i < count; i++) {
+			boolean ifTag = !inCharacterData && depth > 0 && i > 0 && random.nextInt(4) == 0;
+			if (ifTag) {
+				sb.append(" <if test=\"").append(name()).append(" != null\">");
+			}
+			if (i > 0) {
+				sb.append((random.nextInt(10) == 0) ? " or " : " and ");
+			}
+			appendCondition(sb, depth);
+			if (ifTag) {
+				sb.append("</if>");
+			}
+		}
+	}
+
+	/**
+	 * Appends a single condition: a comparison, a BETWEEN, an IN-list, a sub select or nested conditions.
+	 */
+	private void appendCondition(StringBuilder sb, int depth) {
+		int kind = random.nextInt(10);
+		if (random.nextDouble() < betweenShare) {
+			sb.append(name()).append(" between ");
+			appendValue(sb);
+			sb.append(" and ");
+			appendValue(sb);
+		} else if (inListLength > 0 && kind < 2) {
+			sb.append(name()).append(" in (");
+			int count = 1 + random.nextInt(2 * inListLength);
+			for (int i = 0; i < count; i++) {
+				sb.append((i == 0) ? "" : ", ");
+				appendValue(sb);
+			}
+			sb.append(')');
+		} else if (depth > 0 && kind == 2) {
+			sb.append("exists (");
+			appendSelect(sb, depth - 1, false);
+			sb.append(')');
+		} else if (depth > 0 && kind == 3) {
+			sb.append('(');
+			appendCondition(sb, depth - 1);
+			sb.append(" or ");
+			appendCondition(sb, depth - 1);
+			sb.append(')');
+		} else {
+			sb.append(name()).append(' ').append(escape(OPERATORS[random.nextInt(OPERATORS.length)])).append(' ');
+			appendValue(sb);
+		}
+	}
+
+	/**
+	 * Appends a value: a number, a string or a MyBatis reference.
+	 */
+	private void appendValue(StringBuilder sb) {
+		switch (random.nextInt(4)) {
+		case 0:
+			sb.append(random.nextInt(1000));
+			break;
+		case 1:
+			sb.append('\'').append(name()).append(' ').append(random.nextInt(100)).append('\'');
+			break;
+		default:
+			sb.append("#{").append(name()).append('}');
+			break;
+		}
+	}
+
+	/**
+	 * Escapes &lt; and &gt; unless in a CDATA section.
+	 */
+	private String escape(String operator) {
+		return inCharacterData ? operator : operator.replace("<", "&lt;").replace(">", "&gt;");
+	}
+
+	/**
+	 * Returns a random name of a table or column.
+	 */
+	private String name() {
+		return NAMES[random.nextInt(NAMES.length)];
+	}
+
+}
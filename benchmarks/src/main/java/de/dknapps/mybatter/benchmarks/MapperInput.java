@@ -0,0 +1,111 @@
+/*
+ * MyBatter - Formats your MyBatis mapper XML files
+ *
+ *     Copyright (C) 2018 Uwe Damken
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package de.dknapps.mybatter.benchmarks;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+
+import org.apache.commons.io.IOUtils;
+
+/**
+ * Mapper XML inputs of different shapes the benchmarks are run with.
+ */
+public enum MapperInput {
+
+	/** A single short select statement */
+	SMALL {
+		@Override
+		String create() {
+			return "<select id=\"selectName\" resultType=\"string\">" //
+					+ "select NAME from CUSTOMER where ID = #{id}</select>";
+		}
+	},
+
+	/** A mapper with a result map and a dozen statements of all kinds like they are written by hand */
+	TYPICAL {
+		@Override
+		String create() {
+			try {
+				return IOUtils.toString(MapperInput.class.getResourceAsStream("TypicalMapper.xml"),
+						StandardCharsets.UTF_8);
+			} catch (IOException e) {
+				throw new UncheckedIOException(e);
+			}
+		}
+	},
+
+	/**
+	 * A mapper with constructs that are expensive to tokenize and format: a where clause with thousands of
+	 * ANDs and BETWEENs, deeply nested parentheses, a huge string literal and a huge xml comment
+	 */
+	PATHOLOGICAL {
+		@Override
+		String create() {
+			StringBuilder sb = new StringBuilder("<mapper namespace=\"Pathological\">\n");
+			sb.append("<select id=\"manyConditions\">select a from t where a0 = 0");
+			for (int i = 1; i < 2000; i++) {
+				if (i % 3 == 0) {
+					sb.append(" and b").append(i).append(" between ").append(i).append(" and ").append(i + 1);
+				} else {
+					sb.append(" and a").append(i).append(" = ").append(i);
+				}
+			}
+			sb.append("</select>\n<select id=\"deepNesting\">select a from t where ");
+			for (int i = 0; i < 500; i++) {
+				sb.append("(a").append(i).append(" = 1 or ");
+			}
+			sb.append("1 = 1");
+			for (int i = 0; i < 500; i++) {
+				sb.append(')');
+			}
+			sb.append("</select>\n<select id=\"hugeString\">select '");
+			for (int i = 0; i < 10000; i++) {
+				sb.append("text ");
+			}
+			sb.append("' from t</select>\n<!-- ");
+			for (int i = 0; i < 10000; i++) {
+				sb.append("comment ");
+			}
+			return sb.append("-->\n</mapper>\n").toString();
+		}
+	};
+
+	/** The input, created on first use */
+	private String input;
+
+	/**
+	 * Creates the input.
+	 * 
+	 * @return The mapper XML contents.
+	 */
+	abstract String create();
+
+	/**
+	 * Returns the input.
+	 * 
+	 * @return The mapper XML contents.
+	 */
+	public synchronized String getInput() {
+		if (input == null) {
+			input = create();
+		}
+		return input;
+	}
+
+}
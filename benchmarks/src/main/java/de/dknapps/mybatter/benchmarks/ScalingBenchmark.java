@@ -0,0 +1,134 @@
+/*
+ * MyBatter - Formats your MyBatis mapper XML files
+ *
+ *     Copyright (C) 2018 Uwe Damken
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package de.dknapps.mybatter.benchmarks;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.BenchmarkParams;
+
+import de.dknapps.mybatter.formatter.Formatter;
+import de.dknapps.mybatter.tokenizer.Token;
+import de.dknapps.mybatter.tokenizer.Tokenizer;
+
+/**
+ * Measures tokenizing and formatting generated mappers of growing size. The throughput in bytes per second
+ * should be roughly the same for every size, a decreasing one reveals superlinear behaviour. Use the
+ * parameters of {@link MapperGenerator} to vary the shape of the mappers, e.g.
+ * <code>-p statementCount=100000 -p andCount=50</code>.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 2, time = 2)
+@Measurement(iterations = 3, time = 2)
+@Fork(1)
+public class ScalingBenchmark {
+
+	@Param("1")
+	public long seed;
+
+	@Param({ "10", "100", "1000", "10000" })
+	public int statementCount;
+
+	@Param("3")
+	public int andCount;
+
+	@Param("0.2")
+	public double betweenShare;
+
+	@Param("5")
+	public int inListLength;
+
+	@Param("0.1")
+	public double characterDataShare;
+
+	@Param("0.2")
+	public double commentShare;
+
+	@Param("2")
+	public int nestingDepth;
+
+	private String input;
+
+	@Setup
+	public void setUp() {
+		input = createGenerator().generate();
+	}
+
+	/**
+	 * Creates the input of a finished benchmark run, e.g. to find out its size.
+	 * 
+	 * @param params
+	 *            The parameters of the run.
+	 * @return The mapper XML contents.
+	 */
+	static String createInput(BenchmarkParams params) {
+		ScalingBenchmark benchmark = new ScalingBenchmark();
+		benchmark.seed = Long.parseLong(params.getParam("seed"));
+		benchmark.statementCount = Integer.parseInt(params.getParam("statementCount"));
+		benchmark.andCount = Integer.parseInt(params.getParam("andCount"));
+		benchmark.betweenShare = Double.parseDouble(params.getParam("betweenShare"));
+		benchmark.inListLength = Integer.parseInt(params.getParam("inListLength"));
+		benchmark.characterDataShare = Double.parseDouble(params.getParam("characterDataShare"));
+		benchmark.commentShare = Double.parseDouble(params.getParam("commentShare"));
+		benchmark.nestingDepth = Integer.parseInt(params.getParam("nestingDepth"));
+		return benchmark.createGenerator().generate();
+	}
+
+	/**
+	 * Creates a generator with the parameters of this benchmark.
+	 * 
+	 * @return The generator.
+	 */
+	MapperGenerator createGenerator() {
+		MapperGenerator generator = new MapperGenerator(seed);
+		generator.setStatementCount(statementCount);
+		generator.setAndCount(andCount);
+		generator.setBetweenShare(betweenShare);
+		generator.setInListLength(inListLength);
+		generator.setCharacterDataShare(characterDataShare);
+		generator.setCommentShare(commentShare);
+		generator.setNestingDepth(nestingDepth);
+		return generator;
+	}
+
+	@Benchmark
+	public List<Token> tokenize() {
+		Tokenizer tokenizer = new Tokenizer(input);
+		tokenizer.tokenize();
+		return tokenizer.getTokenList();
+	}
+
+	@Benchmark
+	public String format() {
+		return new Formatter().format(input);
+	}
+
+}
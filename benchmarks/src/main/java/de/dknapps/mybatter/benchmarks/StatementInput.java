@@ -0,0 +1,91 @@
+/*
+ * MyBatter - Formats your MyBatis mapper XML files
+ *
+ *     Copyright (C) 2018 Uwe Damken
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package de.dknapps.mybatter.benchmarks;
+
+/**
+ * SQL statements as executed by MyBatis the benchmarks of per statement work are run with.
+ */
+public enum StatementInput {
+
+	/** A single short select statement */
+	SMALL("select NAME from CUSTOMER where ID = ?"),
+
+	/** A join with conditions on values, references and an in list like they are written by hand */
+	TYPICAL("SELECT c.ID, c.NAME, c.CREATED_AT, o.ID AS ORDER_ID, o.TOTAL\n" //
+			+ "  FROM CUSTOMER c\n" //
+			+ "  LEFT OUTER JOIN ORDERS o ON o.CUSTOMER_ID = c.ID AND o.STATUS <> 'CANCELLED'\n" //
+			+ " WHERE c.COUNTRY = ? -- the customer's country\n" //
+			+ "   AND c.CREATED_AT BETWEEN ? AND ?\n" //
+			+ "   AND o.TOTAL >= 100.50\n" //
+			+ "   AND c.SEGMENT IN ('A', 'B', 'C', 'D')\n" //
+			+ " ORDER BY c.NAME, o.ID DESC"),
+
+	/** An insert of many rows at once as created by a foreach tag */
+	MULTI_ROW_INSERT {
+		@Override
+		String create() {
+			StringBuilder sb = new StringBuilder("insert into ORDER_ITEM (ORDER_ID, POSITION, ARTICLE, AMOUNT)");
+			sb.append(" values ");
+			for (int i = 0; i < 100; i++) {
+				sb.append((i == 0) ? "" : ", ").append("(?, ?, ?, ?)");
+			}
+			return sb.toString();
+		}
+	};
+
+	/** The statement */
+	private String sql;
+
+	/**
+	 * Constructs an input that is created by {@link #create()}.
+	 */
+	StatementInput() {
+	}
+
+	/**
+	 * Constructs an input with the given statement.
+	 * 
+	 * @param sql
+	 *            The statement.
+	 */
+	StatementInput(String sql) {
+		this.sql = sql;
+	}
+
+	/**
+	 * Creates the statement of an input that is not given when constructing it.
+	 * 
+	 * @return The statement.
+	 */
+	String create() {
+		return sql;
+	}
+
+	/**
+	 * Returns the statement, it is created on first use.
+	 * 
+	 * @return The statement.
+	 */
+	public synchronized String getSql() {
+		if (sql == null) {
+			sql = create();
+		}
+		return sql;
+	}
+
+}
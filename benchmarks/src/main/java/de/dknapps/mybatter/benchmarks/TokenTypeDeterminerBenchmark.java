@@ -0,0 +1,68 @@
+/*
+ * MyBatter - Formats your MyBatis mapper XML files
+ *
+ *     Copyright (C) 2018 Uwe Damken
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package de.dknapps.mybatter.benchmarks;
+
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import de.dknapps.mybatter.tokenizer.Token;
+import de.dknapps.mybatter.tokenizer.TokenTypeDeterminer;
+import de.dknapps.mybatter.tokenizer.Tokenizer;
+
+/**
+ * Measures the determination of token types on tokens that have been parsed before. Every type is derived
+ * from scratch, hence the tokens can be reused by every invocation.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class TokenTypeDeterminerBenchmark {
+
+	@Param
+	public MapperInput mapperInput;
+
+	private Token rootToken;
+
+	@Setup
+	public void setUp() {
+		Tokenizer tokenizer = new Tokenizer(mapperInput.getInput());
+		tokenizer.parse();
+		rootToken = tokenizer.getRootToken();
+	}
+
+	@Benchmark
+	public Token determineTokenTypes() {
+		TokenTypeDeterminer.determineTokenTypes(rootToken);
+		return rootToken;
+	}
+
+}
@@ -0,0 +1,513 @@
+/*
+ * MyBatter - Formats your MyBatis mapper XML files
+ *
+ *     Copyright (C) 2018 Uwe Damken
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package de.dknapps.mybatter.benchmarks.cli;
+
+import java.io.BufferedReader;
+import java.io.BufferedWriter;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.PrintWriter;
+import java.io.Writer;
+import java.net.URISyntaxException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Locale;
+import java.util.Random;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Predicate;
+import java.util.function.ToLongFunction;
+import java.util.stream.Collectors;
+
+import org.apache.commons.cli.CommandLine;
+import org.apache.commons.cli.DefaultParser;
+import org.apache.commons.cli.HelpFormatter;
+import org.apache.commons.cli.Option;
+import org.apache.commons.cli.Options;
+import org.apache.commons.cli.ParseException;
+import org.apache.commons.io.FileUtils;
+
+import de.dknapps.mybatter.benchmarks.MapperGenerator;
+
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+
+/**
+ * Measures the command line end to end with JVM startup, directory scanning and file I/O. A directory tree of
+ * generated mappers is formatted by the jar-with-dependencies several times. Cold runs start a new JVM for
+ * every run, warm runs call the command line repeatedly within a single JVM after some warm-up rounds. The
+ * original files are kept (option -k), hence every run formats the same input. Wall time, time to first file,
+ * files/sec, MB/sec and peak RSS (on Linux only) are printed and written to a JSON file.
+ */
+public class CliBenchmark {
+
+	/** Suffix of lines printed by the command line after formatting a directory */
+	private static final String DIRECTORY_SUMMARY_SUFFIX = " file(s) formatted";
+
+	/** Milliseconds between two checks of the resident set size */
+	private static final long RSS_POLL_MILLIS = 5;
+
+	/** Directories with generated mappers */
+	private final List<File> directoryList = new ArrayList<>();
+
+	/** Number of generated mappers */
+	private int fileCount;
+
+	/** Number of bytes of all generated mappers */
+	private long byteCount;
+
+	public static void main(String[] args) throws IOException, InterruptedException {
+		Options options = createOptions();
+		try {
+			CommandLine commandLine = new DefaultParser().parse(options, args);
+			if (commandLine.hasOption("h") || !commandLine.hasOption("j")) {
+				printHelp(options);
+				return;
+			}
+			new CliBenchmark().run(commandLine);
+		} catch (ParseException e) {
+			System.err.println(e.getLocalizedMessage());
+			printHelp(options);
+		}
+	}
+
+	/**
+	 * Creates all options usable on the command line.
+	 */
+	private static Options createOptions() {
+		Options options = new Options();
+		options.addOption(Option.builder("h").longOpt("help").desc("print this message").build());
+		options.addOption(Option.builder("j").longOpt("jar").hasArg().argName("file")
+				.desc("jar-with-dependencies of the command line to be measured (required)").build());
+		options.addOption(Option.builder("a").longOpt("args").hasArg().argName("options")
+				.desc("additional options passed to the command line, e.g. \"-p\"").build());
+		options.addOption(Option.builder("t").longOpt("tree").hasArg().argName("directory")
+				.desc("directory to generate the mappers in (default is a temporary directory that is deleted)")
+				.build());
+		options.addOption(Option.builder("d").longOpt("directories").hasArg().argName("count")
+				.desc("number of directories to be generated (default is 10)").build());
+		options.addOption(Option.builder("f").longOpt("files").hasArg().argName("count")
+				.desc("number of mappers to be generated per directory (default is 20)").build());
+		options.addOption(Option.builder("s").longOpt("statements").hasArg().argName("count")
+				.desc("average number of statements per mapper (default is 50)").build());
+		options.addOption(Option.builder("r").longOpt("seed").hasArg().argName("seed")
+				.desc("seed of the generated mappers (default is 1)").build());
+		options.addOption(Option.builder("c").longOpt("cold").hasArg().argName("count")
+				.desc("number of cold runs, each in a new JVM (default is 5)").build());
+		options.addOption(Option.builder("w").longOpt("warm").hasArg().argName("count")
+				.desc("number of warm runs in a single JVM (default is 5)").build());
+		options.addOption(Option.builder("u").longOpt("warmup").hasArg().argName("count")
+				.desc("number of runs in that JVM before the warm runs (default is 3)").build());
+		options.addOption(Option.builder("o").longOpt("output").hasArg().argName("file")
+				.desc("JSON file to write the results to (default is cli-benchmark.json)").build());
+		return options;
+	}
+
+	/**
+	 * Prints the command line help.
+	 */
+	private static void printHelp(Options options) {
+		new HelpFormatter().printHelp("java -cp mybatter-benchmarks-<version>-jar-with-dependencies.jar "
+				+ CliBenchmark.class.getName() + " -j <file> [options]", options, true);
+	}
+
+	/**
+	 * Generates the directory tree, measures all runs and writes the results.
+	 * 
+	 * @param commandLine
+	 *            The parsed command line of the benchmark.
+	 * @throws IOException
+	 * @throws InterruptedException
+	 */
+	private void run(CommandLine commandLine) throws IOException, InterruptedException {
+		File jar = new File(commandLine.getOptionValue("j"));
+		List<String> cliArgList = new ArrayList<>(Arrays.asList("-v", "-k", "-o"));
+		if (commandLine.hasOption("a")) {
+			cliArgList.addAll(Arrays.asList(commandLine.getOptionValue("a").trim().split("\\s+")));
+		}
+		boolean temporary = !commandLine.hasOption("t");
+		File tree = temporary ? Files.createTempDirectory("mybatter").toFile()
+				: new File(commandLine.getOptionValue("t"));
+		try {
+			generateTree(tree, intOption(commandLine, "d", 10), intOption(commandLine, "f", 20),
+					intOption(commandLine, "s", 50), Long.parseLong(commandLine.getOptionValue("r", "1")));
+			System.out.println(String.format(Locale.ROOT, "Generated %d files with %.1f MB in %s", fileCount,
+					byteCount / (1024.0 * 1024.0), tree.getAbsolutePath()));
+			for (File directory : directoryList) {
+				cliArgList.add(directory.getAbsolutePath());
+			}
+			List<CliRun> runList = new ArrayList<>();
+			int coldCount = intOption(commandLine, "c", 5);
+			for (int i = 1; i <= coldCount; i++) {
+				runList.add(runCold(jar, cliArgList, i));
+			}
+			int warmCount = intOption(commandLine, "w", 5);
+			if (warmCount > 0) {
+				runList.addAll(runWarm(jar, cliArgList, intOption(commandLine, "u", 3), warmCount));
+			}
+			printSummary(runList);
+			writeResults(new File(commandLine.getOptionValue("o", "cli-benchmark.json")), jar, runList);
+		} finally {
+			if (temporary) {
+				FileUtils.deleteDirectory(tree);
+			}
+		}
+	}
+
+	/**
+	 * Returns the value of an integer option.
+	 */
+	private static int intOption(CommandLine commandLine, String option, int defaultValue) {
+		return Integer.parseInt(commandLine.getOptionValue(option, Integer.toString(defaultValue)));
+	}
+
+	/**
+	 * Generates directories with mappers of different sizes.
+	 * 
+	 * @param tree
+	 *            The directory to generate the directories in.
+	 * @param directoryCount
+	 *            Number of directories.
+	 * @param filesPerDirectory
+	 *            Number of mappers per directory.
+	 * @param statementCount
+	 *            Average number of statements per mapper.
+	 * @param seed
+	 *            Seed of the mappers.
+	 * @throws IOException
+	 */
+	private void generateTree(File tree, int directoryCount, int filesPerDirectory, int statementCount, long seed)
+			throws IOException {
+		Random random = new Random(seed);
+		for (int d = 0; d < directoryCount; d++) {
+			File directory = new File(tree, "mappers" + d);
+			directory.mkdirs();
+			directoryList.add(directory);
+			for (int f = 0; f < filesPerDirectory; f++) {
+				MapperGenerator generator = new MapperGenerator(random.nextLong());
+				generator.setStatementCount(1 + random.nextInt(2 * statementCount));
+				File file = new File(directory, "Mapper" + f + ".xml");
+				try (Writer writer = Files.newBufferedWriter(file.toPath(), StandardCharsets.UTF_8)) {
+					generator.generate(writer);
+				}
+				fileCount++;
+				byteCount += file.length();
+			}
+		}
+	}
+
+	/**
+	 * Runs the command line in a new JVM.
+	 * 
+	 * @param jar
+	 *            The jar-with-dependencies of the command line.
+	 * @param cliArgList
+	 *            The arguments of the command line.
+	 * @param number
+	 *            The number of the run.
+	 * @return The measurements.
+	 * @throws IOException
+	 * @throws InterruptedException
+	 */
+	private CliRun runCold(File jar, List<String> cliArgList, int number) throws IOException, InterruptedException {
+		List<String> command = new ArrayList<>(Arrays.asList(javaExecutable(), "-jar", jar.getAbsolutePath()));
+		command.addAll(cliArgList);
+		MeasuredProcess process = new MeasuredProcess(command);
+		List<TimedLine> lineList = process.readLines();
+		long peakRss = process.waitFor();
+		long firstFileNanos = findFirstFileNanos(lineList, process.getEndNanos());
+		return new CliRun(true, number, fileCount, byteCount, process.getEndNanos() - process.getStartNanos(),
+				firstFileNanos - process.getStartNanos(), peakRss);
+	}
+
+	/**
+	 * Runs the command line several times in a single JVM, the first runs warm up the JVM and are not measured.
+	 * 
+	 * @param jar
+	 *            The jar-with-dependencies of the command line.
+	 * @param cliArgList
+	 *            The arguments of the command line.
+	 * @param warmupCount
+	 *            The number of runs to warm up the JVM.
+	 * @param warmCount
+	 *            The number of measured runs.
+	 * @return The measurements.
+	 * @throws IOException
+	 * @throws InterruptedException
+	 */
+	private List<CliRun> runWarm(File jar, List<String> cliArgList, int warmupCount, int warmCount)
+			throws IOException, InterruptedException {
+		String classPath = jar.getAbsolutePath() + File.pathSeparator + benchmarkClassPath();
+		List<String> command = new ArrayList<>(Arrays.asList(javaExecutable(), "-cp", classPath,
+				WarmCliRunner.class.getName(), Integer.toString(warmupCount + warmCount)));
+		command.addAll(cliArgList);
+		MeasuredProcess process = new MeasuredProcess(command);
+		List<TimedLine> lineList = process.readLines();
+		long peakRss = process.waitFor(); // only known for the process as a whole
+		List<CliRun> runList = new ArrayList<>();
+		int round = 0;
+		for (int i = 0; i < lineList.size(); i++) {
+			if (lineList.get(i).getLine().equals(WarmCliRunner.ROUND_START)) {
+				long startNanos = lineList.get(i).getNanos();
+				int end = i + 1;
+				while (end < lineList.size() && !lineList.get(end).getLine().equals(WarmCliRunner.ROUND_END)) {
+					end++;
+				}
+				long endNanos = (end < lineList.size()) ? lineList.get(end).getNanos() : process.getEndNanos();
+				round++;
+				if (round > warmupCount) {
+					long firstFileNanos = findFirstFileNanos(lineList.subList(i + 1, end), endNanos);
+					runList.add(new CliRun(false, round - warmupCount, fileCount, byteCount, endNanos - startNanos,
+							firstFileNanos - startNanos, peakRss));
+				}
+				i = end;
+			}
+		}
+		return runList;
+	}
+
+	/**
+	 * Returns the time the first file has been formatted at. In verbose mode the command line prints the name
+	 * of every file before formatting it, hence the first file is done when the name of the second file is
+	 * printed.
+	 * 
+	 * @param lineList
+	 *            The lines printed by the command line.
+	 * @param endNanos
+	 *            The end of the run, used if there is a single file only.
+	 * @return The time in nanoseconds.
+	 */
+	private static long findFirstFileNanos(List<TimedLine> lineList, long endNanos) {
+		Predicate<TimedLine> isFileLine = line -> !line.getLine().endsWith(DIRECTORY_SUMMARY_SUFFIX);
+		List<TimedLine> fileLineList = lineList.stream().filter(isFileLine).limit(2).collect(Collectors.toList());
+		return (fileLineList.size() < 2) ? endNanos : fileLineList.get(1).getNanos();
+	}
+
+	/**
+	 * Returns the java executable of the JVM that runs this benchmark.
+	 */
+	private static String javaExecutable() {
+		return Paths.get(System.getProperty("java.home"), "bin", "java").toString();
+	}
+
+	/**
+	 * Returns the jar or directory this class has been loaded from.
+	 */
+	private static String benchmarkClassPath() {
+		try {
+			return new File(CliBenchmark.class.getProtectionDomain().getCodeSource().getLocation().toURI())
+					.getAbsolutePath();
+		} catch (URISyntaxException e) {
+			throw new IllegalStateException(e);
+		}
+	}
+
+	/**
+	 * Prints every run and the medians of cold and warm runs.
+	 * 
+	 * @param runList
+	 *            The measurements of all runs.
+	 */
+	private static void printSummary(List<CliRun> runList) {
+		System.out.println(String.format("%-6s %4s %12s %12s %10s %10s %12s", "Mode", "Run", "Wall ms",
+				"1st file ms", "files/s", "MB/s", "peak RSS KB"));
+		for (CliRun run : runList) {
+			printRun(run.isCold() ? "cold" : "warm", Integer.toString(run.getNumber()), run.getWallNanos(),
+					run.getFirstFileNanos(), run.getFilesPerSecond(), run.getMegabytesPerSecond(),
+					run.getPeakRssKilobytes());
+		}
+		for (boolean cold : new boolean[] { true, false }) {
+			List<CliRun> modeRunList = runList.stream().filter(run -> run.isCold() == cold)
+					.collect(Collectors.toList());
+			if (!modeRunList.isEmpty()) {
+				printRun(cold ? "cold" : "warm", "med", median(modeRunList, CliRun::getWallNanos),
+						median(modeRunList, CliRun::getFirstFileNanos),
+						modeRunList.get(0).getFileCount() * 1e9 / median(modeRunList, CliRun::getWallNanos),
+						modeRunList.get(0).getByteCount() * 1e9 / median(modeRunList, CliRun::getWallNanos)
+								/ (1024 * 1024),
+						median(modeRunList, CliRun::getPeakRssKilobytes));
+			}
+		}
+	}
+
+	/**
+	 * Prints a line of the summary.
+	 */
+	private static void printRun(String mode, String number, long wallNanos, long firstFileNanos,
+			double filesPerSecond, double megabytesPerSecond, long peakRssKilobytes) {
+		System.out.println(String.format(Locale.ROOT, "%-6s %4s %12.1f %12.1f %10.1f %10.2f %12d", mode, number,
+				wallNanos / 1e6, firstFileNanos / 1e6, filesPerSecond, megabytesPerSecond, peakRssKilobytes));
+	}
+
+	/**
+	 * Returns the median of a measurement.
+	 */
+	private static long median(List<CliRun> runList, ToLongFunction<CliRun> measurement) {
+		List<Long> valueList = runList.stream().map(measurement::applyAsLong).collect(Collectors.toList());
+		Collections.sort(valueList);
+		return valueList.get(valueList.size() / 2);
+	}
+
+	/**
+	 * Writes all runs to a JSON file.
+	 * 
+	 * @param file
+	 *            The file to write to.
+	 * @param jar
+	 *            The jar-with-dependencies that has been measured.
+	 * @param runList
+	 *            The measurements of all runs.
+	 * @throws IOException
+	 */
+	private void writeResults(File file, File jar, List<CliRun> runList) throws IOException {
+		try (PrintWriter out = new PrintWriter(
+				new BufferedWriter(Files.newBufferedWriter(file.toPath(), StandardCharsets.UTF_8)))) {
+			out.println("{");
+			out.println("  \"jar\": \"" + jar.getName() + "\",");
+			out.println("  \"java\": \"" + System.getProperty("java.version") + "\",");
+			out.println("  \"files\": " + fileCount + ",");
+			out.println("  \"bytes\": " + byteCount + ",");
+			out.println("  \"runs\": [");
+			for (int i = 0; i < runList.size(); i++) {
+				out.println("    " + runList.get(i).toJson() + ((i < runList.size() - 1) ? "," : ""));
+			}
+			out.println("  ]");
+			out.println("}");
+		}
+		System.out.println("Results written to " + file.getAbsolutePath());
+	}
+
+	/**
+	 * A line printed by a process with the time it has been read at.
+	 */
+	@AllArgsConstructor
+	@Getter
+	private static class TimedLine {
+
+		/** The line without line separator */
+		private final String line;
+
+		/** The time the line has been read at */
+		private final long nanos;
+
+	}
+
+	/**
+	 * A process whose output lines are timed and whose peak resident set size is tracked. On Linux the
+	 * process is started by a shell that prints its process id before replacing itself by the command, hence
+	 * the peak RSS can be read from /proc/&lt;pid&gt;/status while the process is running.
+	 */
+	private static class MeasuredProcess {
+
+		/** Directory of process information, only available on Linux */
+		private static final File PROC = new File("/proc/self/status");
+
+		private final Process process;
+
+		private final long startNanos;
+
+		private final BufferedReader reader;
+
+		private final AtomicLong peakRss = new AtomicLong(-1);
+
+		private Thread rssThread;
+
+		private long endNanos;
+
+		MeasuredProcess(List<String> command) throws IOException {
+			List<String> fullCommand = command;
+			if (PROC.exists()) {
+				String quotedCommand = command.stream().map(arg -> "'" + arg.replace("'", "'\\''") + "'")
+						.collect(Collectors.joining(" "));
+				fullCommand = Arrays.asList("sh", "-c", "echo $$; exec " + quotedCommand);
+			}
+			startNanos = System.nanoTime();
+			process = new ProcessBuilder(fullCommand).redirectError(ProcessBuilder.Redirect.INHERIT).start();
+			reader = new BufferedReader(new InputStreamReader(process.getInputStream(), StandardCharsets.UTF_8));
+			if (PROC.exists()) {
+				File status = new File("/proc/" + reader.readLine().trim() + "/status");
+				rssThread = new Thread(() -> pollPeakRss(status));
+				rssThread.setDaemon(true);
+				rssThread.start();
+			}
+		}
+
+		/**
+		 * Reads the high water mark of the resident set size (VmHWM) until the process ends.
+		 */
+		private void pollPeakRss(File status) {
+			while (process.isAlive()) {
+				try {
+					for (String line : Files.readAllLines(status.toPath(), StandardCharsets.UTF_8)) {
+						if (line.startsWith("VmHWM:")) {
+							long kilobytes = Long.parseLong(line.replaceAll("[^0-9]", ""));
+							peakRss.accumulateAndGet(kilobytes, Math::max);
+						}
+					}
+					Thread.sleep(RSS_POLL_MILLIS);
+				} catch (IOException | InterruptedException e) {
+					return; // process has ended
+				}
+			}
+		}
+
+		/**
+		 * Reads all lines printed by the process until it ends.
+		 */
+		List<TimedLine> readLines() throws IOException {
+			List<TimedLine> lineList = new ArrayList<>();
+			String line;
+			while ((line = reader.readLine()) != null) {
+				lineList.add(new TimedLine(line, System.nanoTime()));
+			}
+			endNanos = System.nanoTime();
+			return lineList;
+		}
+
+		/**
+		 * Waits for the process to end.
+		 * 
+		 * @return The peak RSS in kilobytes or -1 if not available.
+		 */
+		long waitFor() throws InterruptedException {
+			int exitCode = process.waitFor();
+			if (exitCode != 0) {
+				throw new IllegalStateException("Command line exited with " + exitCode);
+			}
+			if (rssThread != null) {
+				rssThread.join();
+			}
+			return peakRss.get();
+		}
+
+		long getStartNanos() {
+			return startNanos;
+		}
+
+		long getEndNanos() {
+			return endNanos;
+		}
+
+	}
+
+}
@@ -0,0 +1,85 @@
+/*
+ * MyBatter - Formats your MyBatis mapper XML files
+ *
+ *     Copyright (C) 2018 Uwe Damken
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package de.dknapps.mybatter.benchmarks.cli;
+
+import java.util.Locale;
+
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+
+/**
+ * Measurements of a single run of the command line formatting a directory tree.
+ */
+@AllArgsConstructor
+@Getter
+public class CliRun {
+
+	/** True for a run in a new JVM, false for a run in a JVM that has formatted the tree before */
+	private final boolean cold;
+
+	/** Number of the run, starting with 1 for cold and warm runs each */
+	private final int number;
+
+	/** Number of files formatted */
+	private final int fileCount;
+
+	/** Number of bytes of all files formatted */
+	private final long byteCount;
+
+	/** Nanoseconds from starting the run (the JVM for a cold run) until all files have been formatted */
+	private final long wallNanos;
+
+	/** Nanoseconds from starting the run until the first file has been formatted */
+	private final long firstFileNanos;
+
+	/** Peak resident set size of the JVM in kilobytes, -1 if not available on this platform */
+	private final long peakRssKilobytes;
+
+	/**
+	 * Returns the number of files formatted per second.
+	 * 
+	 * @return The throughput in files.
+	 */
+	public double getFilesPerSecond() {
+		return fileCount * 1e9 / wallNanos;
+	}
+
+	/**
+	 * Returns the number of megabytes formatted per second.
+	 * 
+	 * @return The throughput in megabytes.
+	 */
+	public double getMegabytesPerSecond() {
+		return byteCount * 1e9 / wallNanos / (1024 * 1024);
+	}
+
+	/**
+	 * Returns this run as JSON object.
+	 * 
+	 * @return The JSON string.
+	 */
+	public String toJson() {
+		return String.format(Locale.ROOT,
+				"{\"mode\":\"%s\",\"run\":%d,\"files\":%d,\"bytes\":%d,\"wallMillis\":%.3f,"
+						+ "\"firstFileMillis\":%.3f,\"filesPerSecond\":%.3f,\"megabytesPerSecond\":%.3f,"
+						+ "\"peakRssKilobytes\":%d}",
+				cold ? "cold" : "warm", number, fileCount, byteCount, wallNanos / 1e6, firstFileNanos / 1e6,
+				getFilesPerSecond(), getMegabytesPerSecond(), peakRssKilobytes);
+	}
+
+}
@@ -0,0 +1,58 @@
+/*
+ * MyBatter - Formats your MyBatis mapper XML files
+ *
+ *     Copyright (C) 2018 Uwe Damken
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package de.dknapps.mybatter.benchmarks.cli;
+
+import java.util.Arrays;
+
+import de.dknapps.mybatter.main.MyBatter;
+
+/**
+ * Calls the command line several times within the same JVM to measure warm runs. Every round is enclosed by
+ * marker lines on stdout that are recognized by {@link CliBenchmark}.
+ */
+public class WarmCliRunner {
+
+	/** Printed on a line of its own before every round */
+	static final String ROUND_START = "#mybatter-round-start";
+
+	/** Printed on a line of its own after every round */
+	static final String ROUND_END = "#mybatter-round-end";
+
+	/**
+	 * Prevents instantiation.
+	 */
+	private WarmCliRunner() {
+	}
+
+	/**
+	 * Runs the command line repeatedly.
+	 * 
+	 * @param args
+	 *            The number of rounds followed by the arguments of the command line.
+	 */
+	public static void main(String[] args) {
+		int roundCount = Integer.parseInt(args[0]);
+		String[] cliArgs = Arrays.copyOfRange(args, 1, args.length);
+		for (int i = 0; i < roundCount; i++) {
+			System.out.println(ROUND_START);
+			MyBatter.main(cliArgs);
+			System.out.println(ROUND_END);
+		}
+	}
+
+}
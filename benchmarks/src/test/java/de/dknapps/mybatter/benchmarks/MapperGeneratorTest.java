@@ -0,0 +1,63 @@
+/*
+ * MyBatter - Formats your MyBatis mapper XML files
+ *
+ *     Copyright (C) 2018 Uwe Damken
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package de.dknapps.mybatter.benchmarks;
+
+import java.io.IOException;
+
+import org.junit.Test;
+
+import junit.framework.TestCase;
+
+public class MapperGeneratorTest extends TestCase {
+
+	@Test
+	public void test_generate_sameSeed() throws IOException {
+		MapperGenerator generator = createGenerator(42);
+		String mapper = generator.generate();
+		assertEquals(mapper, createGenerator(42).generate());
+		assertEquals(mapper, generator.generate()); // generating again starts over
+		StringBuilder sb = new StringBuilder();
+		generator.generate(sb);
+		assertEquals(mapper, sb.toString());
+	}
+
+	@Test
+	public void test_generate_differentSeedOrSettings() {
+		String statements = statements(createGenerator(42).generate());
+		assertFalse(statements.equals(statements(createGenerator(43).generate())));
+		MapperGenerator generator = createGenerator(42);
+		generator.setInListLength(20);
+		assertFalse(statements.equals(statements(generator.generate())));
+	}
+
+	private static String statements(String mapper) {
+		return mapper.substring(mapper.indexOf("</resultMap>")); // the namespace contains the seed
+	}
+
+	private static MapperGenerator createGenerator(long seed) {
+		MapperGenerator generator = new MapperGenerator(seed);
+		generator.setStatementCount(50);
+		generator.setAndCount(4);
+		generator.setBetweenShare(0.3);
+		generator.setCharacterDataShare(0.2);
+		generator.setCommentShare(0.5);
+		generator.setNestingDepth(3);
+		return generator;
+	}
+
+}
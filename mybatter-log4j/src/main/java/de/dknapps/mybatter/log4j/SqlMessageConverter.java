@@ -0,0 +1,161 @@
+/*
+ * MyBatter - Formats your MyBatis mapper XML files
+ *
+ *     Copyright (C) 2018 Uwe Damken
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package de.dknapps.mybatter.log4j;
+
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+import org.apache.logging.log4j.core.LogEvent;
+import org.apache.logging.log4j.core.config.Configuration;
+import org.apache.logging.log4j.core.config.plugins.Plugin;
+import org.apache.logging.log4j.core.pattern.ConverterKeys;
+import org.apache.logging.log4j.core.pattern.LogEventPatternConverter;
+import org.apache.logging.log4j.core.pattern.PatternConverter;
+
+import de.dknapps.mybatter.formatter.SqlFormatCache;
+
+/**
+ * Log4j 2 pattern converter that writes the message of a log event like <code>%m</code>, but with SQL found
+ * in the message formatted on the lines below the text before it. Formatted statements are kept in a cache,
+ * hence logging identical statements again costs a cache lookup only. The converter may be used by many
+ * threads at once, e.g. by async loggers, as it keeps no state but the thread-safe cache. Usage:
+ * 
+ * <pre>
+ * &lt;PatternLayout pattern="%d %-5p %c - %sqlMessage{1000}{Preparing:}%n"/&gt;
+ * </pre>
+ * 
+ * The optional parameters are the maximum number of statements kept in the cache and the prefix SQL follows
+ * in a message, by default the one MyBatis logs SQL with. With an empty prefix SQL is looked for anywhere in
+ * a message, which may mistake prose like "select the option from the menu" for SQL.
+ */
+@Plugin(name = "SqlMessageConverter", category = PatternConverter.CATEGORY)
+@ConverterKeys({ "sqlMessage", "sqlm" })
+public final class SqlMessageConverter extends LogEventPatternConverter {
+
+	/** Prefix MyBatis logs SQL with, e.g. "==&gt;  Preparing: select ..." */
+	public static final String DEFAULT_PREFIX = "Preparing:";
+
+	/** Maximum number of characters between a statement keyword and the keyword expected next */
+	static final int MAX_KEYWORD_DISTANCE = 1000;
+
+	/**
+	 * Start of SQL: a statement keyword followed by the keyword expected next, e.g. select followed by from.
+	 * The distance between both is bounded, hence looking for SQL takes linear time even in long messages with
+	 * many keywords lacking their partner.
+	 */
+	private static final Pattern SQL_START_PATTERN = Pattern.compile("\\b(?:select\\b.{0," + MAX_KEYWORD_DISTANCE
+			+ "}?\\bfrom|insert\\s+into|update\\b.{0," + MAX_KEYWORD_DISTANCE
+			+ "}?\\bset|delete\\s+from|merge\\s+into|with\\b.{0," + MAX_KEYWORD_DISTANCE + "}?\\bas\\s*\\()\\b",
+			Pattern.CASE_INSENSITIVE | Pattern.DOTALL);
+
+	/** Formatted statements */
+	private final SqlFormatCache cache;
+
+	/** Prefix SQL follows in a message, empty to look for SQL anywhere in a message */
+	private final String prefix;
+
+	/**
+	 * Constructs a converter.
+	 * 
+	 * @param cache
+	 *            The cache of formatted statements.
+	 * @param prefix
+	 *            Prefix SQL follows in a message, empty to look for SQL anywhere in a message.
+	 */
+	private SqlMessageConverter(SqlFormatCache cache, String prefix) {
+		super("SqlMessage", "sqlMessage");
+		this.cache = cache;
+		this.prefix = prefix;
+	}
+
+	/**
+	 * Creates a converter, called by Log4j.
+	 * 
+	 * @param config
+	 *            The configuration.
+	 * @param options
+	 *            The maximum number of statements kept in the cache and the prefix SQL follows in a message,
+	 *            both optional.
+	 * @return The converter.
+	 */
+	public static SqlMessageConverter newInstance(Configuration config, String[] options) {
+		int maxEntryCount = SqlFormatCache.DEFAULT_MAX_ENTRY_COUNT;
+		if (options != null && options.length > 0 && options[0] != null) {
+			try {
+				maxEntryCount = Integer.parseInt(options[0].trim());
+			} catch (NumberFormatException e) {
+				LOGGER.error("Invalid cache size '{}' of %sqlMessage, using {}", options[0], maxEntryCount);
+			}
+		}
+		String prefix = (options != null && options.length > 1 && options[1] != null) ? options[1].trim()
+				: DEFAULT_PREFIX;
+		return new SqlMessageConverter(new SqlFormatCache(maxEntryCount), prefix);
+	}
+
+	@Override
+	public void format(LogEvent event, StringBuilder toAppendTo) {
+		String message = event.getMessage().getFormattedMessage();
+		int sqlStart = findSqlStart(message);
+		if (sqlStart < 0) {
+			toAppendTo.append(message);
+			return;
+		}
+		int textEnd = sqlStart;
+		while (textEnd > 0 && Character.isWhitespace(message.charAt(textEnd - 1))) {
+			textEnd--;
+		}
+		if (textEnd > 0) {
+			toAppendTo.append(message, 0, textEnd).append('\n');
+		}
+		toAppendTo.append(cache.format("", message.substring(sqlStart)));
+	}
+
+	/**
+	 * Returns the cache of formatted statements.
+	 * 
+	 * @return The cache.
+	 */
+	public SqlFormatCache getCache() {
+		return cache;
+	}
+
+	/**
+	 * Returns the index of the first character of SQL in a message. SQL has to follow the prefix right away,
+	 * unless the prefix is empty.
+	 * 
+	 * @param message
+	 *            The message.
+	 * @return The index or -1 if there is no SQL in the message.
+	 */
+	int findSqlStart(String message) {
+		Matcher matcher = SQL_START_PATTERN.matcher(message);
+		if (prefix.isEmpty()) {
+			return matcher.find() ? matcher.start() : -1;
+		}
+		int prefixIndex = message.indexOf(prefix);
+		if (prefixIndex < 0) {
+			return -1;
+		}
+		int sqlStart = prefixIndex + prefix.length();
+		while (sqlStart < message.length() && Character.isWhitespace(message.charAt(sqlStart))) {
+			sqlStart++;
+		}
+		return matcher.region(sqlStart, message.length()).lookingAt() ? sqlStart : -1;
+	}
+
+}
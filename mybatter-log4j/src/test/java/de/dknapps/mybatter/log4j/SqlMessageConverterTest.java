@@ -0,0 +1,99 @@
+/*
+ * MyBatter - Formats your MyBatis mapper XML files
+ *
+ *     Copyright (C) 2018 Uwe Damken
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package de.dknapps.mybatter.log4j;
+
+import java.io.File;
+import java.nio.charset.StandardCharsets;
+
+import org.apache.commons.io.FileUtils;
+import org.apache.commons.lang3.StringUtils;
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+import org.apache.logging.log4j.core.LoggerContext;
+import org.apache.logging.log4j.core.impl.Log4jLogEvent;
+import org.apache.logging.log4j.message.SimpleMessage;
+import org.junit.Test;
+
+import junit.framework.TestCase;
+
+public class SqlMessageConverterTest extends TestCase {
+
+	private static final String FORMATTED = "select\n    a\nfrom\n    t\nwhere\n    b = ?";
+
+	@Test
+	public void test_findSqlStart() {
+		SqlMessageConverter converter = SqlMessageConverter.newInstance(null, null);
+		assertEquals(16, converter.findSqlStart("==>  Preparing: select a from t where b = ?"));
+		assertEquals(11, converter.findSqlStart("Preparing: UPDATE t SET a = 1"));
+		assertEquals(-1, converter.findSqlStart("delete from t"));
+		assertEquals(-1, converter.findSqlStart("Preparing: statement"));
+	}
+
+	@Test
+	public void test_findSqlStart_withProse() {
+		SqlMessageConverter converter = SqlMessageConverter.newInstance(null, null);
+		assertEquals(-1, converter.findSqlStart("Select the option from the menu"));
+		assertEquals(-1, converter.findSqlStart("update failed, please set the flag and retry"));
+		assertEquals(-1, converter.findSqlStart("Preparing: the update, please set the flag"));
+		converter = SqlMessageConverter.newInstance(null, new String[] { "10", "SQL:" });
+		assertEquals(-1, converter.findSqlStart("Preparing: select a from t"));
+		assertEquals(5, converter.findSqlStart("SQL: select a from t"));
+	}
+
+	@Test
+	public void test_findSqlStart_withoutPrefix() {
+		SqlMessageConverter converter = SqlMessageConverter.newInstance(null, new String[] { "10", "" });
+		assertEquals(0, converter.findSqlStart("UPDATE t SET a = 1"));
+		assertEquals(6, converter.findSqlStart("query delete from t"));
+		assertEquals(-1, converter.findSqlStart("selection from t"));
+		String gap = StringUtils.repeat('x', SqlMessageConverter.MAX_KEYWORD_DISTANCE);
+		assertEquals(0, converter.findSqlStart("select " + gap.substring(2) + " from t"));
+		assertEquals(-1, converter.findSqlStart("select " + gap + " from t"));
+		assertEquals(-1, converter.findSqlStart(StringUtils.repeat("select something ", 10000) + "then"));
+	}
+
+	@Test
+	public void test_format() {
+		SqlMessageConverter converter = SqlMessageConverter.newInstance(null, new String[] { "10" });
+		assertEquals("==>  Preparing:\n" + FORMATTED, format(converter, "==>  Preparing: select a from t where b = ?"));
+		assertEquals("Preparing:\n" + FORMATTED, format(converter, "Preparing: select a from t where b = ?"));
+		assertEquals("select a from t where b = ?", format(converter, "select a from t where b = ?"));
+		assertEquals("no sql here", format(converter, "no sql here"));
+		assertEquals(1, converter.getCache().getMissCount());
+		assertEquals(1, converter.getCache().getHitCount());
+	}
+
+	@Test
+	public void test_asyncLogger() throws Exception {
+		Logger logger = LogManager.getLogger("sql");
+		for (int i = 0; i < 100; i++) {
+			logger.debug("Preparing: select a from t where b = ?");
+		}
+		((LoggerContext) LogManager.getContext(false)).stop(); // flushes the async logger
+		String log = FileUtils.readFileToString(new File("target/sql-test.log"), StandardCharsets.UTF_8);
+		assertTrue(log, log.startsWith("sql - Preparing:\n" + FORMATTED + System.lineSeparator()));
+		assertEquals(100, log.split("Preparing:", -1).length - 1);
+	}
+
+	private static String format(SqlMessageConverter converter, String message) {
+		StringBuilder sb = new StringBuilder();
+		converter.format(Log4jLogEvent.newBuilder().setMessage(new SimpleMessage(message)).build(), sb);
+		return sb.toString();
+	}
+
+}
@@ -0,0 +1,200 @@
+/*
+ * MyBatter - Formats your MyBatis mapper XML files
+ *
+ *     Copyright (C) 2018 Uwe Damken
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package de.dknapps.mybatter.lsp;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.NavigableMap;
+import java.util.TreeMap;
+
+import org.eclipse.lsp4j.Position;
+import org.eclipse.lsp4j.Range;
+import org.eclipse.lsp4j.TextDocumentContentChangeEvent;
+import org.eclipse.lsp4j.TextEdit;
+
+import de.dknapps.mybatter.formatter.Formatter;
+import de.dknapps.mybatter.formatter.FormatterState;
+import de.dknapps.mybatter.tokenizer.Tokenizer;
+
+/**
+ * A text document opened in the client with the tokens of its current contents. Changes are applied by
+ * tokenizing only the affected statements again, hence the tokens are always at hand when formatting is
+ * requested. The formatter states at the statement starts are kept as long as nothing before them changes,
+ * hence formatting a statement does not dry run the whole document before it again.
+ */
+class Document {
+
+	/** Tokenizer that has tokenized the current contents */
+	private Tokenizer tokenizer;
+
+	/** Index of the first character of every line in the current contents */
+	private int[] lineOffsets;
+
+	/** Formatter states at the statement starts by the index of their primary xml tags */
+	private final NavigableMap<Integer, FormatterState> startStateMap = new TreeMap<>();
+
+	/** Maximum line length the formatter states have been derived with */
+	private int startStateMaxLineLength;
+
+	/** Indention size the formatter states have been derived with */
+	private int startStateIndentionSize;
+
+	/**
+	 * Constructs a document and tokenizes its contents.
+	 * 
+	 * @param text
+	 *            The contents of the document.
+	 */
+	Document(String text) {
+		replaceAll(text);
+	}
+
+	/**
+	 * Returns the current contents of the document.
+	 * 
+	 * @return The contents.
+	 */
+	synchronized String getText() {
+		return tokenizer.getInput();
+	}
+
+	/**
+	 * Applies a change sent by the client to the document. Only the statements affected by a change of a range
+	 * are tokenized again and only the formatter states at statement starts from the range on are dropped.
+	 * 
+	 * @param change
+	 *            The change of a range or of the whole document.
+	 */
+	synchronized void applyChange(TextDocumentContentChangeEvent change) {
+		if (change.getRange() == null) {
+			replaceAll(change.getText());
+		} else {
+			int start = toOffset(change.getRange().getStart());
+			int end = toOffset(change.getRange().getEnd());
+			tokenizer = Tokenizer.retokenize(tokenizer, start, end, change.getText());
+			lineOffsets = findLineOffsets(tokenizer.getInput());
+			startStateMap.tailMap(start, true).clear();
+		}
+	}
+
+	/**
+	 * Formats the statements of the document that intersect the range.
+	 * 
+	 * @param formatter
+	 *            The formatter to be used.
+	 * @param range
+	 *            The range to be formatted or null to format the whole document.
+	 * @return The edits to be applied by the client, empty if nothing is to be changed.
+	 */
+	synchronized List<TextEdit> format(Formatter formatter, Range range) {
+		int start = (range == null) ? 0 : toOffset(range.getStart());
+		int end = (range == null) ? tokenizer.getInput().length() : toOffset(range.getEnd());
+		if (formatter.getMaxLineLength() != startStateMaxLineLength
+				|| formatter.getIndentionSize() != startStateIndentionSize) {
+			startStateMap.clear();
+			startStateMaxLineLength = formatter.getMaxLineLength();
+			startStateIndentionSize = formatter.getIndentionSize();
+		}
+		List<de.dknapps.mybatter.formatter.TextEdit> editList = formatter.formatRange(tokenizer, start, end,
+				startStateMap);
+		if (editList.isEmpty()) {
+			return Collections.emptyList();
+		}
+		List<TextEdit> lspEditList = new ArrayList<>();
+		for (de.dknapps.mybatter.formatter.TextEdit edit : editList) {
+			Range editRange = new Range(toPosition(edit.getOffset()), toPosition(edit.getEndOffset()));
+			lspEditList.add(new TextEdit(editRange, edit.getText()));
+		}
+		return lspEditList;
+	}
+
+	/**
+	 * Converts a position (line and UTF-16 character within the line) into an index of the contents.
+	 * 
+	 * @param position
+	 *            The position.
+	 * @return The index, restricted to the bounds of the contents. A character beyond the end of the line is
+	 *         restricted to the end of the line before its line terminator.
+	 */
+	int toOffset(Position position) {
+		String text = tokenizer.getInput();
+		if (position.getLine() >= lineOffsets.length) {
+			return text.length();
+		}
+		int lineStart = lineOffsets[position.getLine()];
+		int lineEnd = text.length();
+		if (position.getLine() + 1 < lineOffsets.length) {
+			lineEnd = lineOffsets[position.getLine() + 1] - 1; // before \n or \r
+			if (text.charAt(lineEnd) == '\n' && lineEnd > lineStart && text.charAt(lineEnd - 1) == '\r') {
+				lineEnd--; // before \r\n
+			}
+		}
+		return Math.min(lineStart + position.getCharacter(), lineEnd);
+	}
+
+	/**
+	 * Converts an index of the contents into a position (line and UTF-16 character within the line).
+	 * 
+	 * @param offset
+	 *            The index.
+	 * @return The position.
+	 */
+	Position toPosition(int offset) {
+		int line = Arrays.binarySearch(lineOffsets, offset);
+		if (line < 0) {
+			line = -line - 2; // the line starting before the offset
+		}
+		return new Position(line, offset - lineOffsets[line]);
+	}
+
+	/**
+	 * Replaces the whole contents of the document and tokenizes them.
+	 * 
+	 * @param text
+	 *            The new contents.
+	 */
+	private void replaceAll(String text) {
+		Tokenizer newTokenizer = new Tokenizer(text);
+		newTokenizer.tokenize();
+		tokenizer = newTokenizer;
+		lineOffsets = findLineOffsets(text);
+		startStateMap.clear();
+	}
+
+	/**
+	 * Returns the index of the first character of every line. Lines are separated by \n, \r\n or \r.
+	 * 
+	 * @param text
+	 *            The text.
+	 * @return The indexes with the first one being 0.
+	 */
+	private static int[] findLineOffsets(String text) {
+		List<Integer> offsetList = new ArrayList<>();
+		offsetList.add(0);
+		for (int i = 0; i < text.length(); i++) {
+			char c = text.charAt(i);
+			if (c == '\n' || (c == '\r' && (i + 1 == text.length() || text.charAt(i + 1) != '\n'))) {
+				offsetList.add(i + 1);
+			}
+		}
+		return offsetList.stream().mapToInt(Integer::intValue).toArray();
+	}
+
+}
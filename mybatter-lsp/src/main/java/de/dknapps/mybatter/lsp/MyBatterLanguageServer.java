@@ -0,0 +1,165 @@
+/*
+ * MyBatter - Formats your MyBatis mapper XML files
+ *
+ *     Copyright (C) 2018 Uwe Damken
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package de.dknapps.mybatter.lsp;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.function.IntConsumer;
+
+import javax.management.JMException;
+
+import org.eclipse.lsp4j.DidChangeConfigurationParams;
+import org.eclipse.lsp4j.DidChangeWatchedFilesParams;
+import org.eclipse.lsp4j.InitializeParams;
+import org.eclipse.lsp4j.InitializeResult;
+import org.eclipse.lsp4j.ServerCapabilities;
+import org.eclipse.lsp4j.ServerInfo;
+import org.eclipse.lsp4j.TextDocumentSyncKind;
+import org.eclipse.lsp4j.jsonrpc.Launcher;
+import org.eclipse.lsp4j.launch.LSPLauncher;
+import org.eclipse.lsp4j.services.LanguageClient;
+import org.eclipse.lsp4j.services.LanguageClientAware;
+import org.eclipse.lsp4j.services.LanguageServer;
+import org.eclipse.lsp4j.services.TextDocumentService;
+import org.eclipse.lsp4j.services.WorkspaceService;
+
+import de.dknapps.mybatter.statistics.FormatterMetrics;
+
+/**
+ * Language server that formats MyBatis mapper XML files (textDocument/formatting and
+ * textDocument/rangeFormatting). It keeps the tokens of every open document and tokenizes only the statements
+ * affected by a change again, hence formatting requests are answered quickly by a warm JVM.
+ */
+public class MyBatterLanguageServer implements LanguageServer, LanguageClientAware {
+
+	/** Keeps track of open documents and formats them */
+	private final MyBatterTextDocumentService textDocumentService = new MyBatterTextDocumentService();
+
+	/** Workspace changes are not of any interest */
+	private final WorkspaceService workspaceService = new WorkspaceService() {
+
+		@Override
+		public void didChangeConfiguration(DidChangeConfigurationParams params) {
+			// nothing to do
+		}
+
+		@Override
+		public void didChangeWatchedFiles(DidChangeWatchedFilesParams params) {
+			// nothing to do
+		}
+
+	};
+
+	/** Called with the exit code when the client requests to exit */
+	private final IntConsumer exitHandler;
+
+	/** True if the client has requested to shut down */
+	private volatile boolean shutdown;
+
+	/** The client connected to this server */
+	private LanguageClient client;
+
+	/**
+	 * Starts the language server communicating via stdin and stdout. Its live counters are exposed via JMX as
+	 * de.dknapps.mybatter:type=FormatterMetrics,name=lsp.
+	 * 
+	 * @param args
+	 *            Not used.
+	 * @throws InterruptedException
+	 * @throws JMException
+	 *             If the counters cannot be registered.
+	 */
+	public static void main(String[] args) throws InterruptedException, JMException {
+		MyBatterLanguageServer server = new MyBatterLanguageServer(System::exit);
+		server.getMetrics().register();
+		Launcher<LanguageClient> launcher = LSPLauncher.createServerLauncher(server, System.in, System.out);
+		server.connect(launcher.getRemoteProxy());
+		try {
+			launcher.startListening().get();
+		} catch (ExecutionException e) {
+			e.printStackTrace();
+		}
+		System.exit(1); // the client has closed the connection without asking to exit
+	}
+
+	/**
+	 * Constructs a language server.
+	 * 
+	 * @param exitHandler
+	 *            Called with the exit code when the client requests to exit, 0 if it has requested to shut down
+	 *            before and 1 otherwise.
+	 */
+	public MyBatterLanguageServer(IntConsumer exitHandler) {
+		this.exitHandler = exitHandler;
+	}
+
+	@Override
+	public void connect(LanguageClient client) {
+		this.client = client;
+	}
+
+	/**
+	 * Returns the live counters of formatting requests.
+	 * 
+	 * @return The metrics.
+	 */
+	public FormatterMetrics getMetrics() {
+		return textDocumentService.getMetrics();
+	}
+
+	/**
+	 * Returns the client connected to this server.
+	 * 
+	 * @return The client or null if none has been connected yet.
+	 */
+	public LanguageClient getClient() {
+		return client;
+	}
+
+	@Override
+	public CompletableFuture<InitializeResult> initialize(InitializeParams params) {
+		ServerCapabilities capabilities = new ServerCapabilities();
+		capabilities.setTextDocumentSync(TextDocumentSyncKind.Incremental);
+		capabilities.setDocumentFormattingProvider(true);
+		capabilities.setDocumentRangeFormattingProvider(true);
+		ServerInfo serverInfo = new ServerInfo("MyBatter", getClass().getPackage().getImplementationVersion());
+		return CompletableFuture.completedFuture(new InitializeResult(capabilities, serverInfo));
+	}
+
+	@Override
+	public CompletableFuture<Object> shutdown() {
+		shutdown = true;
+		return CompletableFuture.completedFuture(null);
+	}
+
+	@Override
+	public void exit() {
+		exitHandler.accept(shutdown ? 0 : 1);
+	}
+
+	@Override
+	public TextDocumentService getTextDocumentService() {
+		return textDocumentService;
+	}
+
+	@Override
+	public WorkspaceService getWorkspaceService() {
+		return workspaceService;
+	}
+
+}
@@ -0,0 +1,133 @@
+/*
+ * MyBatter - Formats your MyBatis mapper XML files
+ *
+ *     Copyright (C) 2018 Uwe Damken
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package de.dknapps.mybatter.lsp;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+
+import org.eclipse.lsp4j.DidChangeTextDocumentParams;
+import org.eclipse.lsp4j.DidCloseTextDocumentParams;
+import org.eclipse.lsp4j.DidOpenTextDocumentParams;
+import org.eclipse.lsp4j.DidSaveTextDocumentParams;
+import org.eclipse.lsp4j.DocumentFormattingParams;
+import org.eclipse.lsp4j.DocumentRangeFormattingParams;
+import org.eclipse.lsp4j.FormattingOptions;
+import org.eclipse.lsp4j.Range;
+import org.eclipse.lsp4j.TextDocumentContentChangeEvent;
+import org.eclipse.lsp4j.TextEdit;
+import org.eclipse.lsp4j.services.TextDocumentService;
+
+import de.dknapps.mybatter.formatter.Formatter;
+import de.dknapps.mybatter.statistics.FormatterMetrics;
+
+/**
+ * Keeps the tokens of every open document up to date and formats documents or ranges of them on request.
+ * Requests are answered synchronously, hence they are processed in the order they have been sent by the
+ * client.
+ */
+class MyBatterTextDocumentService implements TextDocumentService {
+
+	/** Maximum length of a line to be written by the formatter */
+	private static final int MAX_LINE_LENGTH = 80;
+
+	/** Open documents by their URIs */
+	private final Map<String, Document> documentMap = new ConcurrentHashMap<>();
+
+	/** Live counters of formatting requests */
+	private final FormatterMetrics metrics = new FormatterMetrics("lsp");
+
+	/**
+	 * Returns the live counters of formatting requests, every request counts as a file.
+	 * 
+	 * @return The metrics.
+	 */
+	FormatterMetrics getMetrics() {
+		return metrics;
+	}
+
+	@Override
+	public void didOpen(DidOpenTextDocumentParams params) {
+		documentMap.put(params.getTextDocument().getUri(), new Document(params.getTextDocument().getText()));
+	}
+
+	@Override
+	public void didChange(DidChangeTextDocumentParams params) {
+		Document document = documentMap.get(params.getTextDocument().getUri());
+		if (document != null) {
+			for (TextDocumentContentChangeEvent change : params.getContentChanges()) {
+				document.applyChange(change);
+			}
+		}
+	}
+
+	@Override
+	public void didClose(DidCloseTextDocumentParams params) {
+		documentMap.remove(params.getTextDocument().getUri());
+	}
+
+	@Override
+	public void didSave(DidSaveTextDocumentParams params) {
+		// nothing to do, changes have been applied already
+	}
+
+	@Override
+	public CompletableFuture<List<? extends TextEdit>> formatting(DocumentFormattingParams params) {
+		return format(params.getTextDocument().getUri(), params.getOptions(), null);
+	}
+
+	@Override
+	public CompletableFuture<List<? extends TextEdit>> rangeFormatting(DocumentRangeFormattingParams params) {
+		return format(params.getTextDocument().getUri(), params.getOptions(), params.getRange());
+	}
+
+	/**
+	 * Formats an open document or a range of it.
+	 * 
+	 * @param uri
+	 *            The URI of the document.
+	 * @param options
+	 *            The formatting options sent by the client, its tab size is used as indention size.
+	 * @param range
+	 *            The range to be formatted or null to format the whole document.
+	 * @return The edits to be applied by the client, empty if the document is unknown.
+	 */
+	private CompletableFuture<List<? extends TextEdit>> format(String uri, FormattingOptions options, Range range) {
+		Document document = documentMap.get(uri);
+		if (document == null) {
+			return CompletableFuture.completedFuture(Collections.emptyList());
+		}
+		long startNanos = System.nanoTime();
+		metrics.fileQueued();
+		metrics.fileStarted();
+		try {
+			Formatter formatter = new Formatter(MAX_LINE_LENGTH, options.getTabSize());
+			List<TextEdit> editList = document.format(formatter, range);
+			int byteCount = document.getText().getBytes(StandardCharsets.UTF_8).length;
+			metrics.fileFormatted(byteCount, System.nanoTime() - startNanos);
+			return CompletableFuture.completedFuture(editList);
+		} catch (RuntimeException e) {
+			metrics.fileFailed(true);
+			throw e;
+		}
+	}
+
+}
@@ -0,0 +1,70 @@
+/*
+ * MyBatter - Formats your MyBatis mapper XML files
+ *
+ *     Copyright (C) 2018 Uwe Damken
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package de.dknapps.mybatter.lsp;
+
+import static org.junit.Assert.assertEquals;
+
+import java.util.List;
+
+import org.eclipse.lsp4j.Position;
+import org.eclipse.lsp4j.Range;
+import org.eclipse.lsp4j.TextDocumentContentChangeEvent;
+import org.eclipse.lsp4j.TextEdit;
+import org.junit.Test;
+
+import de.dknapps.mybatter.formatter.Formatter;
+
+public class DocumentTest {
+
+	@Test
+	public void test_toOffset() {
+		Document document = new Document("ab\ncd\r\nef\rgh");
+		assertEquals(1, document.toOffset(new Position(0, 1)));
+		assertEquals(4, document.toOffset(new Position(1, 1)));
+		assertEquals(11, document.toOffset(new Position(3, 1)));
+		assertEquals(12, document.toOffset(new Position(4, 0)));
+	}
+
+	@Test
+	public void test_toOffset_beyondLineEnd() {
+		Document document = new Document("ab\ncd\r\nef\rgh\n\n");
+		assertEquals(2, document.toOffset(new Position(0, 9)));
+		assertEquals(5, document.toOffset(new Position(1, 9)));
+		assertEquals(9, document.toOffset(new Position(2, 9)));
+		assertEquals(12, document.toOffset(new Position(3, 9)));
+		assertEquals(13, document.toOffset(new Position(4, 9)));
+		assertEquals(14, document.toOffset(new Position(5, 9)));
+	}
+
+	@Test
+	public void test_format_afterChangeBeforeStatement() {
+		Document document = new Document("<mapper><select>select a from t</select>\n<delete>delete from t</delete>");
+		Range deleteRange = new Range(new Position(1, 1), new Position(1, 1));
+		List<TextEdit> editList = document.format(new Formatter(), deleteRange);
+		assertEquals(1, editList.size());
+		assertEquals("\n\n    <delete>\n        delete from\n            t\n    </delete>", editList.get(0).getNewText());
+
+		// Blanking out the mapper tag changes the state at the beginning of the delete statement
+		Range mapperRange = new Range(new Position(0, 0), new Position(0, 8));
+		document.applyChange(new TextDocumentContentChangeEvent(mapperRange, 8, "        "));
+		editList = document.format(new Formatter(), deleteRange);
+		assertEquals(1, editList.size());
+		assertEquals("\n\n<delete>\n    delete from\n        t\n</delete>", editList.get(0).getNewText());
+	}
+
+}
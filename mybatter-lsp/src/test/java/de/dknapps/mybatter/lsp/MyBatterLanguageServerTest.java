@@ -0,0 +1,228 @@
+/*
+ * MyBatter - Formats your MyBatis mapper XML files
+ *
+ *     Copyright (C) 2018 Uwe Damken
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package de.dknapps.mybatter.lsp;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.io.ByteArrayOutputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.io.PipedInputStream;
+import java.io.PipedOutputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+
+import org.eclipse.lsp4j.jsonrpc.Launcher;
+import org.eclipse.lsp4j.launch.LSPLauncher;
+import org.eclipse.lsp4j.services.LanguageClient;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import com.google.gson.JsonArray;
+import com.google.gson.JsonElement;
+import com.google.gson.JsonObject;
+import com.google.gson.JsonParser;
+import com.google.gson.JsonPrimitive;
+
+import de.dknapps.mybatter.formatter.Formatter;
+
+/**
+ * Talks to the language server like a client via the same stream based JSON-RPC messages that are sent via
+ * stdin and stdout.
+ */
+public class MyBatterLanguageServerTest {
+
+	private static final String URI = "file:///TableMapper.xml";
+
+	private static final String INPUT = "<mapper namespace=\"x\">\n" //
+			+ "<select id=\"a\">select a, b from table where a = #{a}</select>\n" //
+			+ "<delete id=\"b\">delete from table where a = 1</delete>\n" //
+			+ "</mapper>\n";
+
+	/** Stream to send messages to the server */
+	private OutputStream toServer;
+
+	/** Stream to receive messages from the server */
+	private InputStream fromServer;
+
+	/** Completed with the exit code of the server */
+	private CompletableFuture<Integer> exitCode = new CompletableFuture<>();
+
+	@Before
+	public void setUp() throws IOException {
+		PipedInputStream serverIn = new PipedInputStream(1 << 16);
+		toServer = new PipedOutputStream(serverIn);
+		PipedInputStream clientIn = new PipedInputStream(1 << 16);
+		OutputStream serverOut = new PipedOutputStream(clientIn);
+		fromServer = clientIn;
+		MyBatterLanguageServer server = new MyBatterLanguageServer(exitCode::complete);
+		Launcher<LanguageClient> launcher = LSPLauncher.createServerLauncher(server, serverIn, serverOut);
+		server.connect(launcher.getRemoteProxy());
+		launcher.startListening();
+	}
+
+	@After
+	public void tearDown() throws IOException {
+		toServer.close();
+	}
+
+	@Test
+	public void test_formatting() throws Exception {
+		JsonObject capabilities = request(1, "initialize", "{\"processId\":null,\"rootUri\":null,\"capabilities\":{}}")
+				.getAsJsonObject().getAsJsonObject("capabilities");
+		assertEquals(new JsonPrimitive(true), capabilities.get("documentFormattingProvider"));
+		assertEquals(new JsonPrimitive(true), capabilities.get("documentRangeFormattingProvider"));
+		notify("initialized", "{}");
+		notify("textDocument/didOpen", "{\"textDocument\":{\"uri\":\"" + URI
+				+ "\",\"languageId\":\"xml\",\"version\":1,\"text\":" + quote(INPUT) + "}}");
+
+		// Format the whole document and apply the edits like a client would do
+		String expected = new Formatter().format(INPUT);
+		JsonArray edits = request(2, "textDocument/formatting", "{\"textDocument\":{\"uri\":\"" + URI
+				+ "\"},\"options\":{\"tabSize\":4,\"insertSpaces\":true}}").getAsJsonArray();
+		assertEquals(1, edits.size());
+		String text = INPUT;
+		for (JsonElement edit : edits) {
+			JsonObject range = edit.getAsJsonObject().getAsJsonObject("range");
+			String newText = edit.getAsJsonObject().get("newText").getAsString();
+			notify("textDocument/didChange", "{\"textDocument\":{\"uri\":\"" + URI + "\",\"version\":2},"
+					+ "\"contentChanges\":[{\"range\":" + range + ",\"text\":" + quote(newText) + "}]}");
+			text = apply(text, range, newText);
+		}
+		assertEquals(expected.trim(), text.trim());
+
+		// Formatting the formatted document again does not change it
+		edits = request(3, "textDocument/formatting", "{\"textDocument\":{\"uri\":\"" + URI
+				+ "\"},\"options\":{\"tabSize\":4,\"insertSpaces\":true}}").getAsJsonArray();
+		assertEquals(0, edits.size());
+
+		// Break the delete statement into a single line and format only that one
+		int line = text.substring(0, text.indexOf("<delete")).split("\n", -1).length - 1;
+		String change = "<delete id=\"b\">delete from table where a = 1</delete>";
+		String changeRange = "{\"start\":{\"line\":" + line + ",\"character\":4},\"end\":{\"line\":" + (line + 5)
+				+ ",\"character\":13}}";
+		notify("textDocument/didChange", "{\"textDocument\":{\"uri\":\"" + URI + "\",\"version\":3},"
+				+ "\"contentChanges\":[{\"range\":" + changeRange + ",\"text\":" + quote(change) + "}]}");
+		String changedText = apply(text, JsonParser.parseString(changeRange).getAsJsonObject(), change);
+		assertTrue(changedText.contains("    " + change + "\n"));
+		edits = request(4, "textDocument/rangeFormatting", "{\"textDocument\":{\"uri\":\"" + URI
+				+ "\"},\"range\":{\"start\":{\"line\":" + line + ",\"character\":10},\"end\":{\"line\":" + line
+				+ ",\"character\":10}},\"options\":{\"tabSize\":4,\"insertSpaces\":true}}").getAsJsonArray();
+		assertEquals(1, edits.size());
+		JsonObject edit = edits.get(0).getAsJsonObject();
+		assertEquals(text, apply(changedText, edit.getAsJsonObject("range"), edit.get("newText").getAsString()));
+
+		// Shut down and exit
+		assertTrue(request(5, "shutdown", null).isJsonNull());
+		notify("exit", null);
+		assertEquals(0, exitCode.get(10, TimeUnit.SECONDS).intValue());
+	}
+
+	@Test
+	public void test_exitWithoutShutdown() throws Exception {
+		request(1, "initialize", "{\"processId\":null,\"rootUri\":null,\"capabilities\":{}}");
+		notify("exit", null);
+		assertEquals(1, exitCode.get(10, TimeUnit.SECONDS).intValue());
+	}
+
+	/**
+	 * Sends a request and waits for the response with the same id, notifications of the server are skipped.
+	 */
+	private JsonElement request(int id, String method, String params) throws IOException {
+		send("{\"jsonrpc\":\"2.0\",\"id\":" + id + ",\"method\":\"" + method + "\""
+				+ ((params == null) ? "" : ",\"params\":" + params) + "}");
+		while (true) {
+			JsonObject message = receive();
+			if (message.has("id") && message.get("id").getAsInt() == id) {
+				assertTrue(message.toString(), message.has("result"));
+				return message.get("result");
+			}
+		}
+	}
+
+	private void notify(String method, String params) throws IOException {
+		send("{\"jsonrpc\":\"2.0\",\"method\":\"" + method + "\""
+				+ ((params == null) ? "" : ",\"params\":" + params) + "}");
+	}
+
+	private void send(String json) throws IOException {
+		byte[] content = json.getBytes(StandardCharsets.UTF_8);
+		toServer.write(("Content-Length: " + content.length + "\r\n\r\n").getBytes(StandardCharsets.US_ASCII));
+		toServer.write(content);
+		toServer.flush();
+	}
+
+	private JsonObject receive() throws IOException {
+		int contentLength = -1;
+		String header;
+		while (!(header = readLine()).isEmpty()) {
+			if (header.startsWith("Content-Length:")) {
+				contentLength = Integer.parseInt(header.substring("Content-Length:".length()).trim());
+			}
+		}
+		byte[] content = new byte[contentLength];
+		int count = 0;
+		while (count < contentLength) {
+			int n = fromServer.read(content, count, contentLength - count);
+			if (n < 0) {
+				throw new EOFException("Server closed the stream within a message");
+			}
+			count += n;
+		}
+		return JsonParser.parseString(new String(content, StandardCharsets.UTF_8)).getAsJsonObject();
+	}
+
+	private String readLine() throws IOException {
+		ByteArrayOutputStream line = new ByteArrayOutputStream();
+		int c;
+		while ((c = fromServer.read()) != '\n') {
+			if (c < 0) {
+				throw new EOFException("Server closed the stream");
+			} else if (c != '\r') {
+				line.write(c);
+			}
+		}
+		return new String(line.toByteArray(), StandardCharsets.US_ASCII);
+	}
+
+	private static String quote(String string) {
+		return new JsonPrimitive(string).toString();
+	}
+
+	/**
+	 * Replaces a range given by lines and characters like a client would do.
+	 */
+	private static String apply(String text, JsonObject range, String newText) {
+		return text.substring(0, offset(text, range.getAsJsonObject("start"))) + newText
+				+ text.substring(offset(text, range.getAsJsonObject("end")));
+	}
+
+	private static int offset(String text, JsonObject position) {
+		int offset = 0;
+		for (int line = 0; line < position.get("line").getAsInt(); line++) {
+			offset = text.indexOf('\n', offset) + 1;
+		}
+		return offset + position.get("character").getAsInt();
+	}
+
+}
@@ -0,0 +1,46 @@
+/*
+ * MyBatter - Formats your MyBatis mapper XML files
+ *
+ *     Copyright (C) 2018 Uwe Damken
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package de.dknapps.mybatter.lsp;
+
+import static org.junit.Assert.assertEquals;
+
+import java.nio.charset.StandardCharsets;
+
+import org.eclipse.lsp4j.DidOpenTextDocumentParams;
+import org.eclipse.lsp4j.DocumentFormattingParams;
+import org.eclipse.lsp4j.FormattingOptions;
+import org.eclipse.lsp4j.TextDocumentIdentifier;
+import org.eclipse.lsp4j.TextDocumentItem;
+import org.junit.Test;
+
+public class MyBatterTextDocumentServiceTest {
+
+	private static final String URI = "file:///TableMapper.xml";
+
+	@Test
+	public void test_formatting_countsUtf8Bytes() throws Exception {
+		String text = "<mapper><select>select 'Grüße' from t</select></mapper>";
+		MyBatterTextDocumentService service = new MyBatterTextDocumentService();
+		service.didOpen(new DidOpenTextDocumentParams(new TextDocumentItem(URI, "xml", 1, text)));
+		TextDocumentIdentifier document = new TextDocumentIdentifier(URI);
+		service.formatting(new DocumentFormattingParams(document, new FormattingOptions(4, true))).get();
+		assertEquals(1, service.getMetrics().getFilesFormatted());
+		assertEquals(text.getBytes(StandardCharsets.UTF_8).length, service.getMetrics().getBytesProcessed());
+	}
+
+}
@@ -0,0 +1,221 @@
+/*
+ * MyBatter - Formats your MyBatis mapper XML files
+ *
+ *     Copyright (C) 2018 Uwe Damken
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package de.dknapps.mybatter.maven;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.FileSystems;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.PathMatcher;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+import org.apache.maven.model.Resource;
+import org.apache.maven.plugin.AbstractMojo;
+import org.apache.maven.plugin.MojoExecutionException;
+import org.apache.maven.plugin.MojoFailureException;
+import org.apache.maven.plugins.annotations.Parameter;
+import org.apache.maven.project.MavenProject;
+
+import de.dknapps.mybatter.main.FileResult;
+import de.dknapps.mybatter.main.FormatOptions;
+import de.dknapps.mybatter.main.MapperSniffer;
+import de.dknapps.mybatter.main.MyBatterRunner;
+
+/**
+ * Base of the goals that format mapper XML files in the Maven JVM. The files of a module are formatted in
+ * parallel, modules of a reactor built with several threads (-T) share the formatter and its threads. Files
+ * that have not changed since the last build according to the {@link FormattedFileRecord} are skipped.
+ */
+public abstract class AbstractMyBatterMojo extends AbstractMojo {
+
+	/** Runner shared by all modules of a reactor, the classes of the plugin are loaded only once per build */
+	private static final MyBatterRunner RUNNER = new MyBatterRunner();
+
+	/** The module to be formatted */
+	@Parameter(defaultValue = "${project}", readonly = true, required = true)
+	private MavenProject project;
+
+	/** Version of this plugin, part of the fingerprint of formatted files */
+	@Parameter(defaultValue = "${plugin.version}", readonly = true)
+	private String pluginVersion;
+
+	/** Directories to search for mapper XML files, the resource directories of the module by default */
+	@Parameter(property = "mybatter.directories")
+	private File[] directories;
+
+	/** Only files with a name matching this pattern are formatted */
+	@Parameter(property = "mybatter.glob", defaultValue = FormatOptions.DEFAULT_GLOB)
+	private String glob;
+
+	/** Encoding to be used when reading and writing files */
+	@Parameter(property = "mybatter.encoding", defaultValue = "${project.build.sourceEncoding}")
+	private String encoding;
+
+	/** True to skip files that are no MyBatis mappers, e.g. Spring configurations next to the mappers */
+	@Parameter(property = "mybatter.mappersOnly", defaultValue = "true")
+	private boolean mappersOnly;
+
+	/** True to leave files untouched and fail if formatting would change more than whitespace */
+	@Parameter(property = "mybatter.verify", defaultValue = "true")
+	private boolean verify;
+
+	/** True to format the files of a module in parallel */
+	@Parameter(property = "mybatter.parallel", defaultValue = "true")
+	private boolean parallel;
+
+	/** Files formatted before, unchanged files are skipped */
+	@Parameter(property = "mybatter.recordFile",
+			defaultValue = "${project.build.directory}/mybatter/formatted.properties")
+	private File recordFile;
+
+	/** True to skip formatting */
+	@Parameter(property = "mybatter.skip", defaultValue = "false")
+	private boolean skip;
+
+	@Override
+	public void execute() throws MojoExecutionException, MojoFailureException {
+		if (skip) {
+			getLog().info("Skipping MyBatter");
+			return;
+		}
+		String fileEncoding = (encoding == null) ? FormatOptions.DEFAULT_ENCODING : encoding;
+		List<Path> pathList = findFiles(fileEncoding);
+		if (pathList.isEmpty()) {
+			getLog().debug("MyBatter: no mapper files found");
+			return;
+		}
+		FormatOptions options = new FormatOptions();
+		options.setEncoding(fileEncoding);
+		options.setOverride(true); // backups are never kept, hence an existing one is garbage
+		options.setCheckOnly(isCheckOnly());
+		options.setVerifying(verify);
+		FormattedFileRecord record = new FormattedFileRecord(recordFile,
+				pluginVersion + '/' + options.getEncoding()).load();
+		List<Path> stalePathList = pathList.stream().filter(path -> !record.isUpToDate(path))
+				.collect(Collectors.toList());
+		Stream<Path> stalePathStream = parallel ? stalePathList.parallelStream() : stalePathList.stream();
+		List<FileResult> fileResultList = stalePathStream
+				.flatMap(path -> RUNNER.formatAll(Collections.singletonList(path), options).getFileResultList()
+						.stream())
+				.collect(Collectors.toList());
+		for (FileResult fileResult : fileResultList) {
+			if (fileResult.isFormatted() && !(isCheckOnly() && fileResult.isChanged())) {
+				record.update(fileResult.getPath());
+			} else {
+				record.remove(fileResult.getPath());
+			}
+		}
+		try {
+			record.save();
+		} catch (IOException e) {
+			getLog().warn("Cannot save '" + recordFile + "': " + e.getLocalizedMessage());
+		}
+		getLog().info("MyBatter: " + stalePathList.size() + " of " + pathList.size()
+				+ " mapper files processed, others unchanged since last build");
+		List<String> errorList = fileResultList.stream().filter(fileResult -> !fileResult.isFormatted())
+				.map(FileResult::getError).collect(Collectors.toList());
+		if (!errorList.isEmpty()) {
+			errorList.forEach(getLog()::error);
+			throw new MojoExecutionException(errorList.size() + " mapper files could not be formatted");
+		}
+		handleResults(fileResultList.stream().filter(FileResult::isChanged).map(FileResult::getPath)
+				.collect(Collectors.toList()));
+	}
+
+	/**
+	 * Returns true if files are only checked, not written.
+	 * 
+	 * @return True to check.
+	 */
+	protected abstract boolean isCheckOnly();
+
+	/**
+	 * Reports the files that have been changed by formatting or would have been changed.
+	 * 
+	 * @param changedPathList
+	 *            The changed files.
+	 * @throws MojoFailureException
+	 *             If the goal fails because of changed files.
+	 */
+	protected abstract void handleResults(List<Path> changedPathList) throws MojoFailureException;
+
+	/**
+	 * Returns the files in the directories with a name matching the glob, only mappers if required.
+	 * 
+	 * @param fileEncoding
+	 *            The encoding of the files.
+	 * @return The files.
+	 * @throws MojoExecutionException
+	 *             If a directory cannot be read.
+	 */
+	private List<Path> findFiles(String fileEncoding) throws MojoExecutionException {
+		PathMatcher matcher = FileSystems.getDefault().getPathMatcher("glob:" + glob);
+		List<Path> pathList = new ArrayList<>();
+		for (File directory : getDirectories()) {
+			if (directory.isDirectory()) {
+				try (Stream<Path> stream = Files.walk(directory.toPath())) {
+					stream.filter(path -> matcher.matches(path.getFileName()) && Files.isRegularFile(path))
+							.filter(path -> !mappersOnly || isMapper(path, fileEncoding)).forEach(pathList::add);
+				} catch (IOException e) {
+					throw new MojoExecutionException("Cannot read '" + directory + "': " + e.getLocalizedMessage(),
+							e);
+				}
+			}
+		}
+		return pathList;
+	}
+
+	/**
+	 * Returns true if the file may be a mapper, reads only its first bytes.
+	 * 
+	 * @param path
+	 *            The file.
+	 * @param fileEncoding
+	 *            The encoding of the file.
+	 * @return False if the file is no mapper for sure.
+	 */
+	private static boolean isMapper(Path path, String fileEncoding) {
+		try {
+			return MapperSniffer.isMapper(path, fileEncoding);
+		} catch (IOException e) {
+			return true; // formatting will fail and report the error
+		}
+	}
+
+	/**
+	 * Returns the configured directories or the resource directories of the module.
+	 * 
+	 * @return The directories.
+	 */
+	private List<File> getDirectories() {
+		List<File> directoryList = new ArrayList<>();
+		if (directories != null && directories.length > 0) {
+			Collections.addAll(directoryList, directories);
+		} else {
+			Stream.concat(project.getResources().stream(), project.getTestResources().stream())
+					.map(Resource::getDirectory).distinct().map(File::new).forEach(directoryList::add);
+		}
+		return directoryList;
+	}
+
+}
@@ -0,0 +1,47 @@
+/*
+ * MyBatter - Formats your MyBatis mapper XML files
+ *
+ *     Copyright (C) 2018 Uwe Damken
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package de.dknapps.mybatter.maven;
+
+import java.nio.file.Path;
+import java.util.List;
+
+import org.apache.maven.plugin.MojoFailureException;
+import org.apache.maven.plugins.annotations.LifecyclePhase;
+import org.apache.maven.plugins.annotations.Mojo;
+
+/**
+ * Fails the build if mapper XML files of a module are not formatted, nothing is written.
+ */
+@Mojo(name = "check", defaultPhase = LifecyclePhase.VERIFY, threadSafe = true)
+public class CheckMojo extends AbstractMyBatterMojo {
+
+	@Override
+	protected boolean isCheckOnly() {
+		return true;
+	}
+
+	@Override
+	protected void handleResults(List<Path> changedPathList) throws MojoFailureException {
+		if (!changedPathList.isEmpty()) {
+			changedPathList.forEach(path -> getLog().error("Not formatted: " + path));
+			throw new MojoFailureException(changedPathList.size()
+					+ " mapper files are not formatted, run mvn mybatter:format to format them");
+		}
+	}
+
+}
@@ -0,0 +1,194 @@
+/*
+ * MyBatter - Formats your MyBatis mapper XML files
+ *
+ *     Copyright (C) 2018 Uwe Damken
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package de.dknapps.mybatter.maven;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.Map;
+import java.util.Properties;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Record of files known to be formatted, kept below the build directory of a module. A file is up to date if
+ * its contents have not changed since it has been formatted or checked and the fingerprint (version and
+ * options of MyBatter) is still the same. Files that are up to date are not formatted again. The record may be
+ * updated by several threads at once.
+ */
+public class FormattedFileRecord {
+
+	/** Comment written into the record file */
+	private static final String COMMENT = "Files formatted by MyBatter, hashed with the fingerprint of the run";
+
+	/** Digits of hexadecimal hashes */
+	private static final char[] HEX_DIGITS = "0123456789abcdef".toCharArray();
+
+	/** The file the record is loaded from and saved to */
+	private final File recordFile;
+
+	/** Version and options of MyBatter, a different fingerprint makes all files out of date */
+	private final String fingerprint;
+
+	/** Hash of fingerprint and contents per absolute path of the file */
+	private final Map<String, String> hashMap = new ConcurrentHashMap<>();
+
+	/**
+	 * Constructs an empty record.
+	 * 
+	 * @param recordFile
+	 *            The file the record is loaded from and saved to.
+	 * @param fingerprint
+	 *            Version and options of MyBatter.
+	 */
+	public FormattedFileRecord(File recordFile, String fingerprint) {
+		this.recordFile = recordFile;
+		this.fingerprint = fingerprint;
+	}
+
+	/**
+	 * Loads the record from its file if it exists. A record that cannot be read is treated as empty, hence all
+	 * files are formatted again.
+	 * 
+	 * @return This record.
+	 */
+	public FormattedFileRecord load() {
+		hashMap.clear();
+		if (recordFile.isFile()) {
+			Properties properties = new Properties();
+			try (InputStream in = Files.newInputStream(recordFile.toPath())) {
+				properties.load(in);
+				properties.stringPropertyNames().forEach(key -> hashMap.put(key, properties.getProperty(key)));
+			} catch (IOException | IllegalArgumentException e) {
+				hashMap.clear();
+			}
+		}
+		return this;
+	}
+
+	/**
+	 * Saves the record to its file, creates missing directories.
+	 * 
+	 * @throws IOException
+	 *             If the file cannot be written.
+	 */
+	public void save() throws IOException {
+		Properties properties = new Properties();
+		properties.putAll(hashMap);
+		File directory = recordFile.getAbsoluteFile().getParentFile();
+		if (directory != null) {
+			Files.createDirectories(directory.toPath());
+		}
+		try (OutputStream out = Files.newOutputStream(recordFile.toPath())) {
+			properties.store(out, COMMENT);
+		}
+	}
+
+	/**
+	 * Returns true if the contents of the file are still those recorded when it has been formatted.
+	 * 
+	 * @param path
+	 *            The file.
+	 * @return True if the file need not be formatted again.
+	 */
+	public boolean isUpToDate(Path path) {
+		String recordedHash = hashMap.get(key(path));
+		try {
+			return recordedHash != null && recordedHash.equals(hash(path));
+		} catch (IOException e) {
+			return false; // let formatting report the problem
+		}
+	}
+
+	/**
+	 * Records the current contents of a file that has been formatted.
+	 * 
+	 * @param path
+	 *            The file.
+	 */
+	public void update(Path path) {
+		try {
+			hashMap.put(key(path), hash(path));
+		} catch (IOException e) {
+			remove(path);
+		}
+	}
+
+	/**
+	 * Forgets a file, it is formatted again next time.
+	 * 
+	 * @param path
+	 *            The file.
+	 */
+	public void remove(Path path) {
+		hashMap.remove(key(path));
+	}
+
+	/**
+	 * Returns the number of recorded files.
+	 * 
+	 * @return The number of files.
+	 */
+	public int size() {
+		return hashMap.size();
+	}
+
+	/**
+	 * Returns the key of a file in the record.
+	 * 
+	 * @param path
+	 *            The file.
+	 * @return The absolute path.
+	 */
+	private static String key(Path path) {
+		return path.toAbsolutePath().normalize().toString();
+	}
+
+	/**
+	 * Returns the hash of the fingerprint and the contents of a file.
+	 * 
+	 * @param path
+	 *            The file.
+	 * @return The hexadecimal SHA-1 hash.
+	 * @throws IOException
+	 *             If the file cannot be read.
+	 */
+	String hash(Path path) throws IOException {
+		MessageDigest digest;
+		try {
+			digest = MessageDigest.getInstance("SHA-1");
+		} catch (NoSuchAlgorithmException e) {
+			throw new IllegalStateException(e); // every JRE supports SHA-1
+		}
+		digest.update(fingerprint.getBytes(StandardCharsets.UTF_8));
+		digest.update((byte) 0);
+		byte[] bytes = digest.digest(Files.readAllBytes(path));
+		char[] chars = new char[bytes.length * 2];
+		for (int i = 0; i < bytes.length; i++) {
+			chars[i * 2] = HEX_DIGITS[(bytes[i] >> 4) & 0xF];
+			chars[i * 2 + 1] = HEX_DIGITS[bytes[i] & 0xF];
+		}
+		return new String(chars);
+	}
+
+}
@@ -0,0 +1,96 @@
+/*
+ * MyBatter - Formats your MyBatis mapper XML files
+ *
+ *     Copyright (C) 2018 Uwe Damken
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package de.dknapps.mybatter.maven;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+import org.apache.commons.io.FileUtils;
+import org.junit.Test;
+
+import junit.framework.TestCase;
+
+public class FormattedFileRecordTest extends TestCase {
+
+	private Path directory;
+
+	@Override
+	protected void setUp() throws IOException {
+		directory = Files.createTempDirectory("mybatter-record");
+	}
+
+	@Override
+	protected void tearDown() throws IOException {
+		FileUtils.deleteDirectory(directory.toFile());
+	}
+
+	@Test
+	public void testUpToDateUntilChanged() throws IOException {
+		Path mapper = write("FooMapper.xml", "<mapper/>");
+		FormattedFileRecord record = new FormattedFileRecord(recordFile(), "1.0/UTF-8");
+		assertFalse(record.isUpToDate(mapper));
+		record.update(mapper);
+		assertTrue(record.isUpToDate(mapper));
+		write("FooMapper.xml", "<mapper></mapper>");
+		assertFalse(record.isUpToDate(mapper));
+	}
+
+	@Test
+	public void testSaveAndLoad() throws IOException {
+		Path mapper = write("FooMapper.xml", "<mapper/>");
+		Path other = write("BarMapper.xml", "<mapper/>");
+		FormattedFileRecord record = new FormattedFileRecord(recordFile(), "1.0/UTF-8");
+		record.update(mapper);
+		record.update(other);
+		record.remove(other);
+		record.save();
+		FormattedFileRecord loaded = new FormattedFileRecord(recordFile(), "1.0/UTF-8").load();
+		assertEquals(1, loaded.size());
+		assertTrue(loaded.isUpToDate(mapper));
+		assertFalse(loaded.isUpToDate(other));
+	}
+
+	@Test
+	public void testOtherFingerprintMakesFilesStale() throws IOException {
+		Path mapper = write("FooMapper.xml", "<mapper/>");
+		FormattedFileRecord record = new FormattedFileRecord(recordFile(), "1.0/UTF-8");
+		record.update(mapper);
+		record.save();
+		assertFalse(new FormattedFileRecord(recordFile(), "1.1/UTF-8").load().isUpToDate(mapper));
+	}
+
+	@Test
+	public void testUnreadableRecordIsEmpty() throws IOException {
+		FileUtils.write(recordFile(), "\\u12", StandardCharsets.ISO_8859_1);
+		assertEquals(0, new FormattedFileRecord(recordFile(), "1.0/UTF-8").load().size());
+	}
+
+	private File recordFile() {
+		return directory.resolve("target/mybatter/formatted.properties").toFile();
+	}
+
+	private Path write(String name, String contents) throws IOException {
+		Path path = directory.resolve(name);
+		FileUtils.write(path.toFile(), contents, StandardCharsets.UTF_8);
+		return path;
+	}
+
+}
@@ -0,0 +1,199 @@
+/*
+ * MyBatter - Formats your MyBatis mapper XML files
+ *
+ *     Copyright (C) 2018 Uwe Damken
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package de.dknapps.mybatter.maven;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.lang.reflect.Field;
+import java.net.URL;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+import javax.xml.parsers.DocumentBuilderFactory;
+
+import org.apache.commons.io.FileUtils;
+import org.apache.maven.plugin.MojoExecutionException;
+import org.apache.maven.plugin.MojoFailureException;
+import org.apache.maven.plugin.logging.SystemStreamLog;
+import org.junit.Test;
+import org.w3c.dom.Element;
+import org.w3c.dom.Node;
+import org.w3c.dom.NodeList;
+
+import de.dknapps.mybatter.formatter.Formatter;
+import junit.framework.TestCase;
+
+public class MyBatterMojoTest extends TestCase {
+
+	private static final String MAPPER = "<?xml version=\"1.0\" encoding=\"UTF-8\"?>"
+			+ "<mapper namespace=\"x\"><select id=\"a\">select a from t where b = 1</select></mapper>";
+
+	private static final String BEANS = "<?xml version=\"1.0\" encoding=\"UTF-8\"?>"
+			+ "<beans><bean id=\"a\" class=\"x.A\"/></beans>";
+
+	private Path directory;
+
+	private List<String> infoList = new ArrayList<>();
+
+	@Override
+	protected void setUp() throws IOException {
+		directory = Files.createTempDirectory("mybatter-mojo");
+	}
+
+	@Override
+	protected void tearDown() throws IOException {
+		FileUtils.deleteDirectory(directory.toFile());
+	}
+
+	@Test
+	public void testFormatWithDefaults() throws Exception {
+		Path mapper = write("FooMapper.xml", MAPPER);
+		Path beans = write("beans.xml", BEANS);
+		Path backup = write("~BarMapper.xml", MAPPER);
+		execute(new FormatMojo());
+		assertEquals(new Formatter().format(MAPPER), read(mapper));
+		assertEquals(BEANS, read(beans)); // no mapper, skipped by default
+		assertEquals(MAPPER, read(backup)); // not matching the default glob
+		assertTrue(infoList.contains("MyBatter: 1 of 1 mapper files processed, others unchanged since last build"));
+	}
+
+	@Test
+	public void testFormatVerifiesByDefault() throws Exception {
+		String input = MAPPER.replace("b = 1", "b = N'x'"); // formatting would separate N from the string
+		Path mapper = write("FooMapper.xml", input);
+		try {
+			execute(new FormatMojo());
+			fail("MojoExecutionException expected");
+		} catch (MojoExecutionException e) {
+			assertEquals("1 mapper files could not be formatted", e.getMessage());
+		}
+		assertEquals(input, read(mapper));
+	}
+
+	@Test
+	public void testFormatSkipsFormattedFiles() throws Exception {
+		Path mapper = write("FooMapper.xml", MAPPER);
+		write("BarMapper.xml", new Formatter().format(MAPPER));
+		execute(new FormatMojo());
+		assertTrue(infoList.contains("MyBatter: 2 of 2 mapper files processed, others unchanged since last build"));
+		infoList.clear();
+		execute(new FormatMojo());
+		assertTrue(infoList.contains("MyBatter: 0 of 2 mapper files processed, others unchanged since last build"));
+		infoList.clear();
+		write("FooMapper.xml", MAPPER);
+		execute(new FormatMojo());
+		assertTrue(infoList.contains("MyBatter: 1 of 2 mapper files processed, others unchanged since last build"));
+		assertEquals(new Formatter().format(MAPPER), read(mapper));
+	}
+
+	@Test
+	public void testCheckFailsOnUnformattedFiles() throws Exception {
+		Path mapper = write("FooMapper.xml", MAPPER);
+		try {
+			execute(new CheckMojo());
+			fail("MojoFailureException expected");
+		} catch (MojoFailureException e) {
+			assertEquals("1 mapper files are not formatted, run mvn mybatter:format to format them", e.getMessage());
+		}
+		assertEquals(MAPPER, read(mapper)); // nothing is written
+
+		// Failing files are not recorded, hence checking fails again until they are formatted
+		try {
+			execute(new CheckMojo());
+			fail("MojoFailureException expected");
+		} catch (MojoFailureException e) {
+			// expected
+		}
+		execute(new FormatMojo());
+		execute(new CheckMojo());
+	}
+
+	/**
+	 * Executes a goal with the default values of its parameters taken from the plugin descriptor, except for
+	 * those given as expressions that are set to the temporary directory.
+	 */
+	private void execute(AbstractMyBatterMojo mojo) throws Exception {
+		for (Element parameter : findConfiguration(mojo.getClass())) {
+			String defaultValue = parameter.getAttribute("default-value");
+			if (!defaultValue.isEmpty() && !defaultValue.startsWith("${")) {
+				Field field = AbstractMyBatterMojo.class.getDeclaredField(parameter.getTagName());
+				field.setAccessible(true);
+				field.set(mojo, (field.getType() == boolean.class) ? Boolean.valueOf(defaultValue) : defaultValue);
+			}
+		}
+		set(mojo, "directories", new File[] { directory.toFile() });
+		set(mojo, "recordFile", directory.resolve("target/mybatter/formatted.properties").toFile());
+		set(mojo, "pluginVersion", "1.0");
+		set(mojo, "encoding", "UTF-8");
+		mojo.setLog(new SystemStreamLog() {
+			@Override
+			public void info(CharSequence content) {
+				infoList.add(content.toString());
+			}
+		});
+		mojo.execute();
+	}
+
+	/**
+	 * Returns the parameters with their default values of a goal from the generated plugin descriptor.
+	 */
+	private static List<Element> findConfiguration(Class<?> mojoClass) throws Exception {
+		for (URL url : Collections.list(MyBatterMojoTest.class.getClassLoader()
+				.getResources("META-INF/maven/plugin.xml"))) {
+			try (InputStream in = url.openStream()) {
+				NodeList mojoList = DocumentBuilderFactory.newInstance().newDocumentBuilder().parse(in)
+						.getElementsByTagName("mojo");
+				for (int i = 0; i < mojoList.getLength(); i++) {
+					Element mojo = (Element) mojoList.item(i);
+					Node implementation = mojo.getElementsByTagName("implementation").item(0);
+					if (mojoClass.getName().equals(implementation.getTextContent())) {
+						List<Element> parameterList = new ArrayList<>();
+						NodeList childList = mojo.getElementsByTagName("configuration").item(0).getChildNodes();
+						for (int j = 0; j < childList.getLength(); j++) {
+							if (childList.item(j) instanceof Element) {
+								parameterList.add((Element) childList.item(j));
+							}
+						}
+						return parameterList;
+					}
+				}
+			}
+		}
+		throw new IllegalStateException("No plugin descriptor for " + mojoClass.getName());
+	}
+
+	private static void set(AbstractMyBatterMojo mojo, String name, Object value) throws Exception {
+		Field field = AbstractMyBatterMojo.class.getDeclaredField(name);
+		field.setAccessible(true);
+		field.set(mojo, value);
+	}
+
+	private Path write(String name, String contents) throws IOException {
+		return Files.write(directory.resolve(name), contents.getBytes(StandardCharsets.UTF_8));
+	}
+
+	private static String read(Path path) throws IOException {
+		return new String(Files.readAllBytes(path), StandardCharsets.UTF_8);
+	}
+
+}
@@ -0,0 +1,113 @@
+/*
+ * MyBatter - Formats your MyBatis mapper XML files
+ *
+ *     Copyright (C) 2018 Uwe Damken
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package de.dknapps.mybatter.mybatis;
+
+import java.sql.Connection;
+import java.util.Properties;
+
+import org.apache.ibatis.executor.statement.StatementHandler;
+import org.apache.ibatis.logging.Log;
+import org.apache.ibatis.logging.LogFactory;
+import org.apache.ibatis.mapping.MappedStatement;
+import org.apache.ibatis.plugin.Interceptor;
+import org.apache.ibatis.plugin.Intercepts;
+import org.apache.ibatis.plugin.Invocation;
+import org.apache.ibatis.plugin.Signature;
+import org.apache.ibatis.reflection.MetaObject;
+import org.apache.ibatis.reflection.SystemMetaObject;
+
+import de.dknapps.mybatter.formatter.SqlFormatCache;
+
+/**
+ * MyBatis plugin that logs the SQL of every statement executed in a formatted way, at debug level of the logger
+ * named like this class. The SQL is formatted once per statement id and shape of the SQL, e.g. per number of
+ * values of an IN list, and cached. Hence executing a statement costs a cache lookup only. Nothing is done at all
+ * unless debug logging is enabled. Register it in the MyBatis configuration:
+ * 
+ * <pre>
+ * &lt;plugins&gt;
+ *     &lt;plugin interceptor="de.dknapps.mybatter.mybatis.FormattingInterceptor"&gt;
+ *         &lt;property name="cacheSize" value="1000"/&gt;
+ *     &lt;/plugin&gt;
+ * &lt;/plugins&gt;
+ * </pre>
+ */
+@Intercepts(@Signature(type = StatementHandler.class, method = "prepare", args = { Connection.class,
+		Integer.class }))
+public class FormattingInterceptor implements Interceptor {
+
+	/** Name of the property with the maximum number of formatted statements kept in the cache */
+	public static final String CACHE_SIZE_PROPERTY = "cacheSize";
+
+	/** The logger */
+	private final Log log = LogFactory.getLog(FormattingInterceptor.class);
+
+	/** Formatted SQL per statement id and SQL */
+	private volatile SqlFormatCache cache = new SqlFormatCache();
+
+	@Override
+	public Object intercept(Invocation invocation) throws Throwable {
+		if (log.isDebugEnabled()) {
+			StatementHandler statementHandler = (StatementHandler) invocation.getTarget();
+			String statementId = getStatementId(statementHandler);
+			log.debug(statementId + ":\n" + cache.format(statementId, statementHandler.getBoundSql().getSql()));
+		}
+		return invocation.proceed();
+	}
+
+	@Override
+	public void setProperties(Properties properties) {
+		String cacheSize = properties.getProperty(CACHE_SIZE_PROPERTY);
+		if (cacheSize != null) {
+			cache = new SqlFormatCache(Integer.parseInt(cacheSize.trim()));
+		}
+	}
+
+	/**
+	 * Returns the cache of formatted statements.
+	 * 
+	 * @return The cache.
+	 */
+	public SqlFormatCache getCache() {
+		return cache;
+	}
+
+	/**
+	 * Returns the id of the mapped statement that a statement handler has been created for.
+	 * 
+	 * @param statementHandler
+	 *            The statement handler, usually a routing statement handler, maybe wrapped by other plugins.
+	 * @return The id, the empty string if it cannot be found.
+	 */
+	private static String getStatementId(StatementHandler statementHandler) {
+		MetaObject metaObject = SystemMetaObject.forObject(statementHandler);
+		while (metaObject.hasGetter("h") && metaObject.hasGetter("h.target")) {
+			metaObject = SystemMetaObject.forObject(metaObject.getValue("h.target")); // unwrap other plugins
+		}
+		for (String name : new String[] { "delegate.mappedStatement", "mappedStatement" }) {
+			if (metaObject.hasGetter(name)) {
+				Object mappedStatement = metaObject.getValue(name);
+				if (mappedStatement instanceof MappedStatement) {
+					return ((MappedStatement) mappedStatement).getId();
+				}
+			}
+		}
+		return "";
+	}
+
+}
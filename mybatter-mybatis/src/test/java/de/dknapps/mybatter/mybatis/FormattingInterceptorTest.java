@@ -0,0 +1,130 @@
+/*
+ * MyBatter - Formats your MyBatis mapper XML files
+ *
+ *     Copyright (C) 2018 Uwe Damken
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package de.dknapps.mybatter.mybatis;
+
+import java.sql.Statement;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+import org.apache.ibatis.annotations.Param;
+import org.apache.ibatis.annotations.Select;
+import org.apache.ibatis.datasource.unpooled.UnpooledDataSource;
+import org.apache.ibatis.logging.Log;
+import org.apache.ibatis.logging.LogFactory;
+import org.apache.ibatis.mapping.Environment;
+import org.apache.ibatis.session.Configuration;
+import org.apache.ibatis.session.SqlSession;
+import org.apache.ibatis.session.SqlSessionFactory;
+import org.apache.ibatis.session.SqlSessionFactoryBuilder;
+import org.apache.ibatis.transaction.jdbc.JdbcTransactionFactory;
+import org.junit.Test;
+
+import junit.framework.TestCase;
+
+public class FormattingInterceptorTest extends TestCase {
+
+	/** Messages logged at debug level */
+	private static final List<String> MESSAGE_LIST = Collections.synchronizedList(new ArrayList<>());
+
+	public interface PersonMapper {
+
+		@Select("select name from person where id = #{id}")
+		String findName(int id);
+
+		@Select("<script>select count(*) from person where id in "
+				+ "<foreach item='id' collection='ids' open='(' separator=',' close=')'>#{id}</foreach></script>")
+		int count(@Param("ids") List<Integer> ids);
+
+	}
+
+	public static class CapturingLog implements Log {
+
+		public CapturingLog(String name) {
+		}
+
+		@Override
+		public boolean isDebugEnabled() {
+			return true;
+		}
+
+		@Override
+		public boolean isTraceEnabled() {
+			return false;
+		}
+
+		@Override
+		public void error(String s, Throwable e) {
+		}
+
+		@Override
+		public void error(String s) {
+		}
+
+		@Override
+		public void debug(String s) {
+			MESSAGE_LIST.add(s);
+		}
+
+		@Override
+		public void trace(String s) {
+		}
+
+		@Override
+		public void warn(String s) {
+		}
+
+	}
+
+	@Test
+	public void test_intercept() throws Exception {
+		LogFactory.useCustomLogging(CapturingLog.class);
+		FormattingInterceptor interceptor = new FormattingInterceptor();
+		Configuration configuration = new Configuration(new Environment("test", new JdbcTransactionFactory(),
+				new UnpooledDataSource("org.h2.Driver", "jdbc:h2:mem:mybatter;DB_CLOSE_DELAY=-1", "sa", "")));
+		configuration.addInterceptor(interceptor);
+		configuration.addMapper(PersonMapper.class);
+		SqlSessionFactory sqlSessionFactory = new SqlSessionFactoryBuilder().build(configuration);
+		try (SqlSession session = sqlSessionFactory.openSession(true)) {
+			try (Statement statement = session.getConnection().createStatement()) {
+				statement.execute("create table person (id int primary key, name varchar(20))");
+				statement.execute("insert into person values (1, 'Ann'), (2, 'Bob'), (3, 'Cy')");
+			}
+			PersonMapper mapper = session.getMapper(PersonMapper.class);
+			MESSAGE_LIST.clear();
+			for (int i = 1; i <= 3; i++) {
+				mapper.findName(i);
+			}
+			assertEquals(1, interceptor.getCache().getMissCount());
+			assertEquals(2, interceptor.getCache().getHitCount());
+			String expected = PersonMapper.class.getName() + ".findName:\n"
+					+ "select\n    name\nfrom\n    person\nwhere\n    id = ?";
+			assertTrue(MESSAGE_LIST.toString(), MESSAGE_LIST.contains(expected));
+
+			assertEquals(2, mapper.count(Arrays.asList(1, 2)));
+			assertEquals(1, mapper.count(Arrays.asList(3)));
+			assertEquals(0, mapper.count(Arrays.asList(4)));
+			assertEquals(3, interceptor.getCache().getMissCount()); // one per shape of the IN list
+			assertEquals(3, interceptor.getCache().size());
+		} finally {
+			LogFactory.useNoLogging();
+		}
+	}
+
+}
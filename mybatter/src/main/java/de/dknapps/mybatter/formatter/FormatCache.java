@@ -0,0 +1,327 @@
+/*
+ * MyBatter - Formats your MyBatis mapper XML files
+ *
+ *     Copyright (C) 2018 Uwe Damken
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package de.dknapps.mybatter.formatter;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InvalidClassException;
+import java.io.ObjectInputStream;
+import java.io.ObjectOutputStream;
+import java.io.ObjectStreamClass;
+import java.io.Serializable;
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Base64;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.atomic.LongAdder;
+
+import lombok.AllArgsConstructor;
+import lombok.EqualsAndHashCode;
+import lombok.Getter;
+
+import de.dknapps.mybatter.tokenizer.TokenType;
+
+/**
+ * Least recently used cache of formatted statements. The key of an entry is a hash of the statement plus the
+ * configuration of the formatter. An entry is used only if the statement starts with the same formatter
+ * state (indentions, ...) as when it has been formatted before. The cache can be saved to and loaded from a
+ * file to be used across several runs.
+ */
+public class FormatCache {
+
+	/** Default maximum number of statements kept in the cache */
+	public static final int DEFAULT_MAX_ENTRY_COUNT = 10000;
+
+	/** Version of the cache file, files of other versions are ignored when loading them */
+	private static final String FILE_VERSION = "1:" + FormatCache.class.getPackage().getImplementationVersion();
+
+	/** Names of the classes of all objects a cache file consists of, no other objects are read from a file */
+	private static final Set<String> CACHE_FILE_CLASS_NAMES = new HashSet<>(Arrays.asList(String.class.getName(),
+			ArrayList.class.getName(), Object[].class.getName(), int[].class.getName(), Enum.class.getName(),
+			Key.class.getName(), Entry.class.getName(), FormatterState.class.getName(), TokenType.class.getName()));
+
+	/**
+	 * Object input stream that reads only objects of the classes a cache file consists of. The file is given by
+	 * the user, hence reading other objects might run code of any class on the class path.
+	 */
+	private static class CacheInputStream extends ObjectInputStream {
+
+		/**
+		 * Constructs a stream reading a cache file.
+		 * 
+		 * @param in
+		 *            The stream to read from.
+		 * @throws IOException
+		 *             If the stream header cannot be read.
+		 */
+		CacheInputStream(InputStream in) throws IOException {
+			super(in);
+		}
+
+		@Override
+		protected Class<?> resolveClass(ObjectStreamClass desc) throws IOException, ClassNotFoundException {
+			if (!CACHE_FILE_CLASS_NAMES.contains(desc.getName())) {
+				throw new InvalidClassException(desc.getName(), "Not allowed in a cache file");
+			}
+			return super.resolveClass(desc);
+		}
+
+	}
+
+	/**
+	 * Identifies a statement formatted with a certain configuration.
+	 */
+	@AllArgsConstructor
+	@EqualsAndHashCode
+	static class Key implements Serializable {
+
+		private static final long serialVersionUID = 1L;
+
+		/** Hash of the statement's input */
+		private final String digest;
+
+		/** Maximum length of a line to be written to the output */
+		private final int maxLineLength;
+
+		/** Number of blanks to be used for a single indention */
+		private final int indentionSize;
+
+	}
+
+	/**
+	 * Result of formatting a statement.
+	 */
+	@AllArgsConstructor
+	static class Entry implements Serializable {
+
+		private static final long serialVersionUID = 1L;
+
+		/** State of the formatter before formatting the statement */
+		@Getter
+		private final FormatterState startState;
+
+		/** State of the formatter after formatting the statement */
+		@Getter
+		private final FormatterState endState;
+
+		/** The formatted statement */
+		@Getter
+		private final String output;
+
+		/** True if the input of the statement ended within a token */
+		@Getter
+		private final boolean incomplete;
+
+		/** True if the statement starts with a primary xml tag */
+		@Getter
+		private final boolean startingWithPrimaryXmlTag;
+
+	}
+
+	/** Maximum number of statements kept in the cache */
+	private final int maxEntryCount;
+
+	/** Formatted statements with the least recently used first */
+	private final LinkedHashMap<Key, Entry> entryMap;
+
+	/** Number of statements found in the cache */
+	private final LongAdder hitCount = new LongAdder();
+
+	/** Number of statements not found in the cache */
+	private final LongAdder missCount = new LongAdder();
+
+	public FormatCache() {
+		this(DEFAULT_MAX_ENTRY_COUNT);
+	}
+
+	public FormatCache(int maxEntryCount) {
+		this.maxEntryCount = maxEntryCount;
+		this.entryMap = new LinkedHashMap<Key, Entry>(16, 0.75f, true) {
+
+			private static final long serialVersionUID = 1L;
+
+			@Override
+			protected boolean removeEldestEntry(Map.Entry<Key, Entry> eldest) {
+				return size() > FormatCache.this.maxEntryCount;
+			}
+
+		};
+	}
+
+	/**
+	 * Creates a key for a statement formatted with a certain configuration.
+	 *
+	 * @param input
+	 *            The input of the statement.
+	 * @param maxLineLength
+	 *            Maximum length of a line to be written to the output.
+	 * @param indentionSize
+	 *            Number of blanks to be used for a single indention.
+	 * @return The key.
+	 */
+	static Key createKey(String input, int maxLineLength, int indentionSize) {
+		try {
+			byte[] hash = MessageDigest.getInstance("SHA-256").digest(input.getBytes(StandardCharsets.UTF_8));
+			return new Key(Base64.getEncoder().encodeToString(hash), maxLineLength, indentionSize);
+		} catch (NoSuchAlgorithmException e) {
+			throw new IllegalStateException(e); // every Java platform has to support SHA-256
+		}
+	}
+
+	/**
+	 * Returns the entry for the key no matter which formatter state it has been formatted with.
+	 *
+	 * @param key
+	 *            The key of the statement.
+	 * @return The entry or null if there is none.
+	 */
+	synchronized Entry peek(Key key) {
+		return entryMap.get(key);
+	}
+
+	/**
+	 * Returns the entry for the key if it has been formatted starting with the given formatter state and counts
+	 * hits and misses.
+	 *
+	 * @param key
+	 *            The key of the statement.
+	 * @param startState
+	 *            The state of the formatter before formatting the statement.
+	 * @return The entry or null if there is none.
+	 */
+	synchronized Entry get(Key key, FormatterState startState) {
+		Entry entry = entryMap.get(key);
+		if (entry == null || !entry.getStartState().equals(startState)) {
+			missCount.increment();
+			return null;
+		}
+		hitCount.increment();
+		return entry;
+	}
+
+	/**
+	 * Adds or replaces the entry for the key.
+	 *
+	 * @param key
+	 *            The key of the statement.
+	 * @param entry
+	 *            The result of formatting the statement.
+	 */
+	synchronized void put(Key key, Entry entry) {
+		entryMap.put(key, entry);
+	}
+
+	/**
+	 * Removes all entries from the cache.
+	 */
+	public synchronized void clear() {
+		entryMap.clear();
+	}
+
+	/**
+	 * Returns the number of statements in the cache.
+	 *
+	 * @return The number of entries.
+	 */
+	public synchronized int size() {
+		return entryMap.size();
+	}
+
+	/**
+	 * Returns the number of statements found in the cache.
+	 *
+	 * @return The number of hits.
+	 */
+	public long getHitCount() {
+		return hitCount.sum();
+	}
+
+	/**
+	 * Returns the number of statements not found in the cache.
+	 *
+	 * @return The number of misses.
+	 */
+	public long getMissCount() {
+		return missCount.sum();
+	}
+
+	/**
+	 * Loads a cache from a file written by {@link #save(File)}. An empty cache is returned if the file does not
+	 * exist or has been written by another version of MyBatter.
+	 *
+	 * @param file
+	 *            The file to load the cache from.
+	 * @param maxEntryCount
+	 *            Maximum number of statements kept in the cache.
+	 * @return The cache.
+	 * @throws IOException
+	 *             If the file cannot be read or is no cache file, e.g. if it contains objects of other classes
+	 *             than those a cache consists of.
+	 */
+	@SuppressWarnings("unchecked")
+	public static FormatCache load(File file, int maxEntryCount) throws IOException {
+		FormatCache cache = new FormatCache(maxEntryCount);
+		if (file.isFile()) {
+			try (ObjectInputStream in = new CacheInputStream(new BufferedInputStream(new FileInputStream(file)))) {
+				if (FILE_VERSION.equals(in.readObject())) {
+					for (Object[] keyAndEntry : (List<Object[]>) in.readObject()) {
+						cache.put((Key) keyAndEntry[0], (Entry) keyAndEntry[1]);
+					}
+				}
+			} catch (ClassNotFoundException | ClassCastException e) {
+				throw new IOException("Invalid cache file " + file.getAbsolutePath(), e);
+			}
+		}
+		return cache;
+	}
+
+	/**
+	 * Saves the cache to a file to be loaded by {@link #load(File, int)}.
+	 *
+	 * @param file
+	 *            The file to save the cache to.
+	 * @throws IOException
+	 *             If the file cannot be written.
+	 */
+	public void save(File file) throws IOException {
+		List<Object[]> keyAndEntryList = new ArrayList<>();
+		synchronized (this) {
+			for (Map.Entry<Key, Entry> entry : entryMap.entrySet()) {
+				keyAndEntryList.add(new Object[] { entry.getKey(), entry.getValue() });
+			}
+		}
+		try (ObjectOutputStream out = new ObjectOutputStream(
+				new BufferedOutputStream(new FileOutputStream(file)))) {
+			out.writeObject(FILE_VERSION);
+			out.writeObject(keyAndEntryList);
+		}
+	}
+
+}
@@ -0,0 +1,360 @@
+/*
+ * MyBatter - Formats your MyBatis mapper XML files
+ *
+ *     Copyright (C) 2018 Uwe Damken
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package de.dknapps.mybatter.formatter;
+
+/**
+ * Verifies that formatting has changed nothing but whitespace. Input and output are scanned in lockstep for
+ * tokens similar to those of the {@link de.dknapps.mybatter.tokenizer.Tokenizer}, comparing them in place
+ * until the first difference. Neither token objects nor trees nor substrings are created, hence verifying
+ * takes a fraction of the time of formatting.
+ * 
+ * Whitespace may change between tokens. Whitespace may be inserted or removed only next to delimiters like
+ * xml markup, commas, dots and parentheses or operators, e.g. between <code>=</code> and <code>'b'</code> but
+ * not between <code>N</code> and <code>'b'</code> or between two strings. Strings, MyBatis references and
+ * character data are compared as a whole, whitespace within them included. Sql comments following each other
+ * may be joined on one line.
+ */
+public final class FormatVerifier {
+
+	/** Number of characters of a token shown at most in a description of a difference */
+	private static final int MAX_SHOWN_LENGTH = 40;
+
+	/**
+	 * Prevents instantiation.
+	 */
+	private FormatVerifier() {
+	}
+
+	/**
+	 * Verifies that the output differs from the input in whitespace only.
+	 * 
+	 * @param input
+	 *            The input of formatting.
+	 * @param output
+	 *            The output of formatting.
+	 * @return Null if only whitespace differs, otherwise a description of the first difference.
+	 */
+	public static String verify(String input, String output) {
+		Scanner inputScanner = new Scanner(input);
+		Scanner outputScanner = new Scanner(output);
+		while (true) {
+			boolean inputToken = inputScanner.next();
+			boolean outputToken = outputScanner.next();
+			if (!inputToken || !outputToken) {
+				if (inputToken) {
+					return describe(inputScanner, "has been removed");
+				}
+				return outputToken ? describe(inputScanner, "has been added before " + outputScanner) : null;
+			}
+			if (!inputScanner.isSameToken(outputScanner)) {
+				return describe(inputScanner, "has become " + outputScanner);
+			}
+			if (inputScanner.glued != outputScanner.glued && inputScanner.isJoiningSignificant()) {
+				return describe(inputScanner, inputScanner.glued ? "has been separated from the token before"
+						: "has been joined with the token before");
+			}
+		}
+	}
+
+	/**
+	 * Describes a difference at the current token of the input.
+	 * 
+	 * @param inputScanner
+	 *            The scanner of the input.
+	 * @param change
+	 *            What has happened to the token.
+	 * @return The description.
+	 */
+	private static String describe(Scanner inputScanner, String change) {
+		String text = inputScanner.text;
+		int index = Math.min(inputScanner.start, text.length());
+		int line = 1;
+		for (int i = 0; i < index; i++) {
+			if (text.charAt(i) == '\n') {
+				line++;
+			}
+		}
+		String token = (inputScanner.start < text.length()) ? inputScanner.toString() : "end of input";
+		return "line " + line + ": " + token + " " + change;
+	}
+
+	/**
+	 * Finds tokens in a text one after another, skipping whitespace between them.
+	 */
+	private static class Scanner {
+
+		/** The text */
+		private final String text;
+
+		/** Index of the next character to be scanned */
+		private int head;
+
+		/** Index of the first character of the current token */
+		private int start;
+
+		/** Index of the character after the current token */
+		private int end = -1;
+
+		/** True if there is no whitespace between the current token and the one before */
+		private boolean glued;
+
+		/** True if the current token is a delimiter that whitespace may be inserted or removed next to */
+		private boolean delimiter = true;
+
+		/** True if the token before the current token is a delimiter */
+		private boolean previousDelimiter;
+
+		/** Index of the character after the token before the current token */
+		private int previousEnd;
+
+		/** True if the current token consists of sql comments */
+		private boolean sqlComment;
+
+		/** True if the current token is within an xml tag */
+		private boolean inXmlTag;
+
+		/** True if the current token is within an xml comment */
+		private boolean inXmlComment;
+
+		/**
+		 * Constructs a scanner before the first token of the text.
+		 * 
+		 * @param text
+		 *            The text.
+		 */
+		Scanner(String text) {
+			this.text = text;
+		}
+
+		/**
+		 * Moves to the next token.
+		 * 
+		 * @return False if there are no more tokens.
+		 */
+		boolean next() {
+			int length = text.length();
+			while (head < length && Character.isWhitespace(text.charAt(head))) {
+				head++;
+			}
+			previousDelimiter = delimiter;
+			previousEnd = end;
+			glued = head == end;
+			start = head;
+			if (head == length) {
+				return false;
+			}
+			char c = text.charAt(head);
+			delimiter = true;
+			sqlComment = false;
+			if (inXmlComment) {
+				if (upcomingStartsWith("-->")) {
+					head += 3;
+					inXmlComment = false;
+				} else {
+					while (head < length && !Character.isWhitespace(text.charAt(head)) && !upcomingStartsWith("-->")) {
+						head++;
+					}
+					delimiter = false;
+				}
+			} else if (upcomingStartsWith("<![CDATA[")) {
+				skipTo("]]>", 9);
+			} else if (upcomingStartsWith("<!--")) {
+				head += 4;
+				inXmlComment = true;
+			} else if (c == '"' || c == '\'') {
+				skipTo(String.valueOf(c), 1);
+				delimiter = false;
+			} else if (upcomingStartsWith("#{") || upcomingStartsWith("${")) {
+				skipTo("}", 2);
+				delimiter = false;
+			} else if (inXmlTag) {
+				if (c == '>') {
+					head++;
+					inXmlTag = false;
+				} else if (upcomingStartsWith("/>") || upcomingStartsWith("?>")) {
+					head += 2;
+					inXmlTag = false;
+				} else {
+					while (head < length && !isTokenStart(text.charAt(head)) && text.charAt(head) != '>'
+							&& !upcomingStartsWith("/>") && !upcomingStartsWith("?>")) {
+						head++;
+					}
+					delimiter = false;
+				}
+			} else if (c == '<') {
+				head++;
+				while (head < length && !Character.isWhitespace(text.charAt(head)) && text.charAt(head) != '>'
+						&& !upcomingStartsWith("/>")) {
+					head++;
+				}
+				inXmlTag = true;
+			} else if (upcomingStartsWith("--")) {
+				scanSqlComments();
+				return true;
+			} else if (c == ',' || c == '.' || c == '(' || c == ')') {
+				head++;
+			} else {
+				while (head < length && !isTokenStart(text.charAt(head)) && !isDelimiterCharacter(text.charAt(head))
+						&& !upcomingStartsWith("--")) {
+					head++;
+				}
+				delimiter = false;
+			}
+			end = head;
+			return true;
+		}
+
+		/**
+		 * Moves behind sql comments that follow each other, each one up to the end of its line. Several sql
+		 * comments make up one token because the formatter may join them on one line.
+		 */
+		private void scanSqlComments() {
+			int length = text.length();
+			do {
+				while (head < length && text.charAt(head) != '\n' && text.charAt(head) != '\r') {
+					head++;
+				}
+				end = head;
+				while (head < length && Character.isWhitespace(text.charAt(head))) {
+					head++;
+				}
+			} while (upcomingStartsWith("--"));
+			head = end;
+			while (Character.isWhitespace(text.charAt(end - 1))) {
+				end--; // trailing whitespace of the line
+			}
+			sqlComment = true;
+		}
+
+		/**
+		 * Returns true if the current tokens of both scanners are equal. Whitespace within sql comments may
+		 * differ, except for whether there is any.
+		 * 
+		 * @param other
+		 *            The other scanner.
+		 * @return True if the characters are equal.
+		 */
+		boolean isSameToken(Scanner other) {
+			if (!sqlComment || !other.sqlComment) {
+				int length = end - start;
+				return length == other.end - other.start
+						&& text.regionMatches(start, other.text, other.start, length);
+			}
+			int index = start;
+			int otherIndex = other.start;
+			while (index < end && otherIndex < other.end) {
+				char c = text.charAt(index++);
+				char otherC = other.text.charAt(otherIndex++);
+				if (Character.isWhitespace(c) && Character.isWhitespace(otherC)) {
+					while (index < end && Character.isWhitespace(text.charAt(index))) {
+						index++;
+					}
+					while (otherIndex < other.end && Character.isWhitespace(other.text.charAt(otherIndex))) {
+						otherIndex++;
+					}
+				} else if (c != otherC) {
+					return false;
+				}
+			}
+			return index == end && otherIndex == other.end;
+		}
+
+		/**
+		 * Returns true if joining the current token with the token before or separating them would change
+		 * the meaning, i.e. if neither is a delimiter and both touch with word characters.
+		 * 
+		 * @return True if whitespace between the tokens has to stay as it is.
+		 */
+		boolean isJoiningSignificant() {
+			return !delimiter && !previousDelimiter && previousEnd > 0
+					&& isWordCharacter(text.charAt(previousEnd - 1)) && isWordCharacter(text.charAt(start));
+		}
+
+		/**
+		 * Returns true if the character is part of a word, a string or a MyBatis reference.
+		 * 
+		 * @param c
+		 *            The character.
+		 * @return False for operators like =.
+		 */
+		private static boolean isWordCharacter(char c) {
+			return Character.isLetterOrDigit(c) || c == '_' || c == '\'' || c == '"' || c == '#' || c == '$'
+					|| c == '{' || c == '}';
+		}
+
+		/**
+		 * Moves behind the next occurrence of the suffix or to the end of the text if there is none.
+		 * 
+		 * @param suffix
+		 *            The suffix, e.g. the closing quote of a string.
+		 * @param prefixLength
+		 *            Length of the prefix at the current position, e.g. of the opening quote.
+		 */
+		private void skipTo(String suffix, int prefixLength) {
+			int index = text.indexOf(suffix, head + prefixLength);
+			head = (index < 0) ? text.length() : index + suffix.length();
+		}
+
+		/**
+		 * Returns true if the upcoming characters are those of the prefix.
+		 * 
+		 * @param prefix
+		 *            The prefix.
+		 * @return True if the text continues with the prefix at the current position.
+		 */
+		private boolean upcomingStartsWith(String prefix) {
+			return text.startsWith(prefix, head);
+		}
+
+		/**
+		 * Returns true if the character ends a word because whitespace, a string or a MyBatis reference starts.
+		 * 
+		 * @param c
+		 *            The character.
+		 * @return True to end a word.
+		 */
+		private boolean isTokenStart(char c) {
+			return Character.isWhitespace(c) || c == '"' || c == '\'' || upcomingStartsWith("#{")
+					|| upcomingStartsWith("${");
+		}
+
+		/**
+		 * Returns true if the character is a delimiter outside of xml tags.
+		 * 
+		 * @param c
+		 *            The character.
+		 * @return True for xml markup, commas, dots and parentheses.
+		 */
+		private static boolean isDelimiterCharacter(char c) {
+			return c == '<' || c == ',' || c == '.' || c == '(' || c == ')';
+		}
+
+		/**
+		 * Returns the current token, shortened if long.
+		 * 
+		 * @return The token in quotes.
+		 */
+		@Override
+		public String toString() {
+			int shownEnd = Math.min(end, start + MAX_SHOWN_LENGTH);
+			return "'" + text.substring(start, shownEnd) + ((shownEnd < end) ? "...'" : "'");
+		}
+
+	}
+
+}
@@ -52,16 +52,27 @@ import static de.dknapps.mybatter.tokenizer.TokenType.XML_TAG;
 
 import java.io.StringWriter;
 import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Collections;
 import java.util.Deque;
-import java.util.HashMap;
+import java.util.EnumMap;
 import java.util.List;
 import java.util.Map;
+import java.util.NavigableMap;
+import java.util.TreeMap;
+import java.util.concurrent.CancellationException;
 
 import org.apache.commons.lang3.StringUtils;
 
+import de.dknapps.mybatter.jfr.PhaseEvent;
+import de.dknapps.mybatter.jfr.PhaseEvents;
+import de.dknapps.mybatter.statistics.FileStatistics;
+import de.dknapps.mybatter.statistics.Phase;
 import de.dknapps.mybatter.tokenizer.Token;
 import de.dknapps.mybatter.tokenizer.TokenType;
+import de.dknapps.mybatter.tokenizer.TokenTypeDeterminer;
 import de.dknapps.mybatter.tokenizer.Tokenizer;
+import lombok.Getter;
 
 /**
  * Format a MyBatis mapper input string into a well-formatted string.
@@ -87,20 +98,31 @@ public class Formatter {
 	static final String VALUE_SPACE = " ";
 
 	/** Map of format information per token type to be written before writing a token */
-	private static final Map<TokenType, Format> BEFORE_FORMAT_MAP = new HashMap<>();
+	private static final Map<TokenType, Format> BEFORE_FORMAT_MAP = new EnumMap<>(TokenType.class);
 
 	/** Map of format information per token type to be written after writing a token */
-	private static final Map<TokenType, Format> AFTER_FORMAT_MAP = new HashMap<>();
+	private static final Map<TokenType, Format> AFTER_FORMAT_MAP = new EnumMap<>(TokenType.class);
 
 	/** Maximum length of a line to be written to the output */
+	@Getter
 	private final int maxLineLength;
 
 	/** Number of blanks to be used for a single indention */
+	@Getter
 	private final int indentionSize;
 
+	/** True if lengths shall be calculated only without writing anything to the output */
+	private final boolean dryRun;
+
 	/** Result of formatting the input string */
 	private StringWriter output = new StringWriter();
 
+	/** True if anything has been written so far, maybe by the formatter this one has been copied from */
+	private boolean written;
+
+	/** Type of the token written last */
+	private TokenType previousTokenType;
+
 	/** Length of line written so far */
 	private int lineLength;
 
@@ -176,28 +198,265 @@ public class Formatter {
 	}
 
 	public Formatter(int maxLineLength, int indentionSize) {
+		this(maxLineLength, indentionSize, false);
+	}
+
+	/**
+	 * Constructs a formatter that might only calculate lengths and indentions without writing anything.
+	 * 
+	 * @param maxLineLength
+	 *            Maximum length of a line to be written to the output.
+	 * @param indentionSize
+	 *            Number of blanks to be used for a single indention.
+	 * @param dryRun
+	 *            True if nothing shall be written to the output.
+	 */
+	Formatter(int maxLineLength, int indentionSize, boolean dryRun) {
 		this.maxLineLength = maxLineLength;
 		this.indentionSize = indentionSize;
+		this.dryRun = dryRun;
+	}
+
+	/**
+	 * Constructs a formatter with an empty output that continues where another formatter stopped, i.e. with
+	 * its line length, indentions and previous token type.
+	 * 
+	 * @param maxLineLength
+	 *            Maximum length of a line to be written to the output.
+	 * @param indentionSize
+	 *            Number of blanks to be used for a single indention.
+	 * @param state
+	 *            The state of the other formatter, see {@link #getState()}.
+	 * @param dryRun
+	 *            True if nothing shall be written to the output.
+	 */
+	Formatter(int maxLineLength, int indentionSize, FormatterState state, boolean dryRun) {
+		this(maxLineLength, indentionSize, dryRun);
+		this.written = state.isWritten();
+		this.previousTokenType = state.getPreviousTokenType();
+		this.lineLength = state.getLineLength();
+		this.indention = state.getIndention();
+		this.blankCount = state.getBlankCount();
+		for (int stackedIndention : state.getIndentionStack()) {
+			this.indentionStack.addLast(stackedIndention);
+		}
 	}
 
 	public String format(String input) {
+		return format(input, null);
+	}
+
+	/**
+	 * Formats the input and collects running times per phase and token counts.
+	 * 
+	 * @param input
+	 *            String containing MyBatis mapper xml file contents.
+	 * @param statistics
+	 *            Statistics of the file to add to, null to collect nothing.
+	 * @return The formatted input.
+	 */
+	public String format(String input, FileStatistics statistics) {
 
 		// Analyse input and split into a list of top level tokens
+		Tokenizer tokenizer = tokenize(input, statistics);
+		List<Token> tokenList = tokenizer.getTokenList();
+
+		// Write every token in a formatted way to the output
+		long startNanos = System.nanoTime();
+		PhaseEvent event = PhaseEvents.begin(Phase.FORMAT);
+		write(tokenList);
+		event.finish(getFileName(statistics), input.length(), tokenList.size());
+		if (statistics != null) {
+			statistics.addNanosSince(Phase.FORMAT, startNanos);
+		}
+
+		// Return the contents of the output stream as a string
+		return output.toString();
+	}
+
+	/**
+	 * Tokenizes the input and collects running times of splitting it into tokens and determining their types
+	 * as well as token counts. Both phases are recorded as JFR events, see {@link PhaseEvents}.
+	 * 
+	 * @param input
+	 *            String containing MyBatis mapper xml file contents or a part of it.
+	 * @param statistics
+	 *            Statistics of the file to add to, null to collect nothing.
+	 * @return The tokenizer that has tokenized the input.
+	 */
+	static Tokenizer tokenize(String input, FileStatistics statistics) {
+		String fileName = getFileName(statistics);
+		Tokenizer tokenizer = new Tokenizer(input);
+
+		long startNanos = System.nanoTime();
+		PhaseEvent event = PhaseEvents.begin(Phase.TOKENIZE);
+		tokenizer.parse();
+		event.finish(fileName, input.length(), tokenizer.getTokenList().size());
+		if (statistics != null) {
+			statistics.addNanosSince(Phase.TOKENIZE, startNanos);
+		}
+
+		startNanos = System.nanoTime();
+		event = PhaseEvents.begin(Phase.TYPING);
+		TokenTypeDeterminer.determineTokenTypes(tokenizer.getRootToken());
+		event.finish(fileName, input.length(), tokenizer.getTokenList().size());
+		if (statistics != null) {
+			statistics.addNanosSince(Phase.TYPING, startNanos);
+			statistics.countTokens(tokenizer.getTokenList());
+		}
+		return tokenizer;
+	}
+
+	/**
+	 * Returns the name of the file the statistics are collected for.
+	 * 
+	 * @param statistics
+	 *            Statistics of the file, may be null.
+	 * @return The name of the file or null if there are no statistics.
+	 */
+	static String getFileName(FileStatistics statistics) {
+		return (statistics == null) ? null : statistics.getFileName();
+	}
+
+	/**
+	 * Formats only the statements (starting with primary xml tags like &lt;select&gt;) that intersect the given
+	 * range of the input string. The formatter state at the beginning of the first of these statements is
+	 * derived by a dry run over the tokens before it without building any output. Hence only building the
+	 * output is restricted to the range, the running time still grows linearly with the tokens before it.
+	 * 
+	 * @param input
+	 *            String containing MyBatis mapper xml file contents.
+	 * @param startOffset
+	 *            Index of the first character of the range.
+	 * @param endOffset
+	 *            Index of the first character after the range, equal to startOffset for a mere cursor position.
+	 * @return The edits to be applied to the input string, empty if the statements are well-formatted already.
+	 */
+	public List<TextEdit> formatRange(String input, int startOffset, int endOffset) {
 		Tokenizer tokenizer = new Tokenizer(input);
 		tokenizer.tokenize();
+		return formatRange(tokenizer, startOffset, endOffset);
+	}
+
+	/**
+	 * Formats only the statements (starting with primary xml tags like &lt;select&gt;) that intersect the given
+	 * range of an input string that has been tokenized already, see {@link #formatRange(String, int, int)}. Like
+	 * there, the tokens before the range are dry run to derive the formatter state, which takes time linear in
+	 * their number.
+	 * 
+	 * @param tokenizer
+	 *            The tokenizer that has tokenized the input string.
+	 * @param startOffset
+	 *            Index of the first character of the range.
+	 * @param endOffset
+	 *            Index of the first character after the range, equal to startOffset for a mere cursor position.
+	 * @return The edits to be applied to the input string, empty if the statements are well-formatted already.
+	 */
+	public List<TextEdit> formatRange(Tokenizer tokenizer, int startOffset, int endOffset) {
+		return formatRange(tokenizer, startOffset, endOffset, new TreeMap<>());
+	}
+
+	/**
+	 * Formats only the statements (starting with primary xml tags like &lt;select&gt;) that intersect the given
+	 * range of an input string that has been tokenized already, see {@link #formatRange(String, int, int)}. The
+	 * dry run to derive the formatter state resumes from the nearest statement start before the range whose
+	 * state is known from the map, and the states of the statement starts passed by the dry run are added to
+	 * the map. Hence formatting statement after statement takes time linear in the size of the statements only,
+	 * if the map is kept as long as the input before the statements does not change.
+	 * 
+	 * @param tokenizer
+	 *            The tokenizer that has tokenized the input string.
+	 * @param startOffset
+	 *            Index of the first character of the range.
+	 * @param endOffset
+	 *            Index of the first character after the range, equal to startOffset for a mere cursor position.
+	 * @param startStateMap
+	 *            Map of the formatter states at statement starts by the index of their primary xml tags, derived
+	 *            with the same maximum line length and indention size from the same input before these tags.
+	 * @return The edits to be applied to the input string, empty if the statements are well-formatted already.
+	 */
+	public List<TextEdit> formatRange(Tokenizer tokenizer, int startOffset, int endOffset,
+			NavigableMap<Integer, FormatterState> startStateMap) {
 		List<Token> tokenList = tokenizer.getTokenList();
+		if (tokenList.isEmpty()) {
+			return Collections.emptyList();
+		}
 
-		// TODO Determine the type of every token by looking at its neighbors
+		// Find the statements intersecting the range, every statement starts with a primary xml tag
+		int fromIndex = Tokenizer.findStatementIndex(tokenList, startOffset + 1, true);
+		int toIndex = Tokenizer.findStatementIndex(tokenList, Math.max(endOffset, startOffset + 1), false);
+		if (toIndex == 0) { // the first token is a primary xml tag after the range
+			toIndex = Tokenizer.findStatementIndex(tokenList, tokenList.get(0).getOffset() + 1, false);
+		}
 
-		// Write every token in a formatted way to the output
-		Token previousToken = null;
+		// Derive the state at the beginning of the first statement without writing anything
+		Formatter dryRunFormatter = new Formatter(maxLineLength, indentionSize, true);
+		int index = 0;
+		Map.Entry<Integer, FormatterState> startStateEntry = startStateMap
+				.floorEntry(tokenList.get(fromIndex).getOffset());
+		if (fromIndex > 0 && startStateEntry != null) {
+			int startStateIndex = Tokenizer.findStatementIndex(tokenList, startStateEntry.getKey(), false);
+			if (startStateIndex < tokenList.size()
+					&& tokenList.get(startStateIndex).getOffset() == startStateEntry.getKey()) {
+				dryRunFormatter = new Formatter(maxLineLength, indentionSize, startStateEntry.getValue(), true);
+				index = startStateIndex;
+			}
+		}
+		while (index < fromIndex) {
+			int nextIndex = Tokenizer.findStatementIndex(tokenList, tokenList.get(index).getOffset() + 1, false);
+			dryRunFormatter.write(tokenList.subList(index, nextIndex));
+			startStateMap.put(tokenList.get(nextIndex).getOffset(), dryRunFormatter.getState());
+			index = nextIndex;
+		}
+		Formatter rangeFormatter = new Formatter(maxLineLength, indentionSize, dryRunFormatter.getState(), false);
+		rangeFormatter.write(tokenList.subList(fromIndex, toIndex));
+
+		// Replace everything from the end of the previous token to the end of the last statement
+		String input = tokenizer.getInput();
+		int editStart = (fromIndex == 0) ? 0 : tokenList.get(fromIndex - 1).getEndOffset();
+		int editEnd = tokenList.get(toIndex - 1).getEndOffset();
+		String text = rangeFormatter.getOutput();
+		if (input.regionMatches(editStart, text, 0, text.length()) && editEnd - editStart == text.length()) {
+			return Collections.emptyList();
+		}
+		List<TextEdit> editList = new ArrayList<>();
+		editList.add(new TextEdit(editStart, editEnd - editStart, text));
+		return editList;
+	}
+
+	/**
+	 * Writes every token of the list in a formatted way to the output.
+	 * 
+	 * @param tokenList
+	 *            The tokens to be written.
+	 */
+	void write(List<Token> tokenList) {
 		for (Token token : tokenList) {
-			write(deriveEffectiveBeforeFormat(token, previousToken));
+			if (Thread.currentThread().isInterrupted()) {
+				throw new CancellationException("Formatting interrupted at character position " + token.getOffset());
+			}
+			write(deriveEffectiveBeforeFormat(token, previousTokenType));
 			write(token);
-			previousToken = token;
+			previousTokenType = token.getTokenType();
 		}
+	}
 
-		// Return the contents of the output stream as a string
+	/**
+	 * Returns the state of this formatter to let another one continue where this one stopped.
+	 * 
+	 * @return The current state.
+	 */
+	FormatterState getState() {
+		int[] stack = indentionStack.stream().mapToInt(Integer::intValue).toArray();
+		return new FormatterState(written, lineLength, indention, blankCount, stack, previousTokenType);
+	}
+
+	/**
+	 * Returns what has been written to the output so far.
+	 * 
+	 * @return The formatted string.
+	 */
+	String getOutput() {
 		return output.toString();
 	}
 
@@ -208,16 +467,15 @@ public class Formatter {
 	 * 
 	 * @param token
 	 *            The current token.
-	 * @param previousToken
-	 *            The previous token.
+	 * @param previousTokenType
+	 *            The type of the previous token.
 	 * @return The format to be written *before* writing the current token.
 	 */
-	private Format deriveEffectiveBeforeFormat(Token token, Token previousToken) {
+	private Format deriveEffectiveBeforeFormat(Token token, TokenType previousTokenType) {
 		Format beforeFormat;
 		TokenType tokenType = token.getTokenType();
 		beforeFormat = retrieveBeforeFormat(tokenType);
-		if (previousToken != null) {
-			TokenType previousTokenType = previousToken.getTokenType();
+		if (previousTokenType != null) {
 			Format previousAfterFormat = retrieveAfterFormat(previousTokenType);
 			if (tokenType == SQL_COMMENT && allowSqlCommentOnSameLine(previousTokenType)) {
 				beforeFormat = SPACE;
@@ -331,14 +589,24 @@ public class Formatter {
 	private void write(Token token) {
 		// TODO Respect maxLineLength depending on token type
 		if (lineLength == 0) {
-			write(StringUtils.repeat(VALUE_SPACE, indention * indentionSize));
+			writeBlanks(indention * indentionSize);
 		} else {
-			write(StringUtils.repeat(VALUE_SPACE, blankCount));
+			writeBlanks(blankCount);
 		}
 		blankCount = 0;
 		write(token.getValue());
 	}
 
+	/**
+	 * Writes blanks to the output and increase lineLength accordingly.
+	 * 
+	 * @param count
+	 *            Number of blanks to be written
+	 */
+	private void writeBlanks(int count) {
+		write(dryRun ? StringUtils.EMPTY : StringUtils.repeat(VALUE_SPACE, count), count);
+	}
+
 	/**
 	 * Writes a string to the output and increase lineLine accordingly.
 	 * 
@@ -346,19 +614,36 @@ public class Formatter {
 	 *            String to be written
 	 */
 	public void write(String string) {
-		output.write(string);
-		lineLength += string.length();
+		write(string, string.length());
+	}
+
+	/**
+	 * Writes a string to the output (if not in a dry run) and increase lineLine accordingly.
+	 * 
+	 * @param string
+	 *            String to be written
+	 * @param length
+	 *            Length of the string if it had been written
+	 */
+	private void write(String string, int length) {
+		if (!dryRun) {
+			output.write(string);
+		}
+		lineLength += length;
+		written |= length > 0;
 	}
 
 	/**
 	 * Write a line break to the output if not at the very beginning.
 	 */
 	public void newline() {
-		if (output.getBuffer().length() == 0) {
+		if (!written) {
 			return;
 		}
 		blankCount = 0; // no need to write blanks to the end of the line
-		output.write('\n');
+		if (!dryRun) {
+			output.write('\n');
+		}
 		lineLength = 0;
 	}
 
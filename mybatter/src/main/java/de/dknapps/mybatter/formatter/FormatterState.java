@@ -0,0 +1,72 @@
+/*
+ * MyBatter - Formats your MyBatis mapper XML files
+ *
+ *     Copyright (C) 2018 Uwe Damken
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package de.dknapps.mybatter.formatter;
+
+import java.io.Serializable;
+
+import de.dknapps.mybatter.tokenizer.TokenType;
+import lombok.AllArgsConstructor;
+import lombok.EqualsAndHashCode;
+import lombok.Getter;
+
+/**
+ * Snapshot of everything a {@link Formatter} needs to know to continue formatting at some point of the input,
+ * i.e. line length, indentions and the type of the token written last.
+ */
+@AllArgsConstructor
+@EqualsAndHashCode
+public class FormatterState implements Serializable {
+
+	private static final long serialVersionUID = 1L;
+
+	/** State of a formatter that has not written anything yet */
+	public static final FormatterState INITIAL = new FormatterState(false, 0, 0, 0, new int[0], null);
+
+	/** True if anything has been written so far */
+	@Getter
+	private final boolean written;
+
+	/** Length of line written so far */
+	@Getter
+	private final int lineLength;
+
+	/** Indention to be used with next newline */
+	@Getter
+	private final int indention;
+
+	/** Number of blanks currently withhold */
+	@Getter
+	private final int blankCount;
+
+	/** Stack of indentions with the top of the stack first */
+	private final int[] indentionStack;
+
+	/** Type of the token written last, null if no token has been written yet */
+	@Getter
+	private final TokenType previousTokenType;
+
+	/**
+	 * Returns the stack of indentions.
+	 *
+	 * @return A copy of the stack with the top of the stack first.
+	 */
+	public int[] getIndentionStack() {
+		return indentionStack.clone();
+	}
+
+}
@@ -0,0 +1,297 @@
+/*
+ * MyBatter - Formats your MyBatis mapper XML files
+ *
+ *     Copyright (C) 2018 Uwe Damken
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package de.dknapps.mybatter.formatter;
+
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinTask;
+
+import de.dknapps.mybatter.formatter.FormatCache.Entry;
+import de.dknapps.mybatter.formatter.FormatCache.Key;
+import de.dknapps.mybatter.jfr.PhaseEvent;
+import de.dknapps.mybatter.jfr.PhaseEvents;
+import de.dknapps.mybatter.statistics.FileStatistics;
+import de.dknapps.mybatter.statistics.Phase;
+import de.dknapps.mybatter.tokenizer.Statement;
+import de.dknapps.mybatter.tokenizer.StatementSplitter;
+import de.dknapps.mybatter.tokenizer.Token;
+
+/**
+ * Format a MyBatis mapper input string into a well-formatted string like {@link Formatter} does but split it
+ * into statements at primary xml tags (select, insert, ...) to tokenize and format them in parallel. The
+ * result is the same as that of {@link Formatter#format(String)}. If a {@link FormatCache} is given, unchanged
+ * statements are taken from there instead of being tokenized and formatted again.
+ */
+public class ParallelFormatter {
+
+	/**
+	 * Tasks formatting the statements of an input in the pool. If the thread waiting for them is interrupted,
+	 * e.g. because of a time limit, tasks not started yet are skipped and the threads running tasks are
+	 * interrupted to stop the formatter, as cancelling tasks of a pool does not interrupt them.
+	 */
+	private static class CancellableTasks {
+
+		/** The tasks submitted */
+		private final List<ForkJoinTask<?>> taskList = new ArrayList<>();
+
+		/** Threads currently running a task, guarded by this */
+		private final Set<Thread> runningThreadSet = new HashSet<>();
+
+		/** True if the tasks have been cancelled, guarded by this */
+		private boolean cancelled;
+
+		/**
+		 * Submits a task to the pool.
+		 * 
+		 * @param pool
+		 *            The pool.
+		 * @param runnable
+		 *            The task.
+		 */
+		void submit(ForkJoinPool pool, Runnable runnable) {
+			taskList.add(pool.submit(() -> {
+				Thread thread = Thread.currentThread();
+				synchronized (this) {
+					if (cancelled) {
+						return;
+					}
+					runningThreadSet.add(thread);
+				}
+				try {
+					runnable.run();
+				} finally {
+					synchronized (this) {
+						runningThreadSet.remove(thread);
+						if (cancelled) {
+							Thread.interrupted(); // the thread of the pool lives on to run other tasks
+						}
+					}
+				}
+			}));
+		}
+
+		/**
+		 * Waits for all tasks to complete and cancels the remaining ones if interrupted or if a task fails.
+		 * 
+		 * @throws CancellationException
+		 *             If the waiting thread has been interrupted, its interrupted flag is set again.
+		 */
+		void join() {
+			try {
+				for (ForkJoinTask<?> task : taskList) {
+					task.get();
+				}
+			} catch (InterruptedException e) {
+				cancel();
+				Thread.currentThread().interrupt();
+				throw new CancellationException("Formatting interrupted");
+			} catch (ExecutionException e) {
+				cancel();
+				if (e.getCause() instanceof RuntimeException) {
+					throw (RuntimeException) e.getCause();
+				} else if (e.getCause() instanceof Error) {
+					throw (Error) e.getCause();
+				}
+				throw new IllegalStateException(e.getCause());
+			}
+		}
+
+		/**
+		 * Skips tasks not started yet and interrupts the threads running a task.
+		 */
+		private synchronized void cancel() {
+			cancelled = true;
+			for (Thread thread : runningThreadSet) {
+				thread.interrupt();
+			}
+		}
+
+	}
+
+	/** Maximum length of a line to be written to the output */
+	private final int maxLineLength;
+
+	/** Number of blanks to be used for a single indention */
+	private final int indentionSize;
+
+	/** Pool to tokenize and format the statements in */
+	private final ForkJoinPool pool;
+
+	/** Cache of formatted statements or null if there is none */
+	private final FormatCache cache;
+
+	public ParallelFormatter() {
+		this(80, 4);
+	}
+
+	public ParallelFormatter(int maxLineLength, int indentionSize) {
+		this(maxLineLength, indentionSize, ForkJoinPool.commonPool());
+	}
+
+	public ParallelFormatter(ForkJoinPool pool, FormatCache cache) {
+		this(80, 4, pool, cache);
+	}
+
+	public ParallelFormatter(int maxLineLength, int indentionSize, ForkJoinPool pool) {
+		this(maxLineLength, indentionSize, pool, null);
+	}
+
+	public ParallelFormatter(int maxLineLength, int indentionSize, ForkJoinPool pool, FormatCache cache) {
+		this.maxLineLength = maxLineLength;
+		this.indentionSize = indentionSize;
+		this.pool = pool;
+		this.cache = cache;
+	}
+
+	public String format(String input) {
+		return format(input, null);
+	}
+
+	/**
+	 * Formats the input and collects running times per phase and token counts, see
+	 * {@link Formatter#format(String, FileStatistics)}. Running times are summed up over all threads.
+	 * 
+	 * @param input
+	 *            String containing MyBatis mapper xml file contents.
+	 * @param statistics
+	 *            Statistics of the file to add to, null to collect nothing.
+	 * @return The formatted input.
+	 */
+	public String format(String input, FileStatistics statistics) {
+
+		// Split input into statements and tokenize them in parallel unless they are cached
+		Map<Statement, Key> keyMap = new ConcurrentHashMap<>();
+		List<Statement> statementList = StatementSplitter.split(input, pool,
+				(offset, statementInput) -> createStatement(offset, statementInput, keyMap, statistics));
+
+		// Calculate indentions at the beginning of every statement without writing anything
+		List<FormatterState> startStateList = new ArrayList<>();
+		List<Entry> cachedEntryList = new ArrayList<>();
+		FormatterState state = FormatterState.INITIAL;
+		for (Statement statement : statementList) {
+			startStateList.add(state);
+			Entry entry = (cache == null) ? null : cache.get(keyMap.get(statement), state);
+			cachedEntryList.add(entry);
+			if (entry != null) {
+				state = entry.getEndState();
+			} else {
+				List<Token> tokenList = statement.getTokenList();
+				long startNanos = System.nanoTime();
+				PhaseEvent event = PhaseEvents.begin(Phase.FORMAT);
+				Formatter dryRunFormatter = new Formatter(maxLineLength, indentionSize, state, true);
+				dryRunFormatter.write(tokenList);
+				state = dryRunFormatter.getState();
+				event.finish(Formatter.getFileName(statistics), statement.getInput().length(), tokenList.size());
+				if (statistics != null) {
+					statistics.addNanosSince(Phase.FORMAT, startNanos);
+				}
+			}
+		}
+
+		// Write every statement not found in the cache in a formatted way in parallel
+		String[] outputs = new String[statementList.size()];
+		CancellableTasks tasks = new CancellableTasks();
+		for (int i = 0; i < statementList.size(); i++) {
+			Entry entry = cachedEntryList.get(i);
+			if (entry != null) {
+				outputs[i] = entry.getOutput();
+			} else {
+				int index = i;
+				Statement statement = statementList.get(i);
+				tasks.submit(pool, () -> {
+					outputs[index] = formatStatement(statement, startStateList.get(index), keyMap.get(statement),
+							statistics);
+				});
+			}
+		}
+		tasks.join();
+
+		// Return the concatenated outputs of all statements
+		StringBuilder output = new StringBuilder(input.length());
+		for (String statementOutput : outputs) {
+			output.append(statementOutput);
+		}
+		return output.toString();
+	}
+
+	/**
+	 * Creates a statement which is tokenized if it cannot be found in the cache.
+	 * 
+	 * @param offset
+	 *            Index of the first character of the statement in the input string.
+	 * @param input
+	 *            Part of the input string that makes up the statement.
+	 * @param keyMap
+	 *            Map to receive the cache key of the statement.
+	 * @param statistics
+	 *            Statistics of the file to add to, null to collect nothing.
+	 * @return The statement.
+	 */
+	private Statement createStatement(int offset, String input, Map<Statement, Key> keyMap,
+			FileStatistics statistics) {
+		if (cache == null) {
+			return new Statement(offset, Formatter.tokenize(input, statistics));
+		}
+		Key key = FormatCache.createKey(input, maxLineLength, indentionSize);
+		Entry entry = cache.peek(key);
+		Statement statement = (entry == null) ? new Statement(offset, Formatter.tokenize(input, statistics))
+				: new Statement(offset, input, entry.isIncomplete(), entry.isStartingWithPrimaryXmlTag());
+		keyMap.put(statement, key);
+		return statement;
+	}
+
+	/**
+	 * Formats a statement and adds the result to the cache.
+	 * 
+	 * @param statement
+	 *            The statement.
+	 * @param startState
+	 *            The state of the formatter before formatting the statement.
+	 * @param key
+	 *            The cache key of the statement, null if there is no cache.
+	 * @param statistics
+	 *            Statistics of the file to add to, null to collect nothing.
+	 * @return The formatted statement.
+	 */
+	private String formatStatement(Statement statement, FormatterState startState, Key key,
+			FileStatistics statistics) {
+		List<Token> tokenList = statement.getTokenList(); // tokenizes statements known from the cache
+		long startNanos = System.nanoTime();
+		PhaseEvent event = PhaseEvents.begin(Phase.FORMAT);
+		Formatter formatter = new Formatter(maxLineLength, indentionSize, startState, false);
+		formatter.write(tokenList);
+		String output = formatter.getOutput();
+		event.finish(Formatter.getFileName(statistics), statement.getInput().length(), tokenList.size());
+		if (statistics != null) {
+			statistics.addNanosSince(Phase.FORMAT, startNanos);
+		}
+		if (cache != null) {
+			cache.put(key, new Entry(startState, formatter.getState(), output, statement.isIncomplete(),
+					statement.isStartingWithPrimaryXmlTag()));
+		}
+		return output;
+	}
+
+}
@@ -0,0 +1,164 @@
+/*
+ * MyBatter - Formats your MyBatis mapper XML files
+ *
+ *     Copyright (C) 2018 Uwe Damken
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package de.dknapps.mybatter.formatter;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.atomic.LongAdder;
+
+import lombok.AllArgsConstructor;
+import lombok.EqualsAndHashCode;
+
+/**
+ * Least recently used cache of formatted plain SQL, see {@link SqlFormatter}, to be used by many threads. The
+ * key of an entry is the SQL plus a scope, e.g. the id of the statement that the SQL has been created for. The
+ * cache is split into segments by hash of the key, each with its own lock, hence threads looking up different
+ * statements rarely wait for each other. SQL that cannot be formatted is cached unformatted.
+ */
+public class SqlFormatCache {
+
+	/** Default maximum number of statements kept in the cache */
+	public static final int DEFAULT_MAX_ENTRY_COUNT = 1000;
+
+	/** Number of segments, a power of two */
+	private static final int SEGMENT_COUNT = 16;
+
+	/**
+	 * Identifies SQL in a scope.
+	 */
+	@AllArgsConstructor
+	@EqualsAndHashCode
+	private static class Key {
+
+		/** The scope, e.g. the id of the statement */
+		private final String scope;
+
+		/** The SQL */
+		private final String sql;
+
+	}
+
+	/** Segments with the least recently used entries first, each one guarded by itself */
+	private final LinkedHashMap<Key, String>[] segments;
+
+	/** Number of statements found in the cache */
+	private final LongAdder hitCount = new LongAdder();
+
+	/** Number of statements not found in the cache */
+	private final LongAdder missCount = new LongAdder();
+
+	public SqlFormatCache() {
+		this(DEFAULT_MAX_ENTRY_COUNT);
+	}
+
+	@SuppressWarnings("unchecked")
+	public SqlFormatCache(int maxEntryCount) {
+		int maxSegmentEntryCount = Math.max(1, (maxEntryCount + SEGMENT_COUNT - 1) / SEGMENT_COUNT);
+		segments = new LinkedHashMap[SEGMENT_COUNT];
+		for (int i = 0; i < SEGMENT_COUNT; i++) {
+			segments[i] = new LinkedHashMap<Key, String>(16, 0.75f, true) {
+
+				private static final long serialVersionUID = 1L;
+
+				@Override
+				protected boolean removeEldestEntry(Map.Entry<Key, String> eldest) {
+					return size() > maxSegmentEntryCount;
+				}
+
+			};
+		}
+	}
+
+	/**
+	 * Returns the formatted SQL, formats it on a cache miss. Formatting takes place outside of any lock, hence
+	 * threads missing the same statement at the same time may format it more than once.
+	 * 
+	 * @param scope
+	 *            The scope, e.g. the id of the statement, the empty string if there is none.
+	 * @param sql
+	 *            The SQL.
+	 * @return The formatted SQL, or the SQL itself if it cannot be formatted.
+	 */
+	public String format(String scope, String sql) {
+		Key key = new Key(scope, sql);
+		LinkedHashMap<Key, String> segment = segments[spread(key.hashCode()) & (SEGMENT_COUNT - 1)];
+		String formatted;
+		synchronized (segment) {
+			formatted = segment.get(key);
+		}
+		if (formatted != null) {
+			hitCount.increment();
+			return formatted;
+		}
+		missCount.increment();
+		try {
+			formatted = SqlFormatter.format(sql);
+		} catch (RuntimeException e) {
+			formatted = sql; // never let formatting break the caller
+		}
+		synchronized (segment) {
+			segment.put(key, formatted);
+		}
+		return formatted;
+	}
+
+	/**
+	 * Returns the number of statements kept in the cache.
+	 * 
+	 * @return The number of entries.
+	 */
+	public int size() {
+		int size = 0;
+		for (LinkedHashMap<Key, String> segment : segments) {
+			synchronized (segment) {
+				size += segment.size();
+			}
+		}
+		return size;
+	}
+
+	/**
+	 * Returns the number of statements found in the cache.
+	 * 
+	 * @return The number of hits.
+	 */
+	public long getHitCount() {
+		return hitCount.sum();
+	}
+
+	/**
+	 * Returns the number of statements not found in the cache.
+	 * 
+	 * @return The number of misses.
+	 */
+	public long getMissCount() {
+		return missCount.sum();
+	}
+
+	/**
+	 * Mixes the higher bits of a hash code into the lower bits that select the segment.
+	 * 
+	 * @param hashCode
+	 *            The hash code.
+	 * @return The spread hash code.
+	 */
+	private static int spread(int hashCode) {
+		return hashCode ^ (hashCode >>> 16);
+	}
+
+}
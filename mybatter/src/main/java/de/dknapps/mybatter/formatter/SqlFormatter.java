@@ -0,0 +1,45 @@
+/*
+ * MyBatter - Formats your MyBatis mapper XML files
+ *
+ *     Copyright (C) 2018 Uwe Damken
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package de.dknapps.mybatter.formatter;
+
+/**
+ * Formats plain SQL like the SQL within mapper XML files, e.g. SQL executed by MyBatis or found in log messages.
+ * Characters that would be taken as XML markup are escaped before formatting and restored afterwards.
+ */
+public final class SqlFormatter {
+
+	/**
+	 * Prevents instantiation.
+	 */
+	private SqlFormatter() {
+	}
+
+	/**
+	 * Formats plain SQL.
+	 * 
+	 * @param sql
+	 *            The SQL, e.g. <code>select a from t where b &lt; ?</code>.
+	 * @return The formatted SQL without leading or trailing line breaks.
+	 */
+	public static String format(String sql) {
+		String escaped = sql.replace("&", "&amp;").replace("<", "&lt;");
+		String formatted = new Formatter().format(escaped);
+		return formatted.replace("&lt;", "<").replace("&amp;", "&").trim();
+	}
+
+}
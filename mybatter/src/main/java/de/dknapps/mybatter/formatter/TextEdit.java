@@ -0,0 +1,65 @@
+/*
+ * MyBatter - Formats your MyBatis mapper XML files
+ *
+ *     Copyright (C) 2018 Uwe Damken
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package de.dknapps.mybatter.formatter;
+
+import lombok.AllArgsConstructor;
+import lombok.EqualsAndHashCode;
+import lombok.Getter;
+import lombok.ToString;
+
+/**
+ * Replacement of a part of an input string by another string, e.g. by the formatted statements of a range.
+ */
+@AllArgsConstructor
+@EqualsAndHashCode
+@ToString
+public class TextEdit {
+
+	/** Index of the first character to be replaced */
+	@Getter
+	private final int offset;
+
+	/** Number of characters to be replaced */
+	@Getter
+	private final int length;
+
+	/** The replacement */
+	@Getter
+	private final String text;
+
+	/**
+	 * Returns the index of the first character after the replaced part of the input string.
+	 * 
+	 * @return The end index (exclusive).
+	 */
+	public int getEndOffset() {
+		return offset + length;
+	}
+
+	/**
+	 * Applies this edit to the input string it has been created for.
+	 * 
+	 * @param input
+	 *            The input string.
+	 * @return The input string with the replacement in place.
+	 */
+	public String applyTo(String input) {
+		return input.substring(0, offset) + text + input.substring(getEndOffset());
+	}
+
+}
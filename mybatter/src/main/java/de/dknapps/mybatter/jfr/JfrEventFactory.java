@@ -0,0 +1,73 @@
+/*
+ * MyBatter - Formats your MyBatis mapper XML files
+ *
+ *     Copyright (C) 2018 Uwe Damken
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package de.dknapps.mybatter.jfr;
+
+import jdk.jfr.FlightRecorder;
+
+import de.dknapps.mybatter.statistics.Phase;
+
+/**
+ * Creates the JFR events. This class is loaded only if the JVM provides the JFR API, see {@link PhaseEvents}.
+ */
+final class JfrEventFactory {
+
+	/**
+	 * Prevents instantiation.
+	 */
+	private JfrEventFactory() {
+	}
+
+	/**
+	 * Returns true if a flight recording has been started in this JVM.
+	 * 
+	 * @return True if events may be recorded.
+	 */
+	static boolean isRecording() {
+		return FlightRecorder.isInitialized();
+	}
+
+	/**
+	 * Creates an event of a phase of formatting a file.
+	 * 
+	 * @param phase
+	 *            The phase.
+	 * @return The event.
+	 */
+	static PhaseEvent create(Phase phase) {
+		switch (phase) {
+		case TOKENIZE:
+			return new TokenizeEvent();
+		case TYPING:
+			return new TypingEvent();
+		case FORMAT:
+			return new FormatEvent();
+		default:
+			throw new IllegalArgumentException("No event for phase " + phase);
+		}
+	}
+
+	/**
+	 * Creates an event of formatting a file from reading to writing it.
+	 * 
+	 * @return The event.
+	 */
+	static PhaseEvent createFile() {
+		return new FileFormattedEvent();
+	}
+
+}
@@ -0,0 +1,57 @@
+/*
+ * MyBatter - Formats your MyBatis mapper XML files
+ *
+ *     Copyright (C) 2018 Uwe Damken
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package de.dknapps.mybatter.jfr;
+
+import jdk.jfr.Category;
+import jdk.jfr.DataAmount;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.StackTrace;
+
+/**
+ * Base class of all JFR events of MyBatter with the details of the formatted file.
+ */
+@Category("MyBatter")
+@StackTrace(false)
+abstract class MyBatterEvent extends Event implements PhaseEvent {
+
+	/** Path of the formatted file, null if unknown */
+	@Label("Path")
+	String path;
+
+	/** Number of bytes or characters of the input */
+	@Label("Size")
+	@DataAmount
+	long bytes;
+
+	/** Number of top level tokens of the input, 0 if unknown */
+	@Label("Token Count")
+	long tokenCount;
+
+	@Override
+	public void finish(String path, long bytes, long tokenCount) {
+		end();
+		if (shouldCommit()) {
+			this.path = path;
+			this.bytes = bytes;
+			this.tokenCount = tokenCount;
+			commit();
+		}
+	}
+
+}
@@ -0,0 +1,43 @@
+/*
+ * MyBatter - Formats your MyBatis mapper XML files
+ *
+ *     Copyright (C) 2018 Uwe Damken
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package de.dknapps.mybatter.jfr;
+
+/**
+ * A Java Flight Recorder event of formatting a file or a phase of it, see {@link PhaseEvents}. This interface
+ * keeps the code that emits events independent of the JFR API, hence MyBatter still runs on JVMs without it.
+ */
+public interface PhaseEvent {
+
+	/**
+	 * Starts timing the event.
+	 */
+	void begin();
+
+	/**
+	 * Stops timing the event and commits it with its details if it is enabled in a recording.
+	 * 
+	 * @param path
+	 *            Path of the formatted file, null if unknown.
+	 * @param bytes
+	 *            Number of bytes or characters of the input.
+	 * @param tokenCount
+	 *            Number of top level tokens of the input, 0 if unknown.
+	 */
+	void finish(String path, long bytes, long tokenCount);
+
+}
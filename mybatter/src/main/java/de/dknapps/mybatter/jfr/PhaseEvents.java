@@ -0,0 +1,101 @@
+/*
+ * MyBatter - Formats your MyBatis mapper XML files
+ *
+ *     Copyright (C) 2018 Uwe Damken
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package de.dknapps.mybatter.jfr;
+
+import de.dknapps.mybatter.statistics.Phase;
+
+/**
+ * Creates Java Flight Recorder events of formatting files and their phases. As long as no recording has been
+ * started in the JVM, or if the JVM lacks the JFR API, a shared event is returned that does nothing. Hence
+ * events cost nothing by default. Start a recording e.g. with -XX:StartFlightRecording or with jcmd to get
+ * them.
+ */
+public final class PhaseEvents {
+
+	/** Event that does nothing */
+	private static final PhaseEvent NOOP = new PhaseEvent() {
+
+		@Override
+		public void begin() {
+			// nothing to time
+		}
+
+		@Override
+		public void finish(String path, long bytes, long tokenCount) {
+			// nothing to commit
+		}
+
+	};
+
+	/** True if the JVM provides the JFR API */
+	private static final boolean AVAILABLE = isAvailable();
+
+	/**
+	 * Prevents instantiation.
+	 */
+	private PhaseEvents() {
+	}
+
+	/**
+	 * Returns true if a flight recording has been started in this JVM.
+	 * 
+	 * @return True if events may be recorded.
+	 */
+	public static boolean isRecording() {
+		return AVAILABLE && JfrEventFactory.isRecording();
+	}
+
+	/**
+	 * Creates and begins an event of a phase of formatting a file.
+	 * 
+	 * @param phase
+	 *            The phase, one of {@link Phase#TOKENIZE}, {@link Phase#TYPING} and {@link Phase#FORMAT}.
+	 * @return The event that has begun.
+	 */
+	public static PhaseEvent begin(Phase phase) {
+		PhaseEvent event = isRecording() ? JfrEventFactory.create(phase) : NOOP;
+		event.begin();
+		return event;
+	}
+
+	/**
+	 * Creates and begins an event of formatting a file from reading to writing it.
+	 * 
+	 * @return The event that has begun.
+	 */
+	public static PhaseEvent beginFile() {
+		PhaseEvent event = isRecording() ? JfrEventFactory.createFile() : NOOP;
+		event.begin();
+		return event;
+	}
+
+	/**
+	 * Checks if the JFR API can be loaded.
+	 * 
+	 * @return True if the JVM provides the JFR API.
+	 */
+	private static boolean isAvailable() {
+		try {
+			Class.forName("jdk.jfr.FlightRecorder");
+			return true;
+		} catch (ClassNotFoundException | LinkageError e) {
+			return false;
+		}
+	}
+
+}
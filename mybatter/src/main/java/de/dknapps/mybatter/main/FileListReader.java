@@ -0,0 +1,136 @@
+/*
+ * MyBatter - Formats your MyBatis mapper XML files
+ *
+ *     Copyright (C) 2018 Uwe Damken
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package de.dknapps.mybatter.main;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.Reader;
+import java.io.UncheckedIOException;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+
+/**
+ * Reads a list of files separated by NUL characters (like find -print0 writes them) or by line breaks. The
+ * first separator decides, hence names after the first one may even contain line breaks if NUL characters are
+ * used. Names are read lazily while iterating, hence files can be formatted while the list is still being
+ * written, e.g. by a builder passing its changed resources through a pipe. Empty names are skipped.
+ */
+public class FileListReader implements Iterable<Path>, Closeable {
+
+	/** Separator of file names written by find -print0 or xargs -0 */
+	private static final int NUL = '\0';
+
+	/** The list to be read */
+	private final Reader reader;
+
+	/** The separator of file names, -1 as long as no separator has been read */
+	private int separator = -1;
+
+	/** The file name read in advance, null if none has been read or the list has ended */
+	private String nextName;
+
+	/** True if the end of the list has been reached */
+	private boolean ended;
+
+	/** True if iteration has been started, a list can only be read once */
+	private boolean iterated;
+
+	/**
+	 * Constructs a reader of a list of files.
+	 * 
+	 * @param reader
+	 *            The list, should be buffered.
+	 */
+	public FileListReader(Reader reader) {
+		this.reader = reader;
+	}
+
+	/**
+	 * Returns the iterator of the files, can be called once only.
+	 * 
+	 * @return The iterator that throws an {@link UncheckedIOException} if the list cannot be read.
+	 */
+	@Override
+	public Iterator<Path> iterator() {
+		if (iterated) {
+			throw new IllegalStateException("A list of files can be read only once");
+		}
+		iterated = true;
+		return new Iterator<Path>() {
+
+			@Override
+			public boolean hasNext() {
+				if (nextName == null && !ended) {
+					try {
+						nextName = readName();
+					} catch (IOException e) {
+						throw new UncheckedIOException("Cannot read list of files: " + e.getLocalizedMessage(), e);
+					}
+				}
+				return nextName != null;
+			}
+
+			@Override
+			public Path next() {
+				if (!hasNext()) {
+					throw new NoSuchElementException();
+				}
+				Path path = Paths.get(nextName);
+				nextName = null;
+				return path;
+			}
+
+		};
+	}
+
+	/**
+	 * Reads the next non-empty name. Names may be read this way instead of iterating over the files, e.g. if
+	 * they are not names of files at all.
+	 * 
+	 * @return The name or null at the end of the list.
+	 * @throws IOException
+	 *             If the list cannot be read.
+	 */
+	public String readName() throws IOException {
+		StringBuilder name = new StringBuilder();
+		for (int c = reader.read();; c = reader.read()) {
+			if (c == -1) {
+				ended = true;
+				return (name.length() == 0) ? null : name.toString();
+			}
+			if (separator == -1 && (c == NUL || c == '\n')) {
+				separator = c;
+			}
+			if (c == separator) {
+				if (name.length() > 0) {
+					return name.toString();
+				}
+			} else if (c != '\r' || separator == NUL) {
+				name.append((char) c);
+			}
+		}
+	}
+
+	@Override
+	public void close() throws IOException {
+		reader.close();
+	}
+
+}
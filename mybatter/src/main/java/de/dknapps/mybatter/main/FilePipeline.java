@@ -0,0 +1,414 @@
+/*
+ * MyBatter - Formats your MyBatis mapper XML files
+ *
+ *     Copyright (C) 2018 Uwe Damken
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package de.dknapps.mybatter.main;
+
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+
+import de.dknapps.mybatter.formatter.ParallelFormatter;
+
+/**
+ * Formats files in three stages connected by bounded queues: reader threads read files, formatter threads
+ * format them and writer threads write them. Hence slow reading or writing, e.g. on network-mounted
+ * workspaces, does not keep the processors idle and formatting does not wait for I/O. The heap taken by all
+ * files read but not written yet is limited by a budget, hence many large files do not exhaust it. A file
+ * takes about {@link #HEAP_BYTES_PER_FILE_BYTE} times its size, a file taking more than the whole budget is
+ * read only when no other file is in flight.
+ */
+class FilePipeline {
+
+	/** Capacity of each queue between two stages, the byte budget usually limits the files in flight first */
+	private static final int QUEUE_CAPACITY = 256;
+
+	/** Bytes of heap taken per byte of a file in flight, its input and output are kept as UTF-16 strings */
+	static final int HEAP_BYTES_PER_FILE_BYTE = 4;
+
+	/** Marks the end of a queue, each thread of a stage stops when taking it */
+	private static final PendingFile END = new PendingFile(Paths.get(""), 0);
+
+	/** The runner providing the stages */
+	private final MyBatterRunner runner;
+
+	/** The options of the run */
+	private final FormatOptions options;
+
+	/** Formatter to format each file split at primary xml tags, null to format sequentially */
+	private final ParallelFormatter parallelFormatter;
+
+	/** The result of the run to add to */
+	private final RunResult result;
+
+	/** Budget of bytes of heap taken by files in flight */
+	private final ByteBudget budget;
+
+	/** Files to be read */
+	private final BlockingQueue<PendingFile> readQueue = new ArrayBlockingQueue<>(QUEUE_CAPACITY);
+
+	/** Files read to be formatted */
+	private final BlockingQueue<PendingFile> formatQueue = new ArrayBlockingQueue<>(QUEUE_CAPACITY);
+
+	/** Files formatted to be written */
+	private final BlockingQueue<PendingFile> writeQueue = new ArrayBlockingQueue<>(QUEUE_CAPACITY);
+
+	/** Threads reading files */
+	private final List<Thread> readerList;
+
+	/** Threads formatting files */
+	private final List<Thread> formatterList;
+
+	/** Threads writing files */
+	private final List<Thread> writerList;
+
+	/** Number of files per directory submitted, in order of submission */
+	private final Map<Path, Integer> fileCountPerDirectory = new LinkedHashMap<>();
+
+	/** First unexpected exception of a stage, files are passed on unprocessed afterwards */
+	private volatile RuntimeException failure;
+
+	/**
+	 * Constructs a pipeline and starts its threads.
+	 * 
+	 * @param runner
+	 *            The runner providing the stages.
+	 * @param options
+	 *            The options of the run, see {@link FormatOptions#getIoThreads()} and
+	 *            {@link FormatOptions#getMaxInFlightBytes()}.
+	 * @param parallelFormatter
+	 *            Formatter to format each file split at primary xml tags, null to format sequentially.
+	 * @param result
+	 *            The result of the run to add to.
+	 */
+	FilePipeline(MyBatterRunner runner, FormatOptions options, ParallelFormatter parallelFormatter,
+			RunResult result) {
+		this.runner = runner;
+		this.options = options;
+		this.parallelFormatter = parallelFormatter;
+		this.result = result;
+		this.budget = new ByteBudget(options.getMaxInFlightBytes());
+		int ioThreads = Math.max(1, options.getIoThreads());
+		readerList = startThreads("mybatter-reader", ioThreads, this::read);
+		formatterList = startThreads("mybatter-formatter", Runtime.getRuntime().availableProcessors(),
+				this::format);
+		writerList = startThreads("mybatter-writer", ioThreads, this::write);
+	}
+
+	/**
+	 * Hands a file over to the reader threads, waits until the budget allows it to be read.
+	 * 
+	 * @param path
+	 *            The file.
+	 * @throws InterruptedException
+	 *             If interrupted while waiting.
+	 */
+	void submit(Path path) throws InterruptedException {
+		long bytes = Math.min(HEAP_BYTES_PER_FILE_BYTE * path.toFile().length(), budget.getMaxBytes());
+		budget.acquire(bytes);
+		try {
+			readQueue.put(new PendingFile(path, bytes));
+		} catch (InterruptedException e) {
+			budget.release(bytes);
+			throw e;
+		}
+	}
+
+	/**
+	 * Records the number of files of a directory submitted to inform listeners when all files are done.
+	 * 
+	 * @param directory
+	 *            The directory.
+	 * @param fileCount
+	 *            The number of files submitted.
+	 */
+	void addDirectory(Path directory, int fileCount) {
+		fileCountPerDirectory.put(directory, fileCount);
+	}
+
+	/**
+	 * Returns the number of files per directory submitted.
+	 * 
+	 * @return The numbers of files in order of submission.
+	 */
+	Map<Path, Integer> getFileCountPerDirectory() {
+		return Collections.unmodifiableMap(fileCountPerDirectory);
+	}
+
+	/**
+	 * Waits until all files submitted have been written and stops the threads.
+	 * 
+	 * @throws RuntimeException
+	 *             The first unexpected exception of a stage.
+	 */
+	void finish() {
+		boolean interrupted = Thread.interrupted(); // finish anyway, files must not be left half written
+		interrupted |= stop(readQueue, readerList);
+		interrupted |= stop(formatQueue, formatterList);
+		interrupted |= stop(writeQueue, writerList);
+		if (interrupted) {
+			Thread.currentThread().interrupt();
+		}
+		if (failure != null) {
+			throw failure;
+		}
+	}
+
+	/**
+	 * Reads files taken from the read queue and puts them into the format queue.
+	 */
+	private void read() {
+		run(readQueue, formatQueue, pendingFile -> runner.read(pendingFile, options, result));
+	}
+
+	/**
+	 * Formats files taken from the format queue and puts them into the write queue.
+	 */
+	private void format() {
+		run(formatQueue, writeQueue, pendingFile -> runner.format(pendingFile, options, parallelFormatter, result));
+	}
+
+	/**
+	 * Writes files taken from the write queue.
+	 */
+	private void write() {
+		run(writeQueue, null, pendingFile -> {
+			runner.write(pendingFile, options, result);
+			return false; // done, return bytes to the budget
+		});
+	}
+
+	/**
+	 * Lets a stage process the files taken from a queue until the end marker is taken.
+	 * 
+	 * @param inputQueue
+	 *            The queue to take files from.
+	 * @param outputQueue
+	 *            The queue to put files passed on into, null if none are passed on.
+	 * @param stage
+	 *            The stage.
+	 */
+	private void run(BlockingQueue<PendingFile> inputQueue, BlockingQueue<PendingFile> outputQueue, Stage stage) {
+		for (PendingFile pendingFile = take(inputQueue); pendingFile != END; pendingFile = take(inputQueue)) {
+			if (process(pendingFile, stage)) {
+				put(outputQueue, pendingFile);
+			}
+		}
+	}
+
+	/**
+	 * Lets a stage process a file unless a stage has failed before.
+	 * 
+	 * @param pendingFile
+	 *            The file.
+	 * @param stage
+	 *            The stage, returns true if the file is to be passed on to the next stage.
+	 * @return True if the file is to be passed on, otherwise its bytes have been returned to the budget.
+	 */
+	private boolean process(PendingFile pendingFile, Stage stage) {
+		boolean passedOn = false;
+		try {
+			passedOn = failure == null && stage.process(pendingFile);
+		} catch (RuntimeException e) {
+			synchronized (this) {
+				if (failure == null) {
+					failure = e;
+				}
+			}
+		}
+		if (!passedOn) {
+			budget.release(pendingFile.budgetBytes);
+		}
+		return passedOn;
+	}
+
+	/**
+	 * Puts the end marker into a queue for every thread taking from it and waits until they have stopped.
+	 * 
+	 * @param queue
+	 *            The queue.
+	 * @param threadList
+	 *            The threads taking from the queue.
+	 * @return True if interrupted while waiting.
+	 */
+	private static boolean stop(BlockingQueue<PendingFile> queue, List<Thread> threadList) {
+		boolean interrupted = false;
+		for (int i = 0; i < threadList.size(); i++) {
+			interrupted |= put(queue, END);
+		}
+		for (Thread thread : threadList) {
+			while (thread.isAlive()) {
+				try {
+					thread.join();
+				} catch (InterruptedException e) {
+					interrupted = true;
+				}
+			}
+		}
+		return interrupted;
+	}
+
+	/**
+	 * Takes a file from a queue, waits for it uninterruptibly, files in flight have to be finished.
+	 * 
+	 * @param queue
+	 *            The queue.
+	 * @return The file.
+	 */
+	private static PendingFile take(BlockingQueue<PendingFile> queue) {
+		while (true) {
+			try {
+				return queue.take();
+			} catch (InterruptedException e) {
+				// files in flight have to be finished
+			}
+		}
+	}
+
+	/**
+	 * Puts a file into a queue, waits for space uninterruptibly, files in flight have to be finished.
+	 * 
+	 * @param queue
+	 *            The queue.
+	 * @param pendingFile
+	 *            The file.
+	 * @return True if interrupted while waiting.
+	 */
+	private static boolean put(BlockingQueue<PendingFile> queue, PendingFile pendingFile) {
+		boolean interrupted = false;
+		while (true) {
+			try {
+				queue.put(pendingFile);
+				return interrupted;
+			} catch (InterruptedException e) {
+				interrupted = true;
+			}
+		}
+	}
+
+	/**
+	 * Starts daemon threads.
+	 * 
+	 * @param name
+	 *            Prefix of the names of the threads.
+	 * @param count
+	 *            Number of threads.
+	 * @param runnable
+	 *            What the threads do.
+	 * @return The threads.
+	 */
+	private static List<Thread> startThreads(String name, int count, Runnable runnable) {
+		List<Thread> threadList = new ArrayList<>(count);
+		for (int i = 0; i < count; i++) {
+			Thread thread = new Thread(runnable, name + "-" + (i + 1));
+			thread.setDaemon(true);
+			thread.start();
+			threadList.add(thread);
+		}
+		return threadList;
+	}
+
+	/**
+	 * A stage processing a file.
+	 */
+	private interface Stage {
+
+		/**
+		 * Processes the file.
+		 * 
+		 * @param pendingFile
+		 *            The file.
+		 * @return True if the file is to be passed on to the next stage.
+		 */
+		boolean process(PendingFile pendingFile);
+
+	}
+
+	/**
+	 * Budget of bytes of files in flight. Taking more bytes than the budget allows waits until enough bytes
+	 * have been returned. A request larger than the whole budget is granted as soon as nothing else is taken.
+	 */
+	static class ByteBudget {
+
+		/** The whole budget */
+		private final long maxBytes;
+
+		/** Bytes taken and not returned yet */
+		private long bytesInFlight;
+
+		/**
+		 * Constructs a budget.
+		 * 
+		 * @param maxBytes
+		 *            The whole budget.
+		 */
+		ByteBudget(long maxBytes) {
+			this.maxBytes = Math.max(1, maxBytes);
+		}
+
+		/**
+		 * Returns the whole budget.
+		 * 
+		 * @return The number of bytes.
+		 */
+		long getMaxBytes() {
+			return maxBytes;
+		}
+
+		/**
+		 * Returns the bytes taken and not returned yet.
+		 * 
+		 * @return The number of bytes.
+		 */
+		synchronized long getBytesInFlight() {
+			return bytesInFlight;
+		}
+
+		/**
+		 * Takes bytes, waits until the budget allows it.
+		 * 
+		 * @param bytes
+		 *            The number of bytes.
+		 * @throws InterruptedException
+		 *             If interrupted while waiting.
+		 */
+		synchronized void acquire(long bytes) throws InterruptedException {
+			while (bytesInFlight > 0 && bytesInFlight + bytes > maxBytes) {
+				wait();
+			}
+			bytesInFlight += bytes;
+		}
+
+		/**
+		 * Returns bytes taken before.
+		 * 
+		 * @param bytes
+		 *            The number of bytes.
+		 */
+		synchronized void release(long bytes) {
+			bytesInFlight -= bytes;
+			notifyAll();
+		}
+
+	}
+
+}
@@ -0,0 +1,60 @@
+/*
+ * MyBatter - Formats your MyBatis mapper XML files
+ *
+ *     Copyright (C) 2018 Uwe Damken
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package de.dknapps.mybatter.main;
+
+import java.nio.file.Path;
+
+import de.dknapps.mybatter.statistics.FileStatistics;
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+
+/**
+ * Result of formatting a single file by a {@link MyBatterRunner}.
+ */
+@AllArgsConstructor
+@Getter
+public class FileResult {
+
+	/** The file */
+	private final Path path;
+
+	/** True if formatting has changed the contents of the file, or would have in check-only runs */
+	private final boolean changed;
+
+	/** Message why the file could not be formatted, null if it has been formatted */
+	private final String error;
+
+	/** Running times per phase and counts of bytes and tokens, null if not collected */
+	private final FileStatistics statistics;
+
+	/** True if reading the file has been started, false if it has failed before */
+	private final boolean started;
+
+	/** Nanoseconds from starting to read the file to having written it, 0 if formatting has not been started */
+	private final long latencyNanos;
+
+	/**
+	 * Returns true if the file has been formatted and written.
+	 * 
+	 * @return True if there has been no error.
+	 */
+	public boolean isFormatted() {
+		return error == null;
+	}
+
+}
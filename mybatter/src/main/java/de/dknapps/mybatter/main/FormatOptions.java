@@ -0,0 +1,96 @@
+/*
+ * MyBatter - Formats your MyBatis mapper XML files
+ *
+ *     Copyright (C) 2018 Uwe Damken
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package de.dknapps.mybatter.main;
+
+import java.nio.file.FileSystem;
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+import de.dknapps.mybatter.formatter.FormatCache;
+import lombok.Getter;
+import lombok.Setter;
+
+/**
+ * Options of a run of {@link MyBatterRunner#formatAll(Iterable, FormatOptions)}. The defaults are
+ * those of the command line.
+ */
+@Getter
+@Setter
+public class FormatOptions {
+
+	/** Encoding to be used when reading and writing files */
+	public static final String DEFAULT_ENCODING = "UTF-8";
+
+	/** Only files with a name matching this pattern get formatted in directories */
+	public static final String DEFAULT_GLOB = "[!~]*.xml";
+
+	/** Bytes of heap taken by files read but not written yet in parallel runs */
+	public static final long DEFAULT_MAX_IN_FLIGHT_BYTES = 64L * 1024 * 1024;
+
+	/** Threads reading and threads writing files in parallel runs */
+	public static final int DEFAULT_IO_THREADS = 4;
+
+	/** Encoding to be used when reading and writing the files */
+	private String encoding = DEFAULT_ENCODING;
+
+	/**
+	 * The pattern according to {@link Files#newDirectoryStream(Path, String)} which in turn links to
+	 * {@link FileSystem#getPathMatcher(String)}
+	 */
+	private String glob = DEFAULT_GLOB;
+
+	/** True to keep original files, start names of formatted files with a ~ */
+	private boolean keep;
+
+	/** True to override backup files silently (names starting with a ~) */
+	private boolean override;
+
+	/** True to only find out whether files would change, nothing is written then */
+	private boolean checkOnly;
+
+	/** True to leave files untouched that formatting would change in more than whitespace */
+	private boolean verifying;
+
+	/** True to format each file in parallel split at primary xml tags */
+	private boolean parallel;
+
+	/** Bytes of heap taken by files read but not written yet in parallel runs, about 4 times their size */
+	private long maxInFlightBytes = DEFAULT_MAX_IN_FLIGHT_BYTES;
+
+	/** Number of threads reading and of threads writing files in parallel runs */
+	private int ioThreads = DEFAULT_IO_THREADS;
+
+	/** Cache of formatted statements shared by runs or null if there is none */
+	private FormatCache cache;
+
+	/** Files larger than this number of bytes are not formatted */
+	private long maxFileSize = Long.MAX_VALUE;
+
+	/** Formatting a file is given up after this number of seconds, 0 for no limit */
+	private long timeoutSeconds;
+
+	/** True to skip files that are no MyBatis mappers according to their first bytes, see {@link MapperSniffer} */
+	private boolean mappersOnly;
+
+	/** Only files belonging to this shard are formatted, null to format all files */
+	private Shard shard;
+
+	/** True to collect running times per phase and token counts of every file for the listeners */
+	private boolean collectingStatistics;
+
+}
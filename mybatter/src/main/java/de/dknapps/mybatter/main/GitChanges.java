@@ -0,0 +1,195 @@
+/*
+ * MyBatter - Formats your MyBatis mapper XML files
+ *
+ *     Copyright (C) 2018 Uwe Damken
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package de.dknapps.mybatter.main;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.FileSystems;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.PathMatcher;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Set;
+
+import org.apache.commons.io.IOUtils;
+
+/**
+ * Asks the local git repository which files have changed, e.g. to format only those in a pre-commit hook
+ * instead of all mapper files of the repository. Deleted files are never returned. Runs the git executable
+ * found in the PATH.
+ */
+public final class GitChanges {
+
+	/** Git executable */
+	private static final String GIT = "git";
+
+	/**
+	 * Prevents instantiation.
+	 */
+	private GitChanges() {
+	}
+
+	/**
+	 * Returns the files that have changed since the given revision, committed or not.
+	 * 
+	 * @param directory
+	 *            A directory within the repository.
+	 * @param revision
+	 *            The revision, e.g. a commit, a branch or HEAD~3.
+	 * @return The absolute paths of the changed files.
+	 * @throws IOException
+	 *             If git cannot be run or fails, e.g. for an unknown revision.
+	 */
+	public static List<Path> changedSince(File directory, String revision) throws IOException {
+		return diff(directory, revision, "--");
+	}
+
+	/**
+	 * Returns the files that are staged to be committed.
+	 * 
+	 * @param directory
+	 *            A directory within the repository.
+	 * @return The absolute paths of the staged files.
+	 * @throws IOException
+	 *             If git cannot be run or fails.
+	 */
+	public static List<Path> staged(File directory) throws IOException {
+		return diff(directory, "--cached");
+	}
+
+	/**
+	 * Returns the changed files that would be formatted if the given paths were formatted. Those are the
+	 * changed files given as paths and the changed files within the given directories (not in their
+	 * subdirectories) with a name matching the glob. If no paths are given all changed files with a name
+	 * matching the glob are returned.
+	 * 
+	 * @param changedPaths
+	 *            The absolute paths of changed files.
+	 * @param paths
+	 *            Files and directories to be formatted, maybe empty.
+	 * @param glob
+	 *            The pattern names of files in directories have to match, see {@code glob} of {@link FormatOptions}.
+	 * @return The changed files to be formatted, each one once.
+	 */
+	public static List<Path> select(Collection<Path> changedPaths, Collection<Path> paths, String glob) {
+		PathMatcher matcher = FileSystems.getDefault().getPathMatcher("glob:" + glob);
+		List<Path> absolutePathList = new ArrayList<>(paths.size());
+		for (Path path : paths) {
+			absolutePathList.add(toRealPath(path));
+		}
+		Set<Path> selectedPathSet = new LinkedHashSet<>();
+		for (Path changedPath : changedPaths) {
+			boolean matching = matcher.matches(changedPath.getFileName());
+			if (absolutePathList.isEmpty()) {
+				if (matching) {
+					selectedPathSet.add(changedPath);
+				}
+			} else if (absolutePathList.contains(changedPath)
+					|| (matching && absolutePathList.contains(changedPath.getParent()))) {
+				selectedPathSet.add(changedPath);
+			}
+		}
+		return new ArrayList<>(selectedPathSet);
+	}
+
+	/**
+	 * Returns the real path of a file or directory to compare it with paths reported by git.
+	 * 
+	 * @param path
+	 *            The file or directory.
+	 * @return The real path if the file or directory exists, the absolute path otherwise.
+	 */
+	private static Path toRealPath(Path path) {
+		try {
+			return path.toRealPath();
+		} catch (IOException e) {
+			return path.toAbsolutePath().normalize();
+		}
+	}
+
+	/**
+	 * Runs git diff and returns the names of the files that are added, copied, modified or renamed.
+	 * 
+	 * @param directory
+	 *            A directory within the repository.
+	 * @param diffArgs
+	 *            Arguments of git diff to choose what to compare.
+	 * @return The absolute paths of the files.
+	 * @throws IOException
+	 *             If git cannot be run or fails.
+	 */
+	private static List<Path> diff(File directory, String... diffArgs) throws IOException {
+		Path topLevel = Paths.get(run(directory, "rev-parse", "--show-toplevel").trim());
+		List<String> argList = new ArrayList<>(Arrays.asList("diff", "--name-only", "-z", "--diff-filter=ACMR"));
+		argList.addAll(Arrays.asList(diffArgs));
+		List<Path> pathList = new ArrayList<>();
+		for (String name : run(directory, argList.toArray(new String[argList.size()])).split("\0")) {
+			if (!name.isEmpty()) {
+				pathList.add(topLevel.resolve(name).normalize());
+			}
+		}
+		return pathList;
+	}
+
+	/**
+	 * Runs git and returns its output. The error output is read separately and used for the message of the
+	 * exception only, hence warnings of git do not get mixed up with file names.
+	 * 
+	 * @param directory
+	 *            The working directory of git.
+	 * @param args
+	 *            The arguments of git.
+	 * @return Standard output of git.
+	 * @throws IOException
+	 *             If git cannot be run or exits with an error.
+	 */
+	private static String run(File directory, String... args) throws IOException {
+		List<String> commandList = new ArrayList<>(args.length + 1);
+		commandList.add(GIT);
+		commandList.addAll(Arrays.asList(args));
+		Path errorFile = Files.createTempFile("mybatter-git", ".err");
+		try {
+			Process process = new ProcessBuilder(commandList).directory(directory)
+					.redirectError(errorFile.toFile()).start();
+			String output;
+			try (InputStream in = process.getInputStream()) {
+				output = IOUtils.toString(in, StandardCharsets.UTF_8);
+			}
+			try {
+				if (process.waitFor() != 0) {
+					String error = new String(Files.readAllBytes(errorFile), StandardCharsets.UTF_8);
+					throw new IOException("git " + String.join(" ", args) + " failed: " + error.trim());
+				}
+			} catch (InterruptedException e) {
+				Thread.currentThread().interrupt();
+				throw new IOException("git " + String.join(" ", args) + " interrupted");
+			}
+			return output;
+		} finally {
+			Files.deleteIfExists(errorFile);
+		}
+	}
+
+}
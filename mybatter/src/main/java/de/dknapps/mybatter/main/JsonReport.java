@@ -0,0 +1,172 @@
+/*
+ * MyBatter - Formats your MyBatis mapper XML files
+ *
+ *     Copyright (C) 2018 Uwe Damken
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package de.dknapps.mybatter.main;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.Writer;
+import java.util.Locale;
+
+import de.dknapps.mybatter.statistics.FileStatistics;
+import de.dknapps.mybatter.statistics.Phase;
+
+/**
+ * Writes a JSON report of a run while it proceeds. Every file is written on a line of its own right after it
+ * has been formatted and the writer is flushed, hence the report of a run over many files stays small in
+ * memory and can be followed while the run proceeds. A summary with the totals finishes the report:
+ * 
+ * <pre>
+ * {"files":[
+ * {"path":"a.xml","bytesIn":1234,"bytesOut":1240,"changed":true,"error":null,"millis":{"read":0.5,...}},
+ * ...
+ * ],"summary":{"files":2,"changed":1,"errors":0,"bytesIn":2468,"bytesOut":2474}}
+ * </pre>
+ */
+public class JsonReport implements Closeable {
+
+	/** Writer to write the report to */
+	private final Writer writer;
+
+	/** Number of reported files */
+	private long fileCount;
+
+	/** Number of reported files that have been changed by formatting */
+	private long changedCount;
+
+	/** Number of reported files that could not be formatted */
+	private long errorCount;
+
+	/** Number of bytes of all reported files before formatting */
+	private long bytesIn;
+
+	/** Number of bytes of all reported files after formatting */
+	private long bytesOut;
+
+	/**
+	 * Constructs a report and writes its beginning.
+	 * 
+	 * @param writer
+	 *            Writer to write the report to, closed with the report.
+	 * @throws IOException
+	 *             If the report cannot be written.
+	 */
+	public JsonReport(Writer writer) throws IOException {
+		this.writer = writer;
+		writer.write("{\"files\":[\n");
+		writer.flush();
+	}
+
+	/**
+	 * Writes the results of a file.
+	 * 
+	 * @param path
+	 *            Path of the file.
+	 * @param statistics
+	 *            Bytes and running times of the file, null if reading the file has not been started.
+	 * @param changed
+	 *            True if formatting has changed the file.
+	 * @param error
+	 *            Message why the file could not be formatted, null if it has been formatted.
+	 * @throws IOException
+	 *             If the report cannot be written.
+	 */
+	public synchronized void add(String path, FileStatistics statistics, boolean changed, String error)
+			throws IOException {
+		StringBuilder sb = new StringBuilder();
+		if (fileCount > 0) {
+			sb.append(",\n");
+		}
+		long fileBytesIn = (statistics == null) ? 0 : statistics.getBytesRead();
+		long fileBytesOut = (statistics == null) ? 0 : statistics.getBytesWritten();
+		sb.append("{\"path\":").append(quote(path));
+		sb.append(",\"bytesIn\":").append(fileBytesIn);
+		sb.append(",\"bytesOut\":").append(fileBytesOut);
+		sb.append(",\"changed\":").append(changed);
+		sb.append(",\"error\":").append(quote(error));
+		sb.append(",\"millis\":{");
+		for (Phase phase : Phase.values()) {
+			long nanos = (statistics == null) ? 0 : statistics.getNanos(phase);
+			sb.append(phase.ordinal() > 0 ? "," : "").append(quote(phase.name().toLowerCase(Locale.ROOT)))
+					.append(':').append(String.format(Locale.ROOT, "%.3f", nanos / 1e6));
+		}
+		sb.append("}}");
+		writer.write(sb.toString());
+		writer.flush();
+		fileCount++;
+		changedCount += changed ? 1 : 0;
+		errorCount += (error != null) ? 1 : 0;
+		bytesIn += fileBytesIn;
+		bytesOut += fileBytesOut;
+	}
+
+	/**
+	 * Writes the summary and closes the writer.
+	 */
+	@Override
+	public synchronized void close() throws IOException {
+		try {
+			writer.write(String.format(Locale.ROOT,
+					"\n],\"summary\":{\"files\":%d,\"changed\":%d,\"errors\":%d,\"bytesIn\":%d,\"bytesOut\":%d}}\n",
+					fileCount, changedCount, errorCount, bytesIn, bytesOut));
+		} finally {
+			writer.close();
+		}
+	}
+
+	/**
+	 * Returns the string as a JSON string literal.
+	 * 
+	 * @param string
+	 *            The string, may be null.
+	 * @return The string in quotes with special characters escaped or null.
+	 */
+	static String quote(String string) {
+		if (string == null) {
+			return "null";
+		}
+		StringBuilder sb = new StringBuilder(string.length() + 2).append('"');
+		for (int i = 0; i < string.length(); i++) {
+			char c = string.charAt(i);
+			switch (c) {
+			case '"':
+				sb.append("\\\"");
+				break;
+			case '\\':
+				sb.append("\\\\");
+				break;
+			case '\n':
+				sb.append("\\n");
+				break;
+			case '\r':
+				sb.append("\\r");
+				break;
+			case '\t':
+				sb.append("\\t");
+				break;
+			default:
+				if (c < ' ') {
+					sb.append(String.format("\\u%04x", (int) c));
+				} else {
+					sb.append(c);
+				}
+			}
+		}
+		return sb.append('"').toString();
+	}
+
+}
@@ -0,0 +1,125 @@
+/*
+ * MyBatter - Formats your MyBatis mapper XML files
+ *
+ *     Copyright (C) 2018 Uwe Damken
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package de.dknapps.mybatter.main;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.Charset;
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+import org.apache.commons.io.IOUtils;
+
+/**
+ * Tells MyBatis mapper XML files from other XML files like Spring configurations or POMs by reading only their
+ * first bytes. A file is a mapper if its document type declaration or its root element is named mapper. Files
+ * that cannot be told apart from the first bytes, e.g. because of a long leading comment, are taken as mappers
+ * to be on the safe side.
+ */
+public final class MapperSniffer {
+
+	/** Number of bytes read from the start of a file */
+	public static final int HEADER_BYTES = 4096;
+
+	/** Name of the document type and root element of MyBatis mappers */
+	private static final String MAPPER = "mapper";
+
+	/**
+	 * Prevents instantiation.
+	 */
+	private MapperSniffer() {
+	}
+
+	/**
+	 * Returns true if the file may be a MyBatis mapper, reads only the first {@link #HEADER_BYTES} bytes.
+	 * 
+	 * @param path
+	 *            The file.
+	 * @param encoding
+	 *            The encoding of the file.
+	 * @return False if the file is no mapper for sure.
+	 * @throws IOException
+	 *             If the file cannot be read.
+	 */
+	public static boolean isMapper(Path path, String encoding) throws IOException {
+		byte[] buffer = new byte[HEADER_BYTES];
+		int length;
+		try (InputStream inputStream = Files.newInputStream(path)) {
+			length = IOUtils.read(inputStream, buffer);
+		}
+		return isMapperHeader(new String(buffer, 0, length, Charset.forName(encoding)));
+	}
+
+	/**
+	 * Returns true if the start of a file may be the start of a MyBatis mapper. The XML declaration, processing
+	 * instructions, comments and whitespace before the document type declaration or the root element are
+	 * skipped.
+	 * 
+	 * @param header
+	 *            The start of the file.
+	 * @return False if the file is no mapper for sure.
+	 */
+	static boolean isMapperHeader(String header) {
+		int length = header.length();
+		int index = (length > 0 && header.charAt(0) == '\uFEFF') ? 1 : 0; // byte order mark
+		while (true) {
+			while (index < length && Character.isWhitespace(header.charAt(index))) {
+				index++;
+			}
+			if (index == length) {
+				return true; // cannot tell
+			}
+			if (header.charAt(index) != '<') {
+				return false; // text before the root element, no XML at all
+			}
+			if (header.startsWith("<?", index) || header.startsWith("<!--", index)) {
+				String end = (header.charAt(index + 1) == '?') ? "?>" : "-->";
+				int endIndex = header.indexOf(end, index + 2);
+				if (endIndex < 0) {
+					return true; // cannot tell
+				}
+				index = endIndex + end.length();
+			} else {
+				index += header.startsWith("<!DOCTYPE", index) ? "<!DOCTYPE".length() : 1;
+				while (index < length && Character.isWhitespace(header.charAt(index))) {
+					index++;
+				}
+				int nameIndex = index;
+				while (index < length && isNameCharacter(header.charAt(index))) {
+					index++;
+				}
+				if (index == length) {
+					return true; // cannot tell
+				}
+				return header.substring(nameIndex, index).equals(MAPPER);
+			}
+		}
+	}
+
+	/**
+	 * Returns true if the character may be part of an XML name.
+	 * 
+	 * @param c
+	 *            The character.
+	 * @return False for whitespace and the characters that end a tag or document type name.
+	 */
+	private static boolean isNameCharacter(char c) {
+		return !Character.isWhitespace(c) && c != '>' && c != '/' && c != '[';
+	}
+
+}
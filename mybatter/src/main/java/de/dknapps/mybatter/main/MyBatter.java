@@ -0,0 +1,577 @@
+/*
+ * MyBatter - Formats your MyBatis mapper XML files
+ *
+ *     Copyright (C) 2017-2018 Uwe Damken
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package de.dknapps.mybatter.main;
+
+import java.io.BufferedReader;
+import java.io.BufferedWriter;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.PrintStream;
+import java.io.UncheckedIOException;
+import java.nio.charset.Charset;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.List;
+
+import javax.management.JMException;
+
+import org.apache.commons.cli.CommandLine;
+import org.apache.commons.cli.DefaultParser;
+import org.apache.commons.cli.HelpFormatter;
+import org.apache.commons.cli.Option;
+import org.apache.commons.cli.Options;
+import org.apache.commons.cli.ParseException;
+import org.apache.commons.collections4.IterableUtils;
+
+import de.dknapps.mybatter.formatter.FormatCache;
+import de.dknapps.mybatter.statistics.FormatterMetrics;
+import de.dknapps.mybatter.statistics.RunStatistics;
+
+/**
+ * Contains main method to handle command line input and call internal classes respectively. Every call of the
+ * main method uses its own instance, hence several calls in the same JVM do not interfere with each other. To
+ * format files from other Java programs use {@link MyBatterRunner} directly. Startup time counts for single
+ * files, hence only the classes needed by the requested options are loaded, e.g. no lambdas or streams are
+ * used on the way to the first file.
+ */
+public class MyBatter implements RunListener {
+
+	/** Prefix of the value of the report option for a JSON report */
+	private static final String REPORT_FORMAT_JSON = "json=";
+
+	/** Exit status if all files have been formatted */
+	static final int EXIT_SUCCESS = 0;
+
+	/** Exit status if any file could not be formatted or failed verification */
+	static final int EXIT_FILE_FAILED = 1;
+
+	/** Exit status if the command line is invalid or the run could not be done at all */
+	static final int EXIT_ERROR = 2;
+
+	/** Stream to print messages to that shall go to /dev/null */
+	private static final PrintStream NULL_PRINT_STREAM = new PrintStream(new OutputStream() {
+
+		@Override
+		public void write(int b) {
+			// discard
+		}
+
+		@Override
+		public void write(byte[] b, int off, int len) {
+			// discard
+		}
+
+	});
+
+	/** Stream to print standard output messages to */
+	private PrintStream stdout = NULL_PRINT_STREAM;
+
+	/** Stream to print error output messages to */
+	private PrintStream stderr = System.err;
+
+	/** Stream to print statistics to */
+	private PrintStream statsout = System.out;
+
+	/** Statistics of all formatted files or null if statistics are not requested */
+	private RunStatistics runStatistics;
+
+	/** Report of all formatted files or null if no report is requested */
+	private JsonReport report;
+
+	/** Live counters exposed via JMX or null if not requested */
+	private FormatterMetrics metrics;
+
+	public static void main(String[] args) {
+		int status = new MyBatter().run(args);
+		if (status != EXIT_SUCCESS) {
+			System.exit(status);
+		}
+	}
+
+	/**
+	 * Handles the command line.
+	 * 
+	 * @param args
+	 *            The command line arguments.
+	 * @return The exit status, {@link #EXIT_FILE_FAILED} if any file could not be formatted.
+	 */
+	int run(String[] args) {
+		Options options = createOptions();
+		FileListReader fileListReader = null;
+		int status = EXIT_SUCCESS;
+		try {
+			CommandLine commandLine = new DefaultParser().parse(options, expandArgFiles(args));
+			List<String> pathList = commandLine.getArgList();
+			boolean changedOnly = commandLine.hasOption("changed-since") || commandLine.hasOption("staged");
+			boolean filesFrom = commandLine.hasOption("files-from");
+			if (commandLine.hasOption("h") || (pathList.isEmpty() && !changedOnly && !filesFrom)) {
+				printHelp(options);
+			} else {
+				FormatOptions formatOptions = new FormatOptions();
+				formatOptions.setEncoding(commandLine.getOptionValue("e", FormatOptions.DEFAULT_ENCODING));
+				formatOptions.setGlob(commandLine.getOptionValue("g", FormatOptions.DEFAULT_GLOB));
+				formatOptions.setKeep(commandLine.hasOption("k"));
+				formatOptions.setOverride(commandLine.hasOption("o"));
+				formatOptions.setParallel(commandLine.hasOption("p"));
+				formatOptions.setMappersOnly(commandLine.hasOption("mappers-only"));
+				formatOptions.setVerifying(commandLine.hasOption("verify"));
+				formatOptions.setMaxFileSize(
+						Long.parseLong(commandLine.getOptionValue("m", String.valueOf(Long.MAX_VALUE))));
+				formatOptions.setMaxInFlightBytes(Long.parseLong(commandLine.getOptionValue("max-in-flight",
+						String.valueOf(FormatOptions.DEFAULT_MAX_IN_FLIGHT_BYTES))));
+				formatOptions.setIoThreads(Integer.parseInt(
+						commandLine.getOptionValue("io-threads", String.valueOf(FormatOptions.DEFAULT_IO_THREADS))));
+				formatOptions.setTimeoutSeconds(Long.parseLong(commandLine.getOptionValue("t", "0")));
+				File cacheFile = commandLine.hasOption("c") ? new File(commandLine.getOptionValue("c")) : null;
+				if (commandLine.hasOption("s")) {
+					stderr = NULL_PRINT_STREAM;
+				} else if (commandLine.hasOption("v")) {
+					stdout = System.out;
+				}
+				runStatistics = commandLine.hasOption("stats") ? new RunStatistics() : null;
+				report = commandLine.hasOption("report")
+						? openReport(commandLine.getOptionValue("report"), formatOptions.getEncoding())
+						: null;
+				formatOptions.setCollectingStatistics(
+						runStatistics != null || report != null || commandLine.hasOption("jmx"));
+				FormatCache cache = (cacheFile == null) ? null : loadCache(cacheFile);
+				formatOptions.setCache(cache);
+				if (commandLine.hasOption("jmx")) {
+					registerMetrics(cache, cacheFile);
+				}
+				MyBatterRunner runner = new MyBatterRunner();
+				runner.addListener(this);
+				List<Path> argPathList = new ArrayList<>(pathList.size());
+				for (String path : pathList) {
+					argPathList.add(Paths.get(path));
+				}
+				Iterable<Path> paths = argPathList;
+				if (filesFrom) {
+					fileListReader = openFileList(commandLine.getOptionValue("files-from"));
+					paths = IterableUtils.chainedIterable(argPathList, fileListReader);
+				}
+				if (changedOnly) {
+					paths = selectChangedFiles(commandLine, IterableUtils.toList(paths), formatOptions.getGlob());
+				}
+				if (commandLine.hasOption("shard")) {
+					Shard shard = parseShard(commandLine.getOptionValue("shard"));
+					if (commandLine.hasOption("shard-by-size")) {
+						paths = IterableUtils.toList(paths); // all nodes need to know all files
+						shard = shard.weightedBySize(paths, formatOptions.getGlob());
+					}
+					formatOptions.setShard(shard);
+				}
+				if (runner.formatAll(paths, formatOptions).getFailedCount() > 0) {
+					status = EXIT_FILE_FAILED;
+				}
+				if (cacheFile != null) {
+					saveCache(cache, cacheFile);
+				}
+				if (runStatistics != null) {
+					runStatistics.print(statsout);
+				}
+			}
+		} catch (ParseException | NumberFormatException e) {
+			stderr.println(e.getLocalizedMessage());
+			printHelp(options);
+			status = EXIT_ERROR;
+		} catch (IOException | UncheckedIOException e) {
+			stderr.println(e.getLocalizedMessage());
+			status = EXIT_ERROR;
+		} finally {
+			closeFileList(fileListReader);
+			closeReport();
+			if (metrics != null) {
+				metrics.unregister();
+			}
+		}
+		return status;
+	}
+
+	/**
+	 * Creates all options usable on the command line.
+	 */
+	private static Options createOptions() {
+		Options options = new Options();
+		options.addOption(Option.builder("h").longOpt("help").desc("print this message").build());
+		options.addOption(Option.builder().longOpt("changed-since").hasArg().argName("rev")
+				.desc("format only files that git reports as changed since the revision, committed or not; "
+						+ "without files or directories all changed files matching the glob are formatted")
+				.build());
+		options.addOption(Option.builder("c").longOpt("cache").hasArg().argName("file")
+				.desc("keep formatted statements in the file to format only changed statements next time")
+				.build());
+		options.addOption(Option.builder("e").longOpt("encoding").hasArg().argName("encoding")
+				.desc("encoding to be used when reading and writing the files (default is "
+						+ FormatOptions.DEFAULT_ENCODING + ")")
+				.build());
+		options.addOption(Option.builder().longOpt("files-from").hasArg().argName("file|-")
+				.desc("format the files listed in the file or read from standard input (-) as well, names are "
+						+ "separated by NUL characters or line breaks, formatting starts while the list is read")
+				.build());
+		options.addOption(Option.builder("g").longOpt("glob").hasArg().argName("pattern")
+				.desc("in directories format only files with names matching the pattern (default is "
+						+ FormatOptions.DEFAULT_GLOB
+						+ "), be sure to escape the pattern according to your environment")
+				.build());
+		options.addOption(Option.builder().longOpt("mappers-only")
+				.desc("skip files that are no MyBatis mappers, recognized by the document type or root element "
+						+ "mapper within the first " + MapperSniffer.HEADER_BYTES + " bytes")
+				.build());
+		options.addOption(Option.builder("m").longOpt("max-size").hasArg().argName("bytes")
+				.desc("skip files larger than the given number of bytes (default is no limit)").build());
+		options.addOption(Option.builder().longOpt("io-threads").hasArg().argName("n")
+				.desc("with -p read and write files in n threads each (default is " + FormatOptions.DEFAULT_IO_THREADS
+						+ "), more threads help on network-mounted workspaces")
+				.build());
+		options.addOption(Option.builder().longOpt("jmx")
+				.desc("expose live counters via JMX as de.dknapps.mybatter:type=FormatterMetrics,name=cli").build());
+		options.addOption(Option.builder().longOpt("max-in-flight").hasArg().argName("bytes")
+				.desc("with -p keep at most the given number of bytes of heap taken by files read but not written "
+						+ "yet, a file takes about 4 times its size (default is "
+						+ FormatOptions.DEFAULT_MAX_IN_FLIGHT_BYTES + ")")
+				.build());
+		options.addOption(Option.builder("k").longOpt("keep")
+				.desc("keep original files, start names of formatted files with a ~").build());
+		options.addOption(Option.builder("o").longOpt("override")
+				.desc("override backup files silently (names start with a ~)").build());
+		options.addOption(Option.builder("p").longOpt("parallel")
+				.desc("format files in parallel: read, format and write them in separate threads and format each "
+						+ "file split at primary xml tags (select, insert, ...) in parallel as well")
+				.build());
+		options.addOption(Option.builder().longOpt("report").hasArg().argName("json=file")
+				.desc("write path, bytes in and out, changed or not, error and running times of every file "
+						+ "as JSON to the file while formatting")
+				.build());
+		options.addOption(Option.builder().longOpt("shard").hasArg().argName("i/n")
+				.desc("format only the files of shard i of n (1 <= i <= n) chosen by a stable hash of their path "
+						+ "relative to the working directory, to split a run across nodes without coordination")
+				.build());
+		options.addOption(Option.builder().longOpt("shard-by-size")
+				.desc("assign files to shards by size instead of hash, so shards finish at about the same time; "
+						+ "all nodes have to see the same files")
+				.build());
+		options.addOption(Option.builder("s").longOpt("silent")
+				.desc("ignore verbose option and suppress all messages, even error messages").build());
+		options.addOption(Option.builder().longOpt("staged")
+				.desc("format only files that git reports as staged to be committed; without files or "
+						+ "directories all staged files matching the glob are formatted")
+				.build());
+		options.addOption(Option.builder().longOpt("stats")
+				.desc("print running times per phase, throughput and token counts per file and in total").build());
+		options.addOption(Option.builder("t").longOpt("timeout").hasArg().argName("seconds")
+				.desc("give up formatting a file after the given number of seconds and leave it untouched "
+						+ "(default is no limit)")
+				.build());
+		options.addOption(Option.builder().longOpt("verify")
+				.desc("leave files untouched and report an error if formatting would change more than whitespace")
+				.build());
+		options.addOption(Option.builder("v").longOpt("verbose")
+				.desc("print names and number of formatted files").build());
+		return options;
+	}
+
+	/**
+	 * Prints the command line help.
+	 */
+	private static void printHelp(Options options) {
+		new HelpFormatter().printHelp(
+				"java -jar mybatter-<version>-jar-with-dependencies.jar [options] [ file|directory [ file|directory ] ... ]",
+				options, true);
+	}
+
+	/**
+	 * Parses the shard option.
+	 * 
+	 * @param indexAndCount
+	 *            The shard as i/n.
+	 * @return The shard.
+	 * @throws ParseException
+	 *             If the shard is invalid.
+	 */
+	private static Shard parseShard(String indexAndCount) throws ParseException {
+		try {
+			return Shard.parse(indexAndCount);
+		} catch (IllegalArgumentException e) {
+			throw new ParseException(e.getMessage());
+		}
+	}
+
+	/**
+	 * Replaces each argument @file by the arguments listed in the file, separated by NUL characters or line
+	 * breaks. Hence huge lists of files can be passed without hitting limits of the command line length.
+	 * 
+	 * @param args
+	 *            The command line arguments.
+	 * @return The command line arguments with argument files replaced.
+	 * @throws IOException
+	 *             If an argument file cannot be read.
+	 */
+	private static String[] expandArgFiles(String[] args) throws IOException {
+		List<String> argList = new ArrayList<>(args.length);
+		for (String arg : args) {
+			if (arg.length() > 1 && arg.charAt(0) == '@') {
+				File argFile = new File(arg.substring(1));
+				try (FileListReader reader = new FileListReader(
+						Files.newBufferedReader(argFile.toPath(), Charset.defaultCharset()))) {
+					for (String name = reader.readName(); name != null; name = reader.readName()) {
+						argList.add(name);
+					}
+				} catch (IOException e) {
+					throw new IOException("Cannot read argument file '" + argFile.getAbsolutePath() + "': "
+							+ e.getLocalizedMessage(), e);
+				}
+			} else {
+				argList.add(arg);
+			}
+		}
+		return argList.toArray(new String[argList.size()]);
+	}
+
+	/**
+	 * Opens the list of files to be formatted.
+	 * 
+	 * @param fileOrStdin
+	 *            The file containing the list or - for standard input.
+	 * @return The reader of the list.
+	 * @throws IOException
+	 *             If the file cannot be opened.
+	 */
+	private static FileListReader openFileList(String fileOrStdin) throws IOException {
+		if (fileOrStdin.equals("-")) {
+			return new FileListReader(
+					new BufferedReader(new InputStreamReader(System.in, Charset.defaultCharset())));
+		}
+		File listFile = new File(fileOrStdin);
+		try {
+			return new FileListReader(Files.newBufferedReader(listFile.toPath(), Charset.defaultCharset()));
+		} catch (IOException e) {
+			throw new IOException("Cannot read list of files '" + listFile.getAbsolutePath() + "': "
+					+ e.getLocalizedMessage(), e);
+		}
+	}
+
+	/**
+	 * Closes the list of files if there is one.
+	 * 
+	 * @param fileListReader
+	 *            The reader of the list, null if there is none.
+	 */
+	private void closeFileList(FileListReader fileListReader) {
+		if (fileListReader != null) {
+			try {
+				fileListReader.close();
+			} catch (IOException e) {
+				stderr.println("Cannot close list of files: " + e.getLocalizedMessage());
+			}
+		}
+	}
+
+	/**
+	 * Asks git for changed or staged files and returns those that would be formatted if the paths were
+	 * formatted.
+	 * 
+	 * @param commandLine
+	 *            The command line with option changed-since or staged or both.
+	 * @param paths
+	 *            The files and directories given on the command line, maybe empty.
+	 * @param glob
+	 *            The pattern names of files in directories have to match.
+	 * @return The changed files to be formatted.
+	 * @throws IOException
+	 *             If git could not be asked.
+	 */
+	private List<Path> selectChangedFiles(CommandLine commandLine, List<Path> paths, String glob)
+			throws IOException {
+		File directory = paths.isEmpty() ? new File(".") : paths.get(0).toAbsolutePath().toFile();
+		if (!directory.isDirectory()) {
+			directory = directory.getParentFile();
+		}
+		List<Path> changedPathList = new ArrayList<>();
+		try {
+			if (commandLine.hasOption("changed-since")) {
+				String revision = commandLine.getOptionValue("changed-since");
+				changedPathList.addAll(GitChanges.changedSince(directory, revision));
+			}
+			if (commandLine.hasOption("staged")) {
+				changedPathList.addAll(GitChanges.staged(directory));
+			}
+		} catch (IOException e) {
+			throw new IOException("Cannot ask git for changed files: " + e.getLocalizedMessage(), e);
+		}
+		return GitChanges.select(changedPathList, paths, glob);
+	}
+
+	/**
+	 * Opens the report given as format=file, only JSON is supported so far.
+	 * 
+	 * @param formatAndFile
+	 *            The value of the report option.
+	 * @param encoding
+	 *            Encoding to be used when writing the report.
+	 * @return The report or null if the file cannot be written.
+	 * @throws ParseException
+	 *             If the format is not supported.
+	 */
+	private JsonReport openReport(String formatAndFile, String encoding) throws ParseException {
+		if (!formatAndFile.startsWith(REPORT_FORMAT_JSON)) {
+			throw new ParseException("Unsupported report '" + formatAndFile + "', use " + REPORT_FORMAT_JSON
+					+ "<file>");
+		}
+		File reportFile = new File(formatAndFile.substring(REPORT_FORMAT_JSON.length()));
+		try {
+			return new JsonReport(new BufferedWriter(
+					new OutputStreamWriter(new FileOutputStream(reportFile), Charset.forName(encoding))));
+		} catch (IOException e) {
+			stderr.println("Cannot write report '" + reportFile.getAbsolutePath() + "': " + e.getLocalizedMessage());
+			return null;
+		}
+	}
+
+	/**
+	 * Registers live counters of formatted files at the platform MBean server.
+	 * 
+	 * @param cache
+	 *            The cache of formatted statements, null if there is none.
+	 * @param cacheFile
+	 *            The file to flush the cache to, null if there is none.
+	 */
+	private void registerMetrics(FormatCache cache, File cacheFile) {
+		metrics = new FormatterMetrics("cli");
+		metrics.setCache(cache, (cacheFile == null) ? null : () -> {
+			cache.save(cacheFile);
+			return "Cache flushed to '" + cacheFile.getAbsolutePath() + "'";
+		});
+		try {
+			metrics.register();
+		} catch (JMException e) {
+			stderr.println("Cannot register metrics: " + e.getLocalizedMessage());
+		}
+	}
+
+	/**
+	 * Finishes the report if there is one.
+	 */
+	private void closeReport() {
+		if (report != null) {
+			try {
+				report.close();
+			} catch (IOException e) {
+				stderr.println("Cannot write report: " + e.getLocalizedMessage());
+			}
+		}
+	}
+
+	/**
+	 * Loads the cache of formatted statements from the file, starts with an empty cache if that fails.
+	 * 
+	 * @param cacheFile
+	 *            The file to load the cache from.
+	 * @return The cache.
+	 */
+	private FormatCache loadCache(File cacheFile) {
+		try {
+			return FormatCache.load(cacheFile, FormatCache.DEFAULT_MAX_ENTRY_COUNT);
+		} catch (IOException e) {
+			stderr.println("Cannot load cache '" + cacheFile.getAbsolutePath() + "': " + e.getLocalizedMessage());
+			return new FormatCache();
+		}
+	}
+
+	/**
+	 * Saves the cache of formatted statements to the file.
+	 * 
+	 * @param cache
+	 *            The cache to be saved.
+	 * @param cacheFile
+	 *            The file to save the cache to.
+	 */
+	private void saveCache(FormatCache cache, File cacheFile) {
+		try {
+			cache.save(cacheFile);
+		} catch (IOException e) {
+			stderr.println("Cannot save cache '" + cacheFile.getAbsolutePath() + "': " + e.getLocalizedMessage());
+		}
+	}
+
+	@Override
+	public void fileQueued(Path file) {
+		if (metrics != null) {
+			metrics.fileQueued();
+		}
+	}
+
+	@Override
+	public void fileStarted(Path file) {
+		stdout.println(file.toFile().getAbsolutePath());
+		if (metrics != null) {
+			metrics.fileStarted();
+		}
+	}
+
+	@Override
+	public void fileFormatted(FileResult result) {
+		if (runStatistics != null) {
+			runStatistics.add(result.getStatistics(), result.getLatencyNanos());
+			statsout.println(result.getStatistics());
+		}
+		writeReport(result);
+		if (metrics != null) {
+			metrics.fileFormatted((result.getStatistics() == null) ? 0 : result.getStatistics().getBytesRead(),
+					result.getLatencyNanos());
+		}
+	}
+
+	@Override
+	public void fileFailed(FileResult result) {
+		stderr.println(result.getError());
+		writeReport(result);
+		if (metrics != null) {
+			metrics.fileFailed(result.isStarted());
+		}
+	}
+
+	@Override
+	public void directoryFormatted(Path directory, int fileCount) {
+		stdout.println(fileCount + " file(s) formatted");
+	}
+
+	/**
+	 * Adds the result of a file to the report if there is one.
+	 * 
+	 * @param result
+	 *            The result of the file.
+	 */
+	private void writeReport(FileResult result) {
+		if (report != null) {
+			try {
+				report.add(result.getPath().toString(), result.getStatistics(), result.isChanged(),
+						result.getError());
+			} catch (IOException e) {
+				stderr.println("Cannot write report: " + e.getLocalizedMessage());
+			}
+		}
+	}
+
+}
@@ -0,0 +1,517 @@
+/*
+ * MyBatter - Formats your MyBatis mapper XML files
+ *
+ *     Copyright (C) 2018 Uwe Damken
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package de.dknapps.mybatter.main;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+
+import org.apache.commons.io.FileUtils;
+
+import de.dknapps.mybatter.formatter.FormatVerifier;
+import de.dknapps.mybatter.formatter.Formatter;
+import de.dknapps.mybatter.formatter.ParallelFormatter;
+import de.dknapps.mybatter.jfr.PhaseEvents;
+import de.dknapps.mybatter.statistics.FileStatistics;
+import de.dknapps.mybatter.statistics.Phase;
+
+/**
+ * Formats files and directories in-process, e.g. from build tools or a daemon. All state of a run is kept in
+ * the run itself, hence a runner may be used by several threads at once and several runners do not interfere
+ * with each other. Listeners are informed about the progress of every run of their runner. Formatters and the
+ * threads to format files with a time limit in are reused across files and runs. They are created on first
+ * use, hence a run formatting a single file sequentially does not load classes for parallel formatting.
+ */
+public class MyBatterRunner {
+
+	/** Listeners informed about the progress of every run */
+	private final List<RunListener> listenerList = new CopyOnWriteArrayList<>();
+
+	/** Formatter splitting files at primary xml tags to format them in parallel, created on first use */
+	private ParallelFormatter parallelFormatter;
+
+	/**
+	 * Pool to format statements one after the other if there is a cache but formatting is not parallel, created
+	 * on first use
+	 */
+	private ForkJoinPool sequentialPool;
+
+	/**
+	 * Threads to format files with a time limit in, a thread that ignores being interrupted does not prevent
+	 * other files from being formatted nor the JVM from exiting
+	 */
+	private ExecutorService timeoutExecutor;
+
+	/**
+	 * Adds a listener to be informed about the progress of every run.
+	 * 
+	 * @param listener
+	 *            The listener.
+	 */
+	public void addListener(RunListener listener) {
+		listenerList.add(listener);
+	}
+
+	/**
+	 * Removes a listener.
+	 * 
+	 * @param listener
+	 *            The listener.
+	 */
+	public void removeListener(RunListener listener) {
+		listenerList.remove(listener);
+	}
+
+	/**
+	 * Formats the given files and all files in the given directories one after the other. Each file or
+	 * directory is formatted as soon as it has been taken from the paths, hence they may be read lazily, e.g.
+	 * by a {@link FileListReader}.
+	 * 
+	 * @param paths
+	 *            The files and directories.
+	 * @param options
+	 *            The options of this run.
+	 * @return The results of all files.
+	 */
+	public RunResult formatAll(Iterable<Path> paths, FormatOptions options) {
+		RunResult result = new RunResult();
+		ParallelFormatter formatter = createParallelFormatter(options);
+		if (!options.isParallel()) {
+			for (Path path : paths) {
+				formatFileOrDirectory(path, options, formatter, null, result);
+			}
+			return result;
+		}
+		FilePipeline pipeline = new FilePipeline(this, options, formatter, result);
+		try {
+			for (Path path : paths) {
+				formatFileOrDirectory(path, options, formatter, pipeline, result);
+				if (Thread.currentThread().isInterrupted()) {
+					break;
+				}
+			}
+		} finally {
+			pipeline.finish();
+		}
+		for (Map.Entry<Path, Integer> entry : pipeline.getFileCountPerDirectory().entrySet()) {
+			for (RunListener listener : listenerList) {
+				listener.directoryFormatted(entry.getKey(), entry.getValue());
+			}
+		}
+		return result;
+	}
+
+	/**
+	 * Returns the formatter to format each file split at primary xml tags.
+	 * 
+	 * @param options
+	 *            The options of the run.
+	 * @return The formatter or null to format each file sequentially.
+	 */
+	private ParallelFormatter createParallelFormatter(FormatOptions options) {
+		if (options.getCache() != null) {
+			return new ParallelFormatter(options.isParallel() ? ForkJoinPool.commonPool() : getSequentialPool(),
+					options.getCache());
+		}
+		return options.isParallel() ? getParallelFormatter() : null;
+	}
+
+	/**
+	 * Returns the formatter to format files split at primary xml tags in parallel, creates it on first use.
+	 * 
+	 * @return The formatter.
+	 */
+	private synchronized ParallelFormatter getParallelFormatter() {
+		if (parallelFormatter == null) {
+			parallelFormatter = new ParallelFormatter();
+		}
+		return parallelFormatter;
+	}
+
+	/**
+	 * Returns the pool to format statements one after the other, creates it on first use.
+	 * 
+	 * @return The pool.
+	 */
+	private synchronized ForkJoinPool getSequentialPool() {
+		if (sequentialPool == null) {
+			sequentialPool = new ForkJoinPool(1);
+		}
+		return sequentialPool;
+	}
+
+	/**
+	 * Formats the given file or all files in the given directory.
+	 * 
+	 * @param path
+	 *            The file or directory.
+	 * @param options
+	 *            The options of the run.
+	 * @param parallelFormatter
+	 *            Formatter to format each file split at primary xml tags, null to format sequentially
+	 * @param pipeline
+	 *            Pipeline to hand the files over to, null to format them in this thread.
+	 * @param result
+	 *            The result of the run to add to.
+	 */
+	private void formatFileOrDirectory(Path path, FormatOptions options, ParallelFormatter parallelFormatter,
+			FilePipeline pipeline, RunResult result) {
+		try {
+			File file = path.toFile();
+			if (file.isFile()) {
+				if (!isSelected(path, options)) {
+					return;
+				}
+				for (RunListener listener : listenerList) {
+					listener.fileQueued(path);
+				}
+				if (pipeline != null) {
+					pipeline.submit(path);
+				} else {
+					formatFile(path, options, parallelFormatter, result);
+				}
+			} else if (file.isDirectory()) {
+				List<Path> filePathList = new ArrayList<>();
+				try (DirectoryStream<Path> directoryStream = Files.newDirectoryStream(path, options.getGlob())) {
+					for (Path filePath : directoryStream) {
+						if (isSelected(filePath, options)) {
+							filePathList.add(filePath);
+						}
+					}
+				}
+				for (Path filePath : filePathList) {
+					for (RunListener listener : listenerList) {
+						listener.fileQueued(filePath);
+					}
+				}
+				if (pipeline != null) {
+					for (Path filePath : filePathList) {
+						pipeline.submit(filePath);
+					}
+					pipeline.addDirectory(path, filePathList.size()); // listeners are informed when all are done
+				} else {
+					for (Path filePath : filePathList) {
+						formatFile(filePath, options, parallelFormatter, result);
+					}
+					for (RunListener listener : listenerList) {
+						listener.directoryFormatted(path, filePathList.size());
+					}
+				}
+			} else {
+				fail(path, null, 0, path + " is neither a file nor a directory", result);
+			}
+		} catch (IOException e) {
+			fail(path, null, 0, "Cannot format '" + path + "': " + e.getLocalizedMessage(), result);
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt(); // stop submitting, the pipeline finishes what has been submitted
+		}
+	}
+
+	/**
+	 * Returns true if the file is to be formatted by this run.
+	 * 
+	 * @param path
+	 *            The file.
+	 * @param options
+	 *            The options of the run.
+	 * @return True if the file belongs to the shard, if any, and may be a mapper, if only mappers are formatted.
+	 */
+	private static boolean isSelected(Path path, FormatOptions options) {
+		if (options.getShard() != null && !options.getShard().contains(path)) {
+			return false;
+		}
+		if (options.isMappersOnly()) {
+			try {
+				return MapperSniffer.isMapper(path, options.getEncoding());
+			} catch (IOException e) {
+				return true; // reading the whole file will fail and report the error
+			}
+		}
+		return true;
+	}
+
+	/**
+	 * Formats the given file, reading, formatting and writing it in this thread.
+	 * 
+	 * @param path
+	 *            The file.
+	 * @param options
+	 *            The options of the run.
+	 * @param parallelFormatter
+	 *            Formatter to format the file split at primary xml tags, null to format sequentially
+	 * @param result
+	 *            The result of the run to add to.
+	 */
+	private void formatFile(Path path, FormatOptions options, ParallelFormatter parallelFormatter,
+			RunResult result) {
+		PendingFile pendingFile = new PendingFile(path, 0);
+		if (read(pendingFile, options, result) && format(pendingFile, options, parallelFormatter, result)) {
+			write(pendingFile, options, result);
+		}
+	}
+
+	/**
+	 * Reads a file, the first stage of formatting it.
+	 * 
+	 * @param pendingFile
+	 *            The file.
+	 * @param options
+	 *            The options of the run.
+	 * @param result
+	 *            The result of the run to add to if the file cannot be read.
+	 * @return True if the file has been read, false if it has been added to the result as failed.
+	 */
+	boolean read(PendingFile pendingFile, FormatOptions options, RunResult result) {
+		Path path = pendingFile.path;
+		File file = pendingFile.file;
+		pendingFile.startNanos = System.nanoTime();
+		for (RunListener listener : listenerList) {
+			listener.fileStarted(path);
+		}
+		try {
+			if (file.length() > options.getMaxFileSize()) {
+				fail(path, null, pendingFile.startNanos, "Cannot format '" + file.getAbsolutePath()
+						+ "' because it is larger than " + options.getMaxFileSize()
+						+ " bytes, use option -m to raise the limit", result);
+				return false;
+			}
+			pendingFile.event = PhaseEvents.beginFile();
+			if (options.isCollectingStatistics() || PhaseEvents.isRecording()) {
+				pendingFile.statistics = new FileStatistics(file.getPath());
+			}
+			pendingFile.input = FileUtils.readFileToString(file, options.getEncoding());
+			if (pendingFile.statistics != null) {
+				pendingFile.statistics.addNanosSince(Phase.READ, pendingFile.startNanos);
+				pendingFile.statistics.addBytesRead(file.length());
+			}
+			return true;
+		} catch (IOException e) {
+			fail(path, pendingFile.statistics, pendingFile.startNanos,
+					"Cannot format '" + file.getAbsolutePath() + "': " + e.getLocalizedMessage(), result);
+			return false;
+		}
+	}
+
+	/**
+	 * Formats the contents of a file that has been read, the second stage of formatting it.
+	 * 
+	 * @param pendingFile
+	 *            The file.
+	 * @param options
+	 *            The options of the run.
+	 * @param parallelFormatter
+	 *            Formatter to format the file split at primary xml tags, null to format sequentially
+	 * @param result
+	 *            The result of the run to add to if formatting fails, exceeds the time limit or verifying fails.
+	 * @return True if the file has been formatted, false if it has been added to the result as failed.
+	 */
+	boolean format(PendingFile pendingFile, FormatOptions options, ParallelFormatter parallelFormatter,
+			RunResult result) {
+		try {
+			pendingFile.output = format(pendingFile.input, options, parallelFormatter, pendingFile.statistics);
+		} catch (RuntimeException e) {
+			fail(pendingFile.path, pendingFile.statistics, pendingFile.startNanos,
+					"Cannot format '" + pendingFile.file.getAbsolutePath() + "': " + e, result);
+			return false;
+		}
+		if (pendingFile.output == null) {
+			fail(pendingFile.path, pendingFile.statistics, pendingFile.startNanos,
+					"Cannot format '" + pendingFile.file.getAbsolutePath() + "' within "
+							+ options.getTimeoutSeconds() + " seconds, use option -t to raise the limit",
+					result);
+			return false;
+		}
+		if (options.isVerifying()) {
+			long verifyStartNanos = System.nanoTime();
+			String difference = FormatVerifier.verify(pendingFile.input, pendingFile.output);
+			if (pendingFile.statistics != null) {
+				pendingFile.statistics.addNanosSince(Phase.VERIFY, verifyStartNanos);
+			}
+			if (difference != null) {
+				fail(pendingFile.path, pendingFile.statistics, pendingFile.startNanos,
+						"Cannot format '" + pendingFile.file.getAbsolutePath()
+								+ "' because formatting would change more than whitespace at " + difference,
+						result);
+				return false;
+			}
+		}
+		return true;
+	}
+
+	/**
+	 * Writes a formatted file (unless only checking) and adds it to the result, the last stage of formatting
+	 * it.
+	 * 
+	 * @param pendingFile
+	 *            The file.
+	 * @param options
+	 *            The options of the run.
+	 * @param result
+	 *            The result of the run to add to.
+	 */
+	void write(PendingFile pendingFile, FormatOptions options, RunResult result) {
+		Path path = pendingFile.path;
+		File file = pendingFile.file;
+		FileStatistics statistics = pendingFile.statistics;
+		boolean changed = !pendingFile.output.equals(pendingFile.input);
+		try {
+			File backup = new File(file.getParent(), "~" + file.getName());
+			if (options.isCheckOnly()) {
+				if (statistics != null) {
+					pendingFile.event.finish(file.getPath(), statistics.getBytesRead(), statistics.getTokenCount());
+				}
+				fileFormatted(new FileResult(path, changed, null, statistics, true,
+						System.nanoTime() - pendingFile.startNanos), result);
+			} else if (backup.exists() && !options.isOverride()) {
+				fail(path, statistics, pendingFile.startNanos,
+						"Cannot format '" + file.getAbsolutePath() + "' into '" + backup.getAbsolutePath()
+								+ "' because it already exists, use option -o to silently delete it",
+						result);
+			} else {
+				long writeStartNanos = System.nanoTime();
+				backup.delete();
+				FileUtils.write(backup, pendingFile.output, options.getEncoding());
+				if (statistics != null) {
+					statistics.addBytesWritten(backup.length());
+				}
+				if (!options.isKeep()) {
+					file.delete();
+					backup.renameTo(file);
+				}
+				if (statistics != null) {
+					statistics.addNanosSince(Phase.WRITE, writeStartNanos);
+					pendingFile.event.finish(file.getPath(), statistics.getBytesRead(), statistics.getTokenCount());
+				}
+				fileFormatted(new FileResult(path, changed, null, statistics, true,
+						System.nanoTime() - pendingFile.startNanos), result);
+			}
+		} catch (IOException e) {
+			fail(path, statistics, pendingFile.startNanos,
+					"Cannot format '" + file.getAbsolutePath() + "': " + e.getLocalizedMessage(), result);
+		}
+	}
+
+	/**
+	 * Adds a file that could not be formatted to the result and informs the listeners.
+	 * 
+	 * @param path
+	 *            The file or directory.
+	 * @param statistics
+	 *            Bytes and running times of the file so far, null if not collected.
+	 * @param startNanos
+	 *            Start of formatting the file according to {@link System#nanoTime()}, 0 if not started.
+	 * @param message
+	 *            The reason.
+	 * @param result
+	 *            The result of the run to add to.
+	 */
+	private void fail(Path path, FileStatistics statistics, long startNanos, String message, RunResult result) {
+		boolean started = startNanos != 0;
+		FileResult fileResult = new FileResult(path, false, message, statistics, started,
+				started ? System.nanoTime() - startNanos : 0);
+		result.add(fileResult);
+		for (RunListener listener : listenerList) {
+			listener.fileFailed(fileResult);
+		}
+	}
+
+	/**
+	 * Adds a formatted file to the result and informs the listeners.
+	 * 
+	 * @param fileResult
+	 *            The result of the file.
+	 * @param result
+	 *            The result of the run to add to.
+	 */
+	private void fileFormatted(FileResult fileResult, RunResult result) {
+		result.add(fileResult);
+		for (RunListener listener : listenerList) {
+			listener.fileFormatted(fileResult);
+		}
+	}
+
+	/**
+	 * Formats the input, within the time limit if there is one.
+	 * 
+	 * @param input
+	 *            Contents of the file.
+	 * @param options
+	 *            The options of the run.
+	 * @param parallelFormatter
+	 *            Formatter to format the file split at primary xml tags, null to format sequentially
+	 * @param statistics
+	 *            Statistics of the file to add to, null to collect nothing.
+	 * @return The formatted contents or null if the time limit has been exceeded.
+	 */
+	private String format(String input, FormatOptions options, ParallelFormatter parallelFormatter,
+			FileStatistics statistics) {
+		if (options.getTimeoutSeconds() <= 0) {
+			return (parallelFormatter != null) ? parallelFormatter.format(input, statistics)
+					: new Formatter().format(input, statistics);
+		}
+		Future<String> future = getTimeoutExecutor()
+				.submit(() -> (parallelFormatter != null) ? parallelFormatter.format(input, statistics)
+						: new Formatter().format(input, statistics));
+		try {
+			return future.get(options.getTimeoutSeconds(), TimeUnit.SECONDS);
+		} catch (TimeoutException | CancellationException e) {
+			future.cancel(true); // tokenizer and formatter stop when interrupted
+			return null;
+		} catch (InterruptedException e) {
+			future.cancel(true);
+			Thread.currentThread().interrupt();
+			return null;
+		} catch (ExecutionException e) {
+			if (e.getCause() instanceof RuntimeException) {
+				throw (RuntimeException) e.getCause();
+			}
+			throw new IllegalStateException(e.getCause());
+		}
+	}
+
+	/**
+	 * Returns the executor to format files with a time limit in, creates it on first use.
+	 * 
+	 * @return The executor.
+	 */
+	private synchronized ExecutorService getTimeoutExecutor() {
+		if (timeoutExecutor == null) {
+			timeoutExecutor = Executors.newCachedThreadPool(runnable -> {
+				Thread thread = new Thread(runnable, "mybatter-timeout");
+				thread.setDaemon(true);
+				return thread;
+			});
+		}
+		return timeoutExecutor;
+	}
+
+}
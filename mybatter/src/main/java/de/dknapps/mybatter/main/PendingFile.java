@@ -0,0 +1,69 @@
+/*
+ * MyBatter - Formats your MyBatis mapper XML files
+ *
+ *     Copyright (C) 2018 Uwe Damken
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package de.dknapps.mybatter.main;
+
+import java.io.File;
+import java.nio.file.Path;
+
+import de.dknapps.mybatter.jfr.PhaseEvent;
+import de.dknapps.mybatter.statistics.FileStatistics;
+
+/**
+ * A file on its way through reading, formatting and writing, possibly handed over between threads.
+ */
+class PendingFile {
+
+	/** The file */
+	final Path path;
+
+	/** The file */
+	final File file;
+
+	/** Bytes of the in-flight budget taken by this file, 0 if there is no budget */
+	final long budgetBytes;
+
+	/** Start of formatting the file according to {@link System#nanoTime()}, 0 if not started */
+	long startNanos;
+
+	/** Running times per phase and counts of bytes and tokens, null if not collected */
+	FileStatistics statistics;
+
+	/** Event of formatting the file from reading to writing it */
+	PhaseEvent event;
+
+	/** Contents of the file, null if not read yet */
+	String input;
+
+	/** Formatted contents, null if not formatted yet */
+	String output;
+
+	/**
+	 * Constructs a file that has not been started yet.
+	 * 
+	 * @param path
+	 *            The file.
+	 * @param budgetBytes
+	 *            Bytes of the in-flight budget taken by this file, 0 if there is no budget.
+	 */
+	PendingFile(Path path, long budgetBytes) {
+		this.path = path;
+		this.file = path.toFile();
+		this.budgetBytes = budgetBytes;
+	}
+
+}
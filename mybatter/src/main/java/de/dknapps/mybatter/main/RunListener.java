@@ -0,0 +1,80 @@
+/*
+ * MyBatter - Formats your MyBatis mapper XML files
+ *
+ *     Copyright (C) 2018 Uwe Damken
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package de.dknapps.mybatter.main;
+
+import java.nio.file.Path;
+
+/**
+ * Is informed about the progress of runs of a {@link MyBatterRunner}. Runs may proceed concurrently, hence
+ * listeners added to a runner that is used by several threads need to be thread-safe.
+ */
+public interface RunListener {
+
+	/**
+	 * Called when a file has been found and waits to be formatted.
+	 * 
+	 * @param file
+	 *            The file.
+	 */
+	default void fileQueued(Path file) {
+		// not of any interest by default
+	}
+
+	/**
+	 * Called when formatting a file starts.
+	 * 
+	 * @param file
+	 *            The file.
+	 */
+	default void fileStarted(Path file) {
+		// not of any interest by default
+	}
+
+	/**
+	 * Called when a file has been formatted and written.
+	 * 
+	 * @param result
+	 *            The result of the file.
+	 */
+	default void fileFormatted(FileResult result) {
+		// not of any interest by default
+	}
+
+	/**
+	 * Called when a file or directory could not be formatted.
+	 * 
+	 * @param result
+	 *            The result of the file with the reason.
+	 */
+	default void fileFailed(FileResult result) {
+		// not of any interest by default
+	}
+
+	/**
+	 * Called when all files of a directory have been formatted.
+	 * 
+	 * @param directory
+	 *            The directory.
+	 * @param fileCount
+	 *            Number of files formatted or failed in the directory.
+	 */
+	default void directoryFormatted(Path directory, int fileCount) {
+		// not of any interest by default
+	}
+
+}
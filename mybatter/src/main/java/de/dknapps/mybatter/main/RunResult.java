@@ -0,0 +1,78 @@
+/*
+ * MyBatter - Formats your MyBatis mapper XML files
+ *
+ *     Copyright (C) 2018 Uwe Damken
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package de.dknapps.mybatter.main;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * Result of a run of {@link MyBatterRunner#formatAll(Iterable, FormatOptions)}.
+ */
+public class RunResult {
+
+	/** Results of all files in the order they have been formatted */
+	private final List<FileResult> fileResultList = new ArrayList<>();
+
+	/**
+	 * Adds the result of a file.
+	 * 
+	 * @param fileResult
+	 *            The result.
+	 */
+	synchronized void add(FileResult fileResult) {
+		fileResultList.add(fileResult);
+	}
+
+	/**
+	 * Returns the results of all files.
+	 * 
+	 * @return An unmodifiable list in the order the files have been formatted.
+	 */
+	public synchronized List<FileResult> getFileResultList() {
+		return Collections.unmodifiableList(new ArrayList<>(fileResultList));
+	}
+
+	/**
+	 * Returns the number of files formatted and written.
+	 * 
+	 * @return Number of files.
+	 */
+	public synchronized int getFormattedCount() {
+		return (int) fileResultList.stream().filter(FileResult::isFormatted).count();
+	}
+
+	/**
+	 * Returns the number of files whose contents have been changed by formatting.
+	 * 
+	 * @return Number of files.
+	 */
+	public synchronized int getChangedCount() {
+		return (int) fileResultList.stream().filter(FileResult::isChanged).count();
+	}
+
+	/**
+	 * Returns the number of files or directories that could not be formatted.
+	 * 
+	 * @return Number of files.
+	 */
+	public synchronized int getFailedCount() {
+		return fileResultList.size() - getFormattedCount();
+	}
+
+}
@@ -0,0 +1,241 @@
+/*
+ * MyBatter - Formats your MyBatis mapper XML files
+ *
+ *     Copyright (C) 2018 Uwe Damken
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package de.dknapps.mybatter.main;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+import de.dknapps.mybatter.tokenizer.Fnv1a;
+import lombok.Getter;
+
+/**
+ * Part of the files of a run that is formatted by one of several nodes, e.g. CI runners, without any
+ * coordination between them. Each file belongs to exactly one shard. By default a file belongs to the shard
+ * given by a stable hash of its path relative to the working directory. Hence every node decides the same
+ * way as long as they all run in the root directory of the same checkout. Shards weighted by size are
+ * assigned all files of a run beforehand such that the shards have about the same number of bytes to format.
+ */
+public class Shard {
+
+	/** Number of this shard, from 1 to count */
+	@Getter
+	private final int index;
+
+	/** Number of shards */
+	@Getter
+	private final int count;
+
+	/** Directory the paths of files are relative to when hashing them */
+	private final Path baseDirectory;
+
+	/** Files belonging to this shard if weighted by size, null to decide by hash */
+	private final Set<Path> assignedPathSet;
+
+	/**
+	 * Constructs a shard.
+	 * 
+	 * @param index
+	 *            Number of this shard, from 1 to count.
+	 * @param count
+	 *            Number of shards.
+	 * @param baseDirectory
+	 *            Directory the paths of files are relative to when hashing them.
+	 * @param assignedPathSet
+	 *            Absolute paths of the files belonging to this shard, null to decide by hash.
+	 */
+	private Shard(int index, int count, Path baseDirectory, Set<Path> assignedPathSet) {
+		if (count < 1 || index < 1 || index > count) {
+			throw new IllegalArgumentException("Invalid shard " + index + "/" + count + ", use i/n with 1 <= i <= n");
+		}
+		this.index = index;
+		this.count = count;
+		this.baseDirectory = baseDirectory.toAbsolutePath().normalize();
+		this.assignedPathSet = assignedPathSet;
+	}
+
+	/**
+	 * Constructs a shard deciding by hash of the paths relative to the given directory.
+	 * 
+	 * @param index
+	 *            Number of this shard, from 1 to count.
+	 * @param count
+	 *            Number of shards.
+	 * @param baseDirectory
+	 *            Directory the paths of files are relative to when hashing them.
+	 */
+	public Shard(int index, int count, Path baseDirectory) {
+		this(index, count, baseDirectory, null);
+	}
+
+	/**
+	 * Parses a shard given as i/n, e.g. 2/4 for the second of four shards, deciding by hash of the paths
+	 * relative to the working directory.
+	 * 
+	 * @param indexAndCount
+	 *            The shard as i/n.
+	 * @return The shard.
+	 * @throws IllegalArgumentException
+	 *             If the shard is invalid.
+	 */
+	public static Shard parse(String indexAndCount) {
+		int slash = indexAndCount.indexOf('/');
+		try {
+			if (slash > 0) {
+				return new Shard(Integer.parseInt(indexAndCount.substring(0, slash).trim()),
+						Integer.parseInt(indexAndCount.substring(slash + 1).trim()), Paths.get(""));
+			}
+		} catch (NumberFormatException e) {
+			// reported below
+		}
+		throw new IllegalArgumentException("Invalid shard '" + indexAndCount + "', use i/n with 1 <= i <= n");
+	}
+
+	/**
+	 * Returns true if the file belongs to this shard.
+	 * 
+	 * @param path
+	 *            The file.
+	 * @return True if this shard formats the file.
+	 */
+	public boolean contains(Path path) {
+		Path absolutePath = path.toAbsolutePath().normalize();
+		if (assignedPathSet != null) {
+			return assignedPathSet.contains(absolutePath);
+		}
+		return Long.remainderUnsigned(hash(relativeName(absolutePath)), count) == index - 1;
+	}
+
+	/**
+	 * Returns a shard that is assigned the files of the run weighted by their size. Files are assigned from the
+	 * largest to the smallest to the shard with the fewest bytes so far. All nodes compute the same assignment
+	 * as long as they see the same files with the same sizes.
+	 * 
+	 * @param paths
+	 *            Files and directories of the run.
+	 * @param glob
+	 *            The pattern names of files in directories have to match, see {@code glob} of {@link FormatOptions}.
+	 * @return The shard weighted by size.
+	 * @throws IOException
+	 *             If a directory cannot be read.
+	 */
+	public Shard weightedBySize(Iterable<Path> paths, String glob) throws IOException {
+		List<SizedFile> fileList = new ArrayList<>();
+		for (Path path : paths) {
+			File file = path.toFile();
+			if (file.isFile()) {
+				fileList.add(new SizedFile(path));
+			} else if (file.isDirectory()) {
+				try (DirectoryStream<Path> directoryStream = Files.newDirectoryStream(path, glob)) {
+					for (Path filePath : directoryStream) {
+						fileList.add(new SizedFile(filePath));
+					}
+				}
+			}
+		}
+		Collections.sort(fileList, Comparator.comparingLong((SizedFile sizedFile) -> sizedFile.size).reversed()
+				.thenComparing(sizedFile -> sizedFile.name));
+		long[] bytesPerShard = new long[count];
+		Set<Path> pathSet = new HashSet<>();
+		for (SizedFile sizedFile : fileList) {
+			int smallest = 0;
+			for (int i = 1; i < count; i++) {
+				if (bytesPerShard[i] < bytesPerShard[smallest]) {
+					smallest = i;
+				}
+			}
+			bytesPerShard[smallest] += sizedFile.size;
+			if (smallest == index - 1) {
+				pathSet.add(sizedFile.path);
+			}
+		}
+		return new Shard(index, count, baseDirectory, pathSet);
+	}
+
+	/**
+	 * Returns the path of the file relative to the base directory with / as separator.
+	 * 
+	 * @param absolutePath
+	 *            The normalized absolute path of the file.
+	 * @return The relative path.
+	 */
+	private String relativeName(Path absolutePath) {
+		Path relativePath = absolutePath.startsWith(baseDirectory) ? baseDirectory.relativize(absolutePath)
+				: absolutePath;
+		return relativePath.toString().replace(File.separatorChar, '/');
+	}
+
+	/**
+	 * Returns the {@link Fnv1a} hash of the UTF-8 bytes of the name, which is the same on every node.
+	 * 
+	 * @param name
+	 *            The name.
+	 * @return The hash.
+	 */
+	static long hash(String name) {
+		long hash = Fnv1a.OFFSET_BASIS;
+		for (byte b : name.getBytes(StandardCharsets.UTF_8)) {
+			hash = Fnv1a.update(hash, b & 0xFF);
+		}
+		return hash;
+	}
+
+	@Override
+	public String toString() {
+		return index + "/" + count;
+	}
+
+	/**
+	 * A file with its size and relative name to sort it.
+	 */
+	private class SizedFile {
+
+		/** Normalized absolute path of the file */
+		private final Path path;
+
+		/** Path relative to the base directory */
+		private final String name;
+
+		/** Size in bytes */
+		private final long size;
+
+		/**
+		 * Constructs a file with its size.
+		 * 
+		 * @param path
+		 *            The file.
+		 */
+		private SizedFile(Path path) {
+			this.path = path.toAbsolutePath().normalize();
+			this.name = relativeName(this.path);
+			this.size = path.toFile().length();
+		}
+
+	}
+
+}
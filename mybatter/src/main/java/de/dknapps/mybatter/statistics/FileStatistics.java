@@ -0,0 +1,196 @@
+/*
+ * MyBatter - Formats your MyBatis mapper XML files
+ *
+ *     Copyright (C) 2018 Uwe Damken
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package de.dknapps.mybatter.statistics;
+
+import java.util.EnumMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.atomic.LongAdder;
+
+import de.dknapps.mybatter.tokenizer.Token;
+import de.dknapps.mybatter.tokenizer.TokenType;
+import lombok.Getter;
+
+/**
+ * Running times per {@link Phase} and counts of bytes and tokens of a single file. Statements of a file may be
+ * tokenized and formatted in parallel, hence all counters are safe to be increased by several threads. The
+ * running time of a phase is the sum over all threads.
+ */
+public class FileStatistics {
+
+	/** Name of the file */
+	@Getter
+	private final String fileName;
+
+	/** Nanoseconds spent per phase */
+	private final Map<Phase, LongAdder> nanosMap = new EnumMap<>(Phase.class);
+
+	/** Number of tokens per token type */
+	private final Map<TokenType, LongAdder> tokenCountMap = new EnumMap<>(TokenType.class);
+
+	/** Number of bytes read */
+	private final LongAdder bytesRead = new LongAdder();
+
+	/** Number of bytes written */
+	private final LongAdder bytesWritten = new LongAdder();
+
+	/**
+	 * Constructs statistics of a file with all counters set to zero.
+	 * 
+	 * @param fileName
+	 *            Name of the file.
+	 */
+	public FileStatistics(String fileName) {
+		this.fileName = fileName;
+		for (Phase phase : Phase.values()) {
+			nanosMap.put(phase, new LongAdder());
+		}
+		for (TokenType tokenType : TokenType.values()) {
+			tokenCountMap.put(tokenType, new LongAdder());
+		}
+	}
+
+	/**
+	 * Adds the time elapsed since the start to the running time of the phase.
+	 * 
+	 * @param phase
+	 *            The phase.
+	 * @param startNanos
+	 *            Start of the phase according to {@link System#nanoTime()}.
+	 */
+	public void addNanosSince(Phase phase, long startNanos) {
+		nanosMap.get(phase).add(System.nanoTime() - startNanos);
+	}
+
+	/**
+	 * Counts the tokens and all their subtokens per token type.
+	 * 
+	 * @param tokenList
+	 *            The tokens.
+	 */
+	public void countTokens(List<Token> tokenList) {
+		for (Token token : tokenList) {
+			tokenCountMap.get(token.getTokenType()).increment();
+			countTokens(token.getTokenList());
+		}
+	}
+
+	/**
+	 * Adds to the number of bytes read.
+	 * 
+	 * @param count
+	 *            Number of bytes.
+	 */
+	public void addBytesRead(long count) {
+		bytesRead.add(count);
+	}
+
+	/**
+	 * Adds to the number of bytes written.
+	 * 
+	 * @param count
+	 *            Number of bytes.
+	 */
+	public void addBytesWritten(long count) {
+		bytesWritten.add(count);
+	}
+
+	/**
+	 * Returns the running time of the phase.
+	 * 
+	 * @param phase
+	 *            The phase.
+	 * @return Nanoseconds spent in the phase.
+	 */
+	public long getNanos(Phase phase) {
+		return nanosMap.get(phase).sum();
+	}
+
+	/**
+	 * Returns the running time of all phases.
+	 * 
+	 * @return Nanoseconds spent in all phases.
+	 */
+	public long getTotalNanos() {
+		long nanos = 0;
+		for (LongAdder adder : nanosMap.values()) {
+			nanos += adder.sum();
+		}
+		return nanos;
+	}
+
+	/**
+	 * Returns the number of tokens of the token type.
+	 * 
+	 * @param tokenType
+	 *            The token type.
+	 * @return Number of tokens.
+	 */
+	public long getTokenCount(TokenType tokenType) {
+		return tokenCountMap.get(tokenType).sum();
+	}
+
+	/**
+	 * Returns the number of tokens of all token types.
+	 * 
+	 * @return Number of tokens.
+	 */
+	public long getTokenCount() {
+		long count = 0;
+		for (LongAdder adder : tokenCountMap.values()) {
+			count += adder.sum();
+		}
+		return count;
+	}
+
+	/**
+	 * Returns the number of bytes read.
+	 * 
+	 * @return Number of bytes.
+	 */
+	public long getBytesRead() {
+		return bytesRead.sum();
+	}
+
+	/**
+	 * Returns the number of bytes written.
+	 * 
+	 * @return Number of bytes.
+	 */
+	public long getBytesWritten() {
+		return bytesWritten.sum();
+	}
+
+	/**
+	 * Returns a single line with running times per phase and counts of bytes and tokens.
+	 * 
+	 * @return The string representation.
+	 */
+	@Override
+	public String toString() {
+		StringBuilder sb = new StringBuilder(fileName).append(':');
+		for (Phase phase : Phase.values()) {
+			sb.append(' ').append(phase.name().toLowerCase(Locale.ROOT)).append(' ')
+					.append(RunStatistics.millis(getNanos(phase)));
+		}
+		sb.append(", ").append(getBytesRead()).append(" bytes, ").append(getTokenCount()).append(" tokens");
+		return sb.toString();
+	}
+
+}
@@ -0,0 +1,265 @@
+/*
+ * MyBatter - Formats your MyBatis mapper XML files
+ *
+ *     Copyright (C) 2018 Uwe Damken
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package de.dknapps.mybatter.statistics;
+
+import java.lang.management.ManagementFactory;
+import java.util.concurrent.Callable;
+import java.util.concurrent.atomic.LongAdder;
+
+import javax.management.JMException;
+import javax.management.ObjectName;
+
+import de.dknapps.mybatter.formatter.FormatCache;
+
+/**
+ * Counts formatted files, bytes, errors and latencies of a long-running MyBatter process like the language
+ * server, to be watched via JMX as de.dknapps.mybatter:type=FormatterMetrics,name=&lt;name&gt;. All counters
+ * are safe to be increased by several threads. A file is counted as queued, started and finished in turn.
+ */
+public class FormatterMetrics implements FormatterMetricsMBean {
+
+	/** Upper bounds of the buckets of the latency histogram in milliseconds */
+	private static final long[] LATENCY_BUCKET_BOUNDS_MILLIS = { 1, 2, 5, 10, 20, 50, 100, 200, 500, 1000, 2000,
+			5000 };
+
+	/** Name of the MBean */
+	private final ObjectName objectName;
+
+	/** Number of files formatted successfully */
+	private final LongAdder filesFormatted = new LongAdder();
+
+	/** Number of bytes of all files formatted successfully */
+	private final LongAdder bytesProcessed = new LongAdder();
+
+	/** Number of files that could not be formatted */
+	private final LongAdder errorCount = new LongAdder();
+
+	/** Number of files waiting to be formatted */
+	private final LongAdder queueDepth = new LongAdder();
+
+	/** Number of files being formatted */
+	private final LongAdder inFlightFiles = new LongAdder();
+
+	/** Number of files per latency bucket */
+	private final LongAdder[] latencyHistogram = new LongAdder[LATENCY_BUCKET_BOUNDS_MILLIS.length + 1];
+
+	/** Cache of formatted statements, null if there is none */
+	private volatile FormatCache cache;
+
+	/** Writes the cache to its file and returns a message, null if there is none */
+	private volatile Callable<String> cacheFlusher;
+
+	/** Cache hits at the last reset */
+	private volatile long cacheHitBase;
+
+	/** Cache misses at the last reset */
+	private volatile long cacheMissBase;
+
+	/**
+	 * Constructs metrics with all counters set to zero.
+	 * 
+	 * @param name
+	 *            Name of the MBean to tell several processes or runs apart, e.g. "cli" or "lsp".
+	 */
+	public FormatterMetrics(String name) {
+		try {
+			this.objectName = new ObjectName(
+					"de.dknapps.mybatter:type=FormatterMetrics,name=" + ObjectName.quote(name));
+		} catch (JMException e) {
+			throw new IllegalArgumentException("Invalid name " + name, e);
+		}
+		for (int i = 0; i < latencyHistogram.length; i++) {
+			latencyHistogram[i] = new LongAdder();
+		}
+	}
+
+	/**
+	 * Registers these metrics at the platform MBean server.
+	 * 
+	 * @throws JMException
+	 *             If registering fails, e.g. because there are metrics with the same name already.
+	 */
+	public void register() throws JMException {
+		ManagementFactory.getPlatformMBeanServer().registerMBean(this, objectName);
+	}
+
+	/**
+	 * Unregisters these metrics from the platform MBean server if they have been registered.
+	 */
+	public void unregister() {
+		try {
+			if (ManagementFactory.getPlatformMBeanServer().isRegistered(objectName)) {
+				ManagementFactory.getPlatformMBeanServer().unregisterMBean(objectName);
+			}
+		} catch (JMException e) {
+			// has been unregistered concurrently
+		}
+	}
+
+	/**
+	 * Sets the cache whose hit rate is reported and the action to write it to its file.
+	 * 
+	 * @param cache
+	 *            The cache, null if there is none.
+	 * @param cacheFlusher
+	 *            Writes the cache to its file and returns a message, null if there is no file.
+	 */
+	public void setCache(FormatCache cache, Callable<String> cacheFlusher) {
+		this.cache = cache;
+		this.cacheFlusher = cacheFlusher;
+		this.cacheHitBase = (cache == null) ? 0 : cache.getHitCount();
+		this.cacheMissBase = (cache == null) ? 0 : cache.getMissCount();
+	}
+
+	/**
+	 * Counts a file that waits to be formatted.
+	 */
+	public void fileQueued() {
+		queueDepth.increment();
+	}
+
+	/**
+	 * Counts a file that has been waiting and is being formatted now.
+	 */
+	public void fileStarted() {
+		queueDepth.decrement();
+		inFlightFiles.increment();
+	}
+
+	/**
+	 * Counts a file that has been formatted.
+	 * 
+	 * @param bytes
+	 *            Number of bytes read from the file.
+	 * @param latencyNanos
+	 *            Nanoseconds from starting to finishing the file.
+	 */
+	public void fileFormatted(long bytes, long latencyNanos) {
+		inFlightFiles.decrement();
+		filesFormatted.increment();
+		bytesProcessed.add(bytes);
+		latencyHistogram[bucketIndex(latencyNanos / 1000000)].increment();
+	}
+
+	/**
+	 * Counts a file that could not be formatted.
+	 * 
+	 * @param started
+	 *            True if the file has been counted as started, false if it failed before, e.g. if it is missing.
+	 */
+	public void fileFailed(boolean started) {
+		if (started) {
+			inFlightFiles.decrement();
+		}
+		errorCount.increment();
+	}
+
+	/**
+	 * Returns the index of the latency bucket.
+	 * 
+	 * @param millis
+	 *            The latency in milliseconds.
+	 * @return The index of the first bucket whose upper bound is greater than the latency.
+	 */
+	static int bucketIndex(long millis) {
+		int i = 0;
+		while (i < LATENCY_BUCKET_BOUNDS_MILLIS.length && millis >= LATENCY_BUCKET_BOUNDS_MILLIS[i]) {
+			i++;
+		}
+		return i;
+	}
+
+	@Override
+	public long getFilesFormatted() {
+		return filesFormatted.sum();
+	}
+
+	@Override
+	public long getBytesProcessed() {
+		return bytesProcessed.sum();
+	}
+
+	@Override
+	public long getErrorCount() {
+		return errorCount.sum();
+	}
+
+	@Override
+	public long getQueueDepth() {
+		return queueDepth.sum();
+	}
+
+	@Override
+	public long getInFlightFiles() {
+		return inFlightFiles.sum();
+	}
+
+	@Override
+	public double getCacheHitRate() {
+		FormatCache currentCache = cache;
+		if (currentCache == null) {
+			return 0;
+		}
+		long hits = currentCache.getHitCount() - cacheHitBase;
+		long total = hits + currentCache.getMissCount() - cacheMissBase;
+		return (total == 0) ? 0 : (double) hits / total;
+	}
+
+	@Override
+	public long[] getLatencyBucketBoundsMillis() {
+		return LATENCY_BUCKET_BOUNDS_MILLIS.clone();
+	}
+
+	@Override
+	public long[] getLatencyHistogram() {
+		long[] counts = new long[latencyHistogram.length];
+		for (int i = 0; i < counts.length; i++) {
+			counts[i] = latencyHistogram[i].sum();
+		}
+		return counts;
+	}
+
+	@Override
+	public void resetCounters() {
+		filesFormatted.reset();
+		bytesProcessed.reset();
+		errorCount.reset();
+		for (LongAdder adder : latencyHistogram) {
+			adder.reset();
+		}
+		FormatCache currentCache = cache;
+		if (currentCache != null) {
+			cacheHitBase = currentCache.getHitCount();
+			cacheMissBase = currentCache.getMissCount();
+		}
+	}
+
+	@Override
+	public String flushCache() {
+		Callable<String> currentCacheFlusher = cacheFlusher;
+		if (currentCacheFlusher == null) {
+			return "There is no cache file to flush to";
+		}
+		try {
+			return currentCacheFlusher.call();
+		} catch (Exception e) {
+			return "Cannot flush cache: " + e.getLocalizedMessage();
+		}
+	}
+
+}
@@ -0,0 +1,93 @@
+/*
+ * MyBatter - Formats your MyBatis mapper XML files
+ *
+ *     Copyright (C) 2018 Uwe Damken
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package de.dknapps.mybatter.statistics;
+
+/**
+ * Live counters of a long-running MyBatter process exposed via JMX, see {@link FormatterMetrics}.
+ */
+public interface FormatterMetricsMBean {
+
+	/**
+	 * Returns the number of files formatted successfully since the last reset.
+	 * 
+	 * @return Number of files.
+	 */
+	long getFilesFormatted();
+
+	/**
+	 * Returns the number of bytes of all files formatted successfully since the last reset.
+	 * 
+	 * @return Number of bytes.
+	 */
+	long getBytesProcessed();
+
+	/**
+	 * Returns the number of files that could not be formatted since the last reset.
+	 * 
+	 * @return Number of files.
+	 */
+	long getErrorCount();
+
+	/**
+	 * Returns the number of files waiting to be formatted.
+	 * 
+	 * @return Number of files.
+	 */
+	long getQueueDepth();
+
+	/**
+	 * Returns the number of files being formatted right now.
+	 * 
+	 * @return Number of files.
+	 */
+	long getInFlightFiles();
+
+	/**
+	 * Returns the share of statements taken from the cache since the last reset.
+	 * 
+	 * @return Hits divided by hits and misses, 0 if there is no cache or it has not been asked yet.
+	 */
+	double getCacheHitRate();
+
+	/**
+	 * Returns the upper bounds of the buckets of the latency histogram.
+	 * 
+	 * @return Milliseconds, the last bucket has no upper bound and is not contained.
+	 */
+	long[] getLatencyBucketBoundsMillis();
+
+	/**
+	 * Returns the number of files per latency bucket since the last reset.
+	 * 
+	 * @return Number of files per bucket, one more than there are bucket bounds.
+	 */
+	long[] getLatencyHistogram();
+
+	/**
+	 * Sets all counters to zero, files waiting or being formatted are still counted.
+	 */
+	void resetCounters();
+
+	/**
+	 * Writes the cache of formatted statements to its file now.
+	 * 
+	 * @return A message whether the cache has been written.
+	 */
+	String flushCache();
+
+}
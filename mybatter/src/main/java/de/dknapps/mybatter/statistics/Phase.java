@@ -0,0 +1,43 @@
+/*
+ * MyBatter - Formats your MyBatis mapper XML files
+ *
+ *     Copyright (C) 2018 Uwe Damken
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package de.dknapps.mybatter.statistics;
+
+/**
+ * Phases of formatting a file whose running times are collected by {@link FileStatistics}.
+ */
+public enum Phase {
+
+	/** Reading the file */
+	READ,
+
+	/** Splitting the input into tokens, see {@link de.dknapps.mybatter.tokenizer.Tokenizer#parse()} */
+	TOKENIZE,
+
+	/** Determining token types, see {@link de.dknapps.mybatter.tokenizer.TokenTypeDeterminer} */
+	TYPING,
+
+	/** Writing the tokens in a formatted way, see {@link de.dknapps.mybatter.formatter.Formatter} */
+	FORMAT,
+
+	/** Verifying the output, see {@link de.dknapps.mybatter.formatter.FormatVerifier} */
+	VERIFY,
+
+	/** Writing the file */
+	WRITE;
+
+}
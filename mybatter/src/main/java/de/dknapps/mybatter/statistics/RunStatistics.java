@@ -0,0 +1,173 @@
+/*
+ * MyBatter - Formats your MyBatis mapper XML files
+ *
+ *     Copyright (C) 2018 Uwe Damken
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package de.dknapps.mybatter.statistics;
+
+import java.io.PrintStream;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.EnumMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.atomic.LongAdder;
+
+import de.dknapps.mybatter.tokenizer.TokenType;
+
+/**
+ * Aggregates the {@link FileStatistics} of all files formatted in a run. Files may be added by several threads.
+ */
+public class RunStatistics {
+
+	/** Percentiles of the latencies per file to be printed */
+	private static final int[] PERCENTILES = { 50, 95, 99 };
+
+	/** Start of the run according to {@link System#nanoTime()} */
+	private final long startNanos = System.nanoTime();
+
+	/** Nanoseconds spent per phase */
+	private final Map<Phase, LongAdder> nanosMap = new EnumMap<>(Phase.class);
+
+	/** Number of tokens per token type */
+	private final Map<TokenType, LongAdder> tokenCountMap = new EnumMap<>(TokenType.class);
+
+	/** Number of files */
+	private final LongAdder fileCount = new LongAdder();
+
+	/** Number of bytes read */
+	private final LongAdder bytesRead = new LongAdder();
+
+	/** Number of bytes written */
+	private final LongAdder bytesWritten = new LongAdder();
+
+	/** Nanoseconds spent per file */
+	private final Queue<Long> latencyQueue = new ConcurrentLinkedQueue<>();
+
+	/**
+	 * Constructs statistics of a run with all counters set to zero.
+	 */
+	public RunStatistics() {
+		for (Phase phase : Phase.values()) {
+			nanosMap.put(phase, new LongAdder());
+		}
+		for (TokenType tokenType : TokenType.values()) {
+			tokenCountMap.put(tokenType, new LongAdder());
+		}
+	}
+
+	/**
+	 * Adds the statistics of a formatted file.
+	 * 
+	 * @param fileStatistics
+	 *            The statistics of the file.
+	 * @param latencyNanos
+	 *            Nanoseconds from starting to read the file to having written it.
+	 */
+	public void add(FileStatistics fileStatistics, long latencyNanos) {
+		for (Phase phase : Phase.values()) {
+			nanosMap.get(phase).add(fileStatistics.getNanos(phase));
+		}
+		for (TokenType tokenType : TokenType.values()) {
+			tokenCountMap.get(tokenType).add(fileStatistics.getTokenCount(tokenType));
+		}
+		fileCount.increment();
+		bytesRead.add(fileStatistics.getBytesRead());
+		bytesWritten.add(fileStatistics.getBytesWritten());
+		latencyQueue.add(latencyNanos);
+	}
+
+	/**
+	 * Prints the aggregated statistics: running times per phase, throughput, token counts per token type and
+	 * percentiles of the latencies per file.
+	 * 
+	 * @param out
+	 *            The stream to print to.
+	 */
+	public void print(PrintStream out) {
+		long elapsedNanos = System.nanoTime() - startNanos;
+		long tokenCount = 0;
+		for (LongAdder adder : tokenCountMap.values()) {
+			tokenCount += adder.sum();
+		}
+		out.println("Statistics of " + fileCount.sum() + " file(s) formatted in " + millis(elapsedNanos));
+		for (Phase phase : Phase.values()) {
+			out.println(String.format(Locale.ROOT, "  %-10s %12s", phase.name().toLowerCase(Locale.ROOT),
+					millis(nanosMap.get(phase).sum())));
+		}
+		out.println(String.format(Locale.ROOT, "  %d bytes read, %d bytes written, %.0f bytes/sec", bytesRead.sum(),
+				bytesWritten.sum(), perSecond(bytesRead.sum(), elapsedNanos)));
+		out.println(String.format(Locale.ROOT, "  %d tokens, %.0f tokens/sec", tokenCount,
+				perSecond(tokenCount, elapsedNanos)));
+		for (TokenType tokenType : TokenType.values()) {
+			long count = tokenCountMap.get(tokenType).sum();
+			if (count > 0) {
+				out.println(String.format(Locale.ROOT, "  %-30s %10d", tokenType, count));
+			}
+		}
+		List<Long> latencyList = new ArrayList<>(latencyQueue);
+		Collections.sort(latencyList);
+		StringBuilder sb = new StringBuilder("  latency per file:");
+		for (int percentile : PERCENTILES) {
+			sb.append(" p").append(percentile).append(' ').append(millis(percentile(latencyList, percentile)));
+		}
+		out.println(sb);
+	}
+
+	/**
+	 * Returns the value below which the given percentage of the values fall (nearest rank method).
+	 * 
+	 * @param sortedList
+	 *            The values in ascending order.
+	 * @param percentile
+	 *            The percentage.
+	 * @return The value or 0 if there are no values.
+	 */
+	static long percentile(List<Long> sortedList, int percentile) {
+		if (sortedList.isEmpty()) {
+			return 0;
+		}
+		int rank = (int) Math.ceil(percentile / 100.0 * sortedList.size());
+		return sortedList.get(Math.max(rank, 1) - 1);
+	}
+
+	/**
+	 * Returns the number of things per second.
+	 * 
+	 * @param count
+	 *            Number of things.
+	 * @param nanos
+	 *            Nanoseconds spent on them.
+	 * @return Things per second.
+	 */
+	private static double perSecond(long count, long nanos) {
+		return (nanos == 0) ? 0 : count * 1e9 / nanos;
+	}
+
+	/**
+	 * Formats nanoseconds as milliseconds.
+	 * 
+	 * @param nanos
+	 *            Nanoseconds.
+	 * @return Milliseconds with three decimals followed by "ms".
+	 */
+	static String millis(long nanos) {
+		return String.format(Locale.ROOT, "%.3f ms", nanos / 1e6);
+	}
+
+}
@@ -0,0 +1,51 @@
+/*
+ * MyBatter - Formats your MyBatis mapper XML files
+ *
+ *     Copyright (C) 2018 Uwe Damken
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package de.dknapps.mybatter.tokenizer;
+
+/**
+ * The 64-bit FNV-1a hash. Unlike {@link String#hashCode()} it spreads similar inputs well and is the same on
+ * every JVM, hence it may be stored or compared across runs and nodes.
+ */
+public final class Fnv1a {
+
+	/** Offset basis, the hash of no input */
+	public static final long OFFSET_BASIS = 0xcbf29ce484222325L;
+
+	/** Prime multiplied with the hash after each input value */
+	public static final long PRIME = 0x100000001b3L;
+
+	/**
+	 * Prevents instantiation.
+	 */
+	private Fnv1a() {
+	}
+
+	/**
+	 * Adds the next input value to a hash.
+	 * 
+	 * @param hash
+	 *            The hash of the values so far, {@link #OFFSET_BASIS} for the first one.
+	 * @param value
+	 *            The value, e.g. a byte or a character.
+	 * @return The hash including the value.
+	 */
+	public static long update(long hash, int value) {
+		return (hash ^ value) * PRIME;
+	}
+
+}
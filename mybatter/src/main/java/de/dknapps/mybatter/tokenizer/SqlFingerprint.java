@@ -0,0 +1,446 @@
+/*
+ * MyBatter - Formats your MyBatis mapper XML files
+ *
+ *     Copyright (C) 2018 Uwe Damken
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package de.dknapps.mybatter.tokenizer;
+
+import java.util.List;
+
+import lombok.AllArgsConstructor;
+import lombok.EqualsAndHashCode;
+import lombok.Getter;
+
+/**
+ * Normalized shape of an SQL statement to group statements that differ in values only, e.g. for query
+ * metrics. Statements are split into tokens by the {@link Tokenizer} and their basic types are determined by
+ * the {@link TokenTypeDeterminer}, hence strings, MyBatis references, sql comments and delimiters are
+ * recognized exactly like when formatting. Terms are split further into words,
+ * values and operators, e.g. <code>a&lt;&gt;-1</code> into <code>a</code>, <code>&lt;&gt;</code> and
+ * <code>-1</code>:
+ * <ul>
+ * <li>Strings, numbers, JDBC placeholders and MyBatis references become <code>?</code>.</li>
+ * <li>Lists of values after <code>in</code> become <code>(?+)</code> whatever their length.</li>
+ * <li>Words are written in lower case, identifiers in double quotes as they are.</li>
+ * <li>Sql comments are dropped and tokens are separated by a single blank except around dots, after opening
+ * and before closing parentheses and before commas.</li>
+ * </ul>
+ * E.g. <code>SELECT a FROM t WHERE b = 'x' AND c IN (1, 2)</code> becomes
+ * <code>select a from t where b = ? and c in (?+)</code>. The hash is the {@link Fnv1a} hash of the
+ * characters of the fingerprint, it can be computed without creating the fingerprint by
+ * {@link #hashOf(String)}.
+ */
+@AllArgsConstructor
+@EqualsAndHashCode
+@Getter
+public final class SqlFingerprint {
+
+	/** The normalized statement */
+	private final String text;
+
+	/** 64-bit hash of the normalized statement */
+	private final long hash;
+
+	/**
+	 * Returns the fingerprint of an SQL statement.
+	 * 
+	 * @param sql
+	 *            The statement.
+	 * @return The fingerprint.
+	 */
+	public static SqlFingerprint of(String sql) {
+		Normalizer normalizer = new Normalizer(new StringBuilder(sql.length()));
+		normalizer.normalize(tokenize(sql));
+		return new SqlFingerprint(normalizer.builder.toString(), normalizer.hash);
+	}
+
+	/**
+	 * Returns the hash of the fingerprint of an SQL statement without creating the fingerprint.
+	 * 
+	 * @param sql
+	 *            The statement.
+	 * @return The hash, the same as {@code getHash()} of {@link #of(String)}.
+	 */
+	public static long hashOf(String sql) {
+		Normalizer normalizer = new Normalizer(null);
+		normalizer.normalize(tokenize(sql));
+		return normalizer.hash;
+	}
+
+	@Override
+	public String toString() {
+		return text;
+	}
+
+	/**
+	 * Splits a statement into tokens. The statement is escaped like the text of a mapper XML file before, hence
+	 * <code>&lt;</code> is taken as an operator rather than the start of an xml tag.
+	 * 
+	 * @param sql
+	 *            The statement.
+	 * @return The top level tokens with their basic types determined, terms are not refined into subtypes.
+	 */
+	private static List<Token> tokenize(String sql) {
+		Tokenizer tokenizer = new Tokenizer(sql.replace("&", "&amp;").replace("<", "&lt;"));
+		tokenizer.parse();
+		TokenTypeDeterminer tokenTypeDeterminer = new TokenTypeDeterminer();
+		for (Token token : tokenizer.getTokenList()) {
+			tokenTypeDeterminer.determineTokenTypeFromValueBasically(token);
+		}
+		return tokenizer.getTokenList();
+	}
+
+	/**
+	 * Writes the normalized tokens of a statement into the hash and a builder, if any.
+	 */
+	private static class Normalizer {
+
+		/** No token written yet */
+		private static final int NONE = 0;
+
+		/** A word, e.g. a keyword or identifier */
+		private static final int WORD = 1;
+
+		/** A value replaced by a placeholder */
+		private static final int VALUE = 2;
+
+		/** An operator like = or &lt;&gt; */
+		private static final int OPERATOR = 3;
+
+		/** An opening parenthesis */
+		private static final int OPENING_PARENTHESIS = 4;
+
+		/** A closing parenthesis */
+		private static final int CLOSING_PARENTHESIS = 5;
+
+		/** A comma */
+		private static final int COMMA = 6;
+
+		/** A dot */
+		private static final int DOT = 7;
+
+		/** Receives the normalized statement, null to compute the hash only */
+		private final StringBuilder builder;
+
+		/** Hash of the characters written so far */
+		private long hash = Fnv1a.OFFSET_BASIS;
+
+		/** Kind of the last token written */
+		private int lastKind = NONE;
+
+		/** True if the last token written is the word in */
+		private boolean lastIn;
+
+		/** Index of the character after the last value written, -1 if the last token written is no value */
+		private int valueEndOffset = -1;
+
+		/**
+		 * Constructs a normalizer.
+		 * 
+		 * @param builder
+		 *            Receives the normalized statement, null to compute the hash only.
+		 */
+		Normalizer(StringBuilder builder) {
+			this.builder = builder;
+		}
+
+		/**
+		 * Writes the normalized tokens of a statement.
+		 * 
+		 * @param tokenList
+		 *            The top level tokens of the statement.
+		 */
+		void normalize(List<Token> tokenList) {
+			for (int i = 0; i < tokenList.size(); i++) {
+				Token token = tokenList.get(i);
+				String value = unescape(token.getValue());
+				switch (token.getTokenType()) {
+				case SQL_COMMENT:
+					break;
+				case STRING:
+					if (value.startsWith(Token.PREFIX_DOUBLE_STRING)) {
+						writeToken(WORD, value, false);
+					} else if (token.getOffset() != valueEndOffset) { // else the rest of a string with a doubled quote
+						writeToken(VALUE, "?", false);
+					}
+					valueEndOffset = (lastKind == VALUE) ? token.getEndOffset() : -1;
+					break;
+				case MYBATIS_REFERENCE:
+					writeToken(VALUE, "?", false);
+					valueEndOffset = token.getEndOffset();
+					break;
+				case OPENING_PARENTHESIS:
+					boolean afterIn = lastIn;
+					writeToken(OPENING_PARENTHESIS, "(", false);
+					int closingIndex = afterIn ? findValueListEnd(tokenList, i + 1) : -1;
+					if (closingIndex >= 0) {
+						writeToken(VALUE, "?+", false);
+						writeToken(CLOSING_PARENTHESIS, ")", false);
+						i = closingIndex;
+					}
+					break;
+				case CLOSING_PARENTHESIS:
+					writeToken(CLOSING_PARENTHESIS, ")", false);
+					break;
+				case COMMA:
+					writeToken(COMMA, ",", false);
+					break;
+				case DOT:
+					Token next = (i + 1 < tokenList.size()) ? tokenList.get(i + 1) : null;
+					if (next != null && next.getOffset() == token.getEndOffset() && isNumberTerm(next)) {
+						if (token.getOffset() != valueEndOffset) { // else the fraction of a number
+							writeToken(VALUE, "?", false);
+						}
+						String nextValue = unescape(next.getValue());
+						int numberEnd = skipNumber(nextValue, 0);
+						valueEndOffset = (numberEnd == nextValue.length()) ? next.getEndOffset() : -1;
+						writeTerm(nextValue, numberEnd, next.getEndOffset());
+						i++;
+					} else {
+						writeToken(DOT, ".", false);
+					}
+					break;
+				default:
+					writeTerm(value, 0, token.getEndOffset());
+					break;
+				}
+			}
+		}
+
+		/**
+		 * Returns the index of the closing parenthesis if the tokens up to it are values separated by commas.
+		 * 
+		 * @param tokenList
+		 *            The top level tokens of the statement.
+		 * @param index
+		 *            The index of the token after the opening parenthesis.
+		 * @return The index of the closing parenthesis, -1 if anything else is found, e.g. a sub-select.
+		 */
+		private static int findValueListEnd(List<Token> tokenList, int index) {
+			while (index < tokenList.size()) {
+
+				// A value may consist of several tokens next to each other, e.g. 1 . 5 or 'a' 'b' for 'a''b'
+				int valueTokenCount = 0;
+				int endOffset = -1;
+				while (index < tokenList.size() && (endOffset < 0 || tokenList.get(index).getOffset() == endOffset)
+						&& isValueToken(tokenList.get(index))) {
+					endOffset = tokenList.get(index++).getEndOffset();
+					valueTokenCount++;
+				}
+				if (valueTokenCount == 0 || index == tokenList.size()) {
+					return -1;
+				}
+				TokenType tokenType = tokenList.get(index).getTokenType();
+				if (tokenType == TokenType.CLOSING_PARENTHESIS) {
+					return index;
+				} else if (tokenType != TokenType.COMMA) {
+					return -1;
+				}
+				index++;
+			}
+			return -1;
+		}
+
+		/**
+		 * Returns true if the token is a value or part of one.
+		 * 
+		 * @param token
+		 *            The token.
+		 * @return True for strings, MyBatis references, numbers, JDBC placeholders and dots.
+		 */
+		private static boolean isValueToken(Token token) {
+			switch (token.getTokenType()) {
+			case STRING:
+				return !token.getValue().startsWith(Token.PREFIX_DOUBLE_STRING);
+			case MYBATIS_REFERENCE:
+			case DOT:
+				return true;
+			case TERM:
+				String value = token.getValue();
+				int start = (value.startsWith("-") || value.startsWith("+")) ? 1 : 0;
+				return value.equals("?") || (start < value.length() && Character.isDigit(value.charAt(start))
+						&& skipNumber(value, start) == value.length());
+			default:
+				return false;
+			}
+		}
+
+		/**
+		 * Returns true if the token is a term starting with a number, e.g. the fraction of a number.
+		 * 
+		 * @param token
+		 *            The token.
+		 * @return True for a number.
+		 */
+		private static boolean isNumberTerm(Token token) {
+			return token.getTokenType() == TokenType.TERM && Character.isDigit(token.getValue().charAt(0));
+		}
+
+		/**
+		 * Writes a term split into words, values and operators.
+		 * 
+		 * @param term
+		 *            The value of the term.
+		 * @param start
+		 *            Index of the first character to be written, characters before have been written already.
+		 * @param endOffset
+		 *            Index of the character after the term in the statement.
+		 */
+		private void writeTerm(String term, int start, int endOffset) {
+			int length = term.length();
+			int head = start;
+			while (head < length) {
+				int tokenStart = head;
+				char c = term.charAt(head);
+				if (c == '?') {
+					head++;
+					writeToken(VALUE, "?", false);
+				} else if (Character.isDigit(c) || (isSign(c) && head + 1 < length
+						&& Character.isDigit(term.charAt(head + 1)) && lastKind != WORD && lastKind != VALUE
+						&& lastKind != CLOSING_PARENTHESIS)) {
+					head = skipNumber(term, head + 1);
+					writeToken(VALUE, "?", false);
+				} else if (isWordCharacter(c)) {
+					while (head < length && isWordCharacter(term.charAt(head))) {
+						head++;
+					}
+					writeToken(WORD, term.substring(tokenStart, head), true);
+				} else {
+					do {
+						head++;
+					} while (head < length && isOperatorCharacter(term, head));
+					writeToken(OPERATOR, term.substring(tokenStart, head), false);
+				}
+			}
+			valueEndOffset = (lastKind == VALUE && head > start) ? endOffset : valueEndOffset;
+		}
+
+		/**
+		 * Skips the rest of a number, e.g. 1e3 or 0x1F.
+		 * 
+		 * @param term
+		 *            The value of a term.
+		 * @param index
+		 *            Index of a character within the number.
+		 * @return The index of the first character after the number.
+		 */
+		private static int skipNumber(String term, int index) {
+			while (index < term.length() && Character.isLetterOrDigit(term.charAt(index))) {
+				index++;
+			}
+			return index;
+		}
+
+		/**
+		 * Returns true if the character is a sign.
+		 * 
+		 * @param c
+		 *            The character.
+		 * @return True for - and +.
+		 */
+		private static boolean isSign(char c) {
+			return c == '-' || c == '+';
+		}
+
+		/**
+		 * Returns true if the character is part of a word.
+		 * 
+		 * @param c
+		 *            The character.
+		 * @return True for letters, digits, underscores, #, $ and backticks.
+		 */
+		private static boolean isWordCharacter(char c) {
+			return Character.isLetterOrDigit(c) || c == '_' || c == '#' || c == '$' || c == '`';
+		}
+
+		/**
+		 * Returns true if the character at the index continues an operator.
+		 * 
+		 * @param term
+		 *            The value of a term.
+		 * @param index
+		 *            The index.
+		 * @return False for word characters, JDBC placeholders and signs before a number or at the end of the
+		 *         term, i.e. before a value like a MyBatis reference.
+		 */
+		private static boolean isOperatorCharacter(String term, int index) {
+			char c = term.charAt(index);
+			if (isWordCharacter(c) || c == '?') {
+				return false;
+			}
+			return !isSign(c) || (index + 1 < term.length() && !Character.isDigit(term.charAt(index + 1)));
+		}
+
+		/**
+		 * Replaces the escapes of {@link SqlFingerprint#tokenize(String)} by the original characters.
+		 * 
+		 * @param value
+		 *            The value of a token.
+		 * @return The value as in the statement.
+		 */
+		private static String unescape(String value) {
+			return (value.indexOf('&') < 0) ? value : value.replace("&lt;", "<").replace("&amp;", "&");
+		}
+
+		/**
+		 * Writes a token.
+		 * 
+		 * @param kind
+		 *            The kind of the token.
+		 * @param token
+		 *            The token.
+		 * @param lowerCase
+		 *            True to write the token in lower case.
+		 */
+		private void writeToken(int kind, String token, boolean lowerCase) {
+			writeSeparator(kind);
+			for (int i = 0; i < token.length(); i++) {
+				write(lowerCase ? Character.toLowerCase(token.charAt(i)) : token.charAt(i));
+			}
+			lastKind = kind;
+			lastIn = kind == WORD && token.equalsIgnoreCase("in");
+			valueEndOffset = -1;
+		}
+
+		/**
+		 * Writes a blank before a token unless it is the first one or no blank belongs between the last
+		 * token and this one.
+		 * 
+		 * @param kind
+		 *            The kind of the token.
+		 */
+		private void writeSeparator(int kind) {
+			if (lastKind != NONE && lastKind != OPENING_PARENTHESIS && lastKind != DOT && kind != CLOSING_PARENTHESIS
+					&& kind != COMMA && kind != DOT) {
+				write(' ');
+			}
+		}
+
+		/**
+		 * Writes a character into the hash and the builder, if any.
+		 * 
+		 * @param c
+		 *            The character.
+		 */
+		private void write(char c) {
+			hash = Fnv1a.update(hash, c);
+			if (builder != null) {
+				builder.append(c);
+			}
+		}
+
+	}
+
+}
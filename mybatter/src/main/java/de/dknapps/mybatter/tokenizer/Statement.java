@@ -0,0 +1,159 @@
+/*
+ * MyBatter - Formats your MyBatis mapper XML files
+ *
+ *     Copyright (C) 2018 Uwe Damken
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package de.dknapps.mybatter.tokenizer;
+
+import java.util.List;
+
+import lombok.Getter;
+
+/**
+ * Part of a MyBatis mapper input string that starts with a primary xml tag (select, insert, ...) and ends
+ * right before the next one. The first statement of an input string may start with anything, e.g. with the
+ * xml declaration or the mapper tag. Statements can be tokenized independently of each other.
+ * Statements known from tokenizing them before are tokenized again only if their tokens are needed.
+ */
+public class Statement {
+
+	/** Index of the first character of this statement in the input string */
+	@Getter
+	private final int offset;
+
+	/** Part of the input string that makes up this statement */
+	@Getter
+	private final String input;
+
+	/** Tokenizer that has been used to tokenize this statement, null if not tokenized yet */
+	private Tokenizer tokenizer;
+
+	/** True if the input of this statement ended within a token */
+	private boolean incomplete;
+
+	/** True if this statement starts with a primary xml tag */
+	private boolean startingWithPrimaryXmlTag;
+
+	/**
+	 * Constructs a statement and tokenizes its input.
+	 *
+	 * @param offset
+	 *            Index of the first character of this statement in the input string.
+	 * @param input
+	 *            Part of the input string that makes up this statement.
+	 */
+	public Statement(int offset, String input) {
+		this.offset = offset;
+		this.input = input;
+		tokenize();
+	}
+
+	/**
+	 * Constructs a statement from a tokenizer that has tokenized its input already.
+	 *
+	 * @param offset
+	 *            Index of the first character of this statement in the input string.
+	 * @param tokenizer
+	 *            The tokenizer, see {@link Tokenizer#tokenize()}.
+	 */
+	public Statement(int offset, Tokenizer tokenizer) {
+		this.offset = offset;
+		this.input = tokenizer.getInput();
+		setTokenizer(tokenizer);
+	}
+
+	/**
+	 * Constructs a statement that is known from tokenizing it before. It is tokenized again only if its tokens
+	 * are requested.
+	 *
+	 * @param offset
+	 *            Index of the first character of this statement in the input string.
+	 * @param input
+	 *            Part of the input string that makes up this statement.
+	 * @param incomplete
+	 *            True if the input of this statement ended within a token.
+	 * @param startingWithPrimaryXmlTag
+	 *            True if this statement starts with a primary xml tag.
+	 */
+	public Statement(int offset, String input, boolean incomplete, boolean startingWithPrimaryXmlTag) {
+		this.offset = offset;
+		this.input = input;
+		this.incomplete = incomplete;
+		this.startingWithPrimaryXmlTag = startingWithPrimaryXmlTag;
+	}
+
+	/**
+	 * Tokenizes the input of this statement unless done before.
+	 */
+	private synchronized void tokenize() {
+		if (tokenizer == null) {
+			Tokenizer newTokenizer = new Tokenizer(input);
+			newTokenizer.tokenize();
+			setTokenizer(newTokenizer);
+		}
+	}
+
+	/**
+	 * Takes the result of a tokenizer that has tokenized the input of this statement.
+	 *
+	 * @param newTokenizer
+	 *            The tokenizer.
+	 */
+	private void setTokenizer(Tokenizer newTokenizer) {
+		List<Token> tokenList = newTokenizer.getTokenList();
+		incomplete = newTokenizer.isIncomplete();
+		startingWithPrimaryXmlTag = !tokenList.isEmpty()
+				&& tokenList.get(0).getTokenType() == TokenType.PRIMARY_XML_TAG;
+		tokenizer = newTokenizer;
+	}
+
+	/**
+	 * Returns the top level tokens of this statement and tokenizes it if necessary.
+	 *
+	 * @return The list of {@link Token} objects.
+	 */
+	public List<Token> getTokenList() {
+		tokenize();
+		return tokenizer.getTokenList();
+	}
+
+	/**
+	 * Returns true if the input of this statement ended within a token.
+	 *
+	 * @return True if tokenizing ended within a token.
+	 */
+	public boolean isIncomplete() {
+		return incomplete;
+	}
+
+	/**
+	 * Returns true if this statement starts with a primary xml tag like &lt;select&gt;.
+	 *
+	 * @return True if the first token is of type {@link TokenType#PRIMARY_XML_TAG}.
+	 */
+	public boolean isStartingWithPrimaryXmlTag() {
+		return startingWithPrimaryXmlTag;
+	}
+
+	/**
+	 * Returns the index of the first character after this statement in the input string.
+	 *
+	 * @return The end index (exclusive).
+	 */
+	public int getEndOffset() {
+		return offset + input.length();
+	}
+
+}
@@ -0,0 +1,149 @@
+/*
+ * MyBatter - Formats your MyBatis mapper XML files
+ *
+ *     Copyright (C) 2018 Uwe Damken
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package de.dknapps.mybatter.tokenizer;
+
+import static de.dknapps.mybatter.tokenizer.Token.PREFIX_XML_TAG;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinTask;
+import java.util.function.BiFunction;
+
+/**
+ * Splits a MyBatis mapper input string into {@link Statement} objects which are tokenized in parallel. The
+ * tokens of all statements are the same as if the whole input string had been tokenized at once.
+ */
+public class StatementSplitter {
+
+	/** Names of the xml tags that start a statement (select, insert, ...) */
+	private static final List<String> PRIMARY_TAG_NAME_LIST = TokenType.PRIMARY_XML_TAG.getTokenNameList();
+
+	/**
+	 * Prevents instantiation.
+	 */
+	private StatementSplitter() {
+	}
+
+	/**
+	 * Splits the input string into statements and tokenizes them in parallel.
+	 *
+	 * @param input
+	 *            String containing MyBatis mapper xml file contents.
+	 * @param pool
+	 *            The pool to tokenize the statements in.
+	 * @return The list of tokenized statements in the order of the input string.
+	 */
+	public static List<Statement> split(String input, ForkJoinPool pool) {
+		return split(input, pool, Statement::new);
+	}
+
+	/**
+	 * Splits the input string into statements and tokenizes them in parallel if they are not known from
+	 * tokenizing them before.
+	 *
+	 * @param input
+	 *            String containing MyBatis mapper xml file contents.
+	 * @param pool
+	 *            The pool to tokenize the statements in.
+	 * @param statementFactory
+	 *            Creates a statement from its offset and input, either by tokenizing it or from what is known
+	 *            about it from tokenizing it before.
+	 * @return The list of statements in the order of the input string.
+	 */
+	public static List<Statement> split(String input, ForkJoinPool pool,
+			BiFunction<Integer, String, Statement> statementFactory) {
+
+		// Find potential statement starts quickly, they are verified after tokenizing
+		List<Integer> offsetList = findStatementOffsets(input);
+		offsetList.add(input.length());
+
+		// Tokenize every potential statement in parallel
+		List<ForkJoinTask<Statement>> taskList = new ArrayList<>();
+		for (int i = 0; i < offsetList.size() - 1; i++) {
+			int offset = offsetList.get(i);
+			int endOffset = offsetList.get(i + 1);
+			taskList.add(pool.submit(() -> statementFactory.apply(offset, input.substring(offset, endOffset))));
+		}
+
+		// Join statements with their successors if they could not be tokenized independently
+		List<Statement> statementList = new ArrayList<>();
+		int i = 0;
+		while (i < taskList.size()) {
+			Statement statement = taskList.get(i).join();
+			int next = i + 1;
+			int mergeCount = 1;
+			while (next < taskList.size()
+					&& (statement.isIncomplete() || !taskList.get(next).join().isStartingWithPrimaryXmlTag())) {
+				next = Math.min(taskList.size(), next + mergeCount);
+				mergeCount *= 2; // joining more and more statements at once keeps worst case linear
+				int offset = offsetList.get(i);
+				statement = statementFactory.apply(offset, input.substring(offset, offsetList.get(next)));
+			}
+			statementList.add(statement);
+			i = next;
+		}
+		return statementList;
+	}
+
+	/**
+	 * Returns the indexes of all characters in the input string that look like the beginning of a primary
+	 * xml tag. The first index is always 0 because the input string may start with anything.
+	 *
+	 * @param input
+	 *            String containing MyBatis mapper xml file contents.
+	 * @return The list of potential statement starts.
+	 */
+	static List<Integer> findStatementOffsets(String input) {
+		List<Integer> offsetList = new ArrayList<>();
+		offsetList.add(0);
+		int index = input.indexOf(PREFIX_XML_TAG, 1);
+		while (index >= 0) {
+			if (isPrimaryXmlTagAt(input, index)) {
+				offsetList.add(index);
+			}
+			index = input.indexOf(PREFIX_XML_TAG, index + 1);
+		}
+		return offsetList;
+	}
+
+	/**
+	 * Returns true if there is a primary xml tag at the given index, e.g. &lt;select followed by a whitespace
+	 * or &gt;.
+	 *
+	 * @param input
+	 *            String containing MyBatis mapper xml file contents.
+	 * @param index
+	 *            Index of the &lt; character.
+	 * @return True for a primary xml tag.
+	 */
+	private static boolean isPrimaryXmlTagAt(String input, int index) {
+		for (String tagName : PRIMARY_TAG_NAME_LIST) {
+			int end = index + PREFIX_XML_TAG.length() + tagName.length();
+			if (end < input.length()
+					&& input.regionMatches(true, index + PREFIX_XML_TAG.length(), tagName, 0, tagName.length())) {
+				char c = input.charAt(end);
+				if (Character.isWhitespace(c) || c == '>') {
+					return true;
+				}
+			}
+		}
+		return false;
+	}
+
+}
@@ -25,6 +25,7 @@ import java.util.List;
 import org.apache.commons.collections4.CollectionUtils;
 import org.apache.commons.lang3.StringUtils;
 
+import lombok.AccessLevel;
 import lombok.Getter;
 import lombok.Setter;
 
@@ -85,10 +86,22 @@ public class Token {
 	@Getter
 	private List<Token> tokenList = new ArrayList<>();
 
-	/** String content parsed into this token */
-	@Getter
+	/** String content parsed into this token, null while it is built by valueBuilder */
 	private String value;
 
+	/** Builds the content while characters are appended, null if value is up to date */
+	private StringBuilder valueBuilder;
+
+	/** Index of the first character of this token in the input string */
+	@Getter
+	@Setter(AccessLevel.PACKAGE)
+	private int offset;
+
+	/** Number of characters of the input string parsed into this token, its value might be shorter */
+	@Getter
+	@Setter(AccessLevel.PACKAGE)
+	private int length;
+
 	/** True if this tag shall end the collection of subtokens */
 	@Getter
 	@Setter
@@ -113,7 +126,7 @@ public class Token {
 	 *            The character to be appended.
 	 */
 	public void append(char c) {
-		value += c;
+		builder().append(c);
 	}
 
 	/**
@@ -123,7 +136,7 @@ public class Token {
 	 *            The characters to be appended.
 	 */
 	public void append(String s) {
-		value += s;
+		builder().append(s);
 	}
 
 	/**
@@ -134,7 +147,65 @@ public class Token {
 	 */
 	public void add(Token t) {
 		tokenList.add(t);
-		value += t.value;
+		builder().append(t.content());
+	}
+
+	/**
+	 * Returns the string content parsed into this token.
+	 * 
+	 * @return The content.
+	 */
+	public String getValue() {
+		if (value == null) {
+			value = valueBuilder.toString();
+			valueBuilder = null;
+		}
+		return value;
+	}
+
+	/**
+	 * Returns the builder of the content to append characters in constant time instead of copying the whole
+	 * content on every append.
+	 * 
+	 * @return The builder.
+	 */
+	private StringBuilder builder() {
+		if (valueBuilder == null) {
+			valueBuilder = new StringBuilder(value);
+			value = null;
+		}
+		return valueBuilder;
+	}
+
+	/**
+	 * Returns the content without building a string from the builder.
+	 * 
+	 * @return The content.
+	 */
+	private CharSequence content() {
+		return (value != null) ? value : valueBuilder;
+	}
+
+	/**
+	 * Returns the index of the first character after this token in the input string.
+	 * 
+	 * @return The end index (exclusive).
+	 */
+	public int getEndOffset() {
+		return offset + length;
+	}
+
+	/**
+	 * Move this token and its subtokens within the input string.
+	 * 
+	 * @param delta
+	 *            The number of characters to move forward (+) or backward (-).
+	 */
+	void shiftOffset(int delta) {
+		offset += delta;
+		for (Token subtoken : tokenList) {
+			subtoken.shiftOffset(delta);
+		}
 	}
 
 	/**
@@ -156,7 +227,7 @@ public class Token {
 
 	String toString(String indent) {
 		StringBuilder sb = new StringBuilder();
-		sb.append(indent).append("|").append((tokenType == ROOT) ? "..." : value).append("|")
+		sb.append(indent).append("|").append((tokenType == ROOT) ? "..." : content()).append("|")
 				.append(tokenType);
 		if (CollectionUtils.isNotEmpty(tokenList)) {
 			for (Token subtoken : tokenList) {
@@ -172,7 +243,7 @@ public class Token {
 	 * @return True if content is empty.
 	 */
 	public boolean isEmpty() {
-		return value.isEmpty();
+		return content().length() == 0;
 	}
 
 	/**
@@ -181,7 +252,7 @@ public class Token {
 	 * @return True if content contains only whitespaces.
 	 */
 	public boolean isWhitespace() {
-		return StringUtils.isWhitespace(value);
+		return StringUtils.isWhitespace(content());
 	}
 
 	/**
@@ -192,7 +263,9 @@ public class Token {
 	 * @return True if content ends with suffix.
 	 */
 	public boolean endsWith(String suffix) {
-		return value.endsWith(suffix);
+		CharSequence content = content();
+		int start = content.length() - suffix.length();
+		return start >= 0 && StringUtils.equals(content.subSequence(start, content.length()), suffix);
 	}
 
 	/**
@@ -204,7 +277,9 @@ public class Token {
 	 *         SUFFIX_SELFCLOSING_XML_TAG.
 	 */
 	public boolean wereXmlTagSuffix(String ending) {
-		String potential = value + ending;
+		CharSequence content = content();
+		int start = Math.max(0, content.length() - SUFFIX_PROCESSING_INSTRUCTION.length());
+		String potential = content.subSequence(start, content.length()) + ending; // the end is sufficient
 		return potential.endsWith(SUFFIX_PROCESSING_INSTRUCTION)
 				|| potential.endsWith(SUFFIX_SELFCLOSING_XML_TAG);
 	}
@@ -213,7 +288,12 @@ public class Token {
 	 * Remove all whitespaces from the end of the content.
 	 */
 	public void stripEnd() {
-		value = StringUtils.stripEnd(value, null);
+		StringBuilder builder = builder();
+		int length = builder.length();
+		while (length > 0 && Character.isWhitespace(builder.charAt(length - 1))) {
+			length--;
+		}
+		builder.setLength(length);
 	}
 
 	/**
@@ -18,9 +18,9 @@
 package de.dknapps.mybatter.tokenizer;
 
 import java.util.Arrays;
+import java.util.HashSet;
 import java.util.List;
-
-import org.apache.commons.collections4.CollectionUtils;
+import java.util.Set;
 
 import lombok.Getter;
 
@@ -79,6 +79,26 @@ public enum TokenType {
 	@Getter
 	final private List<String> tokenNameList;
 
+	/** Names of tokens that another token type with the same parent token type mentions as well */
+	private final Set<String> ambiguousTokenNameSet = new HashSet<>();
+
+	/**
+	 * Determines the ambiguous token names of all token types once instead of on every lookup.
+	 */
+	static {
+		for (TokenType tokenType : values()) {
+			for (TokenType other : values()) {
+				if (tokenType != other && tokenType.parentTokenType == other.parentTokenType) {
+					for (String tokenName : tokenType.tokenNameList) {
+						if (other.tokenNameList.contains(tokenName)) {
+							tokenType.ambiguousTokenNameSet.add(tokenName);
+						}
+					}
+				}
+			}
+		}
+	}
+
 	/**
 	 * Constructs a parent token type.
 	 */
@@ -129,17 +149,7 @@ public enum TokenType {
 	 * @return True if token type is ambiguous.
 	 */
 	public boolean isAmbiguousTokenType(String tokenName) {
-		// TODO It might be useful to cache these boolean values ...
-		if (CollectionUtils.isNotEmpty(tokenNameList) && tokenNameList.contains(tokenName)) {
-			for (TokenType other : TokenType.values()) {
-				if (this != other && parentTokenType == other.parentTokenType
-						&& CollectionUtils.isNotEmpty(other.tokenNameList)
-						&& other.tokenNameList.contains(tokenName)) {
-					return true;
-				}
-			}
-		}
-		return false;
+		return ambiguousTokenNameSet.contains(tokenName);
 	}
 
-}
\ No newline at end of file
+}
@@ -46,6 +46,7 @@ import static de.dknapps.mybatter.tokenizer.TokenType.ROOT;
 import static de.dknapps.mybatter.tokenizer.TokenType.SELFCLOSING_XML_TAG;
 import static de.dknapps.mybatter.tokenizer.TokenType.SQL_AND_IN_BETWEEN;
 import static de.dknapps.mybatter.tokenizer.TokenType.SQL_COMMENT;
+import static de.dknapps.mybatter.tokenizer.TokenType.SQL_STATEMENT;
 import static de.dknapps.mybatter.tokenizer.TokenType.SQL_STATEMENT_SUFFIX;
 import static de.dknapps.mybatter.tokenizer.TokenType.STRING;
 import static de.dknapps.mybatter.tokenizer.TokenType.TERM;
@@ -64,22 +65,30 @@ import org.apache.commons.collections4.CollectionUtils;
 public class TokenTypeDeterminer {
 
 	/**
-	 * Resolves the ambiguity of a token type depending on the context of the token.
+	 * Resolves the ambiguity of a token type depending on the context of the token. The context is the last
+	 * token before the token that is a context token for the resolver. Tokens are visited once from first to
+	 * last to keep track of the last context token, hence resolving takes linear time.
 	 */
-	@FunctionalInterface
 	interface AmbiguousTokenTypeResolver {
 
+		/**
+		 * Returns true if the token provides the context for the next tokens to be resolved.
+		 * 
+		 * @param token
+		 *            A token of any type, resolved already if it has been ambiguous.
+		 * @return True for a context token.
+		 */
+		boolean isContextToken(Token token);
+
 		/**
 		 * Sets the type of the token depending on its context.
 		 * 
 		 * @param token
 		 *            The token.
-		 * @param beforeTokenList
-		 *            Left context of the token.
-		 * @param afterTokenList
-		 *            Right context of the token.
+		 * @param contextToken
+		 *            The last context token before the token or null if there is none.
 		 */
-		void resolve(Token token, List<Token> beforeTokenList, List<Token> afterTokenList);
+		void resolve(Token token, Token contextToken);
 
 	}
 
@@ -93,23 +102,23 @@ public class TokenTypeDeterminer {
 		RESOLVER_MAP.put("and", new AmbiguousTokenTypeResolver() {
 
 			@Override
-			public void resolve(Token token, List<Token> beforeTokenList, List<Token> afterTokenList) {
-				for (int i = beforeTokenList.size() - 1; i >= 0; i--) {
-					Token previousToken = beforeTokenList.get(i);
-					switch (previousToken.getTokenType()) {
-					case TERM:
-						if (previousToken.tokenName().equals("between")) {
-							token.setTokenType(SQL_AND_IN_BETWEEN);
-							return; // between operator found
-						}
-						// intentionally falling through
-					case SQL_SUB_STATEMENT:
-					case SQL_STATEMENT:
-					case PRIMARY_XML_TAG:
-						return; // stop looking for between operator
-					default:
-						// go backwards to next token
-					}
+			public boolean isContextToken(Token token) {
+				switch (token.getTokenType()) {
+				case TERM:
+				case SQL_SUB_STATEMENT:
+				case SQL_STATEMENT:
+				case PRIMARY_XML_TAG:
+					return true; // may introduce between operator
+				default:
+					return false; // keep previous context
+				}
+			}
+
+			@Override
+			public void resolve(Token token, Token contextToken) {
+				if (contextToken != null && contextToken.getTokenType() == TERM
+						&& contextToken.tokenName().equals("between")) {
+					token.setTokenType(SQL_AND_IN_BETWEEN); // between operator found
 				}
 			}
 
@@ -117,21 +126,21 @@ public class TokenTypeDeterminer {
 		RESOLVER_MAP.put("from", new AmbiguousTokenTypeResolver() {
 
 			@Override
-			public void resolve(Token token, List<Token> beforeTokenList, List<Token> afterTokenList) {
-				for (int i = beforeTokenList.size() - 1; i >= 0; i--) {
-					Token previousToken = beforeTokenList.get(i);
-					switch (previousToken.getTokenType()) {
-					case SQL_STATEMENT:
-						if (previousToken.tokenName().equals("delete")) {
-							token.setTokenType(SQL_STATEMENT_SUFFIX);
-							return; // delete statement found
-						}
-						// intentionally falling through
-					case PRIMARY_XML_TAG:
-						return; // stop looking for delete statement
-					default:
-						// go backwards to next token
-					}
+			public boolean isContextToken(Token token) {
+				switch (token.getTokenType()) {
+				case SQL_STATEMENT:
+				case PRIMARY_XML_TAG:
+					return true; // may introduce delete statement
+				default:
+					return false; // keep previous context
+				}
+			}
+
+			@Override
+			public void resolve(Token token, Token contextToken) {
+				if (contextToken != null && contextToken.getTokenType() == SQL_STATEMENT
+						&& contextToken.tokenName().equals("delete")) {
+					token.setTokenType(SQL_STATEMENT_SUFFIX); // delete statement found
 				}
 			}
 
@@ -198,9 +207,9 @@ public class TokenTypeDeterminer {
 
 	/**
 	 * Determines the token type of the token based on the parsed string without checking the value of the
-	 * token.
+	 * token. Terms are not refined into subtypes except for MyBatis references.
 	 */
-	private void determineTokenTypeFromValueBasically(Token token) {
+	void determineTokenTypeFromValueBasically(Token token) {
 		String value = token.getValue();
 		TokenType tokenType;
 		if (value.startsWith(PREFIX_CHARACTER_DATA)) {
@@ -250,13 +259,17 @@ public class TokenTypeDeterminer {
 	 */
 	private void determineTokenTypeFromContext(List<Token> tokenList) {
 		if (CollectionUtils.isNotEmpty(tokenList)) {
-			for (int i = 0; i < tokenList.size(); i++) {
-				Token token = tokenList.get(i);
+			Map<AmbiguousTokenTypeResolver, Token> contextTokenMap = new HashMap<>();
+			for (Token token : tokenList) {
 				String tokenName = token.tokenName();
 				if (token.getTokenType().isAmbiguousTokenType(tokenName)) {
-					List<Token> beforeTokenList = tokenList.subList(0, i);
-					List<Token> afterTokenList = tokenList.subList(i, tokenList.size());
-					RESOLVER_MAP.get(tokenName).resolve(token, beforeTokenList, afterTokenList);
+					AmbiguousTokenTypeResolver resolver = RESOLVER_MAP.get(tokenName);
+					resolver.resolve(token, contextTokenMap.get(resolver));
+				}
+				for (AmbiguousTokenTypeResolver resolver : RESOLVER_MAP.values()) {
+					if (resolver.isContextToken(token)) {
+						contextTokenMap.put(resolver, token);
+					}
 				}
 			}
 		}
@@ -45,6 +45,7 @@ import static de.dknapps.mybatter.tokenizer.TokenizerAction.CONSUME_AND_RETURN_T
 import static de.dknapps.mybatter.tokenizer.TokenizerAction.RETURN_PREVIOUS_TOKEN;
 
 import java.util.List;
+import java.util.concurrent.CancellationException;
 
 import org.apache.commons.lang3.StringUtils;
 
@@ -54,6 +55,9 @@ import org.apache.commons.lang3.StringUtils;
  */
 public class Tokenizer {
 
+	/** Tokenizing checks for interrupts whenever the character position is a multiple of this mask plus one */
+	private static final int INTERRUPT_CHECK_MASK = 0xFFF;
+
 	/** Input string to be parsed into {@link Token} objects */
 	private String input;
 
@@ -100,14 +104,163 @@ public class Tokenizer {
 		this.rootToken = new Token();
 	}
 
+	/**
+	 * Constructs a Tokenizer with the given input string and the result of tokenizing it.
+	 * 
+	 * @param input
+	 *            String containing MyBatis mapper xml file contents.
+	 * @param rootToken
+	 *            Top level token that contains all tokens of the input as children.
+	 * @param incomplete
+	 *            True if the input ended within a token.
+	 */
+	private Tokenizer(String input, Token rootToken, boolean incomplete) {
+		this.head = input.length();
+		this.input = input;
+		this.rootToken = rootToken;
+		this.inXmlTag = incomplete; // which token has been incomplete does not matter anymore
+	}
+
+	/**
+	 * Tokenizes an input string that results from replacing a part of the input of a previous tokenizer. Only
+	 * the statements (see {@link Statement}) affected by the replacement are tokenized again. All other tokens
+	 * are taken over from the previous tokenizer with their offsets shifted if necessary, hence the previous
+	 * tokenizer must not be used anymore afterwards.
+	 * 
+	 * @param previous
+	 *            The tokenizer that has tokenized the input before the replacement.
+	 * @param editStart
+	 *            Index of the first replaced character in the previous input.
+	 * @param editEnd
+	 *            Index of the first character after the replaced characters in the previous input.
+	 * @param newText
+	 *            The characters that replace the characters from editStart to editEnd.
+	 * @return A tokenizer with the input after the replacement that has already been tokenized.
+	 */
+	public static Tokenizer retokenize(Tokenizer previous, int editStart, int editEnd, String newText) {
+		String previousInput = previous.input;
+		String input = previousInput.substring(0, editStart) + newText + previousInput.substring(editEnd);
+		int delta = newText.length() - (editEnd - editStart);
+		List<Token> previousTokenList = previous.getTokenList();
+
+		// Find the statements around the replacement, their primary xml tags remain unchanged
+		int startIndex = findStatementIndex(previousTokenList, editStart, true);
+		int endIndex = findStatementIndex(previousTokenList, editEnd, false);
+
+		// Tokenize the affected statements again, extend them until they can be tokenized independently
+		Tokenizer regionTokenizer;
+		int start;
+		int extensionCount = 1;
+		while (true) {
+			start = (startIndex == 0) ? 0 : previousTokenList.get(startIndex).getOffset();
+			int end = (endIndex == previousTokenList.size()) ? previousInput.length()
+					: previousTokenList.get(endIndex).getOffset();
+			regionTokenizer = new Tokenizer(input.substring(start, end + delta));
+			regionTokenizer.tokenize();
+			List<Token> regionTokenList = regionTokenizer.getTokenList();
+			boolean validStart = startIndex == 0 || (!regionTokenList.isEmpty()
+					&& regionTokenList.get(0).getTokenType() == TokenType.PRIMARY_XML_TAG);
+			boolean validEnd = endIndex == previousTokenList.size() || !regionTokenizer.isIncomplete();
+			if (validStart && validEnd) {
+				break;
+			}
+			for (int i = 0; i < extensionCount; i++) { // extending more and more keeps worst case linear
+				if (!validStart && startIndex > 0) {
+					int offset = previousTokenList.get(startIndex).getOffset();
+					startIndex = findStatementIndex(previousTokenList, offset, true);
+				}
+				if (!validEnd && endIndex < previousTokenList.size()) {
+					int offset = previousTokenList.get(endIndex).getOffset();
+					endIndex = findStatementIndex(previousTokenList, offset + 1, false);
+				}
+			}
+			extensionCount *= 2;
+		}
+
+		// Put the tokens of the affected statements in between the unaffected ones
+		Token rootToken = new Token(); // its value is not needed, so it is not built
+		List<Token> tokenList = rootToken.getTokenList();
+		tokenList.addAll(previousTokenList.subList(0, startIndex));
+		for (Token token : regionTokenizer.getTokenList()) {
+			token.shiftOffset(start);
+			tokenList.add(token);
+		}
+		for (Token token : previousTokenList.subList(endIndex, previousTokenList.size())) {
+			token.shiftOffset(delta);
+			tokenList.add(token);
+		}
+		rootToken.setTokenType(TokenType.ROOT);
+		boolean incomplete = (endIndex == previousTokenList.size()) ? regionTokenizer.isIncomplete()
+				: previous.isIncomplete();
+		return new Tokenizer(input, rootToken, incomplete);
+	}
+
+	/**
+	 * Find the index of the top level token that starts the statement before or after the given offset. A
+	 * statement starts with a primary xml tag or at the beginning of the input.
+	 * 
+	 * @param tokenList
+	 *            The top level tokens.
+	 * @param offset
+	 *            The index of a character in the input string.
+	 * @param before
+	 *            True to find the last statement that starts before the offset, false to find the first
+	 *            statement that starts at or after the offset.
+	 * @return The index of the token, 0 for the beginning or tokenList.size() for the end of the input.
+	 */
+	public static int findStatementIndex(List<Token> tokenList, int offset, boolean before) {
+
+		// Find the first token at or after the offset by binary search
+		int low = 0;
+		int high = tokenList.size();
+		while (low < high) {
+			int middle = (low + high) >>> 1;
+			if (tokenList.get(middle).getOffset() < offset) {
+				low = middle + 1;
+			} else {
+				high = middle;
+			}
+		}
+
+		// Look for the nearest primary xml tag from there
+		int index = low;
+		if (before) {
+			do {
+				index--;
+			} while (index > 0 && tokenList.get(index).getTokenType() != TokenType.PRIMARY_XML_TAG);
+			return Math.max(index, 0);
+		}
+		while (index < tokenList.size() && tokenList.get(index).getTokenType() != TokenType.PRIMARY_XML_TAG) {
+			index++;
+		}
+		return index;
+	}
+
 	/**
 	 * Parse input string into {@link Token} objects.
 	 */
 	public void tokenize() {
-		addSubtokens(rootToken, false);
+		parse();
 		TokenTypeDeterminer.determineTokenTypes(rootToken);
 	}
 
+	/**
+	 * Parse input string into {@link Token} objects without determining their types, see
+	 * {@link TokenTypeDeterminer#determineTokenTypes(Token)}.
+	 */
+	public void parse() {
+		addSubtokens(rootToken, false);
+	}
+
+	/**
+	 * Returns the top level token that contains all tokens of the input as children.
+	 * 
+	 * @return The root token.
+	 */
+	public Token getRootToken() {
+		return rootToken;
+	}
+
 	/**
 	 * Returns the result of the tokenizing (the {@link Token} objects). Use {@link #tokenize()} before to
 	 * start tokenizing.
@@ -118,6 +271,27 @@ public class Tokenizer {
 		return rootToken.getTokenList();
 	}
 
+	/**
+	 * Returns the input string that is or has been parsed into {@link Token} objects.
+	 * 
+	 * @return The input string.
+	 */
+	public String getInput() {
+		return input;
+	}
+
+	/**
+	 * Returns true if the input ended before the last token was complete, e.g. within an xml tag, an xml
+	 * comment, a string or an sql comment. Input that directly follows such an input would have been
+	 * tokenized differently if both had been tokenized at once.
+	 * 
+	 * @return True if tokenizing ended within a token.
+	 */
+	public boolean isIncomplete() {
+		return inXmlTag || inXmlComment || inDoubleString || inSingleString || inMyBatisReference
+				|| inCharacterData || inSqlComment;
+	}
+
 	/**
 	 * Return a string representation of the tokenizing results (the {@link Token} objects). The output is
 	 * primarily useful for JUnit tests.
@@ -165,7 +339,23 @@ public class Tokenizer {
 	 */
 	private Token nextToken() {
 		Token token = new Token();
+		token.setOffset(head);
+		collect(token);
+		token.setLength(head - token.getOffset());
+		return token;
+	}
+
+	/**
+	 * Collect the characters of the next token from the input string.
+	 * 
+	 * @param token
+	 *            The token that receives the characters.
+	 */
+	private void collect(Token token) {
 		while (head < input.length()) {
+			if ((head & INTERRUPT_CHECK_MASK) == 0 && Thread.currentThread().isInterrupted()) {
+				throw new CancellationException("Tokenizing interrupted at character position " + head);
+			}
 			consume = input.substring(head, head + 1);
 			switch (deriveAction(token)) {
 			case CONSUME:
@@ -174,15 +364,14 @@ public class Tokenizer {
 			case CONSUME_AND_RECURSE_AND_RETURN_TOKEN:
 				consume(token);
 				addSubtokens(token, true);
-				return token;
+				return;
 			case CONSUME_AND_RETURN_TOKEN:
 				consume(token);
-				return token;
+				return;
 			case RETURN_PREVIOUS_TOKEN:
-				return token;
+				return;
 			}
 		}
-		return token;
 	}
 
 	/**
@@ -343,14 +532,22 @@ public class Tokenizer {
 
 	/**
 	 * Check if the character at the current character position is a linebreak character. Neither StringUtils
-	 * nor Character contains an isLinebreak() method. The solution used is that described herein:
-	 * https://stackoverflow.com/a/25915115
+	 * nor Character contains an isLinebreak() method. The characters checked are those not matched by the
+	 * regular expression "." as described herein: https://stackoverflow.com/a/25915115
 	 * 
 	 * @return True if the input at the character position is a linebreak character.
 	 */
 	boolean upcomingStartsWithLinebreak() {
-		char characterAtHead = input.charAt(head);
-		return (!String.valueOf(characterAtHead).matches("."));
+		switch (input.charAt(head)) {
+		case '\n':
+		case '\r':
+		case '\u0085':
+		case '\u2028':
+		case '\u2029':
+			return true;
+		default:
+			return false;
+		}
 	}
 
 	/**
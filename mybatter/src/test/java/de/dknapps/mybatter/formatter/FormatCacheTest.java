@@ -0,0 +1,83 @@
+/*
+ * MyBatter - Formats your MyBatis mapper XML files
+ *
+ *     Copyright (C) 2018 Uwe Damken
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package de.dknapps.mybatter.formatter;
+
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InvalidClassException;
+import java.io.ObjectInputStream;
+import java.io.ObjectOutputStream;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+
+import org.junit.Test;
+
+import junit.framework.TestCase;
+
+public class FormatCacheTest extends TestCase {
+
+	private File file;
+
+	@Override
+	protected void setUp() throws IOException {
+		file = File.createTempFile("mybatter", ".cache");
+	}
+
+	@Override
+	protected void tearDown() {
+		file.delete();
+	}
+
+	@Test
+	public void test_load_withForeignObject() throws IOException {
+		List<Object[]> keyAndEntryList = new ArrayList<>();
+		keyAndEntryList.add(new Object[] { new HashMap<>(Collections.singletonMap("a", "b")), null });
+		writeCacheFile(keyAndEntryList);
+		try {
+			FormatCache.load(file, FormatCache.DEFAULT_MAX_ENTRY_COUNT);
+			fail("IOException expected");
+		} catch (InvalidClassException e) {
+			assertTrue(e.getMessage(), e.getMessage().contains(HashMap.class.getName()));
+		}
+	}
+
+	@Test
+	public void test_load_withEmptyCache() throws IOException {
+		new FormatCache(10).save(file);
+		assertEquals(0, FormatCache.load(file, 10).size());
+	}
+
+	private void writeCacheFile(Object keyAndEntryList) throws IOException {
+		new FormatCache(10).save(file); // to obtain the version of the file
+		Object version;
+		try (ObjectInputStream in = new ObjectInputStream(new FileInputStream(file))) {
+			version = in.readObject();
+		} catch (ClassNotFoundException e) {
+			throw new IOException(e);
+		}
+		try (ObjectOutputStream out = new ObjectOutputStream(new FileOutputStream(file))) {
+			out.writeObject(version);
+			out.writeObject(keyAndEntryList);
+		}
+	}
+
+}
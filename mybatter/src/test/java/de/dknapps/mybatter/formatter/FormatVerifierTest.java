@@ -0,0 +1,63 @@
+/*
+ * MyBatter - Formats your MyBatis mapper XML files
+ *
+ *     Copyright (C) 2018 Uwe Damken
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package de.dknapps.mybatter.formatter;
+
+import org.junit.Test;
+
+import junit.framework.TestCase;
+
+public class FormatVerifierTest extends TestCase {
+
+	private static final String INPUT = "<?xml version=\"1.0\"?>\n<mapper namespace=\"a\" >"
+			+ "<select id=\"s\">select a,b from t -- all\n-- rows\nwhere c in ('x  y',#{c}) and d='z'"
+			+ "<![CDATA[ and e <  f ]]></select><!-- end  --></mapper>";
+
+	@Test
+	public void test_verify_whitespaceOnly() {
+		assertNull(FormatVerifier.verify(INPUT, INPUT));
+		assertNull(FormatVerifier.verify(INPUT, new Formatter().format(INPUT)));
+		assertNull(FormatVerifier.verify(INPUT,
+				"<?xml version=\"1.0\"?>\n<mapper namespace=\"a\">\n  <select id=\"s\">\n    select\n      a ,\n"
+						+ "      b\n    from t -- all -- rows\n    where c in ( 'x  y', #{c} ) and d='z'\n"
+						+ "    <![CDATA[ and e <  f ]]>\n  </select>\n  <!--  end -->\n</mapper>\n"));
+	}
+
+	@Test
+	public void test_verify_operators() {
+		assertNull(FormatVerifier.verify("a='z' and b>=#{b}", "a= 'z' and b>= #{b}"));
+		assertNull(FormatVerifier.verify("a = 'z'", "a ='z'"));
+	}
+
+	@Test
+	public void test_verify_differences() {
+		assertEquals("line 2: 'from' has become 'form'",
+				FormatVerifier.verify("select a\nfrom t", "select a\nform t"));
+		assertEquals("line 1: ''x  y'' has become ''x y''", FormatVerifier.verify("'x  y'", "'x y'"));
+		assertEquals("line 1: ''z'' has been separated from the token before",
+				FormatVerifier.verify("N'z'", "N 'z'"));
+		assertEquals("line 1: ''z'' has been joined with the token before", FormatVerifier.verify("N 'z'", "N'z'"));
+		assertEquals("line 1: ''s'' has been separated from the token before",
+				FormatVerifier.verify("'it''s'", "'it' 's'"));
+		assertEquals("line 1: 't' has been removed", FormatVerifier.verify("a t", "a"));
+		assertEquals("line 1: end of input has been added before 't'", FormatVerifier.verify("a", "a t"));
+		assertEquals("line 1: '-- c' has become '-- c where'", FormatVerifier.verify("-- c\nwhere", "-- c where"));
+		assertEquals("line 1: '<![CDATA[ a <  b ]]>' has become '<![CDATA[ a < b ]]>'",
+				FormatVerifier.verify("<![CDATA[ a <  b ]]>", "<![CDATA[ a < b ]]>"));
+	}
+
+}
@@ -19,6 +19,11 @@ package de.dknapps.mybatter.formatter;
 
 import static org.junit.Assert.assertEquals;
 import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertTrue;
+
+import java.util.List;
+import java.util.NavigableMap;
+import java.util.TreeMap;
 
 import org.apache.commons.lang3.StringUtils;
 import org.junit.Rule;
@@ -28,6 +33,7 @@ import org.junit.runners.model.FrameworkMethod;
 import org.junit.runners.model.Statement;
 
 import de.dknapps.mybatter.tokenizer.TokenType;
+import de.dknapps.mybatter.tokenizer.Tokenizer;
 
 public class FormatterTest {
 
@@ -819,6 +825,112 @@ public class FormatterTest {
 		checkResultLines(lines, new Formatter().format(expanded(lines)));
 	}
 
+	@Test
+	public void test_formatRange_singleStatement() {
+		String[] lines = new String[] { //
+				"<mapper>", //
+				"", //
+				"\t<select>", //
+				"\t\tselect", //
+				"\t\t\ta", //
+				"\t\tfrom", //
+				"\t\t\ttable", //
+				"\t</select>", //
+				"", //
+				"\t<delete>", //
+				"\t\tdelete from", //
+				"\t\t\ttable", //
+				"\t</delete>", //
+				"", //
+				"</mapper>" };
+		String input = "<mapper><select>select  a from table</select>\n<delete>delete from table</delete></mapper>";
+		String formatted = regular(lines);
+
+		// Only the select statement is formatted, the delete statement is left as it is
+		List<TextEdit> editList = new Formatter().formatRange(input, 20, 22);
+		assertEquals(1, editList.size());
+		String expected = formatted.substring(0, formatted.indexOf("</select>") + 9) + "\n"
+				+ "<delete>delete from table</delete></mapper>";
+		assertEquals(expected, editList.get(0).applyTo(input));
+
+		// The delete statement is formatted with the indention of the mapper tag although it is not formatted
+		editList = new Formatter().formatRange(input, input.indexOf("<delete>"), input.indexOf("<delete>"));
+		assertEquals(1, editList.size());
+		expected = "<mapper><select>select  a from table</select>"
+				+ formatted.substring(formatted.indexOf("</select>") + 9);
+		assertEquals(expected, editList.get(0).applyTo(input));
+
+		// Nothing to be done for a well-formatted input
+		assertTrue(new Formatter().formatRange(formatted, 0, formatted.length()).isEmpty());
+	}
+
+	@Test
+	public void test_formatRange_sameAsFormat() {
+		String input = "<?xml version=\"1.0\"?><mapper namespace=\"x\"><sql id=\"a\">a, b</sql>"
+				+ "<select id=\"b\">select <include refid=\"a\"/> from t where a = 1 and b = 2</select>"
+				+ "<!-- comment --><update id=\"c\">update t set a = #{a}</update></mapper>";
+		String expected = new Formatter().format(input);
+		for (int start = 0; start < input.length(); start += 7) {
+			for (int end = start; end <= input.length(); end += 11) {
+				String actual = input;
+				List<TextEdit> editList = new Formatter().formatRange(actual, start, end);
+				for (TextEdit edit : editList) {
+					actual = edit.applyTo(actual);
+				}
+				// Formatting the rest of the input must lead to the same result as formatting all of it
+				editList = new Formatter().formatRange(actual, 0, actual.length());
+				for (TextEdit edit : editList) {
+					actual = edit.applyTo(actual);
+				}
+				assertEquals(expected, actual);
+			}
+		}
+	}
+
+	@Test
+	public void test_formatRange_resumesFromStartStates() {
+		String input = "<mapper><select>select a from t</select><update>update t set a = 1</update>"
+				+ "<delete>delete from t</delete></mapper>";
+		Tokenizer tokenizer = new Tokenizer(input);
+		tokenizer.tokenize();
+		int updateOffset = input.indexOf("<update>");
+		int deleteOffset = input.indexOf("<delete>");
+
+		// The dry run passes the statement starts before the range and keeps their states
+		NavigableMap<Integer, FormatterState> startStateMap = new TreeMap<>();
+		List<TextEdit> editList = new Formatter().formatRange(tokenizer, deleteOffset, deleteOffset, startStateMap);
+		assertEquals(new Formatter().formatRange(tokenizer, deleteOffset, deleteOffset), editList);
+		assertEquals(3, startStateMap.size());
+		assertTrue(startStateMap.containsKey(updateOffset));
+		assertTrue(startStateMap.containsKey(deleteOffset));
+
+		// The prefix up to the nearest statement start is not dry run again, a modified state shows through
+		FormatterState state = startStateMap.get(updateOffset);
+		startStateMap.put(updateOffset, new FormatterState(state.isWritten(), state.getLineLength(),
+				state.getIndention() + 2, state.getBlankCount(), state.getIndentionStack(),
+				state.getPreviousTokenType()));
+		startStateMap.remove(deleteOffset);
+		String text = new Formatter().formatRange(tokenizer, deleteOffset, deleteOffset, startStateMap).get(0)
+				.getText();
+		assertEquals(editList.get(0).getText().replaceAll("\n(?=.)", "\n        "), text);
+	}
+
+	@Test
+	public void test_formatRange_withStartStates() {
+		String input = "<?xml version=\"1.0\"?><mapper namespace=\"x\"><sql id=\"a\">a, b</sql>"
+				+ "<select id=\"b\">select <include refid=\"a\"/> from t where a = 1 and b = 2</select>"
+				+ "<!-- comment --><update id=\"c\">update t set a = #{a}</update></mapper>";
+		Tokenizer tokenizer = new Tokenizer(input);
+		tokenizer.tokenize();
+		NavigableMap<Integer, FormatterState> startStateMap = new TreeMap<>();
+		for (int start = input.length(); start >= 0; start -= 5) {
+			for (int end = start; end <= input.length(); end += 13) {
+				assertEquals(new Formatter().formatRange(tokenizer, start, end),
+						new Formatter().formatRange(tokenizer, start, end, startStateMap));
+			}
+		}
+	}
+
 	private String compact(String[] lines) {
 		return String.join("", lines) // join lines very tight
 				.replaceAll("\t", "") // join characters very tight
@@ -0,0 +1,38 @@
+/*
+ * MyBatter - Formats your MyBatis mapper XML files
+ *
+ *     Copyright (C) 2018 Uwe Damken
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package de.dknapps.mybatter.formatter;
+
+/**
+ * Cache that runs a hook whenever a formatted statement is added, e.g. to block or fail formatting within the
+ * tasks of a {@link ParallelFormatter}.
+ */
+public class HookedFormatCache extends FormatCache {
+
+	private final Runnable putHook;
+
+	public HookedFormatCache(Runnable putHook) {
+		this.putHook = putHook;
+	}
+
+	@Override
+	void put(Key key, Entry entry) {
+		putHook.run();
+		super.put(key, entry);
+	}
+
+}
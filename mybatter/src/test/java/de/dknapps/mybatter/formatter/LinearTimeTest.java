@@ -0,0 +1,102 @@
+/*
+ * MyBatter - Formats your MyBatis mapper XML files
+ *
+ *     Copyright (C) 2018 Uwe Damken
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package de.dknapps.mybatter.formatter;
+
+import java.util.concurrent.CancellationException;
+
+import org.apache.commons.lang3.StringUtils;
+import org.junit.Test;
+
+import junit.framework.TestCase;
+
+/**
+ * Formats broken inputs that make the tokenizer swallow the rest of the input into a single token. These took
+ * quadratic time before, now each of them has to be formatted within a generous time limit.
+ */
+public class LinearTimeTest extends TestCase {
+
+	/** Size of the part of the input that gets swallowed */
+	private static final int SIZE = 1 << 20;
+
+	/** Time limit for tokenizing and formatting a single input */
+	private static final long TIME_LIMIT_MILLIS = 10000;
+
+	@Test
+	public void test_unterminatedDoubleString() {
+		assertFormattedInTime("<mapper><select id=\"" + StringUtils.repeat('x', SIZE) + "</mapper>");
+	}
+
+	@Test
+	public void test_unterminatedSingleString() {
+		assertFormattedInTime("<mapper><select>select '" + StringUtils.repeat('x', SIZE) + "</select></mapper>");
+	}
+
+	@Test
+	public void test_unterminatedMyBatisReference() {
+		assertFormattedInTime("<mapper><select>select ${" + StringUtils.repeat('x', SIZE) + "</select></mapper>");
+	}
+
+	@Test
+	public void test_unterminatedXmlComment() {
+		assertFormattedInTime("<mapper><!--" + StringUtils.repeat("<select/>", SIZE / 9) + "</mapper>");
+	}
+
+	@Test
+	public void test_unterminatedCharacterData() {
+		assertFormattedInTime("<mapper><select><![CDATA[" + StringUtils.repeat("a < b ", SIZE / 6) + "</mapper>");
+	}
+
+	@Test
+	public void test_manyAndsWithoutContext() {
+		assertFormattedInTime(
+				"<mapper><select>select * from t where " + StringUtils.repeat("#{a} and ", SIZE / 9)
+						+ "1 = 1</select></mapper>");
+	}
+
+	@Test
+	public void test_manyFromsWithoutContext() {
+		assertFormattedInTime("<mapper><delete>" + StringUtils.repeat("from t ", SIZE / 7) + "</delete></mapper>");
+	}
+
+	@Test
+	public void test_interruptedFormatting() {
+		Thread.currentThread().interrupt();
+		try {
+			new Formatter().format("<mapper><select>select * from t</select></mapper>");
+			fail("Formatting should have been cancelled");
+		} catch (CancellationException e) {
+			// expected
+		} finally {
+			Thread.interrupted();
+		}
+	}
+
+	/**
+	 * Formats the input and fails if that takes longer than {@link #TIME_LIMIT_MILLIS}.
+	 * 
+	 * @param input
+	 *            The broken input.
+	 */
+	private void assertFormattedInTime(String input) {
+		long start = System.nanoTime();
+		new Formatter().format(input);
+		long millis = (System.nanoTime() - start) / 1000000;
+		assertTrue("Formatting " + input.length() + " characters took " + millis + " ms", millis < TIME_LIMIT_MILLIS);
+	}
+
+}
@@ -0,0 +1,165 @@
+/*
+ * MyBatter - Formats your MyBatis mapper XML files
+ *
+ *     Copyright (C) 2018 Uwe Damken
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package de.dknapps.mybatter.formatter;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
+
+import org.junit.Test;
+
+public class ParallelFormatterTest {
+
+	private static final String HEADER = "<?xml version=\"1.0\" encoding=\"UTF-8\" ?>\n"
+			+ "<!DOCTYPE mapper PUBLIC \"-//mybatis.org//DTD Mapper 3.0//EN\" \"http://mybatis.org/dtd/mybatis-3-mapper.dtd\">\n"
+			+ "<mapper namespace=\"de.dknapps.mybatter.mapper.TableMapper\">\n";
+
+	private static final String FOOTER = "</mapper>\n";
+
+	@Test
+	public void test_format_sameAsSequential() {
+		StringBuilder sb = new StringBuilder(HEADER);
+		sb.append("<cache/>\n<resultMap id=\"data\" type=\"Data\">\n<result column=\"A\" property=\"a\"/>\n</resultMap>\n");
+		for (int i = 0; i < 50; i++) {
+			sb.append("<select id=\"select").append(i).append("\">select a, b from table").append(i)
+					.append(" where a between 1 and 2 and b = #{b}</select>\n");
+			sb.append("<sql id=\"fields").append(i).append("\">a, b, c</sql>\n");
+			sb.append("<delete id=\"delete").append(i).append("\">DELETE FROM table where a = 'X'</delete>\n");
+		}
+		sb.append(FOOTER);
+		assertSameAsSequential(sb.toString());
+	}
+
+	@Test
+	public void test_format_primaryXmlTagsThatDoNotStartStatements() {
+		assertSameAsSequential(HEADER //
+				+ "<select id=\"a\">select a <!-- <select id=\"b\"> --> from table</select>\n" //
+				+ "<select id=\"c\">select <![CDATA[ <select id=\"d\"> ]]> from table</select>\n" //
+				+ "<select id=\"e\">select '<select id=\"f\">' from table</select>\n" //
+				+ "<select id=\"g\">select ${<select} from table</select>\n" //
+				+ "<select id=\"h\">select a -- comment <select id=\"i\">\nfrom table</select>\n" //
+				+ "<sql id=\"j\"/>\n" //
+				+ "<select id=\"k\">select a from table</select>\n" //
+				+ FOOTER);
+	}
+
+	@Test
+	public void test_format_danglingTokens() {
+		assertSameAsSequential(HEADER + "<select id=\"a\">select a from <!-- table</select>\n"
+				+ "<select id=\"b\">select b from table</select>\n" + "<select id=\"c\">select '</select>\n"
+				+ "<select id=\"d\">select d from table</select>\n" + FOOTER);
+		assertSameAsSequential("<select>");
+		assertSameAsSequential("");
+	}
+
+	@Test
+	public void test_format_withCache() throws IOException {
+		FormatCache cache = new FormatCache();
+		ParallelFormatter formatter = new ParallelFormatter(ForkJoinPool.commonPool(), cache);
+		String input = createMapper(20);
+		assertEquals(new Formatter().format(input), formatter.format(input));
+		assertEquals(0, cache.getHitCount());
+
+		// Change a single statement, all others are taken from the cache
+		String changedInput = input.replace("table7 where", "table7 x where");
+		assertEquals(new Formatter().format(changedInput), formatter.format(changedInput));
+		assertEquals(40, cache.getHitCount());
+
+		// Change indention of all following statements, these must not be taken from the cache
+		String unindentedInput = input.replace("<select id=\"select9\">", "</mapper><select id=\"select9\">");
+		assertEquals(new Formatter().format(unindentedInput), formatter.format(unindentedInput));
+		assertEquals(40 + 18, cache.getHitCount());
+
+		// Use the cache saved to a file
+		File file = File.createTempFile("mybatter", ".cache");
+		try {
+			cache.save(file);
+			FormatCache loadedCache = FormatCache.load(file, FormatCache.DEFAULT_MAX_ENTRY_COUNT);
+			assertEquals(cache.size(), loadedCache.size());
+			assertEquals(new Formatter().format(unindentedInput),
+					new ParallelFormatter(ForkJoinPool.commonPool(), loadedCache).format(unindentedInput));
+			assertEquals(0, loadedCache.getMissCount());
+		} finally {
+			file.delete();
+		}
+	}
+
+	@Test
+	public void test_format_interrupted() throws InterruptedException {
+		ForkJoinPool pool = new ForkJoinPool(2);
+		CountDownLatch started = new CountDownLatch(1);
+		AtomicInteger formattingCount = new AtomicInteger();
+		AtomicInteger interruptedCount = new AtomicInteger();
+		FormatCache cache = new HookedFormatCache(() -> {
+			formattingCount.incrementAndGet();
+			started.countDown();
+			try {
+				new CountDownLatch(1).await(); // formatting a statement takes forever unless interrupted
+			} catch (InterruptedException e) {
+				interruptedCount.incrementAndGet();
+				Thread.currentThread().interrupt();
+			}
+		});
+		String input = createMapper(50);
+		AtomicReference<RuntimeException> exception = new AtomicReference<>();
+		Thread thread = new Thread(() -> {
+			try {
+				new ParallelFormatter(pool, cache).format(input);
+			} catch (RuntimeException e) {
+				exception.set(e);
+			}
+		});
+		thread.setDaemon(true);
+		thread.start();
+		started.await();
+		thread.interrupt();
+		thread.join(10000);
+		assertFalse(thread.isAlive());
+		assertTrue(String.valueOf(exception.get()), exception.get() instanceof CancellationException);
+		assertTrue(pool.awaitQuiescence(10, TimeUnit.SECONDS));
+		assertEquals(formattingCount.get(), interruptedCount.get());
+		assertTrue(formattingCount.get() <= 3); // statements not started yet have been skipped
+		pool.shutdown();
+	}
+
+	private String createMapper(int statementCount) {
+		StringBuilder sb = new StringBuilder(HEADER);
+		for (int i = 0; i < statementCount; i++) {
+			sb.append("<select id=\"select").append(i).append("\">select a, b from table").append(i)
+					.append(" where a = 1</select>\n");
+			sb.append("<delete id=\"delete").append(i).append("\">DELETE FROM table where a = 'X'</delete>\n");
+		}
+		return sb.append(FOOTER).toString();
+	}
+
+	private void assertSameAsSequential(String input) {
+		String expected = new Formatter().format(input);
+		assertEquals(expected, new ParallelFormatter().format(input));
+		assertEquals(expected, new ParallelFormatter(80, 4, new ForkJoinPool(1)).format(input));
+	}
+
+}
@@ -0,0 +1,49 @@
+/*
+ * MyBatter - Formats your MyBatis mapper XML files
+ *
+ *     Copyright (C) 2018 Uwe Damken
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package de.dknapps.mybatter.formatter;
+
+import org.junit.Test;
+
+import junit.framework.TestCase;
+
+public class SqlFormatCacheTest extends TestCase {
+
+	@Test
+	public void test_format() {
+		SqlFormatCache cache = new SqlFormatCache();
+		String expected = "select\n    a\nfrom\n    t\nwhere\n    b < ?\n    and c = '&lt;'";
+		assertEquals(expected, cache.format("s", "select a from t where b < ? and c = '&lt;'"));
+		assertEquals(expected, cache.format("s", "select a from t where b < ? and c = '&lt;'"));
+		assertEquals(expected, cache.format("t", "select a from t where b < ? and c = '&lt;'"));
+		assertEquals(1, cache.getHitCount());
+		assertEquals(2, cache.getMissCount());
+		assertEquals(2, cache.size());
+	}
+
+	@Test
+	public void test_format_bounded() {
+		SqlFormatCache cache = new SqlFormatCache(32);
+		for (int i = 0; i < 1000; i++) {
+			cache.format("", "select a" + i + " from t");
+		}
+		assertTrue(cache.size() <= 32);
+		cache.format("", "select a999 from t");
+		assertEquals(1, cache.getHitCount()); // the most recently used one is still there
+	}
+
+}
@@ -0,0 +1,64 @@
+/*
+ * MyBatter - Formats your MyBatis mapper XML files
+ *
+ *     Copyright (C) 2018 Uwe Damken
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package de.dknapps.mybatter.jfr;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+
+import org.junit.Test;
+
+import de.dknapps.mybatter.formatter.Formatter;
+import de.dknapps.mybatter.statistics.FileStatistics;
+import jdk.jfr.Recording;
+import jdk.jfr.consumer.RecordedEvent;
+import jdk.jfr.consumer.RecordingFile;
+import junit.framework.TestCase;
+
+public class PhaseEventsTest extends TestCase {
+
+	private static final String INPUT = "<mapper><select>select a from t</select></mapper>";
+
+	@Test
+	public void test_phaseEventsRecorded() throws IOException {
+		File file = File.createTempFile("mybatter", ".jfr");
+		try (Recording recording = new Recording()) {
+			recording.enable("de.dknapps.mybatter.Tokenize").withoutThreshold();
+			recording.enable("de.dknapps.mybatter.Typing").withoutThreshold();
+			recording.enable("de.dknapps.mybatter.Format").withoutThreshold();
+			recording.start();
+			new Formatter().format(INPUT, new FileStatistics("test.xml"));
+			recording.stop();
+			recording.dump(file.toPath());
+			List<String> eventNameList = new ArrayList<>();
+			for (RecordedEvent event : RecordingFile.readAllEvents(file.toPath())) {
+				eventNameList.add(event.getEventType().getName());
+				assertEquals("test.xml", event.getString("path"));
+				assertEquals(INPUT.length(), event.getLong("bytes"));
+				assertEquals(8, event.getLong("tokenCount"));
+			}
+			assertTrue(eventNameList.toString(), eventNameList.contains("de.dknapps.mybatter.Tokenize"));
+			assertTrue(eventNameList.toString(), eventNameList.contains("de.dknapps.mybatter.Typing"));
+			assertTrue(eventNameList.toString(), eventNameList.contains("de.dknapps.mybatter.Format"));
+		} finally {
+			file.delete();
+		}
+	}
+
+}
@@ -0,0 +1,87 @@
+/*
+ * MyBatter - Formats your MyBatis mapper XML files
+ *
+ *     Copyright (C) 2018 Uwe Damken
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package de.dknapps.mybatter.main;
+
+import java.io.IOException;
+import java.io.PipedReader;
+import java.io.PipedWriter;
+import java.io.StringReader;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.List;
+
+import org.junit.Test;
+
+import junit.framework.TestCase;
+
+public class FileListReaderTest extends TestCase {
+
+	@Test
+	public void testLineBreaks() {
+		assertEquals(Arrays.asList(Paths.get("a.xml"), Paths.get("b c.xml"), Paths.get("d.xml")),
+				read("a.xml\r\nb c.xml\n\nd.xml"));
+	}
+
+	@Test
+	public void testNulCharacters() {
+		assertEquals(Arrays.asList(Paths.get("a.xml"), Paths.get("b\nc.xml"), Paths.get("d.xml")),
+				read("a.xml\0b\nc.xml\0\0d.xml\0"));
+	}
+
+	@Test
+	public void testEmpty() {
+		assertEquals(Arrays.asList(), read("\n\n"));
+	}
+
+	@Test
+	public void testReadLazily() throws IOException {
+		PipedWriter writer = new PipedWriter();
+		try (FileListReader fileListReader = new FileListReader(new PipedReader(writer))) {
+			Iterator<Path> iterator = fileListReader.iterator();
+			writer.write("a.xml\n");
+			writer.flush();
+			assertEquals(Paths.get("a.xml"), iterator.next()); // the list has not ended yet
+			writer.write("b.xml");
+			writer.close();
+			assertEquals(Paths.get("b.xml"), iterator.next());
+			assertFalse(iterator.hasNext());
+		}
+	}
+
+	@Test
+	public void testReadOnce() {
+		FileListReader fileListReader = new FileListReader(new StringReader("a.xml"));
+		fileListReader.iterator();
+		try {
+			fileListReader.iterator();
+			fail("IllegalStateException expected");
+		} catch (IllegalStateException e) {
+			// expected
+		}
+	}
+
+	private static List<Path> read(String list) {
+		List<Path> pathList = new ArrayList<>();
+		new FileListReader(new StringReader(list)).forEach(pathList::add);
+		return pathList;
+	}
+
+}
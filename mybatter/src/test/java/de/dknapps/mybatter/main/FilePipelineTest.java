@@ -0,0 +1,106 @@
+/*
+ * MyBatter - Formats your MyBatis mapper XML files
+ *
+ *     Copyright (C) 2018 Uwe Damken
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package de.dknapps.mybatter.main;
+
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import org.apache.commons.io.FileUtils;
+import org.junit.Test;
+
+import de.dknapps.mybatter.formatter.Formatter;
+import junit.framework.TestCase;
+
+public class FilePipelineTest extends TestCase {
+
+	private static final String INPUT = "<mapper><select>select a from t where b = #{b}</select></mapper>";
+
+	@Test
+	public void test_byteBudget() throws Exception {
+		FilePipeline.ByteBudget budget = new FilePipeline.ByteBudget(100);
+		budget.acquire(60);
+		CountDownLatch acquired = new CountDownLatch(1);
+		Thread thread = new Thread(() -> {
+			try {
+				budget.acquire(100); // larger than what is left, granted when nothing else is in flight
+				acquired.countDown();
+			} catch (InterruptedException e) {
+				Thread.currentThread().interrupt();
+			}
+		});
+		thread.start();
+		assertFalse(acquired.await(100, TimeUnit.MILLISECONDS));
+		budget.release(60);
+		assertTrue(acquired.await(5, TimeUnit.SECONDS));
+		assertEquals(100, budget.getBytesInFlight());
+		budget.release(100);
+		assertEquals(0, budget.getBytesInFlight());
+	}
+
+	@Test
+	public void test_formatAll() throws Exception {
+		List<Path> directoryList = new ArrayList<>();
+		try {
+			for (int i = 0; i < 3; i++) {
+				Path directory = Files.createTempDirectory("mybatter");
+				directoryList.add(directory);
+				for (int j = 0; j < 20; j++) {
+					Files.write(directory.resolve("m" + j + ".xml"), INPUT.getBytes(StandardCharsets.UTF_8));
+				}
+			}
+			Map<Path, Integer> fileCountPerDirectory = new ConcurrentHashMap<>();
+			MyBatterRunner runner = new MyBatterRunner();
+			runner.addListener(new RunListener() {
+
+				@Override
+				public void directoryFormatted(Path directory, int fileCount) {
+					fileCountPerDirectory.put(directory, fileCount);
+				}
+
+			});
+			FormatOptions options = new FormatOptions();
+			options.setParallel(true);
+			options.setIoThreads(2);
+			options.setMaxInFlightBytes(FilePipeline.HEAP_BYTES_PER_FILE_BYTE * INPUT.length() * 3 / 2); // one file
+			RunResult result = runner.formatAll(directoryList, options);
+			assertEquals(60, result.getFormattedCount());
+			assertEquals(60, result.getChangedCount());
+			assertEquals(0, result.getFailedCount());
+			String expected = new Formatter().format(INPUT);
+			for (Path directory : directoryList) {
+				assertEquals(Integer.valueOf(20), fileCountPerDirectory.get(directory));
+				for (int j = 0; j < 20; j++) {
+					assertEquals(expected, new String(Files.readAllBytes(directory.resolve("m" + j + ".xml")),
+							StandardCharsets.UTF_8));
+				}
+			}
+		} finally {
+			for (Path directory : directoryList) {
+				FileUtils.deleteDirectory(directory.toFile());
+			}
+		}
+	}
+
+}
@@ -0,0 +1,124 @@
+/*
+ * MyBatter - Formats your MyBatis mapper XML files
+ *
+ *     Copyright (C) 2018 Uwe Damken
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package de.dknapps.mybatter.main;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+import org.apache.commons.io.FileUtils;
+import org.apache.commons.io.IOUtils;
+import org.junit.Test;
+
+import junit.framework.TestCase;
+
+public class GitChangesTest extends TestCase {
+
+	private Path repository;
+
+	@Override
+	protected void setUp() throws Exception {
+		repository = Files.createTempDirectory("mybatter-git").toRealPath();
+		git("init", "-q");
+		git("config", "user.email", "test@example.com");
+		git("config", "user.name", "Test");
+		write("mapper/AMapper.xml");
+		write("mapper/BMapper.xml");
+		write("mapper/sub/CMapper.xml");
+		write("README.md");
+		git("add", ".");
+		git("commit", "-q", "-m", "initial");
+	}
+
+	@Override
+	protected void tearDown() throws IOException {
+		FileUtils.deleteDirectory(repository.toFile());
+	}
+
+	@Test
+	public void testStaged() throws Exception {
+		write("mapper/AMapper.xml", "<mapper><select/></mapper>");
+		write("mapper/DMapper.xml");
+		git("add", "mapper/DMapper.xml");
+		assertEquals(Collections.singletonList(repository.resolve("mapper/DMapper.xml")),
+				GitChanges.staged(repository.toFile()));
+	}
+
+	@Test
+	public void testChangedSince() throws Exception {
+		write("mapper/AMapper.xml", "<mapper><select/></mapper>");
+		write("mapper/sub/CMapper.xml", "<mapper><insert/></mapper>");
+		write("README.md", "changed");
+		git("rm", "-q", "mapper/BMapper.xml");
+		git("commit", "-q", "-am", "second");
+		write("mapper/AMapper.xml", "<mapper><update/></mapper>");
+		List<Path> changedPathList = GitChanges.changedSince(repository.resolve("mapper").toFile(), "HEAD~1");
+		assertEquals(Arrays.asList(repository.resolve("README.md"), repository.resolve("mapper/AMapper.xml"),
+				repository.resolve("mapper/sub/CMapper.xml")), changedPathList);
+
+		assertEquals(Arrays.asList(repository.resolve("mapper/AMapper.xml"),
+				repository.resolve("mapper/sub/CMapper.xml")),
+				GitChanges.select(changedPathList, Collections.emptyList(), FormatOptions.DEFAULT_GLOB));
+		assertEquals(Collections.singletonList(repository.resolve("mapper/AMapper.xml")), GitChanges
+				.select(changedPathList, Arrays.asList(repository.resolve("mapper")), FormatOptions.DEFAULT_GLOB));
+		assertEquals(Collections.singletonList(repository.resolve("README.md")), GitChanges
+				.select(changedPathList, Arrays.asList(repository.resolve("README.md")), FormatOptions.DEFAULT_GLOB));
+	}
+
+	@Test
+	public void testChangedSince_withWarning() throws Exception {
+		git("tag", "base");
+		git("branch", "base");
+		write("mapper/AMapper.xml", "<mapper><select/></mapper>");
+		assertEquals(Collections.singletonList(repository.resolve("mapper/AMapper.xml")),
+				GitChanges.changedSince(repository.toFile(), "base")); // refname 'base' is ambiguous
+	}
+
+	@Test
+	public void testUnknownRevision() {
+		try {
+			GitChanges.changedSince(repository.toFile(), "no-such-revision");
+			fail("IOException expected");
+		} catch (IOException e) {
+			assertTrue(e.getMessage().contains("no-such-revision"));
+		}
+	}
+
+	private void write(String name) throws IOException {
+		write(name, "<mapper/>");
+	}
+
+	private void write(String name, String contents) throws IOException {
+		FileUtils.write(repository.resolve(name).toFile(), contents, StandardCharsets.UTF_8);
+	}
+
+	private void git(String... args) throws Exception {
+		String[] command = new String[args.length + 1];
+		command[0] = "git";
+		System.arraycopy(args, 0, command, 1, args.length);
+		Process process = new ProcessBuilder(command).directory(repository.toFile()).redirectErrorStream(true)
+				.start();
+		String output = IOUtils.toString(process.getInputStream(), StandardCharsets.UTF_8);
+		assertEquals(output, 0, process.waitFor());
+	}
+
+}
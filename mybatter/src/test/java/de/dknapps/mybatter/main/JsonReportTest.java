@@ -0,0 +1,54 @@
+/*
+ * MyBatter - Formats your MyBatis mapper XML files
+ *
+ *     Copyright (C) 2018 Uwe Damken
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package de.dknapps.mybatter.main;
+
+import java.io.IOException;
+import java.io.StringWriter;
+
+import org.junit.Test;
+
+import de.dknapps.mybatter.statistics.FileStatistics;
+import junit.framework.TestCase;
+
+public class JsonReportTest extends TestCase {
+
+	@Test
+	public void test_quote() {
+		assertEquals("null", JsonReport.quote(null));
+		assertEquals("\"a\\\"b\\\\c\\nd\\u0001\"", JsonReport.quote("a\"b\\c\nd\u0001"));
+	}
+
+	@Test
+	public void test_streamedWhileRunning() throws IOException {
+		StringWriter writer = new StringWriter();
+		JsonReport report = new JsonReport(writer);
+		FileStatistics statistics = new FileStatistics("a.xml");
+		statistics.addBytesRead(10);
+		statistics.addBytesWritten(12);
+		report.add("a.xml", statistics, true, null);
+		assertTrue(writer.toString(), writer.toString().startsWith("{\"files\":[\n{\"path\":\"a.xml\",\"bytesIn\":10,"
+				+ "\"bytesOut\":12,\"changed\":true,\"error\":null,\"millis\":{\"read\":0.000,"));
+		report.add("b.xml", null, false, "Cannot format 'b.xml'");
+		report.close();
+		assertTrue(writer.toString(), writer.toString().contains("},\n{\"path\":\"b.xml\",\"bytesIn\":0,"
+				+ "\"bytesOut\":0,\"changed\":false,\"error\":\"Cannot format 'b.xml'\""));
+		assertTrue(writer.toString(), writer.toString().endsWith(
+				"\n],\"summary\":{\"files\":2,\"changed\":1,\"errors\":1,\"bytesIn\":10,\"bytesOut\":12}}\n"));
+	}
+
+}
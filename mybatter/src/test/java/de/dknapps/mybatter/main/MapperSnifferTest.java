@@ -0,0 +1,73 @@
+/*
+ * MyBatter - Formats your MyBatis mapper XML files
+ *
+ *     Copyright (C) 2018 Uwe Damken
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package de.dknapps.mybatter.main;
+
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Collections;
+
+import org.apache.commons.io.FileUtils;
+import org.apache.commons.lang3.StringUtils;
+import org.junit.Test;
+
+import junit.framework.TestCase;
+
+public class MapperSnifferTest extends TestCase {
+
+	private static final String DOCTYPE = "<!DOCTYPE mapper PUBLIC \"-//mybatis.org//DTD Mapper 3.0//EN\" "
+			+ "\"http://mybatis.org/dtd/mybatis-3-mapper.dtd\">";
+
+	@Test
+	public void test_isMapperHeader() {
+		assertTrue(MapperSniffer.isMapperHeader("<?xml version=\"1.0\"?>\n" + DOCTYPE + "\n<mapper/>"));
+		assertTrue(MapperSniffer.isMapperHeader("\uFEFF<mapper namespace=\"a\">"));
+		assertTrue(MapperSniffer.isMapperHeader("<!-- <beans> -->\n<?pi?>\n<mapper>"));
+		assertTrue(MapperSniffer.isMapperHeader("<mapper/>"));
+		assertFalse(MapperSniffer.isMapperHeader("<?xml version=\"1.0\"?>\n<beans xmlns=\"a\">"));
+		assertFalse(MapperSniffer.isMapperHeader("<!DOCTYPE configuration PUBLIC \"a\" \"b\">"));
+		assertFalse(MapperSniffer.isMapperHeader("<project>"));
+		assertFalse(MapperSniffer.isMapperHeader("<mappers>"));
+		assertFalse(MapperSniffer.isMapperHeader("no xml"));
+
+		// Cannot tell, hence taken as mapper
+		assertTrue(MapperSniffer.isMapperHeader(""));
+		assertTrue(MapperSniffer.isMapperHeader("<!-- long comment"));
+		assertTrue(MapperSniffer.isMapperHeader("<?xml version=\"1.0\"?>\n<mapp"));
+	}
+
+	@Test
+	public void test_formatAll() throws Exception {
+		Path directory = Files.createTempDirectory("mybatter");
+		try {
+			String beans = "<beans>" + StringUtils.repeat("<bean/>", MapperSniffer.HEADER_BYTES) + "</beans>";
+			Files.write(directory.resolve("beans.xml"), beans.getBytes(StandardCharsets.UTF_8));
+			String mapper = DOCTYPE + "<mapper><select>select a from t</select></mapper>";
+			Files.write(directory.resolve("AMapper.xml"), mapper.getBytes(StandardCharsets.UTF_8));
+			FormatOptions options = new FormatOptions();
+			options.setMappersOnly(true);
+			RunResult result = new MyBatterRunner().formatAll(Collections.singletonList(directory), options);
+			assertEquals(1, result.getFormattedCount());
+			assertEquals(directory.resolve("AMapper.xml"), result.getFileResultList().get(0).getPath());
+			assertEquals(beans, new String(Files.readAllBytes(directory.resolve("beans.xml")), StandardCharsets.UTF_8));
+		} finally {
+			FileUtils.deleteDirectory(directory.toFile());
+		}
+	}
+
+}
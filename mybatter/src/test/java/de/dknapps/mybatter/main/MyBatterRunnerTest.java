@@ -0,0 +1,192 @@
+/*
+ * MyBatter - Formats your MyBatis mapper XML files
+ *
+ *     Copyright (C) 2018 Uwe Damken
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package de.dknapps.mybatter.main;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import org.apache.commons.io.FileUtils;
+import org.junit.Test;
+
+import de.dknapps.mybatter.formatter.Formatter;
+import de.dknapps.mybatter.formatter.HookedFormatCache;
+import junit.framework.TestCase;
+
+public class MyBatterRunnerTest extends TestCase {
+
+	private static final String INPUT = "<mapper><select>select a from t where b = #{b}</select></mapper>";
+
+	@Test
+	public void test_formatAll() throws IOException {
+		Path directory = Files.createTempDirectory("mybatter");
+		try {
+			Path file = writeMapper(directory, "a.xml");
+			writeMapper(directory, "~b.xml"); // not matching the default glob
+			List<Path> startedList = Collections.synchronizedList(new ArrayList<>());
+			MyBatterRunner runner = new MyBatterRunner();
+			runner.addListener(new RunListener() {
+
+				@Override
+				public void fileStarted(Path startedFile) {
+					startedList.add(startedFile);
+				}
+
+			});
+			RunResult result = runner.formatAll(Collections.singletonList(directory), new FormatOptions());
+			assertEquals(1, result.getFormattedCount());
+			assertEquals(1, result.getChangedCount());
+			assertEquals(0, result.getFailedCount());
+			assertEquals(Collections.singletonList(file), startedList);
+			assertEquals(new Formatter().format(INPUT),
+					new String(Files.readAllBytes(file), StandardCharsets.UTF_8));
+
+			result = runner.formatAll(Collections.singletonList(directory.resolve("missing.xml")),
+					new FormatOptions());
+			assertEquals(1, result.getFailedCount());
+			assertTrue(result.getFileResultList().get(0).getError().contains("neither a file nor a directory"));
+		} finally {
+			FileUtils.deleteDirectory(directory.toFile());
+		}
+	}
+
+	@Test
+	public void test_checkOnly() throws IOException {
+		Path directory = Files.createTempDirectory("mybatter");
+		try {
+			Path file = writeMapper(directory, "a.xml");
+			FormatOptions options = new FormatOptions();
+			options.setCheckOnly(true);
+			RunResult result = new MyBatterRunner().formatAll(Collections.singletonList(file), options);
+			assertEquals(1, result.getChangedCount());
+			assertEquals(INPUT, new String(Files.readAllBytes(file), StandardCharsets.UTF_8));
+			assertFalse(directory.resolve("~a.xml").toFile().exists());
+		} finally {
+			FileUtils.deleteDirectory(directory.toFile());
+		}
+	}
+
+	@Test
+	public void test_concurrentRuns() throws Exception {
+		List<Path> directoryList = new ArrayList<>();
+		ExecutorService executor = Executors.newFixedThreadPool(4);
+		try {
+			MyBatterRunner runner = new MyBatterRunner();
+			List<Future<RunResult>> futureList = new ArrayList<>();
+			for (int i = 0; i < 8; i++) {
+				Path directory = Files.createTempDirectory("mybatter");
+				directoryList.add(directory);
+				for (int j = 0; j < 10; j++) {
+					writeMapper(directory, "m" + j + ".xml");
+				}
+				FormatOptions options = new FormatOptions();
+				options.setParallel(i % 2 == 0);
+				options.setCollectingStatistics(true);
+				futureList.add(
+						executor.submit(() -> runner.formatAll(Collections.singletonList(directory), options)));
+			}
+			String expected = new Formatter().format(INPUT);
+			for (Future<RunResult> future : futureList) {
+				RunResult result = future.get();
+				assertEquals(10, result.getFormattedCount());
+				for (FileResult fileResult : result.getFileResultList()) {
+					assertEquals(INPUT.length(), fileResult.getStatistics().getBytesRead());
+					assertEquals(expected,
+							new String(Files.readAllBytes(fileResult.getPath()), StandardCharsets.UTF_8));
+				}
+			}
+		} finally {
+			executor.shutdown();
+			for (Path directory : directoryList) {
+				FileUtils.deleteDirectory(directory.toFile());
+			}
+		}
+	}
+
+	@Test
+	public void test_formatAll_withTimeout() throws Exception {
+		Path directory = Files.createTempDirectory("mybatter");
+		try {
+			Path file = writeMapper(directory, "a.xml");
+			CountDownLatch interrupted = new CountDownLatch(1);
+			FormatOptions options = new FormatOptions();
+			options.setParallel(true);
+			options.setTimeoutSeconds(1);
+			options.setCache(new HookedFormatCache(() -> {
+				try {
+					new CountDownLatch(1).await(); // formatting the statement takes forever unless interrupted
+				} catch (InterruptedException e) {
+					interrupted.countDown();
+					Thread.currentThread().interrupt();
+				}
+			}));
+			RunResult result = new MyBatterRunner().formatAll(Collections.singletonList(file), options);
+			assertEquals(1, result.getFailedCount());
+			assertTrue(result.getFileResultList().get(0).getError().contains("within 1 seconds"));
+			assertTrue(interrupted.await(10, TimeUnit.SECONDS)); // the statement task has been stopped
+			assertEquals(INPUT, new String(Files.readAllBytes(file), StandardCharsets.UTF_8));
+		} finally {
+			FileUtils.deleteDirectory(directory.toFile());
+		}
+	}
+
+	@Test
+	public void test_formatAll_withFailingFormatter() throws IOException {
+		Path directory = Files.createTempDirectory("mybatter");
+		try {
+			Path failingFile = writeMapper(directory, "a.xml");
+			Path file = writeMapper(directory, "b.xml");
+			for (long timeoutSeconds : new long[] { 0, 10 }) {
+				FormatOptions options = new FormatOptions();
+				options.setCheckOnly(true);
+				options.setTimeoutSeconds(timeoutSeconds);
+				AtomicBoolean failing = new AtomicBoolean(true);
+				options.setCache(new HookedFormatCache(() -> {
+					if (failing.getAndSet(false)) {
+						throw new IllegalStateException("broken"); // formatting the first file fails
+					}
+				}));
+				RunResult result = new MyBatterRunner().formatAll(Arrays.asList(failingFile, file), options);
+				assertEquals(2, result.getFileResultList().size());
+				assertEquals(1, result.getFailedCount());
+				assertTrue(result.getFileResultList().get(0).getError().contains("IllegalStateException: broken"));
+			}
+		} finally {
+			FileUtils.deleteDirectory(directory.toFile());
+		}
+	}
+
+	private static Path writeMapper(Path directory, String name) throws IOException {
+		File file = directory.resolve(name).toFile();
+		FileUtils.write(file, INPUT, StandardCharsets.UTF_8);
+		return file.toPath();
+	}
+
+}
@@ -0,0 +1,74 @@
+/*
+ * MyBatter - Formats your MyBatis mapper XML files
+ *
+ *     Copyright (C) 2018 Uwe Damken
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package de.dknapps.mybatter.main;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+import org.apache.commons.io.FileUtils;
+import org.junit.Test;
+
+import junit.framework.TestCase;
+
+public class MyBatterTest extends TestCase {
+
+	private Path directory;
+
+	private String file;
+
+	@Override
+	protected void setUp() throws IOException {
+		directory = Files.createTempDirectory("mybatter");
+		Path path = directory.resolve("a.xml");
+		FileUtils.write(path.toFile(), "<mapper><select>select a from t</select></mapper>", StandardCharsets.UTF_8);
+		file = path.toString();
+	}
+
+	@Override
+	protected void tearDown() throws IOException {
+		FileUtils.deleteDirectory(directory.toFile());
+	}
+
+	@Test
+	public void test_run_exitStatus() {
+		assertEquals(MyBatter.EXIT_SUCCESS, new MyBatter().run(new String[] { "-s", "-k", file }));
+		assertEquals(MyBatter.EXIT_SUCCESS, new MyBatter().run(new String[] { "-s", "-h" }));
+	}
+
+	@Test
+	public void test_run_exitStatus_withFailedFile() {
+		assertEquals(MyBatter.EXIT_FILE_FAILED, new MyBatter().run(new String[] { "-s", "-m", "1", file }));
+		assertEquals(MyBatter.EXIT_FILE_FAILED,
+				new MyBatter().run(new String[] { "-s", directory.resolve("missing.xml").toString() }));
+	}
+
+	@Test
+	public void test_run_exitStatus_withInvalidCommandLine() {
+		assertEquals(MyBatter.EXIT_ERROR, new MyBatter().run(new String[] { "-s", "-m", "many", file }));
+	}
+
+	@Test
+	public void test_run_exitStatus_withUnknownRevision() throws Exception {
+		assertEquals(0, new ProcessBuilder("git", "init", "-q").directory(directory.toFile()).start().waitFor());
+		assertEquals(MyBatter.EXIT_ERROR,
+				new MyBatter().run(new String[] { "-s", "--changed-since", "no-such-revision", file }));
+	}
+
+}
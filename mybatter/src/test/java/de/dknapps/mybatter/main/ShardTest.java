@@ -0,0 +1,108 @@
+/*
+ * MyBatter - Formats your MyBatis mapper XML files
+ *
+ *     Copyright (C) 2018 Uwe Damken
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package de.dknapps.mybatter.main;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+import org.apache.commons.io.FileUtils;
+import org.apache.commons.lang3.StringUtils;
+import org.junit.Test;
+
+import junit.framework.TestCase;
+
+public class ShardTest extends TestCase {
+
+	@Test
+	public void testParse() {
+		Shard shard = Shard.parse("2/4");
+		assertEquals(2, shard.getIndex());
+		assertEquals(4, shard.getCount());
+		for (String invalid : new String[] { "0/4", "5/4", "1/0", "1", "a/b", "/4" }) {
+			try {
+				Shard.parse(invalid);
+				fail("IllegalArgumentException expected for " + invalid);
+			} catch (IllegalArgumentException e) {
+				assertTrue(e.getMessage().contains(invalid));
+			}
+		}
+	}
+
+	@Test
+	public void testHashIsStable() {
+		assertEquals(0xcbf29ce484222325L, Shard.hash(""));
+		assertEquals(0xaf63dc4c8601ec8cL, Shard.hash("a"));
+	}
+
+	@Test
+	public void testEachFileInExactlyOneShard() {
+		Path base = Paths.get("/repository");
+		int[] filesPerShard = new int[4];
+		for (int f = 0; f < 1000; f++) {
+			Path path = base.resolve("src/main/resources/mapper" + f / 10 + "/Mapper" + f + ".xml");
+			int shardCount = 0;
+			for (int i = 1; i <= 4; i++) {
+				if (new Shard(i, 4, base).contains(path)) {
+					shardCount++;
+					filesPerShard[i - 1]++;
+				}
+			}
+			assertEquals(1, shardCount);
+		}
+		for (int count : filesPerShard) {
+			assertTrue("" + count, count > 200 && count < 300);
+		}
+	}
+
+	@Test
+	public void testWeightedBySize() throws IOException {
+		Path directory = Files.createTempDirectory("mybatter-shard");
+		try {
+			List<Path> pathList = new ArrayList<>();
+			for (int f = 1; f <= 20; f++) {
+				Path path = directory.resolve("Mapper" + f + ".xml");
+				FileUtils.write(path.toFile(), StringUtils.repeat('x', f * f * 100), StandardCharsets.UTF_8);
+				pathList.add(path);
+			}
+			long[] bytesPerShard = new long[3];
+			for (int i = 1; i <= 3; i++) {
+				Shard shard = new Shard(i, 3, directory).weightedBySize(Collections.singletonList(directory),
+						FormatOptions.DEFAULT_GLOB);
+				for (Path path : pathList) {
+					if (shard.contains(path)) {
+						bytesPerShard[i - 1] += path.toFile().length();
+					}
+				}
+			}
+			long total = bytesPerShard[0] + bytesPerShard[1] + bytesPerShard[2];
+			assertEquals(287000, total);
+			for (long bytes : bytesPerShard) {
+				assertTrue("" + bytes, Math.abs(bytes - total / 3) < 400 * 100); // less than the largest file
+			}
+		} finally {
+			FileUtils.deleteDirectory(directory.toFile());
+		}
+	}
+
+}
@@ -0,0 +1,102 @@
+/*
+ * MyBatter - Formats your MyBatis mapper XML files
+ *
+ *     Copyright (C) 2018 Uwe Damken
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package de.dknapps.mybatter.statistics;
+
+import java.lang.management.ManagementFactory;
+import java.util.concurrent.ForkJoinPool;
+
+import javax.management.JMException;
+import javax.management.MBeanServer;
+import javax.management.ObjectName;
+
+import org.junit.Test;
+
+import de.dknapps.mybatter.formatter.FormatCache;
+import de.dknapps.mybatter.formatter.ParallelFormatter;
+import junit.framework.TestCase;
+
+public class FormatterMetricsTest extends TestCase {
+
+	@Test
+	public void test_bucketIndex() {
+		assertEquals(0, FormatterMetrics.bucketIndex(0));
+		assertEquals(1, FormatterMetrics.bucketIndex(1));
+		assertEquals(3, FormatterMetrics.bucketIndex(7));
+		assertEquals(12, FormatterMetrics.bucketIndex(5000));
+		assertEquals(12, FormatterMetrics.bucketIndex(Long.MAX_VALUE));
+	}
+
+	@Test
+	public void test_countersAndReset() {
+		FormatterMetrics metrics = new FormatterMetrics("test");
+		metrics.fileQueued();
+		metrics.fileQueued();
+		metrics.fileStarted();
+		assertEquals(1, metrics.getQueueDepth());
+		assertEquals(1, metrics.getInFlightFiles());
+		metrics.fileFormatted(100, 3000000);
+		metrics.fileStarted();
+		metrics.fileFailed(true);
+		metrics.fileFailed(false);
+		assertEquals(0, metrics.getQueueDepth());
+		assertEquals(0, metrics.getInFlightFiles());
+		assertEquals(1, metrics.getFilesFormatted());
+		assertEquals(100, metrics.getBytesProcessed());
+		assertEquals(2, metrics.getErrorCount());
+		assertEquals(1, metrics.getLatencyHistogram()[2]);
+		metrics.resetCounters();
+		assertEquals(0, metrics.getFilesFormatted());
+		assertEquals(0, metrics.getBytesProcessed());
+		assertEquals(0, metrics.getErrorCount());
+		assertEquals(0, metrics.getLatencyHistogram()[2]);
+	}
+
+	@Test
+	public void test_cacheHitRate() {
+		FormatterMetrics metrics = new FormatterMetrics("test");
+		assertEquals(0.0, metrics.getCacheHitRate());
+		FormatCache cache = new FormatCache();
+		metrics.setCache(cache, null);
+		ParallelFormatter formatter = new ParallelFormatter(new ForkJoinPool(1), cache);
+		String input = "<mapper><select>select a from t</select></mapper>";
+		formatter.format(input);
+		formatter.format(input);
+		assertEquals(0.5, metrics.getCacheHitRate(), 0.001);
+		metrics.resetCounters();
+		assertEquals(0.0, metrics.getCacheHitRate());
+		assertEquals("There is no cache file to flush to", metrics.flushCache());
+	}
+
+	@Test
+	public void test_registeredAtMBeanServer() throws JMException {
+		FormatterMetrics metrics = new FormatterMetrics("test");
+		metrics.register();
+		try {
+			metrics.fileQueued();
+			MBeanServer server = ManagementFactory.getPlatformMBeanServer();
+			ObjectName objectName = new ObjectName("de.dknapps.mybatter:type=FormatterMetrics,name=\"test\"");
+			assertEquals(1L, server.getAttribute(objectName, "QueueDepth"));
+			server.invoke(objectName, "resetCounters", null, null);
+		} finally {
+			metrics.unregister();
+		}
+		assertFalse(ManagementFactory.getPlatformMBeanServer()
+				.isRegistered(new ObjectName("de.dknapps.mybatter:type=FormatterMetrics,name=\"test\"")));
+	}
+
+}
@@ -0,0 +1,85 @@
+/*
+ * MyBatter - Formats your MyBatis mapper XML files
+ *
+ *     Copyright (C) 2018 Uwe Damken
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package de.dknapps.mybatter.statistics;
+
+import static de.dknapps.mybatter.tokenizer.TokenType.PRIMARY_XML_TAG;
+import static de.dknapps.mybatter.tokenizer.TokenType.SQL_SUB_STATEMENT;
+import static de.dknapps.mybatter.tokenizer.TokenType.TERM;
+
+import java.io.ByteArrayOutputStream;
+import java.io.PrintStream;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+
+import org.junit.Test;
+
+import de.dknapps.mybatter.formatter.Formatter;
+import de.dknapps.mybatter.formatter.ParallelFormatter;
+import junit.framework.TestCase;
+
+public class RunStatisticsTest extends TestCase {
+
+	private static final String INPUT = "<mapper><select>select a from t</select><select>select b from t</select></mapper>";
+
+	@Test
+	public void test_percentile() {
+		List<Long> sortedList = Arrays.asList(1L, 2L, 3L, 4L, 5L, 6L, 7L, 8L, 9L, 10L);
+		assertEquals(5, RunStatistics.percentile(sortedList, 50));
+		assertEquals(10, RunStatistics.percentile(sortedList, 95));
+		assertEquals(10, RunStatistics.percentile(sortedList, 99));
+		assertEquals(1, RunStatistics.percentile(Arrays.asList(1L), 50));
+		assertEquals(0, RunStatistics.percentile(Arrays.asList(), 50));
+	}
+
+	@Test
+	public void test_countTokens() {
+		FileStatistics statistics = new FileStatistics("test.xml");
+		new Formatter().format(INPUT, statistics);
+		assertEquals(2, statistics.getTokenCount(PRIMARY_XML_TAG));
+		assertEquals(2, statistics.getTokenCount(SQL_SUB_STATEMENT));
+		assertTrue(statistics.getTokenCount(TERM) >= 4);
+		assertTrue(statistics.getNanos(Phase.TOKENIZE) > 0);
+		assertTrue(statistics.getNanos(Phase.FORMAT) > 0);
+	}
+
+	@Test
+	public void test_sameCountsInParallel() {
+		FileStatistics sequentialStatistics = new FileStatistics("test.xml");
+		new Formatter().format(INPUT, sequentialStatistics);
+		FileStatistics parallelStatistics = new FileStatistics("test.xml");
+		new ParallelFormatter(80, 4, new ForkJoinPool(4)).format(INPUT, parallelStatistics);
+		assertEquals(sequentialStatistics.getTokenCount(), parallelStatistics.getTokenCount());
+	}
+
+	@Test
+	public void test_print() {
+		RunStatistics runStatistics = new RunStatistics();
+		FileStatistics statistics = new FileStatistics("test.xml");
+		statistics.addBytesRead(INPUT.length());
+		new Formatter().format(INPUT, statistics);
+		runStatistics.add(statistics, 1000000);
+		ByteArrayOutputStream out = new ByteArrayOutputStream();
+		runStatistics.print(new PrintStream(out, true));
+		String printed = out.toString();
+		assertTrue(printed, printed.startsWith("Statistics of 1 file(s) formatted in "));
+		assertTrue(printed, printed.contains(INPUT.length() + " bytes read"));
+		assertTrue(printed, printed.contains("latency per file: p50 1.000 ms p95 1.000 ms p99 1.000 ms"));
+	}
+
+}
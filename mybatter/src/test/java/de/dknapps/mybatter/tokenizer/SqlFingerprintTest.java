@@ -0,0 +1,90 @@
+/*
+ * MyBatter - Formats your MyBatis mapper XML files
+ *
+ *     Copyright (C) 2018 Uwe Damken
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package de.dknapps.mybatter.tokenizer;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotEquals;
+
+import org.junit.Test;
+
+public class SqlFingerprintTest {
+
+	@Test
+	public void test_of_replacesValues() {
+		assertFingerprint("select a from t where b = ? and c = ? and d = ? and e = ?",
+				"SELECT a FROM t WHERE b = 'x''y' AND c = 1.5e3 AND d = #{d,jdbcType=INTEGER} AND e = ${e}");
+		assertFingerprint("update t set a = ?, b = ? where c = ?", "update t set a = ?, b = -1 where c = +0.5");
+		assertFingerprint("insert into t (a, b) values (?, ?)", "insert into t (a, b) values (#{a}, 'b')");
+	}
+
+	@Test
+	public void test_of_keepsOperatorsAndIdentifiers() {
+		assertFingerprint("select \"A\", `b` from s.t where a - ? >= - b and c <> ? and d & ? < ?",
+				"select \"A\", `B` from s . t where a-1 >= -b and c<>2 and d&1<2");
+		assertFingerprint("select a from t where b = ? and c = - ?", "select a from t where b=-1 and c=-#{c}");
+		assertFingerprint("select a#b, c$d from t", "select a#b, c$d from t");
+	}
+
+	@Test
+	public void test_of_collapsesInLists() {
+		assertFingerprint("select a from t where b in (?+) and c not in (?+)",
+				"select a from t where b in (1, 2, 3) and c NOT IN ( 'x' )");
+		assertFingerprint("select a from t where b in (select c from u)",
+				"select a from t where b in (select c from u)");
+		assertFingerprint("select a from t where b in (?, c)", "select a from t where b in (1, c)");
+		assertEquals(SqlFingerprint.of("select a from t where b in (#{b[0]})"),
+				SqlFingerprint.of("select a from t where b in (#{b[0]}, #{b[1]}, #{b[2]})"));
+	}
+
+	@Test
+	public void test_of_normalizesCaseWhitespaceAndComments() {
+		assertFingerprint("select a, b from t", "  SELECT a ,b -- comment\n\tFROM T\n");
+		assertEquals(SqlFingerprint.of("select a from t where b = 1"),
+				SqlFingerprint.of("SELECT A\n  FROM T\n WHERE B = 'x'"));
+		assertNotEquals(SqlFingerprint.of("select a from t").getHash(), SqlFingerprint.of("select b from t").getHash());
+	}
+
+	@Test
+	public void test_of_tokenizesLikeTheFormatter() {
+		assertFingerprint("select a from /* b */ t", "select a from /* B */ t"); // no sql comment for the tokenizer
+		assertFingerprint("select ? from t", "select 1.5 from t");
+		assertFingerprint("select ? from t", "select .5 from t");
+	}
+
+	@Test
+	public void test_of_withIncompleteInput() {
+		assertFingerprint("select ?", "select 'a");
+		assertFingerprint("select ?", "select #{a");
+		assertFingerprint("select", "select -- a");
+		assertFingerprint("", "");
+	}
+
+	@Test
+	public void test_hashOf() {
+		String sql = "select a from t where b in (1, 2) and c = #{c}";
+		assertEquals(SqlFingerprint.of(sql).getHash(), SqlFingerprint.hashOf(sql));
+		assertEquals(SqlFingerprint.of("select ?").getHash(), SqlFingerprint.hashOf("SELECT 1"));
+	}
+
+	private void assertFingerprint(String expected, String sql) {
+		SqlFingerprint fingerprint = SqlFingerprint.of(sql);
+		assertEquals(expected, fingerprint.getText());
+		assertEquals(SqlFingerprint.hashOf(sql), fingerprint.getHash());
+	}
+
+}
@@ -0,0 +1,56 @@
+/*
+ * MyBatter - Formats your MyBatis mapper XML files
+ *
+ *     Copyright (C) 2018 Uwe Damken
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package de.dknapps.mybatter.tokenizer;
+
+import static org.junit.Assert.assertEquals;
+
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+import java.util.stream.Collectors;
+
+import org.junit.Test;
+
+public class StatementSplitterTest {
+
+	@Test
+	public void test_split_atPrimaryXmlTags() {
+		assertStatements("<mapper>\n|<select id=\"a\">x</select>\n|<SQL>y</SQL>\n|<resultMap id=\"b\"></resultMap></mapper>",
+				"<mapper>\n<select id=\"a\">x</select>\n<SQL>y</SQL>\n<resultMap id=\"b\"></resultMap></mapper>");
+	}
+
+	@Test
+	public void test_split_notWithinTokens() {
+		assertStatements("<select>a <!-- <select> --> b</select>|<select>c</select>",
+				"<select>a <!-- <select> --> b</select><select>c</select>");
+		assertStatements("<select>a -- <select>\n</select>|<select>c</select>",
+				"<select>a -- <select>\n</select><select>c</select>");
+		assertStatements("<select>'</select><select>'</select>", "<select>'</select><select>'</select>");
+	}
+
+	@Test
+	public void test_split_notAtOtherTags() {
+		assertStatements("<selectKey></selectKey><sql/><cache/>", "<selectKey></selectKey><sql/><cache/>");
+		assertStatements("<sql id=\"a\"/>|<select>b</select>", "<sql id=\"a\"/><select>b</select>");
+	}
+
+	private void assertStatements(String expected, String input) {
+		List<Statement> statementList = StatementSplitter.split(input, ForkJoinPool.commonPool());
+		assertEquals(expected, statementList.stream().map(Statement::getInput).collect(Collectors.joining("|")));
+	}
+
+}
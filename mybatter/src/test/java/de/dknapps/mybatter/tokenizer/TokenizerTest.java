@@ -41,6 +41,8 @@ import static de.dknapps.mybatter.tokenizer.TokenType.TERM;
 import static de.dknapps.mybatter.tokenizer.TokenType.XML_COMMENT;
 import static de.dknapps.mybatter.tokenizer.TokenType.XML_TAG;
 
+import java.util.List;
+
 import org.junit.Test;
 
 import junit.framework.TestCase;
@@ -597,6 +599,60 @@ public class TokenizerTest extends TestCase {
 		assertEquals(String.join("\n", output), tokenizer.toString());
 	}
 
+	@Test
+	public void test_retokenize() {
+		String input = "<?xml version=\"1.0\"?>\n<mapper>\n" //
+				+ "<select id=\"a\">select a from b where c between 1 and 2</select>\n" //
+				+ "<sql id=\"b\">x, y</sql>\n" //
+				+ "<delete id=\"c\">delete from d where e = #{e}</delete>\n" //
+				+ "</mapper>";
+		doAssertRetokenized(input, input.indexOf("where c"), input.indexOf("where c"), "x, "); // insert
+		doAssertRetokenized(input, input.indexOf("x, y"), input.indexOf(", y"), "z"); // replace
+		doAssertRetokenized(input, input.indexOf("between"), input.indexOf(" 1 and"), "="); // retype "and"
+		doAssertRetokenized(input, input.indexOf("<sql"), input.indexOf("<sql"), "  "); // before tag
+		doAssertRetokenized(input, input.indexOf("sql id"), input.indexOf(" id=\"b\""), "if"); // rename tag
+		doAssertRetokenized(input, input.indexOf("x, y"), input.indexOf("x, y"), "'"); // string to the end
+		doAssertRetokenized(input, input.indexOf("x, y"), input.indexOf("x, y"), "<!--"); // comment to the end
+		doAssertRetokenized(input, input.indexOf("x, y"), input.indexOf("x, y"), "<!-- x -->"); // comment
+		doAssertRetokenized(input, 0, input.length(), "<select>a</select>"); // everything
+		doAssertRetokenized(input, 0, 0, " "); // at the beginning
+		doAssertRetokenized(input, input.length(), input.length(), " x"); // at the end
+		doAssertRetokenized("", 0, 0, "<select>a</select>"); // empty input
+		String incompleteInput = input.replace("<sql", "'<sql");
+		doAssertRetokenized(incompleteInput, incompleteInput.indexOf("e = "), incompleteInput.indexOf("e = "), "'");
+	}
+
+	/**
+	 * Helper method to check retokenizing results against tokenizing the edited input from scratch.
+	 * 
+	 * @param input
+	 *            The MyBatis mapper xml to be tokenized and edited.
+	 * @param editStart
+	 *            Index of the first replaced character.
+	 * @param editEnd
+	 *            Index of the first character after the replaced characters.
+	 * @param newText
+	 *            The replacement.
+	 */
+	private void doAssertRetokenized(String input, int editStart, int editEnd, String newText) {
+		Tokenizer previous = new Tokenizer(input);
+		previous.tokenize();
+		Tokenizer expected = new Tokenizer(input.substring(0, editStart) + newText + input.substring(editEnd));
+		expected.tokenize();
+		Tokenizer actual = Tokenizer.retokenize(previous, editStart, editEnd, newText);
+		assertEquals(expected.toString(), actual.toString());
+		assertEquals(offsets(expected.getTokenList()), offsets(actual.getTokenList()));
+		assertEquals(expected.isIncomplete(), actual.isIncomplete());
+	}
+
+	private String offsets(List<Token> tokenList) {
+		StringBuilder sb = new StringBuilder();
+		for (Token token : tokenList) {
+			sb.append(token.getOffset()).append('(').append(offsets(token.getTokenList())).append(')');
+		}
+		return sb.toString();
+	}
+
 	@Test
 	public void test_constructor() {
 		assertEquals("||" + null, new Tokenizer(null).toString());